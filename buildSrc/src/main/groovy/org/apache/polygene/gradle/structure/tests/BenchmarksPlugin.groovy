@@ -0,0 +1,161 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.polygene.gradle.structure.tests
+
+import groovy.json.JsonSlurper
+import groovy.transform.CompileStatic
+import org.apache.polygene.gradle.TaskGroups
+import org.gradle.api.Action
+import org.gradle.api.DefaultTask
+import org.gradle.api.GradleException
+import org.gradle.api.Plugin
+import org.gradle.api.Project
+import org.gradle.api.Task
+import org.gradle.api.plugins.JavaPluginConvention
+import org.gradle.api.tasks.JavaExec
+
+/**
+ * JMH benchmarks.
+ *
+ * Benchmarks are annotated classes of the main source set, processed by the JMH annotation processor.
+ *
+ * The {@literal benchmark} task runs them and writes JMH JSON results to
+ * {@literal build/reports/benchmarks/benchmark-<version>.json}, or to the file given by the
+ * {@literal benchmark.results} property. The {@literal benchmark.include} property is a regular expression selecting
+ * the benchmarks to run, {@literal benchmark.forks}, {@literal benchmark.warmups} and {@literal benchmark.iterations}
+ * override the JMH defaults of the benchmarks.
+ *
+ * The {@literal benchmarkCompare} task compares these results to the ones given by the {@literal benchmark.baseline}
+ * property and reports changes above {@literal benchmark.threshold} percents, 10 by default. It fails on regressions
+ * if the {@literal benchmark.failOnRegression} property is set.
+ */
+@CompileStatic
+class BenchmarksPlugin implements Plugin<Project>
+{
+  static class TaskNames
+  {
+    static final String BENCHMARK = 'benchmark'
+    static final String BENCHMARK_COMPARE = 'benchmarkCompare'
+  }
+
+  @Override
+  void apply( final Project project )
+  {
+    def sourceSets = project.convention.getPlugin( JavaPluginConvention ).sourceSets
+    def results = project.hasProperty( 'benchmark.results' )
+      ? project.file( project.property( 'benchmark.results' ) )
+      : project.file( "$project.buildDir/reports/benchmarks/benchmark-${ project.version }.json" )
+    project.tasks.create( TaskNames.BENCHMARK, JavaExec, { JavaExec task ->
+      task.group = TaskGroups.PERFORMANCE
+      task.description = 'Runs JMH benchmarks and writes JSON results.'
+      task.main = 'org.openjdk.jmh.Main'
+      task.classpath = sourceSets.getByName( 'main' ).runtimeClasspath
+      task.outputs.file results
+      task.outputs.upToDateWhen { false }
+      task.doFirst { results.parentFile.mkdirs() }
+      def arguments = [ ] as List<String>
+      if( project.hasProperty( 'benchmark.include' ) )
+      {
+        arguments << project.property( 'benchmark.include' ).toString()
+      }
+      [ 'benchmark.forks': '-f', 'benchmark.warmups': '-wi', 'benchmark.iterations': '-i' ].each { String name, String option ->
+        if( project.hasProperty( name ) )
+        {
+          arguments << option << project.property( name ).toString()
+        }
+      }
+      arguments << '-rf' << 'json' << '-rff' << results.absolutePath
+      task.args arguments
+    } as Action<JavaExec> )
+    project.tasks.create( TaskNames.BENCHMARK_COMPARE, DefaultTask, { Task task ->
+      task.group = TaskGroups.PERFORMANCE_VERIFICATION
+      task.description = 'Compares JMH benchmark results to a baseline.'
+      task.doLast {
+        if( !project.hasProperty( 'benchmark.baseline' ) )
+        {
+          throw new GradleException( "Set the 'benchmark.baseline' property to the JSON results to compare to" )
+        }
+        def baseline = project.file( project.property( 'benchmark.baseline' ) )
+        def threshold = project.hasProperty( 'benchmark.threshold' )
+          ? Double.parseDouble( project.property( 'benchmark.threshold' ).toString() )
+          : 10d
+        def regressions = compare( project, readScores( baseline ), readScores( results ), threshold )
+        if( regressions > 0 && project.hasProperty( 'benchmark.failOnRegression' ) )
+        {
+          throw new GradleException( "$regressions benchmark(s) regressed by more than $threshold%" )
+        }
+      }
+    } as Action<Task> )
+  }
+
+  private static int compare( Project project, Map<String, Score> baseline, Map<String, Score> current,
+                              double threshold )
+  {
+    int regressions = 0
+    current.each { String name, Score score ->
+      def base = baseline.get( name )
+      if( base == null || base.value == 0d )
+      {
+        project.logger.lifecycle "NEW        $name ${ score.value } ${ score.unit }"
+        return
+      }
+      def change = ( score.value - base.value ) * 100d / base.value
+      // Throughput is better when higher, all other modes are better when lower
+      def improvement = score.mode == 'thrpt' ? change : -change
+      def status = improvement <= -threshold ? 'REGRESSION' : improvement >= threshold ? 'IMPROVED  ' : 'SAME      '
+      if( improvement <= -threshold )
+      {
+        regressions++
+      }
+      project.logger.lifecycle String.format( Locale.ROOT, '%s %s %.3f -> %.3f %s (%+.1f%%)',
+                                              status, name, base.value, score.value, score.unit, change )
+    }
+    return regressions
+  }
+
+  private static Map<String, Score> readScores( File results )
+  {
+    if( !results.isFile() )
+    {
+      throw new GradleException( "No benchmark results at $results" )
+    }
+    def scores = new TreeMap<String, Score>()
+    def json = new JsonSlurper().parse( results ) as List<Map<String, Object>>
+    json.each { Map<String, Object> result ->
+      String name = result.get( 'benchmark' ).toString()
+      def params = result.get( 'params' ) as Map<String, Object>
+      if( params )
+      {
+        def joined = params.collect { String key, Object value -> "$key=$value".toString() }.join( ',' )
+        name = "$name [$joined]".toString()
+      }
+      def metric = result.get( 'primaryMetric' ) as Map<String, Object>
+      scores.put name, new Score( mode: result.get( 'mode' ).toString(),
+                                  value: ( metric.get( 'score' ) as Number ).doubleValue(),
+                                  unit: metric.get( 'scoreUnit' ).toString() )
+    }
+    return scores
+  }
+
+  static class Score
+  {
+    String mode
+    double value
+    String unit
+  }
+}
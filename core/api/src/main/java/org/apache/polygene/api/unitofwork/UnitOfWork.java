@@ -279,6 +279,23 @@ public interface UnitOfWork extends MetaInfoHolder, AutoCloseable
     <T> T get( Class<T> type, Identity identity )
         throws NoSuchEntityTypeException, NoSuchEntityException;
 
+    /**
+     * Find Entities of the given mixin type with the given identities.
+     * <p>
+     * The state of all the entities is loaded at once from the underlying EntityStore when it supports it,
+     * saving a round-trip per entity compared to calling {@link #get(Class, Identity)} repeatedly.
+     * </p>
+     *
+     * @param <T>        Entity type
+     * @param type       of the entities
+     * @param identities of the entities
+     * @return the entities, in the order of the given identities
+     * @throws NoSuchEntityTypeException if no entity type could be found
+     * @throws NoSuchEntityException     if any of the entities could not be found
+     */
+    <T> List<T> getAll( Class<T> type, Iterable<Identity> identities )
+        throws NoSuchEntityTypeException, NoSuchEntityException;
+
     /**
      * If you have a reference to an Entity from another
      * UnitOfWork and want to create a reference to it in this
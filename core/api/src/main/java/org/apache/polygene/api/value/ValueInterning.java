@@ -0,0 +1,89 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.polygene.api.value;
+
+/**
+ * Interning of equal values of a ValueComposite type.
+ * <p>
+ * When a value type is interned, building a value equal to an already built one returns the already built instance,
+ * so that equal values share one instance and its state. This cuts heap usage when many entities hold equal values,
+ * like currency codes, addresses or statuses.
+ * </p>
+ * <p>
+ * Declare it at assembly:
+ * </p>
+ * <pre><code>
+ * module.values( Address.class ).withInterning( ValueInterning.weak() );
+ * </code></pre>
+ * <p>
+ * Weak interning keeps an instance as long as it is in use elsewhere. Bounded interning keeps up to a maximum number
+ * of instances and starts over once that maximum is reached.
+ * </p>
+ */
+public final class ValueInterning
+{
+    private static final ValueInterning WEAK = new ValueInterning( 0 );
+
+    /**
+     * @return Interning of values for as long as they are in use
+     */
+    public static ValueInterning weak()
+    {
+        return WEAK;
+    }
+
+    /**
+     * @param maxSize Maximum number of interned values
+     * @return Interning of up to {@code maxSize} values
+     */
+    public static ValueInterning bounded( int maxSize )
+    {
+        if( maxSize < 1 )
+        {
+            throw new IllegalArgumentException( "Max size must be positive, was " + maxSize );
+        }
+        return new ValueInterning( maxSize );
+    }
+
+    private final int maxSize;
+
+    private ValueInterning( int maxSize )
+    {
+        this.maxSize = maxSize;
+    }
+
+    public boolean isWeak()
+    {
+        return maxSize == 0;
+    }
+
+    /**
+     * @return Maximum number of interned values, 0 if weak
+     */
+    public int maxSize()
+    {
+        return maxSize;
+    }
+
+    @Override
+    public String toString()
+    {
+        return isWeak() ? "ValueInterning{weak}" : "ValueInterning{maxSize=" + maxSize + "}";
+    }
+}
@@ -21,6 +21,7 @@
 package org.apache.polygene.bootstrap;
 
 import org.apache.polygene.api.common.Visibility;
+import org.apache.polygene.api.value.ValueInterning;
 
 /**
  * Fluent API for declaring values
@@ -38,4 +39,12 @@ public interface ValueDeclaration
     ValueDeclaration withMixins( Class<?>... mixins );
 
     ValueDeclaration withTypes( Class<?>... roles );
+
+    /**
+     * Intern built values, so that equal values share one instance.
+     *
+     * @param interning How values are interned
+     * @return This declaration
+     */
+    ValueDeclaration withInterning( ValueInterning interning );
 }
\ No newline at end of file
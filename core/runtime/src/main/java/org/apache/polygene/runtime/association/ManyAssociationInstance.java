@@ -26,6 +26,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.stream.Stream;
 import org.apache.polygene.api.association.AssociationDescriptor;
@@ -41,6 +42,11 @@ import org.apache.polygene.spi.entity.ManyAssociationState;
 public class ManyAssociationInstance<T> extends AbstractAssociationInstance<T>
     implements ManyAssociation<T>
 {
+    /**
+     * Number of entities loaded at once while iterating.
+     */
+    private static final int PREFETCH_SIZE = 100;
+
     private ManyAssociationState manyAssociationState;
 
     public ManyAssociationInstance( AssociationInfo associationInfo,
@@ -52,6 +58,16 @@ public class ManyAssociationInstance<T> extends AbstractAssociationInstance<T>
         this.manyAssociationState = manyAssociationState;
     }
 
+    public ManyAssociationInstance( AssociationInfo associationInfo,
+                                    BiFunction<EntityReference, Type, Object> associationFunction,
+                                    BiConsumer<Iterable<EntityReference>, Type> prefetchFunction,
+                                    ManyAssociationState manyAssociationState
+    )
+    {
+        super( associationInfo, associationFunction, prefetchFunction );
+        this.manyAssociationState = manyAssociationState;
+    }
+
     @Override
     public int count()
     {
@@ -106,6 +122,7 @@ public class ManyAssociationInstance<T> extends AbstractAssociationInstance<T>
     @Override
     public List<T> toList()
     {
+        prefetch( manyAssociationState );
         ArrayList<T> list = new ArrayList<>();
         for( EntityReference entityReference : manyAssociationState )
         {
@@ -118,6 +135,7 @@ public class ManyAssociationInstance<T> extends AbstractAssociationInstance<T>
     @Override
     public Set<T> toSet()
     {
+        prefetch( manyAssociationState );
         Set<T> set = new HashSet<>();
         for( EntityReference entityReference : manyAssociationState )
         {
@@ -204,6 +222,8 @@ public class ManyAssociationInstance<T> extends AbstractAssociationInstance<T>
         implements Iterator<T>
     {
         private final Iterator<EntityReference> idIterator;
+        private int index;
+        private int prefetchedUntil;
 
         ManyAssociationIterator( Iterator<EntityReference> idIterator )
         {
@@ -219,7 +239,20 @@ public class ManyAssociationInstance<T> extends AbstractAssociationInstance<T>
         @Override
         public T next()
         {
-            return getEntity( idIterator.next() );
+            if( index >= prefetchedUntil )
+            {
+                // Load the state of the next entities at once
+                prefetchedUntil = Math.min( index + PREFETCH_SIZE, manyAssociationState.count() );
+                List<EntityReference> next = new ArrayList<>( prefetchedUntil - index );
+                for( int idx = index; idx < prefetchedUntil; idx++ )
+                {
+                    next.add( manyAssociationState.get( idx ) );
+                }
+                prefetch( next );
+            }
+            T entity = getEntity( idIterator.next() );
+            index++;
+            return entity;
         }
 
         @Override
@@ -227,6 +260,8 @@ public class ManyAssociationInstance<T> extends AbstractAssociationInstance<T>
         {
             checkImmutable();
             idIterator.remove();
+            index--;
+            prefetchedUntil--;
         }
     }
 }
@@ -49,6 +49,7 @@ public final class ManyAssociationModel extends AbstractAssociationModel<ManyAss
         return new ManyAssociationInstance<>(
             state instanceof BuilderEntityState ? builderInfo() : this,
             ( entityReference, type ) -> uow.get( Classes.RAW_CLASS.apply( type ), entityReference.identity() ),
+            ( entityReferences, type ) -> uow.prefetch( Classes.RAW_CLASS.apply( type ), entityReferences ),
             state.manyAssociationValueOf( qualifiedName() )
         );
     }
@@ -20,11 +20,15 @@
 package org.apache.polygene.runtime.association;
 
 import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -40,8 +44,21 @@ import org.apache.polygene.spi.entity.NamedAssociationState;
 public class NamedAssociationInstance<T> extends AbstractAssociationInstance<T>
     implements NamedAssociation<T>
 {
+    /**
+     * Number of entities loaded at once while iterating or getting by name.
+     */
+    private static final int PREFETCH_SIZE = 100;
+
     private final NamedAssociationState namedAssociationState;
 
+    /**
+     * Names in iteration order and their positions, entities are loaded in batches of consecutive names.
+     * Reset whenever names are put or removed.
+     */
+    private List<String> names;
+    private Map<String, Integer> positions;
+    private BitSet prefetchedBatches;
+
     public NamedAssociationInstance( AssociationInfo associationInfo,
                                      BiFunction<EntityReference, Type, Object> associationFunction,
                                      NamedAssociationState namedAssociationState
@@ -51,10 +68,20 @@ public class NamedAssociationInstance<T> extends AbstractAssociationInstance<T>
         this.namedAssociationState = namedAssociationState;
     }
 
+    public NamedAssociationInstance( AssociationInfo associationInfo,
+                                     BiFunction<EntityReference, Type, Object> associationFunction,
+                                     BiConsumer<Iterable<EntityReference>, Type> prefetchFunction,
+                                     NamedAssociationState namedAssociationState
+                                   )
+    {
+        super( associationInfo, associationFunction, prefetchFunction );
+        this.namedAssociationState = namedAssociationState;
+    }
+
     @Override
     public Iterator<String> iterator()
     {
-        return namedAssociationState.iterator();
+        return new NamedAssociationIterator( namedAssociationState.iterator() );
     }
 
     @Override
@@ -83,6 +110,7 @@ public class NamedAssociationInstance<T> extends AbstractAssociationInstance<T>
             throw new IllegalArgumentException( "Named association [" + name +"] must have Identity: " + entity );
         }
         associationInfo.checkConstraints( entity );
+        resetBatches();
         return namedAssociationState.put( name, EntityReference.create( ( (HasIdentity) entity ).identity().get() ) );
     }
 
@@ -90,6 +118,7 @@ public class NamedAssociationInstance<T> extends AbstractAssociationInstance<T>
     public boolean remove( String name )
     {
         checkImmutable();
+        resetBatches();
         return namedAssociationState.remove( name );
     }
 
@@ -97,12 +126,14 @@ public class NamedAssociationInstance<T> extends AbstractAssociationInstance<T>
     public boolean clear()
     {
         checkImmutable();
+        resetBatches();
         return namedAssociationState.clear();
     }
 
     @Override
     public T get( String name )
     {
+        prefetchBatchOf( name );
         return getEntity( namedAssociationState.get( name ) );
     }
 
@@ -115,6 +146,12 @@ public class NamedAssociationInstance<T> extends AbstractAssociationInstance<T>
     @Override
     public Map<String, T> toMap()
     {
+        List<EntityReference> references = new ArrayList<>( namedAssociationState.count() );
+        for( String name : namedAssociationState )
+        {
+            references.add( namedAssociationState.get( name ) );
+        }
+        prefetch( references );
         Map<String, T> map = new HashMap<>();
         for( String name : namedAssociationState )
         {
@@ -199,4 +236,89 @@ public class NamedAssociationInstance<T> extends AbstractAssociationInstance<T>
         }
         return hash;
     }
+
+    /**
+     * Load the state of the entities named next to the given name at once, unless already done.
+     *
+     * @param name the name about to be retrieved
+     */
+    private void prefetchBatchOf( String name )
+    {
+        if( !isPrefetching() )
+        {
+            return;
+        }
+        if( names == null )
+        {
+            names = new ArrayList<>( namedAssociationState.count() );
+            positions = new HashMap<>();
+            for( String each : namedAssociationState )
+            {
+                positions.put( each, names.size() );
+                names.add( each );
+            }
+            prefetchedBatches = new BitSet();
+        }
+        Integer position = positions.get( name );
+        if( position == null )
+        {
+            return;
+        }
+        int batch = position / PREFETCH_SIZE;
+        if( prefetchedBatches.get( batch ) )
+        {
+            return;
+        }
+        prefetchedBatches.set( batch );
+        int until = Math.min( ( batch + 1 ) * PREFETCH_SIZE, names.size() );
+        List<EntityReference> references = new ArrayList<>( until - batch * PREFETCH_SIZE );
+        for( int idx = batch * PREFETCH_SIZE; idx < until; idx++ )
+        {
+            EntityReference reference = namedAssociationState.get( names.get( idx ) );
+            if( reference != null )
+            {
+                references.add( reference );
+            }
+        }
+        prefetch( references );
+    }
+
+    private void resetBatches()
+    {
+        names = null;
+        positions = null;
+        prefetchedBatches = null;
+    }
+
+    protected class NamedAssociationIterator
+        implements Iterator<String>
+    {
+        private final Iterator<String> nameIterator;
+
+        NamedAssociationIterator( Iterator<String> nameIterator )
+        {
+            this.nameIterator = nameIterator;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return nameIterator.hasNext();
+        }
+
+        @Override
+        public String next()
+        {
+            String name = nameIterator.next();
+            // Entities named next are likely to be retrieved while iterating
+            prefetchBatchOf( name );
+            return name;
+        }
+
+        @Override
+        public void remove()
+        {
+            nameIterator.remove();
+        }
+    }
 }
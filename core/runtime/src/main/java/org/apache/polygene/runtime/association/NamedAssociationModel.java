@@ -49,6 +49,7 @@ public final class NamedAssociationModel extends AbstractAssociationModel<NamedA
         return new NamedAssociationInstance<>(
             state instanceof BuilderEntityState ? builderInfo() : this,
             ( entityReference, type ) -> uow.get( Classes.RAW_CLASS.apply( type ), entityReference.identity() ),
+            ( entityReferences, type ) -> uow.prefetch( Classes.RAW_CLASS.apply( type ), entityReferences ),
             state.namedAssociationValueOf( qualifiedName() ) );
     }
 }
@@ -34,6 +34,7 @@ import org.apache.polygene.api.common.MetaInfo;
 import org.apache.polygene.api.common.Visibility;
 import org.apache.polygene.api.service.ServiceImporter;
 import org.apache.polygene.api.structure.Layer;
+import org.apache.polygene.api.value.ValueInterning;
 import org.apache.polygene.bootstrap.ApplicationAssembly;
 import org.apache.polygene.bootstrap.AssemblyVisitor;
 import org.apache.polygene.bootstrap.EntityAssembly;
@@ -473,6 +474,16 @@ public final class LayerAssemblyImpl
                 }
                 return this;
             }
+
+            @Override
+            public ValueDeclaration withInterning( ValueInterning interning )
+            {
+                for( ValueDeclaration declaration : declarations )
+                {
+                    declaration.withInterning( interning );
+                }
+                return this;
+            }
         };
     }
 
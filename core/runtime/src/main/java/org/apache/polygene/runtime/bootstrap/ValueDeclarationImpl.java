@@ -21,6 +21,7 @@
 package org.apache.polygene.runtime.bootstrap;
 
 import org.apache.polygene.api.common.Visibility;
+import org.apache.polygene.api.value.ValueInterning;
 import org.apache.polygene.bootstrap.ValueDeclaration;
 
 import static java.util.Arrays.asList;
@@ -97,4 +98,14 @@ public final class ValueDeclarationImpl
         }
         return this;
     }
-}
\ No newline at end of file
+
+    @Override
+    public ValueDeclaration withInterning( ValueInterning interning )
+    {
+        for( ValueAssemblyImpl assembly : assemblies )
+        {
+            assembly.metaInfo.set( interning );
+        }
+        return this;
+    }
+}
@@ -46,6 +46,14 @@ public final class CompositeMethodInstance
         this.methodIdx = methodIdx;
     }
 
+    /**
+     * @return true if this instance has no concerns or side-effects, and so can be used by many threads at once
+     */
+    public boolean isStateless()
+    {
+        return invoker == mixinInvoker;
+    }
+
     public Method method()
     {
         return method;
@@ -59,6 +67,12 @@ public final class CompositeMethodInstance
     public Object invoke( Object composite, Object[] params, Object mixin )
         throws Throwable
     {
+        if( invoker == mixinInvoker )
+        {
+            // No concerns or side-effects, call the mixin without touching shared state
+            return mixinInvoker.invoke( mixin, composite, method, params );
+        }
+
         mixinInvoker.setFragment( mixin );
 
         try
@@ -29,16 +29,23 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.apache.polygene.api.common.ConstructionException;
 import org.apache.polygene.api.composite.MethodDescriptor;
+import org.apache.polygene.api.metrics.MetricNames;
+import org.apache.polygene.api.metrics.MetricsCounter;
+import org.apache.polygene.api.metrics.MetricsCounterFactory;
+import org.apache.polygene.api.metrics.MetricsNotSupportedException;
+import org.apache.polygene.api.service.NoSuchServiceTypeException;
 import org.apache.polygene.api.structure.ModuleDescriptor;
 import org.apache.polygene.api.util.HierarchicalVisitor;
 import org.apache.polygene.api.util.VisitableHierarchy;
 import org.apache.polygene.runtime.injection.Dependencies;
 import org.apache.polygene.runtime.injection.DependencyModel;
+import org.apache.polygene.spi.module.ModuleSpi;
 
 /**
  * JAVADOC
@@ -56,7 +63,13 @@ public final class CompositeMethodModel
     private final AnnotatedElement annotations;
 
     // Context
-    private final ConcurrentLinkedQueue<CompositeMethodInstance> instancePool = new ConcurrentLinkedQueue<>();
+    // Instances with concerns or side-effects hold per-call state, so each thread keeps its own stack of them.
+    // The stack only grows beyond one instance when the method is called reentrantly.
+    private final ThreadLocal<InstancePool> instancePool = ThreadLocal.withInitial( InstancePool::new );
+    private final LongAdder instancePoolMisses = new LongAdder();
+    private final AtomicBoolean instancePoolMissesCounterCreated = new AtomicBoolean();
+    private volatile MetricsCounter instancePoolMissesCounter;
+    private volatile CompositeMethodInstance statelessInstance;
     private final ConstraintsInstance constraintsInstance;
 
     public CompositeMethodModel( Method method,
@@ -103,26 +116,78 @@ public final class CompositeMethodModel
     {
         constraintsInstance.checkValid( composite, method, params );
 
-        CompositeMethodInstance methodInstance = getInstance( module );
+        CompositeMethodInstance stateless = statelessInstance;
+        if( stateless != null )
+        {
+            return mixins.invoke( composite, params, stateless );
+        }
+
+        InstancePool pool = instancePool.get();
+        CompositeMethodInstance methodInstance = pool.poll();
+        if( methodInstance == null )
+        {
+            methodInstance = newCompositeMethodInstance( module );
+            if( methodInstance.isStateless() )
+            {
+                // Without concerns and side-effects one instance is enough, stop pooling
+                statelessInstance = methodInstance;
+                instancePool.remove();
+                return mixins.invoke( composite, params, methodInstance );
+            }
+            countInstancePoolMiss( module );
+        }
         try
         {
             return mixins.invoke( composite, params, methodInstance );
         }
         finally
         {
-            instancePool.offer( methodInstance );
+            pool.offer( methodInstance );
         }
     }
 
-    private CompositeMethodInstance getInstance( ModuleDescriptor module )
+    /**
+     * Number of times a call found no free instance of this method for the calling thread.
+     * <p>
+     * Each miss builds a new concern and side-effect chain. Misses should stop once every calling thread
+     * has warmed up, unless the method is called reentrantly deeper than before.
+     * </p>
+     * <p>
+     * Misses are also reported to the MetricsProvider of the module, if any, as the
+     * {@code instance-pool-misses} counter of the method.
+     * </p>
+     *
+     * @return the number of pool misses since this model was created
+     */
+    public long instancePoolMisses()
     {
-        CompositeMethodInstance methodInstance = instancePool.poll();
-        if( methodInstance == null )
+        return instancePoolMisses.sum();
+    }
+
+    private void countInstancePoolMiss( ModuleDescriptor module )
+    {
+        instancePoolMisses.increment();
+        MetricsCounter counter = instancePoolMissesCounter;
+        if( counter == null && instancePoolMissesCounterCreated.compareAndSet( false, true ) )
         {
-            methodInstance = newCompositeMethodInstance( module );
+            // Creating the counter calls the MetricsProvider, its own misses meanwhile are left uncounted there
+            try
+            {
+                MetricsCounterFactory factory = ( (ModuleSpi) module.instance() )
+                    .metricsProvider().createFactory( MetricsCounterFactory.class );
+                counter = factory.createCounter( MetricNames.nameFor( module.instance(), method,
+                                                                      "instance-pool-misses" ) );
+                instancePoolMissesCounter = counter;
+            }
+            catch( NoSuchServiceTypeException | MetricsNotSupportedException e )
+            {
+                // No metrics in this module, the misses are only available from instancePoolMisses()
+            }
+        }
+        if( counter != null )
+        {
+            counter.increment();
         }
-
-        return methodInstance;
     }
 
     private CompositeMethodInstance newCompositeMethodInstance( ModuleDescriptor module )
@@ -197,6 +262,32 @@ public final class CompositeMethodModel
         return mixins.invocationsFor( mixinClass ).collect( Collectors.toList() );
     }
 
+    /**
+     * Thread confined stack of free instances, linked through the instances themselves so that
+     * taking and returning an instance does not allocate.
+     */
+    private static final class InstancePool
+    {
+        private CompositeMethodInstance head;
+
+        private CompositeMethodInstance poll()
+        {
+            CompositeMethodInstance instance = head;
+            if( instance != null )
+            {
+                head = instance.getNext();
+                instance.setNext( null );
+            }
+            return instance;
+        }
+
+        private void offer( CompositeMethodInstance instance )
+        {
+            instance.setNext( head );
+            head = instance;
+        }
+    }
+
     public class CompositeMethodAnnotatedElement
         implements AnnotatedElement
     {
@@ -50,6 +50,23 @@ abstract class FragmentInvocationHandler
         this.method = method;
     }
 
+    @Override
+    public Object invoke( Object proxy, Method method, Object[] args )
+        throws Throwable
+    {
+        return invoke( fragment, proxy, method, args );
+    }
+
+    /**
+     * Invoke the given fragment instead of the one set on this handler.
+     * <p>
+     * This does not touch the handler state, so a handler that is only configured with
+     * {@link #setMethod(Method)} can be shared between threads when called this way.
+     * </p>
+     */
+    abstract Object invoke( Object fragment, Object proxy, Method method, Object[] args )
+        throws Throwable;
+
     Throwable cleanStackTrace( Throwable throwable, Object proxy, Method method )
     {
         if( compactLevel == CompactLevel.off )
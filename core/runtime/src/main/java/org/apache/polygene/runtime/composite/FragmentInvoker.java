@@ -0,0 +1,36 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.polygene.runtime.composite;
+
+/**
+ * Direct call site for a fragment method.
+ * <p>
+ * Implementations are generated by {@link FragmentInvokers} and call the fragment method
+ * with plain bytecode instead of going through {@link java.lang.reflect.Method#invoke(Object, Object...)}.
+ * Exceptions thrown by the fragment are propagated as-is, they are not wrapped.
+ * </p>
+ * <p>
+ * This type is public only because the generated classes live in their own classloader.
+ * </p>
+ */
+public interface FragmentInvoker
+{
+    Object invoke( Object fragment, Object[] args )
+        throws Throwable;
+}
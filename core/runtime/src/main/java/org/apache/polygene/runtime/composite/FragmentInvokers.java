@@ -0,0 +1,361 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.polygene.runtime.composite;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import static org.objectweb.asm.Opcodes.AALOAD;
+import static org.objectweb.asm.Opcodes.ACC_FINAL;
+import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
+import static org.objectweb.asm.Opcodes.ACC_SUPER;
+import static org.objectweb.asm.Opcodes.ACONST_NULL;
+import static org.objectweb.asm.Opcodes.ALOAD;
+import static org.objectweb.asm.Opcodes.ARETURN;
+import static org.objectweb.asm.Opcodes.BIPUSH;
+import static org.objectweb.asm.Opcodes.CHECKCAST;
+import static org.objectweb.asm.Opcodes.ICONST_0;
+import static org.objectweb.asm.Opcodes.ICONST_1;
+import static org.objectweb.asm.Opcodes.ICONST_2;
+import static org.objectweb.asm.Opcodes.ICONST_3;
+import static org.objectweb.asm.Opcodes.ICONST_4;
+import static org.objectweb.asm.Opcodes.ICONST_5;
+import static org.objectweb.asm.Opcodes.INVOKEINTERFACE;
+import static org.objectweb.asm.Opcodes.INVOKESPECIAL;
+import static org.objectweb.asm.Opcodes.INVOKESTATIC;
+import static org.objectweb.asm.Opcodes.INVOKEVIRTUAL;
+import static org.objectweb.asm.Opcodes.RETURN;
+import static org.objectweb.asm.Opcodes.SIPUSH;
+import static org.objectweb.asm.Type.getInternalName;
+import static org.objectweb.asm.Type.getMethodDescriptor;
+
+/**
+ * Generate {@link FragmentInvoker}s that call fragment methods with direct bytecode call sites.
+ * <p>
+ * One invoker class is generated per method, in a classloader that is a child of the classloader
+ * of the class declaring the method. Invokers are cached per declaring class and released with it.
+ * </p>
+ * <p>
+ * Methods that cannot be called from generated code, because they or the types in their signature
+ * are not public or not visible from the declaring classloader, get no invoker and callers have to
+ * fall back to reflection.
+ * </p>
+ */
+final class FragmentInvokers
+{
+    private static final String GENERATED_PACKAGE = "org/apache/polygene/runtime/composite/generated/";
+    private static final String INVOKER_SLASH = getInternalName( FragmentInvoker.class );
+    private static final FragmentInvoker NO_INVOKER = ( fragment, args ) -> null;
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+
+    private static final ClassValue<InvokerClassLoader> LOADERS = new ClassValue<InvokerClassLoader>()
+    {
+        @Override
+        protected InvokerClassLoader computeValue( Class<?> type )
+        {
+            return new InvokerClassLoader( type );
+        }
+    };
+
+    private FragmentInvokers()
+    {
+    }
+
+    /**
+     * @param method the fragment method to call
+     *
+     * @return a generated invoker for the method, or null if it can only be called reflectively
+     */
+    static FragmentInvoker invokerFor( Method method )
+    {
+        FragmentInvoker invoker = LOADERS.get( method.getDeclaringClass() ).invokerFor( method );
+        return invoker == NO_INVOKER ? null : invoker;
+    }
+
+    private static final class InvokerClassLoader
+        extends ClassLoader
+    {
+        private final Class<?> declaringClass;
+        private final Map<Method, FragmentInvoker> invokers = new ConcurrentHashMap<>();
+
+        private InvokerClassLoader( Class<?> declaringClass )
+        {
+            super( declaringClass.getClassLoader() );
+            this.declaringClass = declaringClass;
+        }
+
+        @Override
+        protected Class<?> loadClass( String name, boolean resolve )
+            throws ClassNotFoundException
+        {
+            // The generated classes only see the declaring classloader, plus the invoker type itself
+            if( name.equals( FragmentInvoker.class.getName() ) )
+            {
+                return FragmentInvoker.class;
+            }
+            return super.loadClass( name, resolve );
+        }
+
+        private FragmentInvoker invokerFor( Method method )
+        {
+            return invokers.computeIfAbsent( method, this::generateInvoker );
+        }
+
+        private FragmentInvoker generateInvoker( Method method )
+        {
+            if( !isAccessible( method ) )
+            {
+                return NO_INVOKER;
+            }
+            String classSlash = GENERATED_PACKAGE + "Invoker_" + method.getName() + "_" + COUNTER.incrementAndGet();
+            byte[] b = generateClass( classSlash, method );
+            try
+            {
+                Class<?> invokerClass = defineClass( classSlash.replace( '/', '.' ), b, 0, b.length,
+                                                     declaringClass.getProtectionDomain() );
+                return (FragmentInvoker) invokerClass.getDeclaredConstructor().newInstance();
+            }
+            catch( LinkageError | ReflectiveOperationException | SecurityException e )
+            {
+                return NO_INVOKER;
+            }
+        }
+
+        private boolean isAccessible( Method method )
+        {
+            if( Modifier.isStatic( method.getModifiers() ) || !Modifier.isPublic( method.getModifiers() ) )
+            {
+                return false;
+            }
+            if( !isVisible( method.getDeclaringClass() ) || !isVisible( method.getReturnType() ) )
+            {
+                return false;
+            }
+            for( Class<?> parameterType : method.getParameterTypes() )
+            {
+                if( !isVisible( parameterType ) )
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean isVisible( Class<?> type )
+        {
+            while( type.isArray() )
+            {
+                type = type.getComponentType();
+            }
+            if( type.isPrimitive() )
+            {
+                return true;
+            }
+            for( Class<?> enclosing = type; enclosing != null; enclosing = enclosing.getEnclosingClass() )
+            {
+                if( !Modifier.isPublic( enclosing.getModifiers() ) )
+                {
+                    return false;
+                }
+            }
+            try
+            {
+                return Class.forName( type.getName(), false, getParent() ) == type;
+            }
+            catch( ClassNotFoundException e )
+            {
+                return false;
+            }
+        }
+    }
+
+    private static byte[] generateClass( String classSlash, Method method )
+    {
+        Class<?> declaringClass = method.getDeclaringClass();
+        String declaringSlash = getInternalName( declaringClass );
+        ClassWriter cw = new ClassWriter( ClassWriter.COMPUTE_MAXS );
+        cw.visit( Opcodes.V1_8, ACC_PUBLIC + ACC_FINAL + ACC_SUPER, classSlash, null, "java/lang/Object",
+                  new String[]{ INVOKER_SLASH } );
+
+        // Constructor
+        {
+            MethodVisitor mv = cw.visitMethod( ACC_PUBLIC, "<init>", "()V", null, null );
+            mv.visitCode();
+            mv.visitVarInsn( ALOAD, 0 );
+            mv.visitMethodInsn( INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false );
+            mv.visitInsn( RETURN );
+            mv.visitMaxs( 1, 1 );
+            mv.visitEnd();
+        }
+
+        // Object invoke( Object fragment, Object[] args )
+        {
+            MethodVisitor mv = cw.visitMethod( ACC_PUBLIC, "invoke",
+                                               "(Ljava/lang/Object;[Ljava/lang/Object;)Ljava/lang/Object;",
+                                               null, new String[]{ "java/lang/Throwable" } );
+            mv.visitCode();
+            mv.visitVarInsn( ALOAD, 1 );
+            mv.visitTypeInsn( CHECKCAST, declaringSlash );
+            Class<?>[] parameterTypes = method.getParameterTypes();
+            for( int i = 0; i < parameterTypes.length; i++ )
+            {
+                mv.visitVarInsn( ALOAD, 2 );
+                insn( mv, i );
+                mv.visitInsn( AALOAD );
+                unwrapParameter( mv, parameterTypes[ i ] );
+            }
+            if( declaringClass.isInterface() )
+            {
+                mv.visitMethodInsn( INVOKEINTERFACE, declaringSlash, method.getName(),
+                                    getMethodDescriptor( method ), true );
+            }
+            else
+            {
+                mv.visitMethodInsn( INVOKEVIRTUAL, declaringSlash, method.getName(),
+                                    getMethodDescriptor( method ), false );
+            }
+            wrapResult( mv, method.getReturnType() );
+            mv.visitInsn( ARETURN );
+            mv.visitMaxs( 0, 0 );
+            mv.visitEnd();
+        }
+
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private static void unwrapParameter( MethodVisitor mv, Class<?> aClass )
+    {
+        if( aClass.equals( Integer.TYPE ) )
+        {
+            unbox( mv, "java/lang/Integer", "intValue", "()I" );
+        }
+        else if( aClass.equals( Long.TYPE ) )
+        {
+            unbox( mv, "java/lang/Long", "longValue", "()J" );
+        }
+        else if( aClass.equals( Short.TYPE ) )
+        {
+            unbox( mv, "java/lang/Short", "shortValue", "()S" );
+        }
+        else if( aClass.equals( Byte.TYPE ) )
+        {
+            unbox( mv, "java/lang/Byte", "byteValue", "()B" );
+        }
+        else if( aClass.equals( Double.TYPE ) )
+        {
+            unbox( mv, "java/lang/Double", "doubleValue", "()D" );
+        }
+        else if( aClass.equals( Float.TYPE ) )
+        {
+            unbox( mv, "java/lang/Float", "floatValue", "()F" );
+        }
+        else if( aClass.equals( Boolean.TYPE ) )
+        {
+            unbox( mv, "java/lang/Boolean", "booleanValue", "()Z" );
+        }
+        else if( aClass.equals( Character.TYPE ) )
+        {
+            unbox( mv, "java/lang/Character", "charValue", "()C" );
+        }
+        else if( !aClass.equals( Object.class ) )
+        {
+            mv.visitTypeInsn( CHECKCAST, getInternalName( aClass ) );
+        }
+    }
+
+    private static void unbox( MethodVisitor mv, String wrapperSlash, String methodName, String desc )
+    {
+        mv.visitTypeInsn( CHECKCAST, wrapperSlash );
+        mv.visitMethodInsn( INVOKEVIRTUAL, wrapperSlash, methodName, desc, false );
+    }
+
+    private static void wrapResult( MethodVisitor mv, Class<?> aClass )
+    {
+        if( aClass.equals( Void.TYPE ) )
+        {
+            mv.visitInsn( ACONST_NULL );
+        }
+        else if( aClass.equals( Integer.TYPE ) )
+        {
+            mv.visitMethodInsn( INVOKESTATIC, "java/lang/Integer", "valueOf", "(I)Ljava/lang/Integer;", false );
+        }
+        else if( aClass.equals( Long.TYPE ) )
+        {
+            mv.visitMethodInsn( INVOKESTATIC, "java/lang/Long", "valueOf", "(J)Ljava/lang/Long;", false );
+        }
+        else if( aClass.equals( Short.TYPE ) )
+        {
+            mv.visitMethodInsn( INVOKESTATIC, "java/lang/Short", "valueOf", "(S)Ljava/lang/Short;", false );
+        }
+        else if( aClass.equals( Byte.TYPE ) )
+        {
+            mv.visitMethodInsn( INVOKESTATIC, "java/lang/Byte", "valueOf", "(B)Ljava/lang/Byte;", false );
+        }
+        else if( aClass.equals( Double.TYPE ) )
+        {
+            mv.visitMethodInsn( INVOKESTATIC, "java/lang/Double", "valueOf", "(D)Ljava/lang/Double;", false );
+        }
+        else if( aClass.equals( Float.TYPE ) )
+        {
+            mv.visitMethodInsn( INVOKESTATIC, "java/lang/Float", "valueOf", "(F)Ljava/lang/Float;", false );
+        }
+        else if( aClass.equals( Boolean.TYPE ) )
+        {
+            mv.visitMethodInsn( INVOKESTATIC, "java/lang/Boolean", "valueOf", "(Z)Ljava/lang/Boolean;", false );
+        }
+        else if( aClass.equals( Character.TYPE ) )
+        {
+            mv.visitMethodInsn( INVOKESTATIC, "java/lang/Character", "valueOf", "(C)Ljava/lang/Character;", false );
+        }
+    }
+
+    private static void insn( MethodVisitor mv, int value )
+    {
+        switch( value )
+        {
+        case 0:
+            mv.visitInsn( ICONST_0 );
+            return;
+        case 1:
+            mv.visitInsn( ICONST_1 );
+            return;
+        case 2:
+            mv.visitInsn( ICONST_2 );
+            return;
+        case 3:
+            mv.visitInsn( ICONST_3 );
+            return;
+        case 4:
+            mv.visitInsn( ICONST_4 );
+            return;
+        case 5:
+            mv.visitInsn( ICONST_5 );
+            return;
+        default:
+            mv.visitIntInsn( value < Byte.MAX_VALUE ? BIPUSH : SIPUSH, value );
+        }
+    }
+}
@@ -30,7 +30,7 @@ public final class GenericFragmentInvocationHandler
     extends FragmentInvocationHandler
 {
     @Override
-    public Object invoke( Object proxy, Method method, Object[] args )
+    Object invoke( Object fragment, Object proxy, Method method, Object[] args )
         throws Throwable
     {
         try
@@ -29,35 +29,60 @@ import java.lang.reflect.Modifier;
 public final class TypedModifierInvocationHandler
     extends FragmentInvocationHandler
 {
+    private FragmentInvoker invoker;
+
+    @Override
+    public void setMethod( Method method )
+    {
+        super.setMethod( method );
+        invoker = FragmentInvokers.invokerFor( method );
+    }
+
     @Override
-    public Object invoke( Object proxy, Method method, Object[] args )
+    Object invoke( Object fragment, Object proxy, Method method, Object[] args )
         throws Throwable
     {
+        if( invoker != null )
+        {
+            try
+            {
+                return invoker.invoke( fragment, args );
+            }
+            catch( Throwable e )
+            {
+                throw cleanStackTrace( publicReturnTypeCheck( e, method ), proxy, method );
+            }
+        }
+
         try
         {
             return this.method.invoke( fragment, args );
         }
         catch( InvocationTargetException e )
         {
-            Throwable targetException = e.getTargetException();
-            if( targetException instanceof IllegalAccessError )
-            {
-                // We get here if any of the return types or parameters are not public. This is probably due to
-                // the _Stub class ends up in a different classpace than the original mixin. We intend to fix this in
-                // 3.1 or 3.2
-                if( !Modifier.isPublic( method.getReturnType().getModifiers() ) )
-                {
-                    String message = "Return types must be public: " + method.getReturnType().getName();
-                    IllegalAccessException illegalAccessException = new IllegalAccessException( message );
-                    illegalAccessException.initCause( e.getTargetException() );
-                    throw cleanStackTrace( illegalAccessException, proxy, method );
-                }
-            }
-            throw cleanStackTrace( targetException, proxy, method );
+            throw cleanStackTrace( publicReturnTypeCheck( e.getTargetException(), method ), proxy, method );
         }
         catch( Throwable e )
         {
             throw cleanStackTrace( e, proxy, method );
         }
     }
-}
\ No newline at end of file
+
+    private static Throwable publicReturnTypeCheck( Throwable targetException, Method method )
+    {
+        if( targetException instanceof IllegalAccessError )
+        {
+            // We get here if any of the return types or parameters are not public. This is probably due to
+            // the _Stub class ends up in a different classpace than the original mixin. We intend to fix this in
+            // 3.1 or 3.2
+            if( !Modifier.isPublic( method.getReturnType().getModifiers() ) )
+            {
+                String message = "Return types must be public: " + method.getReturnType().getName();
+                IllegalAccessException illegalAccessException = new IllegalAccessException( message );
+                illegalAccessException.initCause( targetException );
+                return illegalAccessException;
+            }
+        }
+        return targetException;
+    }
+}
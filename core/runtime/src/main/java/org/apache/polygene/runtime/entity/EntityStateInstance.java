@@ -23,6 +23,7 @@ import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Type;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.stream.Stream;
 import org.apache.polygene.api.association.Association;
@@ -41,6 +42,7 @@ import org.apache.polygene.runtime.association.NamedAssociationInstance;
 import org.apache.polygene.runtime.association.NamedAssociationModel;
 import org.apache.polygene.runtime.property.PropertyModel;
 import org.apache.polygene.runtime.unitofwork.BuilderEntityState;
+import org.apache.polygene.runtime.unitofwork.ModuleUnitOfWork;
 import org.apache.polygene.spi.entity.EntityState;
 
 /**
@@ -54,6 +56,7 @@ public final class EntityStateInstance
     private final EntityStateModel stateModel;
     private EntityState entityState;
     private final BiFunction<EntityReference, Type, Object> entityFunction;
+    private final BiConsumer<Iterable<EntityReference>, Type> prefetchFunction;
 
     EntityStateInstance( EntityStateModel stateModel, final UnitOfWork uow, EntityState entityState )
     {
@@ -61,6 +64,9 @@ public final class EntityStateInstance
         this.entityState = entityState;
 
         entityFunction = ( entityReference, type ) -> uow.get( Classes.RAW_CLASS.apply( type ), entityReference.identity() );
+        prefetchFunction = uow instanceof ModuleUnitOfWork
+                           ? ( entityReferences, type ) -> ( (ModuleUnitOfWork) uow ).prefetch( Classes.RAW_CLASS.apply( type ), entityReferences )
+                           : null;
     }
 
     @Override
@@ -144,6 +150,7 @@ public final class EntityStateInstance
             manyAssociation = new ManyAssociationInstance<>(
                 entityState instanceof BuilderEntityState ? associationModel.builderInfo() : associationModel,
                 entityFunction,
+                prefetchFunction,
                 entityState.manyAssociationValueOf( associationModel.qualifiedName() ) );
             state.put( accessor, manyAssociation );
         }
@@ -168,6 +175,7 @@ public final class EntityStateInstance
             namedAssociation = new NamedAssociationInstance<>(
                 entityState instanceof BuilderEntityState ? associationModel.builderInfo() : associationModel,
                 entityFunction,
+                prefetchFunction,
                 entityState.namedAssociationValueOf( associationModel.qualifiedName() ) );
             state.put( accessor, namedAssociation );
         }
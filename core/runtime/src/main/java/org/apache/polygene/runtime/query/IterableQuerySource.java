@@ -20,10 +20,12 @@
 
 package org.apache.polygene.runtime.query;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -32,16 +34,21 @@ import org.apache.polygene.api.property.Property;
 import org.apache.polygene.api.query.grammar.OrderBy;
 import org.apache.polygene.spi.query.QuerySource;
 
-import static java.util.stream.Collectors.toList;
 import static org.apache.polygene.api.util.Classes.instanceOf;
 
 /**
- * JAVADOC
+ * QuerySource evaluating queries in memory against an Iterable.
+ * <p>
+ * Elements are filtered lazily. Ordered queries with a maximum number of results only retain
+ * the elements that can end up in the requested page.
+ * </p>
  */
 public class IterableQuerySource
     implements QuerySource
 {
     private final Iterable iterable;
+    private final Predicate<Composite> expression;
+    private final Predicate<Composite> compiledExpression;
 
     /**
      * Constructor.
@@ -50,8 +57,26 @@ public class IterableQuerySource
      */
     @SuppressWarnings( "raw" )
     IterableQuerySource( final Iterable iterable )
+    {
+        this( iterable, null, null );
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param iterable           iterable
+     * @param expression         where clause the compiled expression was compiled from
+     * @param compiledExpression compiled where clause
+     */
+    @SuppressWarnings( "raw" )
+    IterableQuerySource( final Iterable iterable,
+                         final Predicate<Composite> expression,
+                         final Predicate<Composite> compiledExpression
+    )
     {
         this.iterable = iterable;
+        this.expression = expression;
+        this.compiledExpression = compiledExpression;
     }
 
     @Override
@@ -76,10 +101,12 @@ public class IterableQuerySource
                            Map<String, Object> variables
     )
     {
-        return list( resultType, whereClause, orderBySegments, firstResult, maxResults, variables ).size();
+        // Order does not change the count, stop as soon as the page is full
+        return page( filter( resultType, whereClause ), firstResult, maxResults ).count();
     }
 
     @Override
+    @SuppressWarnings( {"raw", "unchecked"} )
     public <T> Stream<T> stream( Class<T> resultType,
                                      Predicate<Composite> whereClause,
                                      List<OrderBy> orderBySegments,
@@ -88,79 +115,92 @@ public class IterableQuerySource
                                      Map<String, Object> variables
     )
     {
-        return list( resultType, whereClause, orderBySegments, firstResult, maxResults, variables ).stream();
-    }
+        Stream<T> stream = filter( resultType, whereClause );
 
-    @SuppressWarnings( {"raw", "unchecked"} )
-    private <T> List<T> list( Class<T> resultType,
-                              Predicate<Composite> whereClause,
-                              List<OrderBy> orderBySegments,
-                              Integer firstResult,
-                              Integer maxResults,
-                              Map<String, Object> variables
-    )
-    {
-        // Ensure it's a list first
-        List<T> list = filter( resultType, whereClause );
-
-        // Order list
+        // Order stream
         if( orderBySegments != null )
         {
-            // Sort it
-            list.sort( new OrderByComparator( orderBySegments ) );
-        }
-
-        // Cut results
-        if( firstResult != null )
-        {
-            if( firstResult > list.size() )
-            {
-                return Collections.emptyList();
-            }
-
-            int toIdx;
-            if( maxResults != null )
+            Comparator<T> comparator = new OrderByComparator( orderBySegments );
+            long retained = ( firstResult == null ? 0L : firstResult ) + ( maxResults == null ? 0L : maxResults );
+            if( maxResults != null && retained <= Integer.MAX_VALUE )
             {
-                toIdx = Math.min( firstResult + maxResults, list.size() );
+                // Only keep the elements that can end up in the requested page
+                stream = top( stream, comparator, (int) retained ).stream();
             }
             else
             {
-                toIdx = list.size();
+                stream = stream.sorted( comparator );
             }
+        }
 
-            list = list.subList( firstResult, toIdx );
+        // Cut results
+        return page( stream, firstResult, maxResults );
+    }
+
+    private static <T> Stream<T> page( Stream<T> stream, Integer firstResult, Integer maxResults )
+    {
+        if( firstResult != null )
+        {
+            stream = stream.skip( firstResult );
         }
-        else
+        if( maxResults != null )
         {
-            int toIdx;
-            if( maxResults != null )
-            {
-                toIdx = Math.min( maxResults, list.size() );
-            }
-            else
-            {
-                toIdx = list.size();
-            }
-
-            list = list.subList( 0, toIdx );
+            stream = stream.limit( maxResults );
         }
+        return stream;
+    }
 
-        return list;
+    /**
+     * Select the {@literal count} first elements of a stream according to a comparator.
+     * <p>
+     * Uses a bounded heap so that the whole stream is never held in memory nor sorted.
+     * Elements that compare equal keep their encounter order, as with a stable sort.
+     * </p>
+     */
+    private static <T> List<T> top( Stream<T> stream, Comparator<T> comparator, int count )
+    {
+        if( count == 0 )
+        {
+            return Collections.emptyList();
+        }
+        Comparator<Ranked<T>> ranking = Comparator.<Ranked<T>, T>comparing( ranked -> ranked.element, comparator )
+            .thenComparingLong( ranked -> ranked.rank );
+        // Head of the heap is the last retained element
+        PriorityQueue<Ranked<T>> heap = new PriorityQueue<>( Math.min( count, 1024 ), ranking.reversed() );
+        long[] rank = { 0 };
+        stream.forEachOrdered( element ->
+                               {
+                                   long elementRank = rank[ 0 ]++;
+                                   if( heap.size() < count )
+                                   {
+                                       heap.add( new Ranked<>( element, elementRank ) );
+                                   }
+                                   else if( comparator.compare( element, heap.peek().element ) < 0 )
+                                   {
+                                       // Later elements lose ties, only strictly smaller ones are retained
+                                       heap.poll();
+                                       heap.add( new Ranked<>( element, elementRank ) );
+                                   }
+                               } );
+        List<Ranked<T>> retained = new ArrayList<>( heap );
+        retained.sort( ranking );
+        List<T> result = new ArrayList<>( retained.size() );
+        retained.forEach( ranked -> result.add( ranked.element ) );
+        return result;
     }
 
     @SuppressWarnings( {"raw", "unchecked"} )
-    private <T> List<T> filter( Class<T> resultType, Predicate whereClause )
+    private <T> Stream<T> filter( Class<T> resultType, Predicate<Composite> whereClause )
     {
         Stream stream = StreamSupport.stream( iterable.spliterator(), false );
         if( whereClause == null )
         {
-            return List.class.cast( stream.filter( resultType::isInstance )
-                                          .collect( toList() ) );
+            return stream.filter( resultType::isInstance );
         }
         else
         {
-            return List.class.cast( stream.filter( instanceOf( resultType ).and( whereClause ) )
-                                          .collect( toList() ) );
+            Predicate compiled = whereClause == expression ? compiledExpression : QueryCompiler.compile( whereClause );
+            return stream.filter( instanceOf( resultType ).and( compiled ) );
         }
     }
 
@@ -170,6 +210,18 @@ public class IterableQuerySource
         return "IterableQuerySource{" + iterable + '}';
     }
 
+    private static class Ranked<T>
+    {
+        private final T element;
+        private final long rank;
+
+        private Ranked( T element, long rank )
+        {
+            this.element = element;
+            this.rank = rank;
+        }
+    }
+
     private static class OrderByComparator<T extends Composite>
         implements Comparator<T>
     {
@@ -48,6 +48,10 @@ final class QueryBuilderImpl<T>
      * Where clause.
      */
     private final Predicate<Composite> whereClause;
+    /**
+     * Where clause compiled for in-memory evaluation, lazily.
+     */
+    private Predicate<Composite> compiledWhereClause;
 
     /**
      * Constructor.
@@ -84,7 +88,12 @@ final class QueryBuilderImpl<T>
     @Override
     public Query<T> newQuery( Iterable<T> iterable )
     {
-        return new QueryImpl<>( resultType, whereClause, new IterableQuerySource( iterable ) );
+        if( whereClause != null && compiledWhereClause == null )
+        {
+            compiledWhereClause = QueryCompiler.compile( whereClause );
+        }
+        return new QueryImpl<>( resultType, whereClause,
+                                new IterableQuerySource( iterable, whereClause, compiledWhereClause ) );
     }
 
     // SPI
@@ -0,0 +1,406 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.polygene.runtime.query;
+
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import org.apache.polygene.api.association.Association;
+import org.apache.polygene.api.association.AssociationStateHolder;
+import org.apache.polygene.api.composite.Composite;
+import org.apache.polygene.api.composite.CompositeInstance;
+import org.apache.polygene.api.property.Property;
+import org.apache.polygene.api.query.grammar.AndPredicate;
+import org.apache.polygene.api.query.grammar.AssociationFunction;
+import org.apache.polygene.api.query.grammar.AssociationNotNullPredicate;
+import org.apache.polygene.api.query.grammar.AssociationNullPredicate;
+import org.apache.polygene.api.query.grammar.ComparisonPredicate;
+import org.apache.polygene.api.query.grammar.EqPredicate;
+import org.apache.polygene.api.query.grammar.GePredicate;
+import org.apache.polygene.api.query.grammar.GtPredicate;
+import org.apache.polygene.api.query.grammar.LePredicate;
+import org.apache.polygene.api.query.grammar.LtPredicate;
+import org.apache.polygene.api.query.grammar.MatchesPredicate;
+import org.apache.polygene.api.query.grammar.NePredicate;
+import org.apache.polygene.api.query.grammar.Notpredicate;
+import org.apache.polygene.api.query.grammar.OrPredicate;
+import org.apache.polygene.api.query.grammar.PropertyFunction;
+import org.apache.polygene.api.query.grammar.PropertyNotNullPredicate;
+import org.apache.polygene.api.query.grammar.PropertyNullPredicate;
+import org.apache.polygene.api.query.grammar.Variable;
+
+/**
+ * Compiles query expressions for in-memory evaluation.
+ * <p>
+ * The query grammar predicates resolve their structure on every evaluation: AND and OR chain new predicates,
+ * NOT negates its operand, property paths walk their traversal functions and regular expressions are parsed
+ * for each element. Compiled predicates resolve all of this once per expression so that evaluating an element
+ * only reads state.
+ * </p>
+ * <p>
+ * The composite instance of an element is resolved once and shared by all the operands of the expression.
+ * Property values are read through the state of the composite, entity properties are then deserialized once
+ * per entity and reading entities of a closed UnitOfWork fails as it does through the composite.
+ * </p>
+ * <p>
+ * Compiled predicates evaluate exactly like the expression they were compiled from. Expressions using query
+ * variables or unknown predicate types are kept as-is.
+ * </p>
+ */
+final class QueryCompiler
+{
+    private QueryCompiler()
+    {
+    }
+
+    static Predicate<Composite> compile( Predicate<Composite> expression )
+    {
+        Predicate<Element> compiled = compilePredicate( expression );
+        if( compiled instanceof Interpreted )
+        {
+            return expression;
+        }
+        return item -> compiled.test( new Element( item ) );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private static Predicate<Element> compilePredicate( Predicate<Composite> expression )
+    {
+        Class<?> type = expression.getClass();
+        if( type == AndPredicate.class )
+        {
+            Predicate<Element>[] operands = compileAll( ( (AndPredicate) expression ).operands() );
+            return element ->
+            {
+                for( Predicate<Element> operand : operands )
+                {
+                    if( !operand.test( element ) )
+                    {
+                        return false;
+                    }
+                }
+                return true;
+            };
+        }
+        if( type == OrPredicate.class )
+        {
+            Predicate<Element>[] operands = compileAll( ( (OrPredicate) expression ).operands() );
+            return element ->
+            {
+                for( Predicate<Element> operand : operands )
+                {
+                    if( operand.test( element ) )
+                    {
+                        return true;
+                    }
+                }
+                return false;
+            };
+        }
+        if( type == Notpredicate.class )
+        {
+            Predicate<Element> operand = compilePredicate( ( (Notpredicate) expression ).operand() );
+            return element -> !operand.test( element );
+        }
+        if( expression instanceof ComparisonPredicate )
+        {
+            return compileComparison( (ComparisonPredicate<Object>) expression );
+        }
+        if( type == PropertyNullPredicate.class )
+        {
+            Function<Element, Object> property = compile( ( (PropertyNullPredicate<?>) expression ).property() );
+            return element -> property.apply( element ) == null;
+        }
+        if( type == PropertyNotNullPredicate.class )
+        {
+            Function<Element, Object> property = compile( ( (PropertyNotNullPredicate<?>) expression ).property() );
+            return element -> property.apply( element ) != null;
+        }
+        if( type == AssociationNullPredicate.class )
+        {
+            Function<Element, Object> association = compile( ( (AssociationNullPredicate<?>) expression ).association() );
+            return element ->
+            {
+                try
+                {
+                    return association.apply( element ) == null;
+                }
+                catch( IllegalArgumentException e )
+                {
+                    return true;
+                }
+            };
+        }
+        if( type == AssociationNotNullPredicate.class )
+        {
+            Function<Element, Object> association = compile( ( (AssociationNotNullPredicate<?>) expression ).association() );
+            return element ->
+            {
+                try
+                {
+                    return association.apply( element ) != null;
+                }
+                catch( IllegalArgumentException e )
+                {
+                    return false;
+                }
+            };
+        }
+        if( type == MatchesPredicate.class && ( (MatchesPredicate) expression ).value() instanceof String )
+        {
+            MatchesPredicate matches = (MatchesPredicate) expression;
+            Function<Element, Object> property = compile( matches.property() );
+            Pattern pattern = Pattern.compile( matches.regexp() );
+            return element ->
+            {
+                Object value = property.apply( element );
+                return value != null && pattern.matcher( (String) value ).matches();
+            };
+        }
+        return new Interpreted( expression );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private static Predicate<Element>[] compileAll( Collection<Predicate<Composite>> expressions )
+    {
+        return expressions.stream().map( QueryCompiler::compilePredicate ).toArray( Predicate[]::new );
+    }
+
+    @SuppressWarnings( {"raw", "unchecked"} )
+    private static Predicate<Element> compileComparison( ComparisonPredicate<Object> comparison )
+    {
+        Object value = comparison.value();
+        if( value instanceof Variable )
+        {
+            return new Interpreted( comparison );
+        }
+        Predicate<Object> compare;
+        Class<?> type = comparison.getClass();
+        if( type == EqPredicate.class )
+        {
+            compare = propValue -> propValue.equals( value );
+        }
+        else if( type == NePredicate.class )
+        {
+            compare = propValue -> !propValue.equals( value );
+        }
+        else if( type == GtPredicate.class )
+        {
+            compare = propValue -> ( (Comparable) propValue ).compareTo( value ) > 0;
+        }
+        else if( type == GePredicate.class )
+        {
+            compare = propValue -> ( (Comparable) propValue ).compareTo( value ) >= 0;
+        }
+        else if( type == LtPredicate.class )
+        {
+            compare = propValue -> ( (Comparable) propValue ).compareTo( value ) < 0;
+        }
+        else if( type == LePredicate.class )
+        {
+            compare = propValue -> ( (Comparable) propValue ).compareTo( value ) <= 0;
+        }
+        else
+        {
+            return new Interpreted( comparison );
+        }
+        Function<Element, Object> property = compile( comparison.property() );
+        return element ->
+        {
+            try
+            {
+                Object propValue = property.apply( element );
+                return propValue != null && compare.test( propValue );
+            }
+            catch( IllegalArgumentException e )
+            {
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Compile a property path to a function returning the property value, {@literal null} when the property or
+     * one of the traversed composites is absent.
+     */
+    private static Function<Element, Object> compile( PropertyFunction<?> function )
+    {
+        Function<Element, Object> traversal = traversalOf( function.traversedProperty(),
+                                                           function.traversedAssociation(),
+                                                           function.traversedManyAssociation() != null,
+                                                           function.traversedNamedAssociation() != null );
+        AccessibleObject accessor = function.accessor();
+        return element ->
+        {
+            Property<?> property = (Property<?>) resolve( element, traversal,
+                                                          instance -> instance.state().propertyFor( accessor ) );
+            return property == null ? null : property.get();
+        };
+    }
+
+    /**
+     * Compile an association path to a function returning the associated entity, {@literal null} when the
+     * association or one of the traversed composites is absent.
+     */
+    private static Function<Element, Object> compile( AssociationFunction<?> function )
+    {
+        Function<Element, Object> traversal = traversalOf( null,
+                                                           function.traversedAssociation(),
+                                                           function.traversedManyAssociation() != null,
+                                                           function.traversedNamedAssociation() != null );
+        AccessibleObject accessor = function.accessor();
+        return element ->
+        {
+            Association<?> association = (Association<?>) resolve(
+                element, traversal, instance -> ( (AssociationStateHolder) instance.state() ).associationFor( accessor ) );
+            return association == null ? null : association.get();
+        };
+    }
+
+    /**
+     * Compile the path leading to the composite holding the state, {@literal null} for the evaluated element itself.
+     */
+    private static Function<Element, Object> traversalOf( PropertyFunction<?> traversedProperty,
+                                                          AssociationFunction<?> traversedAssociation,
+                                                          boolean traversedManyAssociation,
+                                                          boolean traversedNamedAssociation )
+    {
+        if( traversedProperty != null )
+        {
+            return compile( traversedProperty );
+        }
+        if( traversedAssociation != null )
+        {
+            return compile( traversedAssociation );
+        }
+        if( traversedManyAssociation )
+        {
+            return element ->
+            {
+                throw new IllegalArgumentException( "Cannot evaluate a ManyAssociation" );
+            };
+        }
+        if( traversedNamedAssociation )
+        {
+            return element ->
+            {
+                throw new IllegalArgumentException( "Cannot evaluate a NamedAssociation" );
+            };
+        }
+        return null;
+    }
+
+    /**
+     * Resolve the Property or Association at the end of a path, failures are reported like the query grammar
+     * functions do.
+     */
+    private static Object resolve( Element element,
+                                   Function<Element, Object> traversal,
+                                   Function<CompositeInstance, Object> accessor )
+    {
+        try
+        {
+            CompositeInstance instance;
+            if( traversal == null )
+            {
+                instance = element.instance();
+            }
+            else
+            {
+                Object target = traversal.apply( element );
+                if( target == null )
+                {
+                    return null;
+                }
+                instance = instanceOf( target );
+            }
+            return accessor.apply( instance );
+        }
+        catch( IllegalArgumentException e )
+        {
+            throw e;
+        }
+        catch( Throwable e )
+        {
+            throw new IllegalArgumentException( e );
+        }
+    }
+
+    private static CompositeInstance instanceOf( Object composite )
+    {
+        try
+        {
+            return (CompositeInstance) Proxy.getInvocationHandler( composite );
+        }
+        catch( IllegalArgumentException e )
+        {
+            throw e;
+        }
+        catch( Throwable e )
+        {
+            throw new IllegalArgumentException( e );
+        }
+    }
+
+    /**
+     * Element being evaluated, its composite instance is resolved on first use.
+     */
+    private static final class Element
+    {
+        private final Composite composite;
+        private CompositeInstance instance;
+
+        private Element( Composite composite )
+        {
+            this.composite = composite;
+        }
+
+        private CompositeInstance instance()
+        {
+            if( instance == null )
+            {
+                instance = instanceOf( composite );
+            }
+            return instance;
+        }
+    }
+
+    /**
+     * Operand that could not be compiled, evaluated by the query grammar predicate itself.
+     */
+    private static final class Interpreted
+        implements Predicate<Element>
+    {
+        private final Predicate<Composite> expression;
+
+        private Interpreted( Predicate<Composite> expression )
+        {
+            this.expression = expression;
+        }
+
+        @Override
+        public boolean test( Element element )
+        {
+            return expression.test( element.composite );
+        }
+    }
+}
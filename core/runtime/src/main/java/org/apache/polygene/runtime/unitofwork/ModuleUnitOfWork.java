@@ -21,6 +21,7 @@
 package org.apache.polygene.runtime.unitofwork;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -289,6 +290,47 @@ public class ModuleUnitOfWork
         return uow.get( EntityReference.create( identity ), this, models, type );
     }
 
+    @Override
+    public <T> List<T> getAll( Class<T> type, Iterable<Identity> identities )
+        throws NoSuchEntityTypeException, NoSuchEntityException
+    {
+        Iterable<EntityDescriptor> models = module.typeLookup().lookupEntityModels( type );
+
+        if( !models.iterator().hasNext() )
+        {
+            throw new NoSuchEntityTypeException( type.getName(), module );
+        }
+
+        List<EntityReference> references = new ArrayList<>();
+        identities.forEach( identity -> references.add( EntityReference.create( identity ) ) );
+        uow.prefetch( references, models );
+
+        List<T> entities = new ArrayList<>( references.size() );
+        for( EntityReference reference : references )
+        {
+            entities.add( uow.get( reference, this, models, type ) );
+        }
+        return entities;
+    }
+
+    /**
+     * Load the state of the referenced entities at once, ahead of their retrieval.
+     * <p>
+     * This is only a hint, entities that cannot be found are silently ignored.
+     * </p>
+     *
+     * @param type       the expected type of the entities
+     * @param references the references of the entities
+     */
+    public void prefetch( Class<?> type, Iterable<EntityReference> references )
+    {
+        Iterable<EntityDescriptor> models = module.typeLookup().lookupEntityModels( type );
+        if( models.iterator().hasNext() )
+        {
+            uow.prefetch( references, models );
+        }
+    }
+
     @Override
     @SuppressWarnings( "unchecked" )
     public <T> T get( T entity )
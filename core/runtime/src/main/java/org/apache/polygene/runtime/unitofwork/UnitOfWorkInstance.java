@@ -20,14 +20,21 @@
 
 package org.apache.polygene.runtime.unitofwork;
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Stack;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import org.apache.polygene.api.common.MetaInfo;
+import org.apache.polygene.api.composite.CompositeInstance;
 import org.apache.polygene.api.entity.EntityComposite;
 import org.apache.polygene.api.entity.EntityDescriptor;
 import org.apache.polygene.api.entity.EntityReference;
@@ -37,6 +44,7 @@ import org.apache.polygene.api.metrics.MetricsCounterFactory;
 import org.apache.polygene.api.metrics.MetricsProvider;
 import org.apache.polygene.api.metrics.MetricsTimer;
 import org.apache.polygene.api.metrics.MetricsTimerFactory;
+import org.apache.polygene.api.service.ServiceDescriptor;
 import org.apache.polygene.api.structure.ModuleDescriptor;
 import org.apache.polygene.api.type.HasTypes;
 import org.apache.polygene.api.unitofwork.ConcurrentEntityModificationException;
@@ -72,7 +80,7 @@ public final class UnitOfWorkInstance
     }
 
     private final HashMap<EntityReference, EntityInstance> instanceCache = new HashMap<>();
-    private final HashMap<EntityStore, EntityStoreUnitOfWork> storeUnitOfWork = new HashMap<>();
+    private final LinkedHashMap<EntityStore, EntityStoreUnitOfWork> storeUnitOfWork = new LinkedHashMap<>();
     private final ModuleSpi module;
     private final Usecase usecase;
     private final Instant currentTime;
@@ -176,6 +184,49 @@ public final class UnitOfWorkInstance
         return entityInstance.proxy();
     }
 
+    /**
+     * Load the state of the referenced entities that are not yet in this UnitOfWork, in bulk.
+     * <p>
+     * The loaded states are kept by the EntityStore UnitOfWorks so that following calls to
+     * {@link #get(EntityReference, UnitOfWork, Iterable, Class)} do not reach the EntityStores.
+     * Entities that cannot be found are ignored here and reported by {@code get} instead.
+     * </p>
+     *
+     * @param references      the references of the entities
+     * @param potentialModels the candidate entity models
+     */
+    public void prefetch( Iterable<EntityReference> references,
+                          Iterable<? extends EntityDescriptor> potentialModels
+    )
+    {
+        checkOpen();
+
+        List<EntityReference> toLoad = new ArrayList<>();
+        for( EntityReference reference : references )
+        {
+            if( !instanceCache.containsKey( reference ) )
+            {
+                toLoad.add( reference );
+            }
+        }
+        // A single entity is loaded as efficiently by get()
+        if( toLoad.size() < 2 )
+        {
+            return;
+        }
+        for( EntityDescriptor potentialModel : potentialModels )
+        {
+            EntityStore store = ( (ModuleSpi) potentialModel.module().instance() ).entityStore();
+            EntityStoreUnitOfWork storeUow = getEntityStoreUnitOfWork( store );
+            Map<EntityReference, EntityState> loaded = storeUow.entityStatesOf( potentialModel.module(), toLoad );
+            toLoad.removeIf( loaded::containsKey );
+            if( toLoad.isEmpty() )
+            {
+                return;
+            }
+        }
+    }
+
     public Usecase usecase()
     {
         return usecase;
@@ -257,11 +308,19 @@ public final class UnitOfWorkInstance
         // Commit state to EntityStores
         List<StateCommitter> committers = applyChanges();
 
-        // Check callbacks
-        notifyBeforeCompletion( currentCallbacks );
+        // Check callbacks, a veto cancels the prepared stores so that they release what they hold
+        try
+        {
+            notifyBeforeCompletion( currentCallbacks );
+        }
+        catch( RuntimeException e )
+        {
+            committers.forEach( StateCommitter::cancel );
+            throw e;
+        }
 
         // Commit all changes
-        committers.forEach( StateCommitter::commit );
+        commit( committers );
 
         close();
 
@@ -331,18 +390,19 @@ public final class UnitOfWorkInstance
     private List<StateCommitter> applyChanges()
         throws UnitOfWorkCompletionException
     {
-        List<StateCommitter> committers = new ArrayList<>();
-        for( EntityStoreUnitOfWork entityStoreUnitOfWork : storeUnitOfWork.values() )
+        // Stores are prepared, and take their commit locks, in a fixed order so that UnitOfWorks spanning the same
+        // stores cannot each wait for the other, they are then committed in the order they were first used
+        Map<EntityStoreUnitOfWork, StateCommitter> prepared = new HashMap<>();
+        for( EntityStoreUnitOfWork entityStoreUnitOfWork : storeUnitOfWorksInLockOrder() )
         {
             try
             {
-                StateCommitter committer = entityStoreUnitOfWork.applyChanges();
-                committers.add( committer );
+                prepared.put( entityStoreUnitOfWork, entityStoreUnitOfWork.applyChanges() );
             }
             catch( Exception e )
             {
                 // Cancel all previously prepared stores
-                committers.forEach( StateCommitter::cancel );
+                prepared.values().forEach( StateCommitter::cancel );
 
                 if( e instanceof ConcurrentEntityStateModificationException )
                 {
@@ -364,9 +424,85 @@ public final class UnitOfWorkInstance
                 }
             }
         }
+        List<StateCommitter> committers = new ArrayList<>( prepared.size() );
+        for( EntityStoreUnitOfWork entityStoreUnitOfWork : storeUnitOfWork.values() )
+        {
+            committers.add( prepared.get( entityStoreUnitOfWork ) );
+        }
         return committers;
     }
 
+    private List<EntityStoreUnitOfWork> storeUnitOfWorksInLockOrder()
+    {
+        List<EntityStore> stores = new ArrayList<>( storeUnitOfWork.keySet() );
+        if( stores.size() > 1 )
+        {
+            stores.sort( Comparator.comparing( UnitOfWorkInstance::lockOrderOf ) );
+        }
+        List<EntityStoreUnitOfWork> unitOfWorks = new ArrayList<>( stores.size() );
+        for( EntityStore store : stores )
+        {
+            unitOfWorks.add( storeUnitOfWork.get( store ) );
+        }
+        return unitOfWorks;
+    }
+
+    private static String lockOrderOf( EntityStore store )
+    {
+        if( Proxy.isProxyClass( store.getClass() ) )
+        {
+            InvocationHandler handler = Proxy.getInvocationHandler( store );
+            if( handler instanceof CompositeInstance
+                && ( (CompositeInstance) handler ).descriptor() instanceof ServiceDescriptor )
+            {
+                ServiceDescriptor descriptor = (ServiceDescriptor) ( (CompositeInstance) handler ).descriptor();
+                ModuleDescriptor module = descriptor.module();
+                return module.layer().name() + "/" + module.name() + "/" + descriptor.identity();
+            }
+        }
+        return store.getClass().getName() + "@" + System.identityHashCode( store );
+    }
+
+    private void commit( List<StateCommitter> committers )
+    {
+        if( committers.size() == 1 )
+        {
+            committers.get( 0 ).commit();
+            return;
+        }
+        // Start all commits before waiting for any of them so that the stores I/O overlap, stores are committed in
+        // the order they were first used and the remaining ones are cancelled as soon as a commit is known to fail
+        List<CompletableFuture<Void>> commits = new ArrayList<>( committers.size() );
+        for( StateCommitter committer : committers )
+        {
+            if( commits.stream().anyMatch( CompletableFuture::isCompletedExceptionally ) )
+            {
+                committer.cancel();
+            }
+            else
+            {
+                commits.add( committer.commitAsync().toCompletableFuture() );
+            }
+        }
+        try
+        {
+            CompletableFuture.allOf( commits.toArray( new CompletableFuture<?>[ commits.size() ] ) ).join();
+        }
+        catch( CompletionException ex )
+        {
+            Throwable cause = ex.getCause();
+            if( cause instanceof RuntimeException )
+            {
+                throw (RuntimeException) cause;
+            }
+            if( cause instanceof Error )
+            {
+                throw (Error) cause;
+            }
+            throw ex;
+        }
+    }
+
     private void notifyBeforeCompletion( List<UnitOfWorkCallback> callbacks )
         throws UnitOfWorkCompletionException
     {
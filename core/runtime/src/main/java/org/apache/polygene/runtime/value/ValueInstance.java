@@ -34,6 +34,10 @@ import org.apache.polygene.spi.module.ModuleSpi;
 public final class ValueInstance extends TransientInstance
     implements CompositeInstance, MixinsInstance
 {
+    // Written before the volatile flag, published by it
+    private int cachedHashCode;
+    private volatile boolean hashCodeCached;
+
     public ValueInstance( ValueModel compositeModel, Object[] mixins, ValueStateInstance state )
     {
         super( compositeModel, mixins, state );
@@ -45,6 +49,9 @@ public final class ValueInstance extends TransientInstance
      * The definition of equals() for the Value is that if both the state and descriptor are equal,
      * then the values are equal.
      * </p>
+     * <p>
+     * Built values with different cached hash codes are not equal, without comparing their state.
+     * </p>
      *
      * @param o The other object to compare.
      *
@@ -65,6 +72,15 @@ public final class ValueInstance extends TransientInstance
         try
         {
             ValueInstance that = (ValueInstance) Proxy.getInvocationHandler( o );
+            if( this == that )
+            {
+                return true;
+            }
+            // Cached hash code inequality
+            if( hashCodeCached && that.hashCodeCached && cachedHashCode != that.cachedHashCode )
+            {
+                return false;
+            }
             // Descriptor equality
             if( !descriptor().equals( that.descriptor() ) )
             {
@@ -96,6 +112,8 @@ public final class ValueInstance extends TransientInstance
      */
     public void prepareToBuild()
     {
+        hashCodeCached = false;
+
         descriptor().state().properties().forEach(
             descriptor -> ( (PropertyInstance<Object>) state.propertyFor( descriptor.accessor() ) )
                 .prepareToBuild( descriptor ) );
@@ -116,6 +134,9 @@ public final class ValueInstance extends TransientInstance
     /**
      * When a ValueBuilder is finished and is about to instantiate a Value, call this to ensure that the state has correct
      * settings, i.e. is immutable.
+     * <p>
+     * The state can no longer change, so the hash code is computed once here, after nested values cached theirs.
+     * </p>
      */
     public void prepareBuilderState()
     {
@@ -131,15 +152,27 @@ public final class ValueInstance extends TransientInstance
 
         descriptor().state().namedAssociations().forEach(
             descriptor -> state().namedAssociationFor( descriptor.accessor() ).setAssociationInfo( descriptor ) );
+
+        cachedHashCode = computeHashCode();
+        hashCodeCached = true;
     }
 
     /**
-     * Calculate hash code.
+     * Calculate hash code, once built it is cached.
      *
      * @return the hashcode of this instance.
      */
     @Override
     public int hashCode()
+    {
+        if( hashCodeCached )
+        {
+            return cachedHashCode;
+        }
+        return computeHashCode();
+    }
+
+    private int computeHashCode()
     {
         int hash = compositeModel.hashCode() * 23; // Descriptor
         return hash + state.hashCode() * 5; // State
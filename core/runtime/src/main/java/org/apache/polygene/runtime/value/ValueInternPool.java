@@ -0,0 +1,108 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.polygene.runtime.value;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.polygene.api.value.ValueInterning;
+
+/**
+ * Canonical instances of the values of an interned value type.
+ * <p>
+ * Values are looked up by their cached hash code and structural equality, see {@link ValueInstance}.
+ * </p>
+ */
+abstract class ValueInternPool
+{
+    static ValueInternPool of( ValueInterning interning )
+    {
+        return interning.isWeak() ? new WeakPool() : new BoundedPool( interning.maxSize() );
+    }
+
+    /**
+     * @param value A built value proxy
+     * @return The canonical value proxy equal to {@code value}, {@code value} itself if there was none
+     */
+    abstract Object intern( Object value );
+
+    private static final class WeakPool extends ValueInternPool
+    {
+        private static final int STRIPES = 16;
+
+        private final Map<Object, WeakReference<Object>>[] stripes;
+
+        @SuppressWarnings( "unchecked" )
+        private WeakPool()
+        {
+            stripes = new Map[ STRIPES ];
+            for( int i = 0; i < STRIPES; i++ )
+            {
+                stripes[ i ] = new WeakHashMap<>();
+            }
+        }
+
+        @Override
+        Object intern( Object value )
+        {
+            int hash = value.hashCode();
+            Map<Object, WeakReference<Object>> stripe = stripes[ ( hash ^ ( hash >>> 16 ) ) & ( STRIPES - 1 ) ];
+            synchronized( stripe )
+            {
+                WeakReference<Object> reference = stripe.get( value );
+                Object canonical = reference == null ? null : reference.get();
+                if( canonical != null )
+                {
+                    return canonical;
+                }
+                // The value must only be weakly reachable from the pool
+                stripe.put( value, new WeakReference<>( value ) );
+                return value;
+            }
+        }
+    }
+
+    private static final class BoundedPool extends ValueInternPool
+    {
+        private final int maxSize;
+        private final ConcurrentHashMap<Object, Object> values = new ConcurrentHashMap<>();
+
+        private BoundedPool( int maxSize )
+        {
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        Object intern( Object value )
+        {
+            Object canonical = values.get( value );
+            if( canonical != null )
+            {
+                return canonical;
+            }
+            if( values.mappingCount() >= maxSize )
+            {
+                values.clear();
+            }
+            canonical = values.putIfAbsent( value, value );
+            return canonical != null ? canonical : value;
+        }
+    }
+}
@@ -36,6 +36,7 @@ import org.apache.polygene.api.type.ValueCompositeType;
 import org.apache.polygene.api.unitofwork.NoSuchEntityTypeException;
 import org.apache.polygene.api.util.Classes;
 import org.apache.polygene.api.value.ValueDescriptor;
+import org.apache.polygene.api.value.ValueInterning;
 import org.apache.polygene.runtime.composite.CompositeMethodsModel;
 import org.apache.polygene.runtime.composite.CompositeModel;
 import org.apache.polygene.runtime.composite.MixinModel;
@@ -52,6 +53,7 @@ public final class ValueModel extends CompositeModel
     implements ValueDescriptor
 {
     private ValueCompositeType valueType;
+    private final ValueInternPool internPool;
 
     public ValueModel( final ModuleDescriptor module,
                        final List<Class<?>> types,
@@ -66,6 +68,8 @@ public final class ValueModel extends CompositeModel
 // TODO: When TypeLookup's lazy loading can be disabled during Model building, then uncomment the following line.
 //        checkAssociationVisibility();
         valueType = ValueCompositeType.of( this );
+        ValueInterning interning = metaInfo.get( ValueInterning.class );
+        internPool = interning == null ? null : ValueInternPool.of( interning );
     }
 
     @Override
@@ -169,6 +173,20 @@ public final class ValueModel extends CompositeModel
         return null;
     }
 
+    /**
+     * @param value A value built by a ValueBuilder
+     * @return The canonical instance equal to {@code value} if this value type is interned, otherwise {@code value}
+     */
+    @SuppressWarnings( "unchecked" )
+    <T> T intern( T value )
+    {
+        if( internPool == null )
+        {
+            return value;
+        }
+        return (T) internPool.intern( value );
+    }
+
     public ValueInstance newValueInstance( ValueStateInstance state )
     {
         Object[] mixins = mixinsModel.newMixinHolder();
@@ -0,0 +1,162 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.polygene.runtime.association;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.polygene.api.association.NamedAssociation;
+import org.apache.polygene.api.concern.GenericConcern;
+import org.apache.polygene.api.entity.EntityBuilder;
+import org.apache.polygene.api.identity.HasIdentity;
+import org.apache.polygene.api.identity.Identity;
+import org.apache.polygene.api.property.Property;
+import org.apache.polygene.api.unitofwork.UnitOfWork;
+import org.apache.polygene.bootstrap.ModuleAssembly;
+import org.apache.polygene.entitystore.memory.MemoryEntityStoreService;
+import org.apache.polygene.spi.entitystore.helpers.MapEntityStore;
+import org.apache.polygene.test.AbstractPolygeneTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Entities retrieved through a NamedAssociation are loaded from the store in batches.
+ */
+public class NamedAssociationPrefetchTest
+    extends AbstractPolygeneTest
+{
+    private static final int COUNT = 250;
+    private static final AtomicInteger LOADS = new AtomicInteger();
+
+    private Identity identity;
+
+    @Override
+    public void assemble( ModuleAssembly module )
+    {
+        module.entities( Thing.class );
+        module.services( MemoryEntityStoreService.class ).withConcerns( LoadCountingConcern.class );
+        module.defaultServices();
+    }
+
+    @BeforeEach
+    public void createThings()
+        throws Exception
+    {
+        try( UnitOfWork uow = unitOfWorkFactory.newUnitOfWork() )
+        {
+            EntityBuilder<Thing> builder = uow.newEntityBuilder( Thing.class );
+            builder.instance().index().set( -1 );
+            Thing owner = builder.newInstance();
+            for( int idx = 0; idx < COUNT; idx++ )
+            {
+                builder = uow.newEntityBuilder( Thing.class );
+                builder.instance().index().set( idx );
+                Thing thing = builder.newInstance();
+                owner.things().put( "thing-" + idx, thing );
+            }
+            identity = owner.identity().get();
+            uow.complete();
+        }
+    }
+
+    @Test
+    public void givenNamedAssociationWhenIteratingThenLoadEntitiesInBatches()
+        throws Exception
+    {
+        try( UnitOfWork uow = unitOfWorkFactory.newUnitOfWork() )
+        {
+            Thing owner = uow.get( Thing.class, identity );
+            LOADS.set( 0 );
+            int found = 0;
+            for( String name : owner.things() )
+            {
+                assertThat( "thing-" + owner.things().get( name ).index().get(), equalTo( name ) );
+                found++;
+            }
+            assertThat( found, equalTo( COUNT ) );
+            assertThat( LOADS.get(), equalTo( 3 ) );
+        }
+    }
+
+    @Test
+    public void givenNamedAssociationWhenGettingByNameThenLoadEntitiesInBatches()
+        throws Exception
+    {
+        List<String> names = new ArrayList<>();
+        for( int idx = 0; idx < COUNT; idx++ )
+        {
+            names.add( "thing-" + idx );
+        }
+        Collections.reverse( names );
+
+        try( UnitOfWork uow = unitOfWorkFactory.newUnitOfWork() )
+        {
+            Thing owner = uow.get( Thing.class, identity );
+            LOADS.set( 0 );
+            for( String name : names )
+            {
+                assertThat( "thing-" + owner.things().get( name ).index().get(), equalTo( name ) );
+            }
+            assertThat( LOADS.get(), equalTo( 3 ) );
+        }
+    }
+
+    public interface Thing
+        extends HasIdentity
+    {
+        Property<Integer> index();
+
+        NamedAssociation<Thing> things();
+    }
+
+    /**
+     * Count the loads asked to the store, batch loads of the memory store call get() once per entity.
+     */
+    public static class LoadCountingConcern
+        extends GenericConcern
+    {
+        private static final ThreadLocal<Boolean> LOADING = ThreadLocal.withInitial( () -> false );
+
+        @Override
+        public Object invoke( Object proxy, Method method, Object[] args )
+            throws Throwable
+        {
+            if( !MapEntityStore.class.equals( method.getDeclaringClass() )
+                || !( "get".equals( method.getName() ) || "entityStatesOf".equals( method.getName() ) )
+                || LOADING.get() )
+            {
+                return next.invoke( proxy, method, args );
+            }
+            LOADS.incrementAndGet();
+            LOADING.set( true );
+            try
+            {
+                return next.invoke( proxy, method, args );
+            }
+            finally
+            {
+                LOADING.set( false );
+            }
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.polygene.runtime.composite;
+
+import java.io.IOException;
+import org.apache.polygene.api.common.Optional;
+import org.apache.polygene.api.concern.ConcernOf;
+import org.apache.polygene.api.concern.Concerns;
+import org.apache.polygene.api.mixin.Mixins;
+import org.apache.polygene.bootstrap.AssemblyException;
+import org.apache.polygene.bootstrap.ModuleAssembly;
+import org.apache.polygene.test.AbstractPolygeneTest;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Composite calls dispatched through generated {@link FragmentInvoker}s.
+ */
+public class FragmentInvokerCompositeTest extends AbstractPolygeneTest
+{
+    @Override
+    public void assemble( ModuleAssembly module )
+        throws AssemblyException
+    {
+        module.transients( Calculator.class );
+    }
+
+    @Test
+    public void givenTypedConcernWhenCallingWithPrimitivesThenValuesAreUnchanged()
+    {
+        Calculator calculator = transientBuilderFactory.newTransient( Calculator.class );
+        assertThat( calculator.add( 2, 3 ), equalTo( 6 ) );
+        assertThat( calculator.scale( Long.MAX_VALUE / 2, 2.0d ), equalTo( 2.0d * ( Long.MAX_VALUE / 2 ) + 1 ) );
+        assertThat( calculator.negate( true ), equalTo( false ) );
+        assertThat( calculator.upper( 'a' ), equalTo( 'A' ) );
+    }
+
+    @Test
+    public void givenTypedConcernWhenCallingWithBoxedValuesThenValuesAreUnchanged()
+    {
+        Calculator calculator = transientBuilderFactory.newTransient( Calculator.class );
+        assertThat( calculator.boxed( 41 ), equalTo( 43 ) );
+        assertThat( calculator.boxed( null ), nullValue() );
+        calculator.store( "value" );
+        assertThat( calculator.stored(), equalTo( "value" ) );
+    }
+
+    @Test
+    public void givenMixinThrowingWhenCallingThenExceptionIsPropagatedUnwrapped()
+    {
+        Calculator calculator = transientBuilderFactory.newTransient( Calculator.class );
+        IOException checked = assertThrows( IOException.class, () -> calculator.fail( "checked" ) );
+        assertThat( checked.getMessage(), equalTo( "checked" ) );
+        IllegalArgumentException unchecked = assertThrows( IllegalArgumentException.class,
+                                                           () -> calculator.divide( 1, 0 ) );
+        assertThat( unchecked.getMessage(), equalTo( "Division by zero" ) );
+    }
+
+    public interface Arithmetic
+    {
+        int add( int first, int second );
+
+        @Optional
+        Integer boxed( @Optional Integer value );
+
+        void fail( String message )
+            throws IOException;
+    }
+
+    @Mixins( CalculatorMixin.class )
+    @Concerns( IncrementConcern.class )
+    public interface Calculator extends Arithmetic
+    {
+        double scale( long value, double factor );
+
+        boolean negate( boolean value );
+
+        char upper( char value );
+
+        void store( String value );
+
+        String stored();
+
+        int divide( int dividend, int divisor );
+    }
+
+    public static abstract class ArithmeticMixin
+        implements Arithmetic
+    {
+        @Override
+        public int add( int first, int second )
+        {
+            return first + second;
+        }
+
+        @Override
+        public Integer boxed( Integer value )
+        {
+            return value == null ? null : value + 1;
+        }
+
+        @Override
+        public void fail( String message )
+            throws IOException
+        {
+            throw new IOException( message );
+        }
+    }
+
+    public static abstract class CalculatorMixin extends ArithmeticMixin
+        implements Calculator
+    {
+        private String stored;
+
+        @Override
+        public double scale( long value, double factor )
+        {
+            return value * factor;
+        }
+
+        @Override
+        public boolean negate( boolean value )
+        {
+            return !value;
+        }
+
+        @Override
+        public char upper( char value )
+        {
+            return Character.toUpperCase( value );
+        }
+
+        @Override
+        public void store( String value )
+        {
+            stored = value;
+        }
+
+        @Override
+        public String stored()
+        {
+            return stored;
+        }
+
+        @Override
+        public int divide( int dividend, int divisor )
+        {
+            if( divisor == 0 )
+            {
+                throw new IllegalArgumentException( "Division by zero" );
+            }
+            return dividend / divisor;
+        }
+    }
+
+    public static abstract class IncrementConcern extends ConcernOf<Calculator>
+        implements Calculator
+    {
+        @Override
+        public int add( int first, int second )
+        {
+            return next.add( first, second ) + 1;
+        }
+
+        @Override
+        public Integer boxed( Integer value )
+        {
+            Integer result = next.boxed( value );
+            return result == null ? null : result + 1;
+        }
+
+        @Override
+        public double scale( long value, double factor )
+        {
+            return next.scale( value, factor ) + 1;
+        }
+    }
+}
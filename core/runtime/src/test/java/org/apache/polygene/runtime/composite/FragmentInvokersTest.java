@@ -0,0 +1,318 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.polygene.runtime.composite;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class FragmentInvokersTest
+{
+    @Test
+    public void givenPrimitiveArgumentsWhenInvokingThenArgumentsAreUnboxedAndResultIsBoxed()
+        throws Throwable
+    {
+        Primitives fragment = new Primitives();
+        assertThat( invoke( fragment, "intValue", 3 ), equalTo( 4 ) );
+        assertThat( invoke( fragment, "longValue", Long.MAX_VALUE - 1 ), equalTo( Long.MAX_VALUE ) );
+        assertThat( invoke( fragment, "shortValue", (short) 3 ), equalTo( (short) 4 ) );
+        assertThat( invoke( fragment, "byteValue", (byte) 3 ), equalTo( (byte) 4 ) );
+        assertThat( invoke( fragment, "doubleValue", 1.5d ), equalTo( 2.5d ) );
+        assertThat( invoke( fragment, "floatValue", 1.5f ), equalTo( 2.5f ) );
+        assertThat( invoke( fragment, "booleanValue", true ), equalTo( false ) );
+        assertThat( invoke( fragment, "charValue", 'a' ), equalTo( 'b' ) );
+    }
+
+    @Test
+    public void givenBoxedArgumentsWhenInvokingThenReferencesArePassedThrough()
+        throws Throwable
+    {
+        Boxed fragment = new Boxed();
+        Integer value = 1000;
+        assertThat( invoke( fragment, "identity", value ), sameInstance( value ) );
+        assertThat( invoke( fragment, "identity", (Object) null ), nullValue() );
+        assertThat( invoke( fragment, "sum", 1, 2L, 3.5d ), equalTo( 6.5d ) );
+        assertThat( invoke( fragment, "array", new Object[]{ new int[]{ 1, 2 } } ), equalTo( new int[]{ 2, 1 } ) );
+    }
+
+    @Test
+    public void givenVoidMethodWhenInvokingThenResultIsNull()
+        throws Throwable
+    {
+        Boxed fragment = new Boxed();
+        assertThat( invoke( fragment, "remember", "value" ), nullValue() );
+        assertThat( fragment.remembered, equalTo( "value" ) );
+    }
+
+    @Test
+    public void givenManyArgumentsWhenInvokingThenAllArgumentsArePassedInOrder()
+        throws Throwable
+    {
+        Object[] args = { "a", "b", "c", "d", "e", "f", "g", 8 };
+        assertThat( invoke( new Boxed(), "join", args ), equalTo( "abcdefg8" ) );
+    }
+
+    @Test
+    public void givenInterfaceMethodWhenInvokingThenImplementationIsCalled()
+        throws Throwable
+    {
+        FragmentInvoker invoker = FragmentInvokers.invokerFor( Greeter.class.getMethod( "greet", String.class ) );
+        assertThat( invoker, notNullValue() );
+        assertThat( invoker.invoke( (Greeter) name -> "Hello " + name, new Object[]{ "World" } ),
+                    equalTo( "Hello World" ) );
+    }
+
+    @Test
+    public void givenMethodThrowingWhenInvokingThenExceptionIsNotWrapped()
+    {
+        Throwing fragment = new Throwing();
+        IOException checked = assertThrows( IOException.class, () -> invoke( fragment, "checked" ) );
+        assertThat( checked.getMessage(), equalTo( "checked" ) );
+        IllegalStateException unchecked = assertThrows( IllegalStateException.class,
+                                                        () -> invoke( fragment, "unchecked", 1 ) );
+        assertThat( unchecked.getMessage(), equalTo( "unchecked 1" ) );
+        assertThrows( StackOverflowError.class, () -> invoke( fragment, "error" ) );
+    }
+
+    @Test
+    public void givenNullOrWrongArgumentsWhenInvokingThenCallFails()
+    {
+        assertThrows( NullPointerException.class, () -> invoke( new Primitives(), "intValue", (Object) null ) );
+        assertThrows( ClassCastException.class, () -> invoke( new Primitives(), "intValue", 1L ) );
+    }
+
+    @Test
+    public void givenSameMethodWhenRequestingInvokerTwiceThenItIsCached()
+        throws NoSuchMethodException
+    {
+        Method method = Primitives.class.getMethod( "intValue", int.class );
+        assertThat( FragmentInvokers.invokerFor( method ), sameInstance( FragmentInvokers.invokerFor( method ) ) );
+    }
+
+    @Test
+    public void givenNonPublicTypesWhenRequestingInvokerThenReflectionIsUsed()
+        throws NoSuchMethodException
+    {
+        assertThat( FragmentInvokers.invokerFor( PackagePrivate.class.getMethod( "value" ) ), nullValue() );
+        assertThat( FragmentInvokers.invokerFor( Signatures.class.getMethod( "returning" ) ), nullValue() );
+        assertThat( FragmentInvokers.invokerFor( Signatures.class.getMethod( "taking", PackagePrivate.class ) ),
+                    nullValue() );
+        assertThat( FragmentInvokers.invokerFor( Signatures.class.getMethod( "takingArray", PackagePrivate[].class ) ),
+                    nullValue() );
+        assertThat( FragmentInvokers.invokerFor( Signatures.class.getDeclaredMethod( "packagePrivate" ) ),
+                    nullValue() );
+        assertThat( FragmentInvokers.invokerFor( Signatures.class.getMethod( "staticMethod" ) ), nullValue() );
+        assertThat( FragmentInvokers.invokerFor( Signatures.class.getMethod( "publicTypes", List.class ) ),
+                    notNullValue() );
+    }
+
+    @Test
+    public void givenNonPublicFragmentWhenInvokingThroughHandlerThenReflectionIsUsed()
+        throws Throwable
+    {
+        Method method = PackagePrivate.class.getMethod( "value" );
+        TypedModifierInvocationHandler handler = new TypedModifierInvocationHandler();
+        handler.setMethod( method );
+        assertThat( FragmentInvokers.invokerFor( method ), nullValue() );
+        assertThat( handler.invoke( new PackagePrivate(), null, method, new Object[ 0 ] ), equalTo( "value" ) );
+
+        Method failing = PackagePrivate.class.getMethod( "fail", String.class );
+        handler.setMethod( failing );
+        IOException checked = assertThrows( IOException.class, () -> handler.invoke( new PackagePrivate(), null,
+                                                                                     failing,
+                                                                                     new Object[]{ "checked" } ) );
+        assertThat( checked.getMessage(), equalTo( "checked" ) );
+    }
+
+    @Test
+    public void givenPublicFragmentWhenInvokingThroughHandlerThenExceptionIsNotWrapped()
+        throws Throwable
+    {
+        Method method = Throwing.class.getMethod( "unchecked", int.class );
+        TypedModifierInvocationHandler handler = new TypedModifierInvocationHandler();
+        handler.setMethod( method );
+        IllegalStateException unchecked = assertThrows( IllegalStateException.class,
+                                                        () -> handler.invoke( new Throwing(), null, method,
+                                                                              new Object[]{ 2 } ) );
+        assertThat( unchecked.getMessage(), equalTo( "unchecked 2" ) );
+    }
+
+    private static Object invoke( Object fragment, String methodName, Object... args )
+        throws Throwable
+    {
+        Method method = Arrays.stream( fragment.getClass().getMethods() )
+                              .filter( candidate -> candidate.getName().equals( methodName ) )
+                              .findFirst()
+                              .orElseThrow( () -> new NoSuchMethodException( methodName ) );
+        FragmentInvoker invoker = FragmentInvokers.invokerFor( method );
+        assertThat( "Invoker for " + method, invoker, notNullValue() );
+        return invoker.invoke( fragment, args );
+    }
+
+    public static class Primitives
+    {
+        public int intValue( int value )
+        {
+            return value + 1;
+        }
+
+        public long longValue( long value )
+        {
+            return value + 1;
+        }
+
+        public short shortValue( short value )
+        {
+            return (short) ( value + 1 );
+        }
+
+        public byte byteValue( byte value )
+        {
+            return (byte) ( value + 1 );
+        }
+
+        public double doubleValue( double value )
+        {
+            return value + 1;
+        }
+
+        public float floatValue( float value )
+        {
+            return value + 1;
+        }
+
+        public boolean booleanValue( boolean value )
+        {
+            return !value;
+        }
+
+        public char charValue( char value )
+        {
+            return (char) ( value + 1 );
+        }
+    }
+
+    public static class Boxed
+    {
+        private String remembered;
+
+        public Object identity( Object value )
+        {
+            return value;
+        }
+
+        public Double sum( Integer first, Long second, Double third )
+        {
+            return first + second + third;
+        }
+
+        public int[] array( int[] values )
+        {
+            return new int[]{ values[ 1 ], values[ 0 ] };
+        }
+
+        public void remember( String value )
+        {
+            remembered = value;
+        }
+
+        public String join( String a, String b, String c, String d, String e, String f, String g, int h )
+        {
+            return a + b + c + d + e + f + g + h;
+        }
+    }
+
+    public static class Throwing
+    {
+        public void checked()
+            throws IOException
+        {
+            throw new IOException( "checked" );
+        }
+
+        public int unchecked( int value )
+        {
+            throw new IllegalStateException( "unchecked " + value );
+        }
+
+        public void error()
+        {
+            throw new StackOverflowError();
+        }
+    }
+
+    public interface Greeter
+    {
+        String greet( String name );
+    }
+
+    static class PackagePrivate
+    {
+        public String value()
+        {
+            return "value";
+        }
+
+        public void fail( String message )
+            throws IOException
+        {
+            throw new IOException( message );
+        }
+    }
+
+    public static class Signatures
+    {
+        public PackagePrivate returning()
+        {
+            return new PackagePrivate();
+        }
+
+        public void taking( PackagePrivate value )
+        {
+        }
+
+        public void takingArray( PackagePrivate[] values )
+        {
+        }
+
+        String packagePrivate()
+        {
+            return "value";
+        }
+
+        public static String staticMethod()
+        {
+            return "value";
+        }
+
+        public int publicTypes( List<String> values )
+        {
+            return values.size();
+        }
+    }
+}
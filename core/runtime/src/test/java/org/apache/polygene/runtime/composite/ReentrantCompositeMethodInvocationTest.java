@@ -0,0 +1,202 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.polygene.runtime.composite;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import org.apache.polygene.api.composite.TransientComposite;
+import org.apache.polygene.api.concern.ConcernOf;
+import org.apache.polygene.api.concern.Concerns;
+import org.apache.polygene.api.injection.scope.This;
+import org.apache.polygene.api.metrics.Metric;
+import org.apache.polygene.api.metrics.MetricNames;
+import org.apache.polygene.api.metrics.MetricsCounter;
+import org.apache.polygene.api.metrics.MetricsCounterFactory;
+import org.apache.polygene.api.metrics.MetricsProvider;
+import org.apache.polygene.api.mixin.Mixins;
+import org.apache.polygene.bootstrap.ModuleAssembly;
+import org.apache.polygene.spi.metrics.MetricsProviderAdapter;
+import org.apache.polygene.test.AbstractPolygeneTest;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Assert that composite methods with concerns can be called reentrantly and from many threads,
+ * each call getting its own concern chain.
+ */
+public class ReentrantCompositeMethodInvocationTest extends AbstractPolygeneTest
+{
+    @Override
+    public void assemble( ModuleAssembly module )
+    {
+        module.transients( Factorial.class );
+        module.services( MetricsProvider.class ).withMixins( CountingMetricsProvider.class );
+    }
+
+    @Test
+    public void givenConcernWhenCallingReentrantlyThenEachCallUsesItsOwnChain()
+    {
+        Factorial factorial = transientBuilderFactory.newTransient( Factorial.class );
+        assertThat( factorial.factorial( 10 ), equalTo( 3628800L ) );
+        assertThat( factorial.factorial( 5 ), equalTo( 120L ) );
+    }
+
+    @Test
+    public void givenConcernWhenCallingReentrantlyFromManyThreadsThenResultsAreCorrect()
+        throws Exception
+    {
+        Factorial factorial = transientBuilderFactory.newTransient( Factorial.class );
+        ExecutorService executor = Executors.newFixedThreadPool( 8 );
+        try
+        {
+            List<Future<Long>> results = new ArrayList<>();
+            for( int i = 0; i < 1000; i++ )
+            {
+                int n = i % 15;
+                results.add( executor.submit( () -> factorial.factorial( n ) ) );
+            }
+            for( int i = 0; i < results.size(); i++ )
+            {
+                assertThat( results.get( i ).get(), equalTo( expectedFactorial( i % 15 ) ) );
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void givenMetricsProviderWhenCallingReentrantlyThenPoolMissesAreCounted()
+        throws Exception
+    {
+        CountingMetricsProvider.COUNTERS.clear();
+        Factorial factorial = transientBuilderFactory.newTransient( Factorial.class );
+        factorial.factorial( 10 );
+        factorial.factorial( 10 );
+        factorial.factorial( 5 );
+
+        String name = MetricNames.nameFor( module.instance(), Factorial.class.getMethod( "factorial", int.class ),
+                                           "instance-pool-misses" );
+        assertThat( CountingMetricsProvider.COUNTERS.get( name ).get(), equalTo( 10L ) );
+    }
+
+    private static long expectedFactorial( int n )
+    {
+        long result = 1;
+        for( int i = 2; i <= n; i++ )
+        {
+            result *= i;
+        }
+        return result;
+    }
+
+    @Mixins( FactorialMixin.class )
+    @Concerns( ArgumentCheckConcern.class )
+    public interface Factorial extends TransientComposite
+    {
+        long factorial( int n );
+    }
+
+    public abstract static class FactorialMixin
+        implements Factorial
+    {
+        @This
+        Factorial self;
+
+        @Override
+        public long factorial( int n )
+        {
+            return n <= 1 ? 1 : n * self.factorial( n - 1 );
+        }
+    }
+
+    public abstract static class ArgumentCheckConcern extends ConcernOf<Factorial>
+        implements Factorial
+    {
+        @Override
+        public long factorial( int n )
+        {
+            if( n < 0 )
+            {
+                throw new IllegalArgumentException( "Negative argument: " + n );
+            }
+            return next.factorial( n );
+        }
+    }
+
+    public static class CountingMetricsProvider extends MetricsProviderAdapter
+    {
+        static final Map<String, AtomicLong> COUNTERS = new ConcurrentHashMap<>();
+
+        @Override
+        protected MetricsCounterFactory createMetricsCounterFactory()
+        {
+            return new MetricsCounterFactory()
+            {
+                @Override
+                public MetricsCounter createCounter( String name )
+                {
+                    AtomicLong count = COUNTERS.computeIfAbsent( name, key -> new AtomicLong() );
+                    return new MetricsCounter()
+                    {
+                        @Override
+                        public void increment()
+                        {
+                            count.incrementAndGet();
+                        }
+
+                        @Override
+                        public void increment( int steps )
+                        {
+                            count.addAndGet( steps );
+                        }
+
+                        @Override
+                        public void decrement()
+                        {
+                            count.decrementAndGet();
+                        }
+
+                        @Override
+                        public void decrement( int steps )
+                        {
+                            count.addAndGet( -steps );
+                        }
+                    };
+                }
+
+                @Override
+                public Stream<Metric> registered()
+                {
+                    return Stream.empty();
+                }
+            };
+        }
+    }
+}
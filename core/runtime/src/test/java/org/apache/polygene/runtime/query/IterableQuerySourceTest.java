@@ -399,6 +399,23 @@ public class IterableQuerySourceTest
         );
     }
 
+    @Test
+    public void givenFirstAndMaxResultsQueryWhenCountedThenReturnPageSize()
+    {
+        QueryBuilder<Nameable> qb = qbf.newQueryBuilder( Nameable.class );
+        Nameable nameable = templateFor( Nameable.class );
+        Query<Nameable> query = qb.newQuery( Network.nameables() );
+        assertThat( query.count(), is( 10L ) );
+        query.orderBy( orderBy( nameable.name() ) );
+        query.firstResult( 3 );
+        query.maxResults( 3 );
+        assertThat( query.count(), is( 3L ) );
+        query.firstResult( 8 );
+        assertThat( query.count(), is( 2L ) );
+        query.firstResult( 12 );
+        assertThat( query.count(), is( 0L ) );
+    }
+
     @Test
     public void givenOrderByOnMixinTypeQueryWhenExecutedThenReturnCorrect()
     {
@@ -0,0 +1,256 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package org.apache.polygene.runtime.query;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import org.apache.polygene.api.activation.ActivationException;
+import org.apache.polygene.api.composite.Composite;
+import org.apache.polygene.api.structure.Module;
+import org.apache.polygene.api.unitofwork.UnitOfWork;
+import org.apache.polygene.api.unitofwork.UnitOfWorkCompletionException;
+import org.apache.polygene.bootstrap.AssemblyException;
+import org.apache.polygene.bootstrap.ClassScanner;
+import org.apache.polygene.bootstrap.ModuleAssembly;
+import org.apache.polygene.bootstrap.SingletonAssembler;
+import org.apache.polygene.runtime.query.model.Female;
+import org.apache.polygene.runtime.query.model.Nameable;
+import org.apache.polygene.runtime.query.model.Person;
+import org.apache.polygene.runtime.query.model.Pet;
+import org.apache.polygene.runtime.query.model.entities.DomainEntity;
+import org.apache.polygene.runtime.query.model.entities.PetEntity;
+import org.apache.polygene.runtime.query.model.values.ContactValue;
+import org.apache.polygene.runtime.query.model.values.ContactsValue;
+import org.apache.polygene.test.EntityTestAssembler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.apache.polygene.api.query.QueryExpressions.and;
+import static org.apache.polygene.api.query.QueryExpressions.eq;
+import static org.apache.polygene.api.query.QueryExpressions.ge;
+import static org.apache.polygene.api.query.QueryExpressions.gt;
+import static org.apache.polygene.api.query.QueryExpressions.isNotNull;
+import static org.apache.polygene.api.query.QueryExpressions.isNull;
+import static org.apache.polygene.api.query.QueryExpressions.le;
+import static org.apache.polygene.api.query.QueryExpressions.lt;
+import static org.apache.polygene.api.query.QueryExpressions.matches;
+import static org.apache.polygene.api.query.QueryExpressions.ne;
+import static org.apache.polygene.api.query.QueryExpressions.not;
+import static org.apache.polygene.api.query.QueryExpressions.oneOf;
+import static org.apache.polygene.api.query.QueryExpressions.or;
+import static org.apache.polygene.api.query.QueryExpressions.templateFor;
+import static org.apache.polygene.api.query.QueryExpressions.variable;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+/**
+ * Compiled expressions must evaluate exactly like the query grammar predicates they are compiled from.
+ */
+public class QueryCompilerTest
+{
+    private Module module;
+    private UnitOfWork uow;
+    private List<Composite> elements;
+
+    @BeforeEach
+    public void setUp()
+        throws UnitOfWorkCompletionException, ActivationException, AssemblyException
+    {
+        SingletonAssembler assembler = new SingletonAssembler()
+        {
+            @Override
+            public void assemble( ModuleAssembly module )
+                throws AssemblyException
+            {
+                ClassScanner.findClasses( DomainEntity.class ).forEach( module::entities );
+
+                module.values( ContactsValue.class, ContactValue.class );
+                new EntityTestAssembler().assemble( module );
+            }
+        };
+        module = assembler.module();
+        uow = module.unitOfWorkFactory().newUnitOfWork();
+        Network.populate( uow, module );
+        uow.complete();
+        uow = module.unitOfWorkFactory().newUnitOfWork();
+        Network.refresh( uow );
+
+        // Entities of several types, and values, so that expressions also meet elements they do not apply to
+        elements = new ArrayList<>();
+        for( Nameable nameable : Network.nameables() )
+        {
+            elements.add( (Composite) nameable );
+        }
+        for( PetEntity pet : Network.pets() )
+        {
+            elements.add( pet );
+        }
+        for( Person person : Network.persons() )
+        {
+            if( person.contacts().get() != null )
+            {
+                elements.addAll( person.contacts().get().contacts().get() );
+            }
+        }
+    }
+
+    @AfterEach
+    public void tearDown()
+    {
+        if( uow != null )
+        {
+            uow.discard();
+        }
+    }
+
+    @Test
+    public void givenComparisonsWhenCompiledThenResultsAreUnchanged()
+    {
+        Person person = templateFor( Person.class );
+        Map<String, Predicate<Composite>> expressions = new LinkedHashMap<>();
+        expressions.put( "eq", eq( person.name(), "Joe Doe" ) );
+        expressions.put( "ne", ne( person.name(), "Joe Doe" ) );
+        expressions.put( "gt", gt( person.yearOfBirth(), 1975 ) );
+        expressions.put( "ge", ge( person.yearOfBirth(), 1975 ) );
+        expressions.put( "lt", lt( person.yearOfBirth(), 1990 ) );
+        expressions.put( "le", le( person.yearOfBirth(), 1990 ) );
+        expressions.put( "eq on value", eq( templateFor( ContactValue.class ).phone(), "555-1234" ) );
+        expressions.put( "matches", matches( person.name(), "J.* Doe" ) );
+        expressions.put( "matches nothing", matches( person.email(), "nobody@.*" ) );
+        assertCompiledLikeInterpreted( expressions );
+    }
+
+    @Test
+    public void givenNullChecksWhenCompiledThenResultsAreUnchanged()
+    {
+        Person person = templateFor( Person.class );
+        Female female = templateFor( Female.class );
+        Map<String, Predicate<Composite>> expressions = new LinkedHashMap<>();
+        expressions.put( "property null", isNull( person.email() ) );
+        expressions.put( "property not null", isNotNull( person.email() ) );
+        expressions.put( "association null", isNull( person.mother() ) );
+        expressions.put( "association not null", isNotNull( female.husband() ) );
+        expressions.put( "nested association not null", isNotNull( person.mother().get().mother() ) );
+        expressions.put( "property of value not null", isNotNull( person.contacts().get().contacts() ) );
+        assertCompiledLikeInterpreted( expressions );
+    }
+
+    @Test
+    public void givenNestedPathsWhenCompiledThenResultsAreUnchanged()
+    {
+        Person person = templateFor( Person.class );
+        Female female = templateFor( Female.class );
+        Pet.PetState pet = templateFor( Pet.PetState.class );
+        Map<String, Predicate<Composite>> expressions = new LinkedHashMap<>();
+        expressions.put( "association", eq( person.placeOfBirth().get().name(), "Kuala Lumpur" ) );
+        expressions.put( "associations", eq( person.mother().get().placeOfBirth().get().name(), "Kuala Lumpur" ) );
+        expressions.put( "association of association", matches( female.husband().get().placeOfBirth().get().county(),
+                                                                "Some .*" ) );
+        expressions.put( "internal state", eq( pet.owner().get().name(), "Jack Doe" ) );
+        expressions.put( "internal state null", isNull( pet.owner() ) );
+        expressions.put( "many association", eq( oneOf( person.interests() ).name(), "Gaming" ) );
+        assertCompiledLikeInterpreted( expressions );
+    }
+
+    @Test
+    public void givenLogicalOperatorsWhenCompiledThenResultsAreUnchanged()
+    {
+        Person person = templateFor( Person.class );
+        Female female = templateFor( Female.class );
+        Map<String, Predicate<Composite>> expressions = new LinkedHashMap<>();
+        expressions.put( "and", and( eq( person.placeOfBirth().get().name(), "Kuala Lumpur" ),
+                                     gt( person.yearOfBirth(), 1980 ) ) );
+        expressions.put( "and of three", and( isNotNull( person.email() ),
+                                              matches( person.email(), ".*\\.edu" ),
+                                              ge( person.yearOfBirth(), 1990 ) ) );
+        expressions.put( "or", or( eq( person.mother().get().name(), "Ann Doe" ),
+                                   eq( female.husband().get().placeOfBirth().get().name(), "Penang" ) ) );
+        expressions.put( "not", not( eq( person.placeOfBirth().get().country(), "Malaysia" ) ) );
+        expressions.put( "not null", not( isNull( person.yearOfBirth() ) ) );
+        expressions.put( "nested", or( and( lt( person.yearOfBirth(), 1980 ), not( isNull( person.mother() ) ) ),
+                                       not( or( isNull( person.email() ), eq( person.name(), "Joe Doe" ) ) ) ) );
+        assertCompiledLikeInterpreted( expressions );
+    }
+
+    @Test
+    public void givenEntitiesOfClosedUnitOfWorkWhenCompiledThenResultsAreUnchanged()
+    {
+        UnitOfWork closed = module.unitOfWorkFactory().newUnitOfWork();
+        List<Composite> unread = new ArrayList<>();
+        for( Nameable nameable : Network.nameables() )
+        {
+            unread.add( (Composite) closed.get( nameable ) );
+        }
+        closed.discard();
+
+        Predicate<Composite> expression = eq( templateFor( Person.class ).name(), "Joe Doe" );
+        Predicate<Composite> compiled = QueryCompiler.compile( expression );
+        for( Composite element : unread )
+        {
+            // Joe Doe does not match once his UnitOfWork is closed
+            assertThat( outcome( expression, element ), equalTo( false ) );
+            assertThat( outcome( compiled, element ), equalTo( outcome( expression, element ) ) );
+        }
+    }
+
+    @Test
+    public void givenVariablesWhenCompilingThenExpressionIsKept()
+    {
+        Person person = templateFor( Person.class );
+        Predicate<Composite> withVariable = eq( person.name(), variable( "name" ) );
+        assertThat( QueryCompiler.compile( withVariable ), sameInstance( withVariable ) );
+
+        Predicate<Composite> partlyCompilable = and( isNotNull( person.email() ), withVariable );
+        assertThat( QueryCompiler.compile( partlyCompilable ), not( sameInstance( partlyCompilable ) ) );
+    }
+
+    private void assertCompiledLikeInterpreted( Map<String, Predicate<Composite>> expressions )
+    {
+        expressions.forEach(
+            ( name, expression ) ->
+            {
+                Predicate<Composite> compiled = QueryCompiler.compile( expression );
+                assertThat( name + " compiled", compiled, not( sameInstance( expression ) ) );
+                for( Composite element : elements )
+                {
+                    assertThat( name + " on " + element,
+                                outcome( compiled, element ), equalTo( outcome( expression, element ) ) );
+                }
+            } );
+    }
+
+    private static Object outcome( Predicate<Composite> predicate, Composite element )
+    {
+        try
+        {
+            return predicate.test( element );
+        }
+        catch( RuntimeException e )
+        {
+            return e.getClass();
+        }
+    }
+}
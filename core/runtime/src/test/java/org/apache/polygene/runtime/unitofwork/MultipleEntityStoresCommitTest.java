@@ -0,0 +1,138 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.polygene.runtime.unitofwork;
+
+import org.apache.polygene.api.common.Visibility;
+import org.apache.polygene.api.entity.EntityBuilder;
+import org.apache.polygene.api.identity.Identity;
+import org.apache.polygene.api.identity.StringIdentity;
+import org.apache.polygene.api.mixin.Mixins;
+import org.apache.polygene.api.property.Property;
+import org.apache.polygene.api.service.ServiceComposite;
+import org.apache.polygene.api.unitofwork.NoSuchEntityException;
+import org.apache.polygene.api.unitofwork.UnitOfWork;
+import org.apache.polygene.bootstrap.ModuleAssembly;
+import org.apache.polygene.entitystore.memory.MemoryMapEntityStoreMixin;
+import org.apache.polygene.spi.entitystore.EntityStore;
+import org.apache.polygene.spi.entitystore.EntityStoreException;
+import org.apache.polygene.spi.entitystore.helpers.JSONMapEntityStoreActivation;
+import org.apache.polygene.spi.entitystore.helpers.JSONMapEntityStoreMixin;
+import org.apache.polygene.spi.entitystore.helpers.MapEntityStore;
+import org.apache.polygene.test.AbstractPolygeneTest;
+import org.apache.polygene.test.EntityTestAssembler;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Completion of UnitOfWorks spanning several EntityStores, one of them failing to commit.
+ */
+public class MultipleEntityStoresCommitTest
+    extends AbstractPolygeneTest
+{
+    private static final Identity THING = StringIdentity.identityOf( "thing" );
+    private static final Identity FAILING_THING = StringIdentity.identityOf( "failing-thing" );
+
+    @Override
+    public void assemble( ModuleAssembly module )
+    {
+        new EntityTestAssembler().assemble( module );
+        module.entities( Thing.class );
+
+        ModuleAssembly failing = module.layer().module( "Failing store" );
+        failing.services( FailingEntityStoreService.class );
+        failing.entities( FailingThing.class ).visibleIn( Visibility.layer );
+        failing.defaultServices();
+    }
+
+    @Test
+    public void givenFailingStoreUsedFirstWhenCompletingThenLaterStoresAreNotCommitted()
+    {
+        try( UnitOfWork uow = unitOfWorkFactory.newUnitOfWork() )
+        {
+            newFailingThing( uow );
+            newThing( uow );
+            assertThrows( EntityStoreException.class, uow::complete );
+        }
+        try( UnitOfWork uow = unitOfWorkFactory.newUnitOfWork() )
+        {
+            assertThrows( NoSuchEntityException.class, () -> uow.get( Thing.class, THING ) );
+        }
+    }
+
+    @Test
+    public void givenFailingStoreUsedLastWhenCompletingThenEarlierStoresAreCommitted()
+    {
+        try( UnitOfWork uow = unitOfWorkFactory.newUnitOfWork() )
+        {
+            newThing( uow );
+            newFailingThing( uow );
+            assertThrows( EntityStoreException.class, uow::complete );
+        }
+        try( UnitOfWork uow = unitOfWorkFactory.newUnitOfWork() )
+        {
+            assertThat( uow.get( Thing.class, THING ).name().get(), equalTo( "thing" ) );
+        }
+    }
+
+    private static void newThing( UnitOfWork uow )
+    {
+        EntityBuilder<Thing> builder = uow.newEntityBuilder( Thing.class, THING );
+        builder.instance().name().set( "thing" );
+        builder.newInstance();
+    }
+
+    private static void newFailingThing( UnitOfWork uow )
+    {
+        EntityBuilder<FailingThing> builder = uow.newEntityBuilder( FailingThing.class, FAILING_THING );
+        builder.instance().name().set( "failing" );
+        builder.newInstance();
+    }
+
+    public interface Thing
+    {
+        Property<String> name();
+    }
+
+    public interface FailingThing
+    {
+        Property<String> name();
+    }
+
+    /**
+     * In-memory EntityStore whose commits fail, through the default asynchronous bridge of MapEntityStore.
+     */
+    @Mixins( { FailingEntityStoreService.FailingMapEntityStoreMixin.class,
+               JSONMapEntityStoreMixin.class,
+               MemoryMapEntityStoreMixin.class } )
+    public interface FailingEntityStoreService
+        extends EntityStore, ServiceComposite, JSONMapEntityStoreActivation
+    {
+        abstract class FailingMapEntityStoreMixin
+            implements MapEntityStore
+        {
+            @Override
+            public void applyChanges( MapChanges changes )
+            {
+                throw new EntityStoreException( "Store failure" );
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.polygene.runtime.unitofwork;
+
+import java.time.Duration;
+import org.apache.polygene.api.entity.EntityBuilder;
+import org.apache.polygene.api.identity.Identity;
+import org.apache.polygene.api.identity.StringIdentity;
+import org.apache.polygene.api.property.Property;
+import org.apache.polygene.api.unitofwork.UnitOfWork;
+import org.apache.polygene.api.unitofwork.UnitOfWorkCallback;
+import org.apache.polygene.api.unitofwork.UnitOfWorkCompletionException;
+import org.apache.polygene.bootstrap.ModuleAssembly;
+import org.apache.polygene.test.AbstractPolygeneTest;
+import org.apache.polygene.test.EntityTestAssembler;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+/**
+ * Completion of UnitOfWorks vetoed by a callback, the entities they changed must stay available to others.
+ */
+public class VetoedCompletionTest
+    extends AbstractPolygeneTest
+{
+    private static final Identity THING = StringIdentity.identityOf( "thing" );
+
+    @Override
+    public void assemble( ModuleAssembly module )
+    {
+        new EntityTestAssembler().assemble( module );
+        module.entities( Thing.class );
+    }
+
+    @Test
+    public void givenVetoedCompletionWhenCompletingAnotherUnitOfWorkOnSameEntityThenItCommits()
+        throws Exception
+    {
+        try( UnitOfWork uow = unitOfWorkFactory.newUnitOfWork() )
+        {
+            EntityBuilder<Thing> builder = uow.newEntityBuilder( Thing.class, THING );
+            builder.instance().name().set( "created" );
+            builder.newInstance();
+            uow.complete();
+        }
+
+        try( UnitOfWork vetoed = unitOfWorkFactory.newUnitOfWork() )
+        {
+            vetoed.get( Thing.class, THING ).name().set( "vetoed" );
+            vetoed.addUnitOfWorkCallback( new UnitOfWorkCallback()
+            {
+                @Override
+                public void beforeCompletion()
+                    throws UnitOfWorkCompletionException
+                {
+                    throw new UnitOfWorkCompletionException( "Vetoed" );
+                }
+
+                @Override
+                public void afterCompletion( UnitOfWorkStatus status )
+                {
+                }
+            } );
+            assertThrows( UnitOfWorkCompletionException.class, vetoed::complete );
+
+            // The vetoed UnitOfWork is still open, another thread changes the same entity
+            assertTimeoutPreemptively( Duration.ofSeconds( 10 ), () -> rename( "changed" ) );
+        }
+
+        assertTimeoutPreemptively( Duration.ofSeconds( 10 ), () -> rename( "changed again" ) );
+        try( UnitOfWork uow = unitOfWorkFactory.newUnitOfWork() )
+        {
+            assertThat( uow.get( Thing.class, THING ).name().get(), equalTo( "changed again" ) );
+        }
+    }
+
+    private void rename( String name )
+        throws UnitOfWorkCompletionException
+    {
+        try( UnitOfWork uow = unitOfWorkFactory.newUnitOfWork() )
+        {
+            uow.get( Thing.class, THING ).name().set( name );
+            uow.complete();
+        }
+    }
+
+    public interface Thing
+    {
+        Property<String> name();
+    }
+}
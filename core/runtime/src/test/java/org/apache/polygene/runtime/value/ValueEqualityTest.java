@@ -19,7 +19,10 @@
  */
 package org.apache.polygene.runtime.value;
 
+import java.util.HashSet;
+import java.util.Set;
 import org.apache.polygene.api.association.AssociationStateHolder;
+import org.apache.polygene.api.value.ValueBuilder;
 import org.apache.polygene.api.value.ValueComposite;
 import org.apache.polygene.api.value.ValueDescriptor;
 import org.apache.polygene.bootstrap.AssemblyException;
@@ -38,6 +41,7 @@ import static org.apache.polygene.runtime.property.PropertyEqualityTest.buildPri
 import static org.apache.polygene.runtime.property.PropertyEqualityTest.buildSomeValue;
 import static org.apache.polygene.runtime.property.PropertyEqualityTest.buildSomeValueWithDifferentState;
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.MatcherAssert.assertThat;
 
@@ -238,4 +242,54 @@ public class ValueEqualityTest
                     some.hashCode(),
                     not( equalTo( anotherSome.hashCode() ) ) );
     }
+
+    @Test
+    public void givenNestedValuesOfSameTypesAndSameStateWhenTestingValueEqualityExpectEquals()
+    {
+        Some some = buildSomeValueWithNested( buildSomeValue( valueBuilderFactory ) );
+        Some some2 = buildSomeValueWithNested( buildSomeValue( valueBuilderFactory ) );
+        assertThat( "Values equal",
+                    some,
+                    equalTo( some2 ) );
+        assertThat( "Values hashcode equal",
+                    some.hashCode(),
+                    equalTo( some2.hashCode() ) );
+
+        Set<Some> set = new HashSet<>();
+        set.add( some );
+        assertThat( "Value found in HashSet",
+                    set.contains( some2 ),
+                    is( true ) );
+    }
+
+    @Test
+    public void givenValueBuiltFromPrototypeWithDifferentStateWhenTestingValueEqualityExpectNotEquals()
+    {
+        Some some = buildSomeValue( valueBuilderFactory );
+        int hashCode = some.hashCode();
+
+        ValueBuilder<Some> builder = valueBuilderFactory.newValueBuilderWithPrototype( some );
+        builder.prototype().stringProperty().set( "changed" );
+        Some changed = builder.newInstance();
+
+        assertThat( "Values not equal",
+                    some,
+                    not( equalTo( changed ) ) );
+        assertThat( "Values hashcode not equal",
+                    changed.hashCode(),
+                    not( equalTo( hashCode ) ) );
+        assertThat( "Prototype hashcode unchanged",
+                    some.hashCode(),
+                    equalTo( hashCode ) );
+        assertThat( "Prototype equal to value with same state",
+                    some,
+                    equalTo( buildSomeValue( valueBuilderFactory ) ) );
+    }
+
+    private Some buildSomeValueWithNested( Some nested )
+    {
+        ValueBuilder<Some> builder = valueBuilderFactory.newValueBuilderWithPrototype( buildSomeValue( valueBuilderFactory ) );
+        builder.prototype().selfProperty().set( nested );
+        return builder.newInstance();
+    }
 }
@@ -0,0 +1,131 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.polygene.runtime.value;
+
+import org.apache.polygene.api.property.Property;
+import org.apache.polygene.api.value.ValueBuilder;
+import org.apache.polygene.api.value.ValueInterning;
+import org.apache.polygene.bootstrap.ModuleAssembly;
+import org.apache.polygene.test.AbstractPolygeneTest;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Assert that interned value types share one instance per distinct value.
+ */
+public class ValueInterningTest
+    extends AbstractPolygeneTest
+{
+    @Override
+    public void assemble( ModuleAssembly module )
+    {
+        module.values( CurrencyCode.class ).withInterning( ValueInterning.weak() );
+        module.values( Status.class ).withInterning( ValueInterning.bounded( 2 ) );
+        module.values( Label.class );
+    }
+
+    @Test
+    public void givenWeakInternedTypeWhenBuildingEqualValuesExpectSameInstance()
+    {
+        CurrencyCode first = currencyCode( "EUR" );
+        CurrencyCode second = currencyCode( "EUR" );
+        assertThat( second, sameInstance( first ) );
+    }
+
+    @Test
+    public void givenWeakInternedTypeWhenBuildingFromPrototypeExpectSameInstance()
+    {
+        CurrencyCode first = currencyCode( "SEK" );
+        ValueBuilder<CurrencyCode> builder = valueBuilderFactory.newValueBuilderWithPrototype( first );
+        assertThat( builder.newInstance(), sameInstance( first ) );
+    }
+
+    @Test
+    public void givenWeakInternedTypeWhenBuildingDifferentValuesExpectDifferentInstances()
+    {
+        CurrencyCode euro = currencyCode( "EUR" );
+        CurrencyCode dollar = currencyCode( "USD" );
+        assertThat( dollar, not( equalTo( euro ) ) );
+        assertThat( dollar.code().get(), equalTo( "USD" ) );
+    }
+
+    @Test
+    public void givenBoundedInternedTypeWhenFullExpectStartOver()
+    {
+        Status open = status( "open" );
+        assertThat( status( "open" ), sameInstance( open ) );
+
+        status( "closed" );
+        status( "pending" );
+
+        Status reopened = status( "open" );
+        assertThat( reopened, equalTo( open ) );
+        assertThat( reopened, not( sameInstance( open ) ) );
+        assertThat( status( "open" ), sameInstance( reopened ) );
+    }
+
+    @Test
+    public void givenNotInternedTypeWhenBuildingEqualValuesExpectDistinctInstances()
+    {
+        Label first = label( "foo" );
+        Label second = label( "foo" );
+        assertThat( second, equalTo( first ) );
+        assertThat( second, not( sameInstance( first ) ) );
+    }
+
+    private CurrencyCode currencyCode( String code )
+    {
+        ValueBuilder<CurrencyCode> builder = valueBuilderFactory.newValueBuilder( CurrencyCode.class );
+        builder.prototype().code().set( code );
+        return builder.newInstance();
+    }
+
+    private Status status( String name )
+    {
+        ValueBuilder<Status> builder = valueBuilderFactory.newValueBuilder( Status.class );
+        builder.prototype().name().set( name );
+        return builder.newInstance();
+    }
+
+    private Label label( String text )
+    {
+        ValueBuilder<Label> builder = valueBuilderFactory.newValueBuilder( Label.class );
+        builder.prototype().text().set( text );
+        return builder.newInstance();
+    }
+
+    public interface CurrencyCode
+    {
+        Property<String> code();
+    }
+
+    public interface Status
+    {
+        Property<String> name();
+    }
+
+    public interface Label
+    {
+        Property<String> text();
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.polygene.entitystore.memory;
+
+import org.apache.polygene.api.common.Optional;
+import org.apache.polygene.api.common.UseDefaults;
+import org.apache.polygene.api.property.Property;
+
+/**
+ * Configuration for the CompactMemoryEntityStoreService.
+ */
+// START SNIPPET: config
+public interface CompactMemoryEntityStoreConfiguration
+{
+    // END SNIPPET: config
+    /**
+     * Keep entity state in direct {@link java.nio.ByteBuffer} slabs, outside of the Java heap.
+     * <p>
+     * Defaults to false, entity state is then held in {@code byte[]} on the Java heap.
+     * </p>
+     *
+     * @return true to hold entity state off-heap
+     */
+    // START SNIPPET: config
+    @UseDefaults
+    Property<Boolean> offHeap();
+    // END SNIPPET: config
+
+    /**
+     * Size in bytes of the off-heap slabs.
+     * <p>
+     * Defaults to 16MB. Entity states larger than a slab get a slab of their own.
+     * Ignored if {@link #offHeap()} is false.
+     * </p>
+     *
+     * @return size in bytes of the off-heap slabs
+     */
+    // START SNIPPET: config
+    @Optional
+    Property<Integer> slabSize();
+    // END SNIPPET: config
+
+    /**
+     * Maximum number of bytes of entity state the store holds.
+     * <p>
+     * Changes that would go beyond this ceiling fail with an EntityStoreException.
+     * Unlimited if not set.
+     * </p>
+     *
+     * @return maximum number of bytes of entity state
+     */
+    // START SNIPPET: config
+    @Optional
+    Property<Long> maxMemory();
+}
+// END SNIPPET: config
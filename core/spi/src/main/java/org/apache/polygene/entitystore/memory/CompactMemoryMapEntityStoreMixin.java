@@ -0,0 +1,561 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.polygene.entitystore.memory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import org.apache.polygene.api.configuration.Configuration;
+import org.apache.polygene.api.entity.EntityDescriptor;
+import org.apache.polygene.api.entity.EntityReference;
+import org.apache.polygene.api.injection.scope.Service;
+import org.apache.polygene.api.injection.scope.This;
+import org.apache.polygene.api.service.ServiceActivation;
+import org.apache.polygene.serialization.javaxjson.JavaxJsonFactories;
+import org.apache.polygene.spi.entitystore.BackupRestore;
+import org.apache.polygene.spi.entitystore.EntityAlreadyExistsException;
+import org.apache.polygene.spi.entitystore.EntityNotFoundException;
+import org.apache.polygene.spi.entitystore.EntityStoreException;
+import org.apache.polygene.spi.entitystore.helpers.JSONKeys;
+import org.apache.polygene.spi.entitystore.helpers.MapEntityStore;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Compact in-memory implementation of MapEntityStore.
+ * <p>
+ * Entity state is held as UTF-8 bytes, either in {@code byte[]} on the Java heap or in direct {@link ByteBuffer}
+ * slabs off-heap, see {@link CompactMemoryEntityStoreConfiguration}.
+ * </p>
+ * <p>
+ * Off-heap slabs are append only, space of removed or updated state is reclaimed by compacting the slabs once it
+ * exceeds the live state, so the off-heap footprint stays below twice the live state plus one slab.
+ * </p>
+ * <p>
+ * Like {@link MemoryMapEntityStoreMixin}, reads are lock free, changes of a UnitOfWork are applied atomically and
+ * full scans iterate over a snapshot.
+ * </p>
+ */
+public class CompactMemoryMapEntityStoreMixin
+    implements MapEntityStore, BackupRestore, ServiceActivation
+{
+    private static final int DEFAULT_SLAB_SIZE = 16 * 1024 * 1024;
+
+    @This
+    private Configuration<CompactMemoryEntityStoreConfiguration> configuration;
+
+    @Service
+    private JavaxJsonFactories jsonFactories;
+
+    /**
+     * Write lock held while applying changes, read lock held while taking snapshots.
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private StateBytes states;
+    private long maxMemory;
+
+    @Override
+    public void activateService()
+        throws Exception
+    {
+        configuration.refresh();
+        CompactMemoryEntityStoreConfiguration config = configuration.get();
+        Long max = config.maxMemory().get();
+        maxMemory = max == null || max <= 0 ? Long.MAX_VALUE : max;
+        if( config.offHeap().get() )
+        {
+            Integer slabSize = config.slabSize().get();
+            states = new OffHeapStateBytes( slabSize == null || slabSize <= 0 ? DEFAULT_SLAB_SIZE : slabSize );
+        }
+        else
+        {
+            states = new HeapStateBytes();
+        }
+    }
+
+    @Override
+    public void passivateService()
+        throws Exception
+    {
+        states = null;
+    }
+
+    @Override
+    public Reader get( EntityReference entityReference )
+        throws EntityStoreException
+    {
+        String state = states.get( entityReference );
+        if( state == null )
+        {
+            throw new EntityNotFoundException( entityReference );
+        }
+        return new StringReader( state );
+    }
+
+    @Override
+    public void applyChanges( MapChanges changes )
+        throws Exception
+    {
+        List<Change> buffered = new ArrayList<>();
+        changes.visitMap( new CompactMemoryMapChanger( buffered ) );
+        lock.writeLock().lock();
+        try
+        {
+            long usedBytes = validate( buffered );
+            if( usedBytes > maxMemory )
+            {
+                throw new EntityStoreException( "Compact memory entity store ceiling of " + maxMemory
+                                                + " bytes reached, changes would use " + usedBytes + " bytes" );
+            }
+            for( Change change : buffered )
+            {
+                if( change.state == null )
+                {
+                    states.remove( change.reference );
+                }
+                else
+                {
+                    states.put( change.reference, change.state );
+                }
+            }
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Check that all changes can be applied, without applying them.
+     *
+     * @return the number of bytes of state held once the changes are applied
+     */
+    private long validate( List<Change> buffered )
+    {
+        Map<EntityReference, Integer> lengths = new HashMap<>();
+        long usedBytes = states.usedBytes();
+        for( Change change : buffered )
+        {
+            EntityReference reference = change.reference;
+            Integer length = lengths.containsKey( reference ) ? lengths.get( reference ) : states.length( reference );
+            if( change.state == null )
+            {
+                // Ignore if the entity didn't already exist, as that can happen if it is both created and removed
+                // within the same UnitOfWork.
+                if( length != null )
+                {
+                    usedBytes -= length;
+                }
+            }
+            else if( change.newEntity && length != null )
+            {
+                throw new EntityAlreadyExistsException( reference );
+            }
+            else if( !change.newEntity && length == null )
+            {
+                throw new EntityNotFoundException( reference );
+            }
+            else
+            {
+                usedBytes += change.state.length - ( length == null ? 0 : length );
+            }
+            lengths.put( reference, change.state == null ? null : change.state.length );
+        }
+        return usedBytes;
+    }
+
+    @Override
+    public Stream<Reader> entityStates()
+    {
+        return snapshot().stream().map( StringReader::new );
+    }
+
+    @Override
+    public Stream<String> backup()
+    {
+        return snapshot().stream();
+    }
+
+    @Override
+    public void restore( Stream<String> stream )
+    {
+        List<Change> restored = new ArrayList<>();
+        stream.forEach(
+            item ->
+            {
+                String id = jsonFactories.readerFactory().createReader( new StringReader( item ) )
+                                         .readObject().getString( JSONKeys.IDENTITY );
+                restored.add( new Change( EntityReference.parseEntityReference( id ), item.getBytes( UTF_8 ), true ) );
+            } );
+        lock.writeLock().lock();
+        try
+        {
+            states.clear();
+            restored.forEach( change -> states.put( change.reference, change.state ) );
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private List<String> snapshot()
+    {
+        lock.readLock().lock();
+        try
+        {
+            return states.values();
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Buffers the changes of a UnitOfWork until they are applied.
+     */
+    private static class CompactMemoryMapChanger
+        implements MapChanger
+    {
+        private final List<Change> changes;
+
+        private CompactMemoryMapChanger( List<Change> changes )
+        {
+            this.changes = changes;
+        }
+
+        @Override
+        public Writer newEntity( EntityReference ref, EntityDescriptor descriptor )
+        {
+            return new StringWriter( 1000 )
+            {
+                @Override
+                public void close()
+                    throws IOException
+                {
+                    super.close();
+                    changes.add( new Change( ref, toString().getBytes( UTF_8 ), true ) );
+                }
+            };
+        }
+
+        @Override
+        public Writer updateEntity( MapChange mapChange )
+        {
+            return new StringWriter( 1000 )
+            {
+                @Override
+                public void close()
+                    throws IOException
+                {
+                    super.close();
+                    changes.add( new Change( mapChange.reference(), toString().getBytes( UTF_8 ), false ) );
+                }
+            };
+        }
+
+        @Override
+        public void removeEntity( EntityReference ref, EntityDescriptor descriptor )
+        {
+            changes.add( new Change( ref, null, false ) );
+        }
+    }
+
+    /**
+     * A buffered change, a null state means removal.
+     */
+    private static class Change
+    {
+        private final EntityReference reference;
+        private final byte[] state;
+        private final boolean newEntity;
+
+        private Change( EntityReference reference, byte[] state, boolean newEntity )
+        {
+            this.reference = reference;
+            this.state = state;
+            this.newEntity = newEntity;
+        }
+    }
+
+    /**
+     * Entity state held as UTF-8 bytes.
+     * <p>
+     * {@link #get(EntityReference)} and {@link #length(EntityReference)} may be called concurrently with mutations,
+     * mutations are called holding the write lock.
+     * </p>
+     */
+    private interface StateBytes
+    {
+        String get( EntityReference reference );
+
+        Integer length( EntityReference reference );
+
+        void put( EntityReference reference, byte[] state );
+
+        void remove( EntityReference reference );
+
+        long usedBytes();
+
+        List<String> values();
+
+        void clear();
+    }
+
+    private static class HeapStateBytes
+        implements StateBytes
+    {
+        private final Map<EntityReference, byte[]> store = new ConcurrentHashMap<>();
+        private long usedBytes;
+
+        @Override
+        public String get( EntityReference reference )
+        {
+            byte[] state = store.get( reference );
+            return state == null ? null : new String( state, UTF_8 );
+        }
+
+        @Override
+        public Integer length( EntityReference reference )
+        {
+            byte[] state = store.get( reference );
+            return state == null ? null : state.length;
+        }
+
+        @Override
+        public void put( EntityReference reference, byte[] state )
+        {
+            byte[] previous = store.put( reference, state );
+            usedBytes += state.length - ( previous == null ? 0 : previous.length );
+        }
+
+        @Override
+        public void remove( EntityReference reference )
+        {
+            byte[] previous = store.remove( reference );
+            if( previous != null )
+            {
+                usedBytes -= previous.length;
+            }
+        }
+
+        @Override
+        public long usedBytes()
+        {
+            return usedBytes;
+        }
+
+        @Override
+        public List<String> values()
+        {
+            List<String> values = new ArrayList<>( store.size() );
+            store.values().forEach( state -> values.add( new String( state, UTF_8 ) ) );
+            return values;
+        }
+
+        @Override
+        public void clear()
+        {
+            store.clear();
+            usedBytes = 0;
+        }
+    }
+
+    /**
+     * Entity state held in append only direct ByteBuffer slabs.
+     * <p>
+     * Regions of a slab are written once, before the {@link Slot} pointing to them is published, and never reused,
+     * so reads need no locking. Slabs without live state are dropped, and all slabs are compacted once the space
+     * held by dropped state exceeds the live state.
+     * </p>
+     */
+    private static class OffHeapStateBytes
+        implements StateBytes
+    {
+        private final int slabSize;
+        private final Map<EntityReference, Slot> slots = new ConcurrentHashMap<>();
+        private final List<Slab> slabs = new ArrayList<>();
+        private Slab current;
+        private long usedBytes;
+        private long slabBytes;
+
+        private OffHeapStateBytes( int slabSize )
+        {
+            this.slabSize = slabSize;
+        }
+
+        @Override
+        public String get( EntityReference reference )
+        {
+            Slot slot = slots.get( reference );
+            return slot == null ? null : new String( slot.read(), UTF_8 );
+        }
+
+        @Override
+        public Integer length( EntityReference reference )
+        {
+            Slot slot = slots.get( reference );
+            return slot == null ? null : slot.length;
+        }
+
+        @Override
+        public void put( EntityReference reference, byte[] state )
+        {
+            Slot previous = slots.put( reference, allocate( state ) );
+            usedBytes += state.length;
+            if( previous != null )
+            {
+                release( previous );
+            }
+            compactIfNeeded();
+        }
+
+        @Override
+        public void remove( EntityReference reference )
+        {
+            Slot previous = slots.remove( reference );
+            if( previous != null )
+            {
+                release( previous );
+                compactIfNeeded();
+            }
+        }
+
+        @Override
+        public long usedBytes()
+        {
+            return usedBytes;
+        }
+
+        @Override
+        public List<String> values()
+        {
+            List<String> values = new ArrayList<>( slots.size() );
+            slots.values().forEach( slot -> values.add( new String( slot.read(), UTF_8 ) ) );
+            return values;
+        }
+
+        @Override
+        public void clear()
+        {
+            slots.clear();
+            slabs.clear();
+            current = null;
+            usedBytes = 0;
+            slabBytes = 0;
+        }
+
+        private Slot allocate( byte[] state )
+        {
+            if( current == null || current.remaining() < state.length )
+            {
+                current = new Slab( Math.max( slabSize, state.length ) );
+                slabs.add( current );
+                slabBytes += current.buffer.capacity();
+            }
+            return current.write( state );
+        }
+
+        private void release( Slot slot )
+        {
+            usedBytes -= slot.length;
+            slot.slab.liveBytes -= slot.length;
+            if( slot.slab.liveBytes == 0 && slot.slab != current )
+            {
+                slabs.remove( slot.slab );
+                slabBytes -= slot.slab.buffer.capacity();
+            }
+        }
+
+        private void compactIfNeeded()
+        {
+            if( slabBytes - usedBytes <= Math.max( usedBytes, slabSize ) )
+            {
+                return;
+            }
+            slabs.clear();
+            current = null;
+            slabBytes = 0;
+            slots.replaceAll( ( reference, slot ) -> allocate( slot.read() ) );
+        }
+    }
+
+    private static class Slab
+    {
+        private final ByteBuffer buffer;
+        private int position;
+        private int liveBytes;
+
+        private Slab( int capacity )
+        {
+            buffer = ByteBuffer.allocateDirect( capacity );
+        }
+
+        private int remaining()
+        {
+            return buffer.capacity() - position;
+        }
+
+        private Slot write( byte[] state )
+        {
+            ByteBuffer target = buffer.duplicate();
+            target.position( position );
+            target.put( state );
+            Slot slot = new Slot( this, position, state.length );
+            position += state.length;
+            liveBytes += state.length;
+            return slot;
+        }
+    }
+
+    private static class Slot
+    {
+        private final Slab slab;
+        private final int offset;
+        private final int length;
+
+        private Slot( Slab slab, int offset, int length )
+        {
+            this.slab = slab;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        private byte[] read()
+        {
+            byte[] state = new byte[ length ];
+            ByteBuffer source = slab.buffer.duplicate();
+            source.position( offset );
+            source.get( state );
+            return state;
+        }
+    }
+}
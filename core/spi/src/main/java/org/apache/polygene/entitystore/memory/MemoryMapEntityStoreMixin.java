@@ -24,8 +24,13 @@ import java.io.Reader;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Stream;
 import org.apache.polygene.api.entity.EntityDescriptor;
 import org.apache.polygene.api.entity.EntityReference;
@@ -41,18 +46,28 @@ import org.apache.polygene.spi.entitystore.helpers.MapEntityStoreActivation;
 
 /**
  * In-memory implementation of MapEntityStore.
+ * <p>
+ * Reads are lock free. The changes of a UnitOfWork are buffered and applied atomically, either all or none of them,
+ * and full scans iterate over a snapshot, so they never see half applied changes.
+ * </p>
  */
 public class MemoryMapEntityStoreMixin
     implements MapEntityStore, BackupRestore, MapEntityStoreActivation
 {
     private final Map<EntityReference, String> store;
 
+    /**
+     * Write lock held while applying changes, read lock held while taking snapshots.
+     */
+    private final ReadWriteLock lock;
+
     @Service
     private JavaxJsonFactories jsonFactories;
 
     public MemoryMapEntityStoreMixin()
     {
-        store = new HashMap<>();
+        store = new ConcurrentHashMap<>();
+        lock = new ReentrantReadWriteLock();
     }
 
     @Override
@@ -78,37 +93,75 @@ public class MemoryMapEntityStoreMixin
     @Override
     public void applyChanges( MapEntityStore.MapChanges changes ) throws Exception
     {
-        changes.visitMap( new MemoryMapChanger() );
+        MemoryMapChanger changer = new MemoryMapChanger();
+        changes.visitMap( changer );
+        lock.writeLock().lock();
+        try
+        {
+            changer.apply();
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
     }
 
     @Override
     public Stream<Reader> entityStates()
     {
-        return store.values().stream().map( StringReader::new );
+        return snapshot().stream().map( StringReader::new );
     }
 
     @Override
     public Stream<String> backup()
     {
-        return store.values().stream();
+        return snapshot().stream();
     }
 
     @Override
     public void restore( Stream<String> stream )
     {
-        store.clear();
+        Map<EntityReference, String> restored = new HashMap<>();
         stream.forEach(
             item ->
             {
                 String id = jsonFactories.readerFactory().createReader( new StringReader( item ) )
                                          .readObject().getString( JSONKeys.IDENTITY );
-                store.put( EntityReference.parseEntityReference( id ), item );
+                restored.put( EntityReference.parseEntityReference( id ), item );
             } );
+        lock.writeLock().lock();
+        try
+        {
+            store.clear();
+            store.putAll( restored );
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private List<String> snapshot()
+    {
+        lock.readLock().lock();
+        try
+        {
+            return new ArrayList<>( store.values() );
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
     }
 
+    /**
+     * Buffers the changes of a UnitOfWork until they are applied.
+     */
     private class MemoryMapChanger
         implements MapChanger
     {
+        private final List<Change> changes = new ArrayList<>();
+
         @Override
         public Writer newEntity( EntityReference ref, EntityDescriptor descriptor )
         {
@@ -119,12 +172,7 @@ public class MemoryMapEntityStoreMixin
                     throws IOException
                 {
                     super.close();
-                    String old = store.put( ref, toString() );
-                    if( old != null )
-                    {
-                        store.put( ref, old );
-                        throw new EntityAlreadyExistsException( ref );
-                    }
+                    changes.add( new Change( ref, toString(), true ) );
                 }
             };
         }
@@ -140,13 +188,7 @@ public class MemoryMapEntityStoreMixin
                     throws IOException
                 {
                     super.close();
-                    EntityReference reference = mapChange.reference();
-                    String old = store.put( reference, toString() );
-                    if( old == null )
-                    {
-                        store.remove( reference );
-                        throw new EntityNotFoundException( reference );
-                    }
+                    changes.add( new Change( mapChange.reference(), toString(), false ) );
                 }
             };
         }
@@ -155,13 +197,76 @@ public class MemoryMapEntityStoreMixin
         public void removeEntity( EntityReference ref, EntityDescriptor descriptor )
             throws EntityNotFoundException
         {
-            String state = store.remove( ref );
             // Ignore if the entity didn't already exist, as that can happen if it is both created and removed
             // within the same UnitOfWork.
-//            if( state == null )
-//            {
-//                throw new EntityNotFoundException( ref );
-//            }
+            changes.add( new Change( ref, null, false ) );
+        }
+
+        /**
+         * Apply all buffered changes, or none of them if one fails. Must be called holding the write lock.
+         */
+        private void apply()
+        {
+            Map<EntityReference, String> previousStates = new HashMap<>();
+            try
+            {
+                for( Change change : changes )
+                {
+                    EntityReference reference = change.reference;
+                    if( !previousStates.containsKey( reference ) )
+                    {
+                        previousStates.put( reference, store.get( reference ) );
+                    }
+                    if( change.state == null )
+                    {
+                        store.remove( reference );
+                    }
+                    else if( change.newEntity )
+                    {
+                        if( store.putIfAbsent( reference, change.state ) != null )
+                        {
+                            throw new EntityAlreadyExistsException( reference );
+                        }
+                    }
+                    else if( store.replace( reference, change.state ) == null )
+                    {
+                        throw new EntityNotFoundException( reference );
+                    }
+                }
+            }
+            catch( RuntimeException ex )
+            {
+                previousStates.forEach(
+                    ( reference, previousState ) ->
+                    {
+                        if( previousState == null )
+                        {
+                            store.remove( reference );
+                        }
+                        else
+                        {
+                            store.put( reference, previousState );
+                        }
+                    } );
+                throw ex;
+            }
+        }
+    }
+
+    /**
+     * A buffered change, a null state means removal.
+     */
+    private static class Change
+    {
+        private final EntityReference reference;
+        private final String state;
+        private final boolean newEntity;
+
+        private Change( EntityReference reference, String state, boolean newEntity )
+        {
+            this.reference = reference;
+            this.state = state;
+            this.newEntity = newEntity;
         }
     }
 }
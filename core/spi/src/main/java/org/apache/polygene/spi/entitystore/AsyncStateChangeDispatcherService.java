@@ -0,0 +1,332 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.polygene.spi.entitystore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.apache.polygene.api.common.Optional;
+import org.apache.polygene.api.identity.Identity;
+import org.apache.polygene.api.injection.scope.Service;
+import org.apache.polygene.api.injection.scope.Structure;
+import org.apache.polygene.api.injection.scope.Uses;
+import org.apache.polygene.api.metrics.MetricNames;
+import org.apache.polygene.api.metrics.MetricsCounter;
+import org.apache.polygene.api.metrics.MetricsCounterFactory;
+import org.apache.polygene.api.metrics.MetricsGaugeFactory;
+import org.apache.polygene.api.metrics.MetricsHistogram;
+import org.apache.polygene.api.metrics.MetricsHistogramFactory;
+import org.apache.polygene.api.metrics.MetricsProvider;
+import org.apache.polygene.api.mixin.Mixins;
+import org.apache.polygene.api.service.ServiceActivation;
+import org.apache.polygene.api.service.ServiceComposite;
+import org.apache.polygene.api.service.ServiceDescriptor;
+import org.apache.polygene.api.service.ServiceReference;
+import org.apache.polygene.api.structure.Module;
+import org.apache.polygene.spi.entity.EntityState;
+import org.apache.polygene.spi.metrics.MetricsProviderAdapter;
+
+/**
+ * Asynchronous {@link StateChangeDispatcher}.
+ * <p>
+ * Each visible {@link StateChangeListener} gets a bounded queue of committed UnitOfWorks and a worker thread
+ * that coalesces up to {@link StateChangeDispatchSettings#getMaxBatchSize()} of them into a single
+ * {@link StateChangeListener#notifyChanges(Iterable)} call. Listeners are notified in dispatch order, after the
+ * commit, and their failures are logged without affecting the UnitOfWork.
+ * </p>
+ * <p>
+ * {@link StateChangeDispatchSettings} are read from the listener service metaInfo, then from this service metaInfo.
+ * Queue depth, indexing lag in milliseconds, dropped UnitOfWorks and listener failures are reported as metrics
+ * named after each listener identity.
+ * </p>
+ * <p>
+ * Passivating this service waits for all queued changes to be dispatched.
+ * </p>
+ */
+@Mixins( AsyncStateChangeDispatcherService.AsyncStateChangeDispatcherMixin.class )
+public interface AsyncStateChangeDispatcherService
+    extends StateChangeDispatcher, ServiceActivation, ServiceComposite
+{
+    class AsyncStateChangeDispatcherMixin
+        implements StateChangeDispatcher, ServiceActivation
+    {
+        private static final Logger LOGGER = Logger.getLogger( AsyncStateChangeDispatcherService.class.getName() );
+
+        @Service
+        private Iterable<ServiceReference<StateChangeListener>> listeners;
+
+        @Optional
+        @Service
+        private MetricsProvider metrics;
+
+        @Structure
+        private Module module;
+
+        @Uses
+        private ServiceDescriptor descriptor;
+
+        private final ConcurrentMap<Identity, ListenerQueue> queues = new ConcurrentHashMap<>();
+
+        @Override
+        public void activateService()
+        {
+        }
+
+        @Override
+        public void passivateService()
+            throws Exception
+        {
+            List<ListenerQueue> stopped = new ArrayList<>( queues.values() );
+            queues.clear();
+            for( ListenerQueue queue : stopped )
+            {
+                queue.stop();
+            }
+        }
+
+        @Override
+        public PendingDispatch prepare( Iterable<EntityState> changedStates )
+            throws EntityStoreException
+        {
+            List<ListenerQueue> reserved = new ArrayList<>();
+            try
+            {
+                for( ServiceReference<StateChangeListener> listener : listeners )
+                {
+                    ListenerQueue queue = queues.computeIfAbsent( listener.identity(),
+                                                                  identity -> new ListenerQueue( listener ) );
+                    if( queue.reserve() )
+                    {
+                        reserved.add( queue );
+                    }
+                }
+            }
+            catch( RuntimeException ex )
+            {
+                reserved.forEach( ListenerQueue::release );
+                throw ex;
+            }
+            if( reserved.isEmpty() )
+            {
+                return NO_DISPATCH;
+            }
+            List<EntityState> states = new ArrayList<>();
+            changedStates.forEach( states::add );
+            return new PendingDispatch()
+            {
+                @Override
+                public void dispatch()
+                {
+                    Changes changes = new Changes( states );
+                    reserved.forEach( queue -> queue.enqueue( changes ) );
+                }
+
+                @Override
+                public void cancel()
+                {
+                    reserved.forEach( ListenerQueue::release );
+                }
+            };
+        }
+
+        private static final PendingDispatch NO_DISPATCH = new PendingDispatch()
+        {
+            @Override
+            public void dispatch()
+            {
+            }
+
+            @Override
+            public void cancel()
+            {
+            }
+        };
+
+        private StateChangeDispatchSettings settingsOf( ServiceReference<StateChangeListener> listener )
+        {
+            StateChangeDispatchSettings settings = listener.metaInfo( StateChangeDispatchSettings.class );
+            if( settings == null )
+            {
+                settings = descriptor.metaInfo( StateChangeDispatchSettings.class );
+            }
+            return StateChangeDispatchSettings.orDefault( settings );
+        }
+
+        private static class Changes
+        {
+            private final List<EntityState> states;
+            private final long enqueuedNanos = System.nanoTime();
+
+            private Changes( List<EntityState> states )
+            {
+                this.states = states;
+            }
+        }
+
+        private class ListenerQueue
+            implements Runnable
+        {
+            private final ServiceReference<StateChangeListener> listener;
+            private final StateChangeDispatchSettings settings;
+            private final Semaphore capacity;
+            private final BlockingQueue<Changes> queue = new LinkedBlockingQueue<>();
+            private final MetricsHistogram lag;
+            private final MetricsCounter dropped;
+            private final MetricsCounter failures;
+            private final Thread worker;
+            private volatile boolean running = true;
+
+            private ListenerQueue( ServiceReference<StateChangeListener> listener )
+            {
+                this.listener = listener;
+                settings = settingsOf( listener );
+                capacity = new Semaphore( settings.getQueueCapacity() );
+                String name = listener.identity().toString();
+                MetricsProvider metrics = AsyncStateChangeDispatcherMixin.this.metrics != null
+                                          ? AsyncStateChangeDispatcherMixin.this.metrics
+                                          : new MetricsProviderAdapter();
+                metrics.createFactory( MetricsGaugeFactory.class ).registerGauge(
+                    MetricNames.nameFor( module, StateChangeListener.class, name, "queue-depth" ),
+                    () -> settings.getQueueCapacity() - capacity.availablePermits() );
+                lag = metrics.createFactory( MetricsHistogramFactory.class ).createHistogram(
+                    MetricNames.nameFor( module, StateChangeListener.class, name, "lag" ) );
+                dropped = metrics.createFactory( MetricsCounterFactory.class ).createCounter(
+                    MetricNames.nameFor( module, StateChangeListener.class, name, "dropped" ) );
+                failures = metrics.createFactory( MetricsCounterFactory.class ).createCounter(
+                    MetricNames.nameFor( module, StateChangeListener.class, name, "failures" ) );
+                worker = new Thread( this, "StateChangeDispatcher-" + name );
+                worker.setDaemon( true );
+                worker.start();
+            }
+
+            private boolean reserve()
+            {
+                switch( settings.getBackPressure() )
+                {
+                    case DROP:
+                        if( capacity.tryAcquire() )
+                        {
+                            return true;
+                        }
+                        dropped.increment();
+                        return false;
+                    case FAIL:
+                        if( capacity.tryAcquire() )
+                        {
+                            return true;
+                        }
+                        throw new EntityStoreException( "Changes queue of " + listener.identity() + " is full" );
+                    case BLOCK:
+                    default:
+                        try
+                        {
+                            capacity.acquire();
+                            return true;
+                        }
+                        catch( InterruptedException ex )
+                        {
+                            Thread.currentThread().interrupt();
+                            throw new EntityStoreException( "Interrupted while waiting for " + listener.identity(),
+                                                            ex );
+                        }
+                }
+            }
+
+            private void release()
+            {
+                capacity.release();
+            }
+
+            private void enqueue( Changes changes )
+            {
+                queue.add( changes );
+            }
+
+            private void stop()
+                throws InterruptedException
+            {
+                running = false;
+                worker.join();
+            }
+
+            @Override
+            public void run()
+            {
+                List<Changes> batch = new ArrayList<>( settings.getMaxBatchSize() );
+                while( running || !queue.isEmpty() )
+                {
+                    try
+                    {
+                        Changes first = queue.poll( 100, TimeUnit.MILLISECONDS );
+                        if( first == null )
+                        {
+                            continue;
+                        }
+                        batch.add( first );
+                        queue.drainTo( batch, settings.getMaxBatchSize() - 1 );
+                        notifyBatch( batch );
+                    }
+                    catch( InterruptedException ex )
+                    {
+                        running = false;
+                    }
+                    finally
+                    {
+                        capacity.release( batch.size() );
+                        batch.clear();
+                    }
+                }
+            }
+
+            private void notifyBatch( List<Changes> batch )
+            {
+                List<EntityState> states;
+                if( batch.size() == 1 )
+                {
+                    states = batch.get( 0 ).states;
+                }
+                else
+                {
+                    states = new ArrayList<>();
+                    for( Changes changes : batch )
+                    {
+                        states.addAll( changes.states );
+                    }
+                }
+                try
+                {
+                    listener.get().notifyChanges( states );
+                }
+                catch( RuntimeException ex )
+                {
+                    failures.increment();
+                    LOGGER.log( Level.SEVERE, "Could not notify " + listener.identity() + " of changes", ex );
+                }
+                lag.update( TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - batch.get( 0 ).enqueuedNanos ) );
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.polygene.spi.entitystore;
+
+import java.util.stream.Stream;
+import org.apache.polygene.api.structure.ModuleDescriptor;
+
+/**
+ * Import entity states in bulk, bypassing {@link org.apache.polygene.api.unitofwork.UnitOfWork}s.
+ * <p>
+ * States are expected in the serialized form produced by {@link BackupRestore#backup()} and to be valid for the
+ * current application, no constraint is checked nor lifecycle callback invoked. They are written as new entities
+ * in batches, each batch being applied to the underlying store at once.
+ * </p>
+ * <p>
+ * Imported states are not seen by {@link StateChangeListener}s unless {@link BulkImportSettings#isReindex()} is set,
+ * in which case visible listeners are notified of each batch once written.
+ * </p>
+ */
+public interface BulkImport
+{
+    /**
+     * Import entity states using default settings.
+     *
+     * @param module Module used to resolve the types of the imported entities
+     * @param states Stream of serialized entity states
+     * @return the number of imported entities
+     * @throws EntityStoreException if a batch could not be written, previous batches stay written
+     */
+    default long bulkImport( ModuleDescriptor module, Stream<String> states )
+        throws EntityStoreException
+    {
+        return bulkImport( module, states, new BulkImportSettings() );
+    }
+
+    /**
+     * Import entity states.
+     *
+     * @param module   Module used to resolve the types of the imported entities
+     * @param states   Stream of serialized entity states
+     * @param settings Import settings
+     * @return the number of imported entities
+     * @throws EntityStoreException if a batch could not be written, previous batches stay written
+     */
+    long bulkImport( ModuleDescriptor module, Stream<String> states, BulkImportSettings settings )
+        throws EntityStoreException;
+}
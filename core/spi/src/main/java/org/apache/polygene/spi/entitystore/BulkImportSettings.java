@@ -0,0 +1,76 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.polygene.spi.entitystore;
+
+/**
+ * Settings of a {@link BulkImport}.
+ */
+public class BulkImportSettings
+{
+    private int batchSize;
+    private boolean reindex;
+
+    public BulkImportSettings()
+    {
+        batchSize = 1000;
+        reindex = false;
+    }
+
+    /**
+     * @return the number of entities written to the underlying store at once
+     */
+    public int getBatchSize()
+    {
+        return batchSize;
+    }
+
+    public void setBatchSize( int batchSize )
+    {
+        if( batchSize < 1 )
+        {
+            throw new IllegalArgumentException( "Batch size must be positive, was " + batchSize );
+        }
+        this.batchSize = batchSize;
+    }
+
+    public BulkImportSettings withBatchSize( int batchSize )
+    {
+        setBatchSize( batchSize );
+        return this;
+    }
+
+    /**
+     * @return whether visible {@link StateChangeListener}s are notified of the imported entities, false by default
+     */
+    public boolean isReindex()
+    {
+        return reindex;
+    }
+
+    public void setReindex( boolean reindex )
+    {
+        this.reindex = reindex;
+    }
+
+    public BulkImportSettings withReindex( boolean reindex )
+    {
+        this.reindex = reindex;
+        return this;
+    }
+}
@@ -21,9 +21,16 @@
 package org.apache.polygene.spi.entitystore;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
 import org.apache.polygene.api.PolygeneAPI;
+import org.apache.polygene.api.common.Optional;
 import org.apache.polygene.api.concern.ConcernOf;
 import org.apache.polygene.api.entity.EntityDescriptor;
 import org.apache.polygene.api.entity.EntityReference;
@@ -43,6 +50,10 @@ import org.apache.polygene.spi.entity.EntityState;
  * Whenever there is a concurrent modification the store will most likely
  * have to check with the underlying store what the current version is.
  * </p>
+ * <p>
+ * The check and the commit of a UnitOfWork happen under commit locks of the entities it loaded or
+ * created, so only UnitOfWorks with overlapping sets of entities are serialized.
+ * </p>
  */
 public abstract class ConcurrentModificationCheckConcern
     extends ConcernOf<EntityStore>
@@ -61,6 +72,19 @@ public abstract class ConcurrentModificationCheckConcern
         return new ConcurrentCheckingEntityStoreUnitOfWork( uow, api.dereference( versions ), currentTime );
     }
 
+    @Override
+    public List<String> partitions( int count )
+    {
+        // Delegate explicitly, default methods are not forwarded to the next fragment
+        return next.partitions( count );
+    }
+
+    @Override
+    public Stream<EntityState> entityStates( ModuleDescriptor module, String partition, @Optional String after )
+    {
+        return next.entityStates( module, partition, after );
+    }
+
     private static class ConcurrentCheckingEntityStoreUnitOfWork
         implements EntityStoreUnitOfWork
     {
@@ -69,8 +93,10 @@ public abstract class ConcurrentModificationCheckConcern
         private Instant currentTime;
 
         private HashSet<EntityState> loaded = new HashSet<>();
+        private HashSet<EntityReference> created = new HashSet<>();
 
         private ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private volatile StateCommitter prepared;
 
         public ConcurrentCheckingEntityStoreUnitOfWork( EntityStoreUnitOfWork uow,
                                                         EntityStateVersions versions,
@@ -100,7 +126,9 @@ public abstract class ConcurrentModificationCheckConcern
         )
             throws EntityStoreException
         {
-            return uow.newEntityState( anIdentity, entityDescriptor );
+            EntityState entityState = uow.newEntityState( anIdentity, entityDescriptor );
+            created.add( anIdentity );
+            return entityState;
         }
 
         @Override
@@ -109,43 +137,62 @@ public abstract class ConcurrentModificationCheckConcern
         {
             lock.writeLock().lock();
 
+            StateCommitter committer = null;
+            EntityStateVersions.CommitLock commitLock = null;
             try
             {
-                versions.checkForConcurrentModification( loaded, currentTime );
+                // Changes are prepared before taking the commit locks, what may block while preparing them, such
+                // as back-pressure on dispatching state changes, does not keep other UnitOfWorks waiting
+                committer = uow.applyChanges();
+
+                commitLock = versions.lockForCommit( committedReferences() );
 
-                final StateCommitter committer = uow.applyChanges();
+                versions.checkForConcurrentModification( loaded, currentTime );
 
-                return new StateCommitter()
+                prepared = new LockedStateCommitter( committer, commitLock );
+                return prepared;
+            }
+            catch( RuntimeException e )
+            {
+                try
                 {
-                    @Override
-                    public void commit()
+                    if( committer != null )
                     {
-                        committer.commit();
-                        versions.forgetVersions( loaded );
-
-                        lock.writeLock().unlock();
+                        committer.cancel();
                     }
-
-                    @Override
-                    public void cancel()
+                }
+                finally
+                {
+                    if( commitLock != null )
                     {
-                        committer.cancel();
-                        versions.forgetVersions( loaded );
-
-                        lock.writeLock().unlock();
+                        commitLock.release();
                     }
-                };
+                    lock.writeLock().unlock();
+                }
+                throw e;
             }
-            catch( EntityStoreException e )
+        }
+
+        private List<EntityReference> committedReferences()
+        {
+            List<EntityReference> references = new ArrayList<>( loaded.size() + created.size() );
+            for( EntityState entityState : loaded )
             {
-                lock.writeLock().unlock();
-                throw e;
+                references.add( entityState.entityReference() );
             }
+            references.addAll( created );
+            return references;
         }
 
         @Override
         public void discard()
         {
+            // Changes prepared by a completion that did not go through, e.g. vetoed, still hold their commit locks
+            StateCommitter pending = prepared;
+            if( pending != null )
+            {
+                pending.cancel();
+            }
             try
             {
                 uow.discard();
@@ -197,6 +244,28 @@ public abstract class ConcurrentModificationCheckConcern
             }
         }
 
+        @Override
+        public Map<EntityReference, EntityState> entityStatesOf( ModuleDescriptor module,
+                                                                 Iterable<EntityReference> references )
+            throws EntityStoreException
+        {
+            lock.readLock().lock();
+
+            try
+            {
+                Map<EntityReference, EntityState> entityStates = uow.entityStatesOf( module, references );
+                for( EntityState entityState : entityStates.values() )
+                {
+                    versions.rememberVersion( entityState.entityReference(), entityState.version() );
+                    loaded.add( entityState );
+                }
+                return entityStates;
+            }
+            finally
+            {
+                lock.readLock().unlock();
+            }
+        }
 
         @Override
         public String versionOf( EntityReference anIdentity )
@@ -204,5 +273,102 @@ public abstract class ConcurrentModificationCheckConcern
         {
             return uow.versionOf( anIdentity );
         }
+
+        @Override
+        public Map<EntityReference, String> versionsOf( Iterable<EntityReference> references )
+            throws EntityStoreException
+        {
+            return uow.versionsOf( references );
+        }
+
+        /**
+         * Changes prepared under commit locks, released once committed or cancelled.
+         * <p>
+         * Cancelling once committed or cancelled has no effect, so that discarding the UnitOfWork after a vetoed
+         * completion does not release the locks twice.
+         * </p>
+         */
+        private class LockedStateCommitter
+            implements StateCommitter
+        {
+            private final StateCommitter committer;
+            private final EntityStateVersions.CommitLock commitLock;
+            private final AtomicBoolean done = new AtomicBoolean();
+
+            private LockedStateCommitter( StateCommitter committer, EntityStateVersions.CommitLock commitLock )
+            {
+                this.committer = committer;
+                this.commitLock = commitLock;
+            }
+
+            @Override
+            public void commit()
+            {
+                done.set( true );
+                try
+                {
+                    committer.commit();
+                    versions.forgetVersions( loaded );
+                }
+                finally
+                {
+                    prepared = null;
+                    commitLock.release();
+                    unlock();
+                }
+            }
+
+            @Override
+            public CompletionStage<Void> commitAsync()
+            {
+                done.set( true );
+                // The write lock is owned by the calling thread, release it before the commit completes
+                try
+                {
+                    return committer.commitAsync()
+                                    .thenRun( () -> versions.forgetVersions( loaded ) )
+                                    .whenComplete( ( ignored, failure ) -> commitLock.release() );
+                }
+                catch( RuntimeException ex )
+                {
+                    commitLock.release();
+                    throw ex;
+                }
+                finally
+                {
+                    prepared = null;
+                    unlock();
+                }
+            }
+
+            @Override
+            public void cancel()
+            {
+                if( !done.compareAndSet( false, true ) )
+                {
+                    return;
+                }
+                try
+                {
+                    committer.cancel();
+                    versions.forgetVersions( loaded );
+                }
+                finally
+                {
+                    prepared = null;
+                    commitLock.release();
+                    unlock();
+                }
+            }
+
+            private void unlock()
+            {
+                // The write lock is held by the thread that prepared the changes
+                if( lock.isWriteLockedByCurrentThread() )
+                {
+                    lock.writeLock().unlock();
+                }
+            }
+        }
     }
 }
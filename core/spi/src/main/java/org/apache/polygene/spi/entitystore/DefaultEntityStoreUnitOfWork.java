@@ -21,7 +21,11 @@
 package org.apache.polygene.spi.entitystore;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import org.apache.polygene.api.entity.EntityDescriptor;
 import org.apache.polygene.api.entity.EntityReference;
 import org.apache.polygene.api.identity.Identity;
@@ -108,6 +112,33 @@ public final class DefaultEntityStoreUnitOfWork
         return entityState;
     }
 
+    @Override
+    public Map<EntityReference, EntityState> entityStatesOf( ModuleDescriptor module,
+                                                             Iterable<EntityReference> references )
+    {
+        Map<EntityReference, EntityState> entityStates = new LinkedHashMap<>();
+        List<EntityReference> toLoad = new ArrayList<>();
+        for( EntityReference reference : references )
+        {
+            EntityState entityState = states.get( reference );
+            if( entityState != null )
+            {
+                entityStates.put( reference, entityState );
+            }
+            else
+            {
+                toLoad.add( reference );
+            }
+        }
+        if( !toLoad.isEmpty() )
+        {
+            Map<EntityReference, EntityState> loaded = entityStoreSPI.entityStatesOf( this, module, toLoad );
+            states.putAll( loaded );
+            entityStates.putAll( loaded );
+        }
+        return entityStates;
+    }
+
     @Override
     public String versionOf( EntityReference anIdentity )
         throws EntityNotFoundException
@@ -120,6 +151,30 @@ public final class DefaultEntityStoreUnitOfWork
         return entityStoreSPI.versionOf( this, anIdentity );
     }
 
+    @Override
+    public Map<EntityReference, String> versionsOf( Iterable<EntityReference> references )
+    {
+        Map<EntityReference, String> versions = new LinkedHashMap<>();
+        List<EntityReference> toLookup = new ArrayList<>();
+        for( EntityReference reference : references )
+        {
+            EntityState entityState = states.get( reference );
+            if( entityState != null )
+            {
+                versions.put( reference, entityState.version() );
+            }
+            else
+            {
+                toLookup.add( reference );
+            }
+        }
+        if( !toLookup.isEmpty() )
+        {
+            versions.putAll( entityStoreSPI.versionsOf( this, toLookup ) );
+        }
+        return versions;
+    }
+
     @Override
     public StateCommitter applyChanges()
         throws EntityStoreException
@@ -22,12 +22,19 @@ package org.apache.polygene.spi.entitystore;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.WeakHashMap;
+import java.util.BitSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.apache.polygene.api.entity.EntityReference;
 import org.apache.polygene.api.injection.scope.This;
 import org.apache.polygene.api.mixin.Mixins;
+import org.apache.polygene.api.structure.ModuleDescriptor;
 import org.apache.polygene.api.usecase.Usecase;
 import org.apache.polygene.spi.entity.EntityState;
 import org.apache.polygene.spi.entity.EntityStatus;
@@ -45,19 +52,77 @@ public interface EntityStateVersions
     void checkForConcurrentModification( Iterable<EntityState> loaded, Instant currentTime )
         throws ConcurrentEntityStateModificationException;
 
+    /**
+     * Serialize the commits of UnitOfWorks that share entities.
+     * <p>
+     * Blocks until no other commit holds a lock on any of the given entities. Commits of disjoint
+     * sets of entities do not wait for each other, except for the rare collisions of lock stripes.
+     * The returned lock is not owned by the calling thread and can be released from any thread.
+     * </p>
+     *
+     * @param references The entities about to be checked and committed
+     * @return The lock to release once the commit is done or cancelled
+     * @throws ConcurrentEntityStateModificationException if the entities stay locked by other commits for too long
+     */
+    CommitLock lockForCommit( Iterable<EntityReference> references )
+        throws ConcurrentEntityStateModificationException;
+
+    /**
+     * Commit lock on a set of entities.
+     */
+    interface CommitLock
+    {
+        void release();
+    }
+
     /**
      * Entity versions state mixin.
+     * <p>
+     * Versions are kept in a concurrent map bounded to {@link #MAX_VERSIONS} entries. When the bound is
+     * exceeded some entries are evicted. A forgotten version is not an error, it is looked up in the
+     * store when checking for concurrent modifications, all missing versions of a check in one
+     * {@link EntityStoreUnitOfWork#versionsOf(Iterable)} call per module.
+     * </p>
      */
     class EntityStateVersionsMixin
         implements EntityStateVersions
     {
+        /**
+         * Maximum number of remembered versions.
+         */
+        public static final int MAX_VERSIONS = 100_000;
+
+        /**
+         * Number of commit lock stripes, a power of two.
+         */
+        public static final int LOCK_STRIPES = 1024;
+
+        /**
+         * Time to wait for the commit locks, in seconds.
+         * <p>
+         * UnitOfWorks spanning several stores lock each store in turn, in the same order for all of them.
+         * Giving up after this time turns any remaining lock ordering problem into a concurrent modification.
+         * </p>
+         */
+        public static final long LOCK_TIMEOUT_SECONDS = 30;
+
         @This
         private EntityStore store;
 
-        private final Map<EntityReference, String> versions = new WeakHashMap<>();
+        private final Map<EntityReference, String> versions = new ConcurrentHashMap<>();
+        private final AtomicBoolean evicting = new AtomicBoolean();
+        private final Semaphore[] commitLocks = new Semaphore[ LOCK_STRIPES ];
+
+        public EntityStateVersionsMixin()
+        {
+            for( int idx = 0; idx < LOCK_STRIPES; idx++ )
+            {
+                commitLocks[ idx ] = new Semaphore( 1 );
+            }
+        }
 
         @Override
-        public synchronized void forgetVersions( Iterable<EntityState> states )
+        public void forgetVersions( Iterable<EntityState> states )
         {
             for( EntityState state : states )
             {
@@ -66,18 +131,23 @@ public interface EntityStateVersions
         }
 
         @Override
-        public synchronized void rememberVersion( EntityReference reference, String version )
+        public void rememberVersion( EntityReference reference, String version )
         {
             versions.put( reference, version );
+            if( versions.size() > MAX_VERSIONS )
+            {
+                evict();
+            }
         }
 
         @Override
-        public synchronized void checkForConcurrentModification( Iterable<EntityState> loaded,
-                                                                 Instant currentTime
+        public void checkForConcurrentModification( Iterable<EntityState> loaded,
+                                                    Instant currentTime
         )
             throws ConcurrentEntityStateModificationException
         {
             List<EntityReference> changed = null;
+            Map<ModuleDescriptor, List<EntityState>> unknown = null;
             for( EntityState entityState : loaded )
             {
                 if( entityState.status().equals( EntityStatus.NEW ) )
@@ -88,12 +158,14 @@ public interface EntityStateVersions
                 String storeVersion = versions.get( entityState.entityReference() );
                 if( storeVersion == null )
                 {
-                    EntityStoreUnitOfWork unitOfWork = store.newUnitOfWork( entityState.entityDescriptor().module(), Usecase.DEFAULT, currentTime );
-                    storeVersion = unitOfWork.versionOf( entityState.entityReference() );
-                    unitOfWork.discard();
+                    if( unknown == null )
+                    {
+                        unknown = new HashMap<>();
+                    }
+                    unknown.computeIfAbsent( entityState.entityDescriptor().module(), module -> new ArrayList<>() )
+                           .add( entityState );
                 }
-
-                if( !entityState.version().equals( storeVersion ) )
+                else if( !entityState.version().equals( storeVersion ) )
                 {
                     if( changed == null )
                     {
@@ -103,10 +175,125 @@ public interface EntityStateVersions
                 }
             }
 
+            if( unknown != null )
+            {
+                for( Map.Entry<ModuleDescriptor, List<EntityState>> entry : unknown.entrySet() )
+                {
+                    List<EntityReference> references = new ArrayList<>( entry.getValue().size() );
+                    for( EntityState entityState : entry.getValue() )
+                    {
+                        references.add( entityState.entityReference() );
+                    }
+                    EntityStoreUnitOfWork unitOfWork = store.newUnitOfWork( entry.getKey(), Usecase.DEFAULT, currentTime );
+                    Map<EntityReference, String> storeVersions;
+                    try
+                    {
+                        storeVersions = unitOfWork.versionsOf( references );
+                    }
+                    finally
+                    {
+                        unitOfWork.discard();
+                    }
+                    for( EntityState entityState : entry.getValue() )
+                    {
+                        if( !entityState.version().equals( storeVersions.get( entityState.entityReference() ) ) )
+                        {
+                            if( changed == null )
+                            {
+                                changed = new ArrayList<>();
+                            }
+                            changed.add( entityState.entityReference() );
+                        }
+                    }
+                }
+            }
+
             if( changed != null )
             {
                 throw new ConcurrentEntityStateModificationException( changed );
             }
         }
+
+        @Override
+        public CommitLock lockForCommit( Iterable<EntityReference> references )
+            throws ConcurrentEntityStateModificationException
+        {
+            BitSet stripes = new BitSet( LOCK_STRIPES );
+            for( EntityReference reference : references )
+            {
+                int hash = reference.hashCode();
+                stripes.set( ( hash ^ ( hash >>> 16 ) ) & ( LOCK_STRIPES - 1 ) );
+            }
+            // Always acquire in ascending stripe order so that overlapping commits cannot deadlock
+            BitSet acquired = new BitSet( LOCK_STRIPES );
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos( LOCK_TIMEOUT_SECONDS );
+            try
+            {
+                for( int stripe = stripes.nextSetBit( 0 ); stripe >= 0; stripe = stripes.nextSetBit( stripe + 1 ) )
+                {
+                    if( !commitLocks[ stripe ].tryAcquire( deadline - System.nanoTime(), TimeUnit.NANOSECONDS ) )
+                    {
+                        new StripedCommitLock( acquired ).release();
+                        List<EntityReference> locked = new ArrayList<>();
+                        references.forEach( locked::add );
+                        throw new ConcurrentEntityStateModificationException( locked );
+                    }
+                    acquired.set( stripe );
+                }
+            }
+            catch( InterruptedException e )
+            {
+                new StripedCommitLock( acquired ).release();
+                Thread.currentThread().interrupt();
+                throw new EntityStoreException( "Interrupted while waiting for commit locks", e );
+            }
+            return new StripedCommitLock( acquired );
+        }
+
+        private void evict()
+        {
+            // One thread evicts at a time, others keep going
+            if( evicting.compareAndSet( false, true ) )
+            {
+                try
+                {
+                    int target = MAX_VERSIONS - MAX_VERSIONS / 4;
+                    Iterator<EntityReference> iterator = versions.keySet().iterator();
+                    while( versions.size() > target && iterator.hasNext() )
+                    {
+                        iterator.next();
+                        iterator.remove();
+                    }
+                }
+                finally
+                {
+                    evicting.set( false );
+                }
+            }
+        }
+
+        private class StripedCommitLock
+            implements CommitLock
+        {
+            private final BitSet stripes;
+            private final AtomicBoolean released = new AtomicBoolean();
+
+            private StripedCommitLock( BitSet stripes )
+            {
+                this.stripes = stripes;
+            }
+
+            @Override
+            public void release()
+            {
+                if( released.compareAndSet( false, true ) )
+                {
+                    for( int stripe = stripes.nextSetBit( 0 ); stripe >= 0; stripe = stripes.nextSetBit( stripe + 1 ) )
+                    {
+                        commitLocks[ stripe ].release();
+                    }
+                }
+            }
+        }
     }
 }
@@ -20,7 +20,10 @@
 package org.apache.polygene.spi.entitystore;
 
 import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
 import java.util.stream.Stream;
+import org.apache.polygene.api.common.Optional;
 import org.apache.polygene.api.structure.ModuleDescriptor;
 import org.apache.polygene.api.usecase.Usecase;
 import org.apache.polygene.spi.entity.EntityState;
@@ -30,6 +33,11 @@ import org.apache.polygene.spi.entity.EntityState;
  */
 public interface EntityStore
 {
+    /**
+     * Name of the single partition of stores that do not support partitioned scans.
+     */
+    String WHOLE_STORE_PARTITION = "whole-store";
+
     EntityStoreUnitOfWork newUnitOfWork( ModuleDescriptor module, Usecase usecase, Instant currentTime );
 
     /**
@@ -39,4 +47,36 @@ public interface EntityStore
      * @return Stream of all entity states, must be closed
      */
     Stream<EntityState> entityStates( ModuleDescriptor module );
+
+    /**
+     * Split the stored entities into partitions that can be scanned independently, e.g. in parallel.
+     * <p>
+     * The default implementation returns a single partition, {@link #WHOLE_STORE_PARTITION}.
+     * </p>
+     *
+     * @param count Desired number of partitions, stores may return less or more
+     * @return Partitions, their names are opaque and stable for a given content of the store
+     */
+    default List<String> partitions( int count )
+    {
+        return Collections.singletonList( WHOLE_STORE_PARTITION );
+    }
+
+    /**
+     * Stream of the entity states of a partition, must be closed.
+     * <p>
+     * Stores supporting partitions scan a partition in a stable order so that a scan can be resumed after the
+     * last entity seen. The default implementation ignores {@literal after} and returns
+     * {@link #entityStates(ModuleDescriptor)}.
+     * </p>
+     *
+     * @param module    Module
+     * @param partition One of the partitions returned by {@link #partitions(int)}
+     * @param after     Identity of the entity after which to resume the scan, null to scan the whole partition
+     * @return Stream of the entity states of the partition, must be closed
+     */
+    default Stream<EntityState> entityStates( ModuleDescriptor module, String partition, @Optional String after )
+    {
+        return entityStates( module );
+    }
 }
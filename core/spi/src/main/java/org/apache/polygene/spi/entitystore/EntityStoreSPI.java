@@ -20,6 +20,8 @@
 
 package org.apache.polygene.spi.entitystore;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
 import org.apache.polygene.api.entity.EntityDescriptor;
 import org.apache.polygene.api.entity.EntityReference;
 import org.apache.polygene.api.structure.ModuleDescriptor;
@@ -36,7 +38,70 @@ public interface EntityStoreSPI
 
     EntityState entityStateOf( EntityStoreUnitOfWork unitOfWork, ModuleDescriptor module, EntityReference reference );
 
+    /**
+     * Get the EntityStates for several references at once.
+     * <p>
+     * Entities that do not exist are left out of the returned map. The default implementation calls
+     * {@link #entityStateOf(EntityStoreUnitOfWork, ModuleDescriptor, EntityReference)} for each reference,
+     * stores able to load several entities in one round-trip should override it.
+     * </p>
+     *
+     * @param unitOfWork The EntityStore UnitOfWork
+     * @param module     Module descriptor
+     * @param references The entity references
+     * @return Entity states by reference, missing entities are left out
+     */
+    default Map<EntityReference, EntityState> entityStatesOf( EntityStoreUnitOfWork unitOfWork,
+                                                              ModuleDescriptor module,
+                                                              Iterable<EntityReference> references )
+    {
+        Map<EntityReference, EntityState> states = new LinkedHashMap<>();
+        for( EntityReference reference : references )
+        {
+            try
+            {
+                states.put( reference, entityStateOf( unitOfWork, module, reference ) );
+            }
+            catch( EntityNotFoundException ignored )
+            {
+                // Missing entities are left out
+            }
+        }
+        return states;
+    }
+
     String versionOf( EntityStoreUnitOfWork unitOfWork, EntityReference reference );
 
+    /**
+     * Get the current versions of several entities at once.
+     * <p>
+     * Used to check for concurrent modifications of all the entities of a UnitOfWork together.
+     * Entities that do not exist are left out of the returned map. The default implementation calls
+     * {@link #versionOf(EntityStoreUnitOfWork, EntityReference)} for each reference, stores able to
+     * look up several versions in one round-trip should override it.
+     * </p>
+     *
+     * @param unitOfWork The EntityStore UnitOfWork
+     * @param references The entity references
+     * @return Versions by reference, missing entities are left out
+     */
+    default Map<EntityReference, String> versionsOf( EntityStoreUnitOfWork unitOfWork,
+                                                     Iterable<EntityReference> references )
+    {
+        Map<EntityReference, String> versions = new LinkedHashMap<>();
+        for( EntityReference reference : references )
+        {
+            try
+            {
+                versions.put( reference, versionOf( unitOfWork, reference ) );
+            }
+            catch( EntityNotFoundException ignored )
+            {
+                // Missing entities are left out
+            }
+        }
+        return versions;
+    }
+
     StateCommitter applyChanges( EntityStoreUnitOfWork unitOfWork, Iterable<EntityState> state );
 }
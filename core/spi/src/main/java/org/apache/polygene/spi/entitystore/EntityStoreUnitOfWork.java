@@ -21,6 +21,8 @@
 package org.apache.polygene.spi.entitystore;
 
 import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import org.apache.polygene.api.entity.EntityDescriptor;
 import org.apache.polygene.api.entity.EntityReference;
 import org.apache.polygene.api.identity.Identity;
@@ -69,8 +71,68 @@ public interface EntityStoreUnitOfWork
     EntityState entityStateOf( ModuleDescriptor module, EntityReference anIdentity )
         throws EntityStoreException, EntityNotFoundException;
 
+    /**
+     * Get the EntityStates for several references at once.
+     * <p>
+     * Unlike {@link #entityStateOf(ModuleDescriptor, EntityReference)} this does not throw
+     * {@link EntityNotFoundException}, entities that do not exist are left out of the returned map.
+     * </p>
+     *
+     * @param module     Module descriptor
+     * @param references The entity references
+     * @return Entity states by reference, missing entities are left out
+     * @throws EntityStoreException thrown if retrieval failed.
+     */
+    default Map<EntityReference, EntityState> entityStatesOf( ModuleDescriptor module,
+                                                              Iterable<EntityReference> references )
+        throws EntityStoreException
+    {
+        Map<EntityReference, EntityState> states = new LinkedHashMap<>();
+        for( EntityReference reference : references )
+        {
+            try
+            {
+                states.put( reference, entityStateOf( module, reference ) );
+            }
+            catch( EntityNotFoundException ignored )
+            {
+                // Missing entities are left out
+            }
+        }
+        return states;
+    }
+
     String versionOf( EntityReference anIdentity ) throws EntityStoreException;
 
+    /**
+     * Get the current versions of several entities at once.
+     * <p>
+     * Unlike {@link #versionOf(EntityReference)} this does not throw {@link EntityNotFoundException},
+     * entities that do not exist are left out of the returned map.
+     * </p>
+     *
+     * @param references The entity references
+     * @return Versions by reference, missing entities are left out
+     * @throws EntityStoreException thrown if retrieval failed.
+     */
+    default Map<EntityReference, String> versionsOf( Iterable<EntityReference> references )
+        throws EntityStoreException
+    {
+        Map<EntityReference, String> versions = new LinkedHashMap<>();
+        for( EntityReference reference : references )
+        {
+            try
+            {
+                versions.put( reference, versionOf( reference ) );
+            }
+            catch( EntityNotFoundException ignored )
+            {
+                // Missing entities are left out
+            }
+        }
+        return versions;
+    }
+
     StateCommitter applyChanges()
         throws EntityStoreException;
 
@@ -0,0 +1,132 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.polygene.spi.entitystore;
+
+/**
+ * Settings for the asynchronous dispatch of state changes to {@link StateChangeListener}s.
+ * <p>
+ * Set as metaInfo on the {@link AsyncStateChangeDispatcherService} declaration to apply to all listeners,
+ * or on a {@link StateChangeListener} service declaration to apply to that listener only, using
+ * {@code ServiceDeclaration.setMetaInfo()}.
+ * </p>
+ */
+public class StateChangeDispatchSettings
+{
+    public static final StateChangeDispatchSettings DEFAULT = new StateChangeDispatchSettings();
+
+    public static StateChangeDispatchSettings orDefault( StateChangeDispatchSettings settings )
+    {
+        return settings != null ? settings : DEFAULT;
+    }
+
+    /**
+     * What to do when the queue of a listener is full.
+     */
+    public enum BackPressure
+    {
+        /**
+         * Block the committing UnitOfWork until the listener catches up.
+         */
+        BLOCK,
+        /**
+         * Commit anyway, the listener does not see the changes of the UnitOfWork.
+         */
+        DROP,
+        /**
+         * Fail the UnitOfWork before anything is committed.
+         */
+        FAIL
+    }
+
+    private int queueCapacity;
+    private int maxBatchSize;
+    private BackPressure backPressure;
+
+    public StateChangeDispatchSettings()
+    {
+        queueCapacity = 1024;
+        maxBatchSize = 64;
+        backPressure = BackPressure.BLOCK;
+    }
+
+    /**
+     * @return the maximum number of committed UnitOfWorks waiting for a listener
+     */
+    public int getQueueCapacity()
+    {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity( int queueCapacity )
+    {
+        if( queueCapacity < 1 )
+        {
+            throw new IllegalArgumentException( "Queue capacity must be positive, was " + queueCapacity );
+        }
+        this.queueCapacity = queueCapacity;
+    }
+
+    public StateChangeDispatchSettings withQueueCapacity( int queueCapacity )
+    {
+        setQueueCapacity( queueCapacity );
+        return this;
+    }
+
+    /**
+     * @return the maximum number of UnitOfWorks whose changes are coalesced into one notification
+     */
+    public int getMaxBatchSize()
+    {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize( int maxBatchSize )
+    {
+        if( maxBatchSize < 1 )
+        {
+            throw new IllegalArgumentException( "Max batch size must be positive, was " + maxBatchSize );
+        }
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public StateChangeDispatchSettings withMaxBatchSize( int maxBatchSize )
+    {
+        setMaxBatchSize( maxBatchSize );
+        return this;
+    }
+
+    /**
+     * @return what to do when the queue of a listener is full, {@link BackPressure#BLOCK} by default
+     */
+    public BackPressure getBackPressure()
+    {
+        return backPressure;
+    }
+
+    public void setBackPressure( BackPressure backPressure )
+    {
+        this.backPressure = backPressure;
+    }
+
+    public StateChangeDispatchSettings withBackPressure( BackPressure backPressure )
+    {
+        this.backPressure = backPressure;
+        return this;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.polygene.spi.entitystore;
+
+import org.apache.polygene.spi.entity.EntityState;
+
+/**
+ * Dispatch state changes to {@link StateChangeListener}s outside of the committing thread.
+ * <p>
+ * When a StateChangeDispatcher service is visible from an EntityStore using {@link StateChangeNotificationConcern},
+ * the StateChangeListeners visible from the dispatcher are notified through it once the changes are committed,
+ * instead of the listeners visible from the EntityStore being notified synchronously before the commit.
+ * </p>
+ *
+ * @see AsyncStateChangeDispatcherService
+ */
+public interface StateChangeDispatcher
+{
+    /**
+     * Prepare the dispatch of changes about to be committed.
+     * <p>
+     * This is where back-pressure applies, before anything is committed and before the commit locks of the changed
+     * entities are taken.
+     * </p>
+     *
+     * @param changedStates The changed states
+     * @return The pending dispatch, to dispatch once the changes are committed or to cancel
+     * @throws EntityStoreException if a listener cannot accept more changes
+     */
+    PendingDispatch prepare( Iterable<EntityState> changedStates )
+        throws EntityStoreException;
+
+    /**
+     * Changes waiting for their commit outcome.
+     */
+    interface PendingDispatch
+    {
+        void dispatch();
+
+        void cancel();
+    }
+}
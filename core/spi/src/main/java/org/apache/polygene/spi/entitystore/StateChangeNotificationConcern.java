@@ -20,12 +20,21 @@
 
 package org.apache.polygene.spi.entitystore;
 
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
 import org.apache.polygene.api.concern.ConcernOf;
+import org.apache.polygene.api.common.Optional;
+import org.apache.polygene.api.entity.EntityReference;
 import org.apache.polygene.api.injection.scope.Service;
+import org.apache.polygene.api.structure.ModuleDescriptor;
 import org.apache.polygene.spi.entity.EntityState;
 
 /**
  * State change notification Concern.
+ * <p>
+ * Listeners are notified synchronously before the commit, unless a {@link StateChangeDispatcher} service is visible,
+ * in which case the changes are handed to the dispatcher once committed.
+ * </p>
  */
 public abstract class StateChangeNotificationConcern
     extends ConcernOf<EntityStoreSPI>
@@ -34,11 +43,35 @@ public abstract class StateChangeNotificationConcern
     @Service
     Iterable<StateChangeListener> listeners;
 
+    @Optional
+    @Service
+    StateChangeDispatcher dispatcher;
+
+    @Override
+    public Map<EntityReference, EntityState> entityStatesOf( EntityStoreUnitOfWork unitOfWork,
+                                                             ModuleDescriptor module,
+                                                             Iterable<EntityReference> references )
+    {
+        // Delegate explicitly, default methods are not forwarded to the next fragment
+        return next.entityStatesOf( unitOfWork, module, references );
+    }
+
+    @Override
+    public Map<EntityReference, String> versionsOf( EntityStoreUnitOfWork unitOfWork,
+                                                    Iterable<EntityReference> references )
+    {
+        return next.versionsOf( unitOfWork, references );
+    }
+
     @Override
     public StateCommitter applyChanges( final EntityStoreUnitOfWork unitofwork,
                                         final Iterable<EntityState> state
     )
     {
+        if( dispatcher != null )
+        {
+            return dispatchingCommitter( dispatcher, unitofwork, state );
+        }
         final StateCommitter committer = next.applyChanges( unitofwork, state );
         return new StateCommitter()
         {
@@ -52,6 +85,16 @@ public abstract class StateChangeNotificationConcern
                 committer.commit();
             }
 
+            @Override
+            public CompletionStage<Void> commitAsync()
+            {
+                for( StateChangeListener listener : listeners )
+                {
+                    listener.notifyChanges( state );
+                }
+                return committer.commitAsync();
+            }
+
             @Override
             public void cancel()
             {
@@ -59,4 +102,78 @@ public abstract class StateChangeNotificationConcern
             }
         };
     }
+
+    private StateCommitter dispatchingCommitter( StateChangeDispatcher dispatcher,
+                                                 EntityStoreUnitOfWork unitofwork,
+                                                 Iterable<EntityState> state )
+    {
+        // Reserve before applying the changes so that back-pressure happens before anything is committed
+        final StateChangeDispatcher.PendingDispatch pending = dispatcher.prepare( state );
+        final StateCommitter committer;
+        try
+        {
+            committer = next.applyChanges( unitofwork, state );
+        }
+        catch( RuntimeException ex )
+        {
+            pending.cancel();
+            throw ex;
+        }
+        return new StateCommitter()
+        {
+            @Override
+            public void commit()
+            {
+                try
+                {
+                    committer.commit();
+                }
+                catch( RuntimeException ex )
+                {
+                    pending.cancel();
+                    throw ex;
+                }
+                pending.dispatch();
+            }
+
+            @Override
+            public CompletionStage<Void> commitAsync()
+            {
+                CompletionStage<Void> committed;
+                try
+                {
+                    committed = committer.commitAsync();
+                }
+                catch( RuntimeException ex )
+                {
+                    pending.cancel();
+                    throw ex;
+                }
+                return committed.whenComplete( ( ignored, failure ) ->
+                                               {
+                                                   if( failure == null )
+                                                   {
+                                                       pending.dispatch();
+                                                   }
+                                                   else
+                                                   {
+                                                       pending.cancel();
+                                                   }
+                                               } );
+            }
+
+            @Override
+            public void cancel()
+            {
+                try
+                {
+                    committer.cancel();
+                }
+                finally
+                {
+                    pending.cancel();
+                }
+            }
+        };
+    }
 }
@@ -19,6 +19,9 @@
  */
 package org.apache.polygene.spi.entitystore;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
 /**
  * After all EntityStore's have been prepared by {@link org.apache.polygene.api.unitofwork.UnitOfWork#complete()}
  */
@@ -26,5 +29,29 @@ public interface StateCommitter
 {
     void commit();
 
+    /**
+     * Commit without waiting for the underlying store to acknowledge the changes.
+     * <p>
+     * The {@link org.apache.polygene.api.unitofwork.UnitOfWork} starts the commit of all its stores
+     * before waiting for any of them. The default implementation bridges to {@link #commit()}.
+     * </p>
+     *
+     * @return A stage completed when the changes are committed, or completed exceptionally on failure
+     */
+    default CompletionStage<Void> commitAsync()
+    {
+        CompletableFuture<Void> committed = new CompletableFuture<>();
+        try
+        {
+            commit();
+            committed.complete( null );
+        }
+        catch( RuntimeException ex )
+        {
+            committed.completeExceptionally( ex );
+        }
+        return committed;
+    }
+
     void cancel();
 }
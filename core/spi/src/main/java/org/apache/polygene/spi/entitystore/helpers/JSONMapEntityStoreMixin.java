@@ -27,8 +27,14 @@ import java.io.StringReader;
 import java.io.Writer;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.function.Function;
 import java.util.stream.Stream;
 import javax.json.JsonObject;
@@ -56,11 +62,14 @@ import org.apache.polygene.spi.cache.CachePool;
 import org.apache.polygene.spi.cache.NullCache;
 import org.apache.polygene.spi.entity.EntityState;
 import org.apache.polygene.spi.entity.EntityStatus;
+import org.apache.polygene.spi.entitystore.BulkImport;
+import org.apache.polygene.spi.entitystore.BulkImportSettings;
 import org.apache.polygene.spi.entitystore.DefaultEntityStoreUnitOfWork;
 import org.apache.polygene.spi.entitystore.EntityStore;
 import org.apache.polygene.spi.entitystore.EntityStoreException;
 import org.apache.polygene.spi.entitystore.EntityStoreSPI;
 import org.apache.polygene.spi.entitystore.EntityStoreUnitOfWork;
+import org.apache.polygene.spi.entitystore.StateChangeListener;
 import org.apache.polygene.spi.entitystore.StateCommitter;
 import org.apache.polygene.spi.serialization.JsonSerialization;
 
@@ -73,9 +82,18 @@ import static java.util.stream.Collectors.joining;
  * <p>See {@link org.apache.polygene.entitystore.memory.MemoryMapEntityStoreMixin} for reference.</p>
  * <p>EntityStores based on this mixin gets support for the <b>Migration</b> and <b>Cache</b> extensions.</p>
  * <p>MapEntityStore implementations will get their values as JSON.</p>
+ * <p>
+ * The read path is not serialized, {@link MapEntityStore#get(EntityReference)} implementations must support
+ * concurrent invocations. Only the write back of migrated state is guarded, using lock striping on the
+ * entity reference so that loads of unrelated entities never contend on the same monitor.
+ * </p>
+ * <p>
+ * {@link BulkImport} writes imported states to the MapEntityStore in batches, one
+ * {@link MapEntityStore#applyChanges(MapEntityStore.MapChanges)} call per batch.
+ * </p>
  */
 public class JSONMapEntityStoreMixin
-    implements EntityStore, EntityStoreSPI, StateStore, JSONMapEntityStoreActivation
+    implements EntityStore, EntityStoreSPI, StateStore, BulkImport, JSONMapEntityStoreActivation
 {
     @This
     private MapEntityStore mapEntityStore;
@@ -99,6 +117,9 @@ public class JSONMapEntityStoreMixin
     @Service
     private Migration migration;
 
+    @Service
+    private Iterable<StateChangeListener> listeners;
+
     @Uses
     private ServiceDescriptor descriptor;
 
@@ -106,11 +127,21 @@ public class JSONMapEntityStoreMixin
     @Service
     private CachePool caching;
     private Cache<CacheState> cache;
+    private boolean cacheParsedState;
+
+    /**
+     * Lock stripes guarding migration write backs, size must be a power of two.
+     */
+    private final Object[] migrationLocks = new Object[ 64 ];
 
     protected String uuid;
 
     public JSONMapEntityStoreMixin()
     {
+        for( int i = 0; i < migrationLocks.length; i++ )
+        {
+            migrationLocks[ i ] = new Object();
+        }
     }
 
     @Override
@@ -118,6 +149,9 @@ public class JSONMapEntityStoreMixin
         throws Exception
     {
         uuid = descriptor.identity() + "-" + UUID.randomUUID().toString();
+        JSONMapEntityStoreSettings settings = JSONMapEntityStoreSettings.orDefault(
+            descriptor.metaInfo( JSONMapEntityStoreSettings.class ) );
+        cacheParsedState = settings.getCacheParsedState();
         if( caching != null )
         {
             cache = caching.fetchCache( uuid, CacheState.class );
@@ -178,9 +212,9 @@ public class JSONMapEntityStoreMixin
     }
 
     @Override
-    public synchronized EntityState entityStateOf( EntityStoreUnitOfWork uow,
-                                                   ModuleDescriptor module,
-                                                   EntityReference reference )
+    public EntityState entityStateOf( EntityStoreUnitOfWork uow,
+                                      ModuleDescriptor module,
+                                      EntityReference reference )
     {
         try
         {
@@ -197,11 +231,15 @@ public class JSONMapEntityStoreMixin
                 {
                     List<JSONEntityState> migrated = new ArrayList<>( 1 );
                     migrated.add( loadedState );
-                    synchMigratedEntities( migrated );
+                    synchronized( migrationLockOf( reference ) )
+                    {
+                        synchMigratedEntities( migrated );
+                    }
                 }
                 if( doCacheOnRead( uow ) )
                 {
-                    cache.put( reference.identity().toString(), new CacheState( loadedState.state().toString() ) );
+                    cache.put( reference.identity().toString(),
+                               cacheStateOf( loadedState.state(), loadedState.version() ) );
                 }
                 return loadedState;
             }
@@ -217,13 +255,78 @@ public class JSONMapEntityStoreMixin
     }
 
     @Override
-    public synchronized String versionOf( EntityStoreUnitOfWork uow, EntityReference reference )
+    public Map<EntityReference, EntityState> entityStatesOf( EntityStoreUnitOfWork uow,
+                                                             ModuleDescriptor module,
+                                                             Iterable<EntityReference> references )
+    {
+        try
+        {
+            Map<EntityReference, EntityState> states = new LinkedHashMap<>();
+            List<EntityReference> toLoad = new ArrayList<>();
+            for( EntityReference reference : references )
+            {
+                EntityState state = fetchCachedState( reference, module, uow.currentTime() );
+                if( state != null )
+                {
+                    states.put( reference, state );
+                }
+                else
+                {
+                    toLoad.add( reference );
+                }
+            }
+            if( toLoad.isEmpty() )
+            {
+                return states;
+            }
+            // Get state of all the remaining entities at once
+            boolean cacheOnRead = doCacheOnRead( uow );
+            for( Map.Entry<EntityReference, Reader> entry : mapEntityStore.entityStatesOf( toLoad ).entrySet() )
+            {
+                EntityReference reference = entry.getKey();
+                try( Reader in = entry.getValue() )
+                {
+                    JSONEntityState loadedState = readEntityState( module, in );
+                    if( loadedState.status() == EntityStatus.UPDATED )
+                    {
+                        List<JSONEntityState> migrated = new ArrayList<>( 1 );
+                        migrated.add( loadedState );
+                        synchronized( migrationLockOf( reference ) )
+                        {
+                            synchMigratedEntities( migrated );
+                        }
+                    }
+                    if( cacheOnRead )
+                    {
+                        cache.put( reference.identity().toString(),
+                                   cacheStateOf( loadedState.state(), loadedState.version() ) );
+                    }
+                    states.put( reference, loadedState );
+                }
+            }
+            return states;
+        }
+        catch( EntityStoreException ex )
+        {
+            throw ex;
+        }
+        catch( Exception ex )
+        {
+            throw new EntityStoreException( ex );
+        }
+    }
+
+    @Override
+    public String versionOf( EntityStoreUnitOfWork uow, EntityReference reference )
     {
         CacheState cacheState = cache.get( reference.identity().toString() );
         if( cacheState != null )
         {
-            return jsonFactories.readerFactory().createReader( new StringReader( cacheState.string ) ).readObject()
-                                .getString( JSONKeys.VERSION );
+            if( cacheState.version != null )
+            {
+                return cacheState.version;
+            }
+            return parsedStateOf( cacheState ).getString( JSONKeys.VERSION );
         }
         // Get state
         try( JsonReader reader = jsonFactories.readerFactory().createReader( mapEntityStore.get( reference ) ) )
@@ -240,10 +343,104 @@ public class JSONMapEntityStoreMixin
         }
     }
 
+    @Override
+    public Map<EntityReference, String> versionsOf( EntityStoreUnitOfWork uow, Iterable<EntityReference> references )
+    {
+        try
+        {
+            Map<EntityReference, String> versions = new LinkedHashMap<>();
+            List<EntityReference> toLoad = new ArrayList<>();
+            for( EntityReference reference : references )
+            {
+                CacheState cacheState = cache.get( reference.identity().toString() );
+                if( cacheState != null )
+                {
+                    versions.put( reference, cacheState.version != null
+                                             ? cacheState.version
+                                             : parsedStateOf( cacheState ).getString( JSONKeys.VERSION ) );
+                }
+                else
+                {
+                    toLoad.add( reference );
+                }
+            }
+            if( toLoad.isEmpty() )
+            {
+                return versions;
+            }
+            // Get state of all the remaining entities at once
+            for( Map.Entry<EntityReference, Reader> entry : mapEntityStore.entityStatesOf( toLoad ).entrySet() )
+            {
+                try( JsonReader reader = jsonFactories.readerFactory().createReader( entry.getValue() ) )
+                {
+                    versions.put( entry.getKey(), reader.readObject().getString( JSONKeys.VERSION ) );
+                }
+            }
+            return versions;
+        }
+        catch( EntityStoreException ex )
+        {
+            throw ex;
+        }
+        catch( Exception ex )
+        {
+            throw new EntityStoreException( ex );
+        }
+    }
+
     @Override
     public StateCommitter applyChanges( EntityStoreUnitOfWork uow, Iterable<EntityState> entityStates )
         throws EntityStoreException
     {
+        MapEntityStore.MapChanges changes = changer ->
+        {
+            CacheOptions options = uow.usecase().metaInfo( CacheOptions.class );
+            if( options == null )
+            {
+                options = CacheOptions.ALWAYS;
+            }
+
+            for( EntityState entityState : entityStates )
+            {
+                JSONEntityState state = (JSONEntityState) entityState;
+                String newVersion = uow.identity().toString();
+                Instant lastModified = uow.currentTime();
+                if( state.status().equals( EntityStatus.NEW ) )
+                {
+                    try( Writer writer = changer.newEntity( state.entityReference(),
+                                                            state.entityDescriptor() ) )
+                    {
+                        writeEntityState( state, writer, newVersion, lastModified );
+                    }
+                    if( options.cacheOnNew() )
+                    {
+                        cache.put( state.entityReference().identity().toString(),
+                                   cacheStateOf( state.state(), newVersion ) );
+                    }
+                }
+                else if( state.status().equals( EntityStatus.UPDATED ) )
+                {
+                    MapEntityStore.MapChange mapChange = new MapEntityStore.MapChange(
+                        state.entityReference(), state.entityDescriptor(),
+                        state.version(), newVersion, lastModified
+                    );
+                    try( Writer writer = changer.updateEntity( mapChange ) )
+                    {
+                        writeEntityState( state, writer, newVersion, lastModified );
+                    }
+                    if( options.cacheOnWrite() )
+                    {
+                        cache.put( state.entityReference().identity().toString(),
+                                   cacheStateOf( state.state(), newVersion ) );
+                    }
+                }
+                else if( state.status().equals( EntityStatus.REMOVED ) )
+                {
+                    changer.removeEntity( state.entityReference(), state.entityDescriptor() );
+                    cache.remove( state.entityReference().identity().toString() );
+                }
+            }
+        };
         return new StateCommitter()
         {
             @Override
@@ -251,56 +448,7 @@ public class JSONMapEntityStoreMixin
             {
                 try
                 {
-                    mapEntityStore.applyChanges(
-                        changer ->
-                        {
-                            CacheOptions options = uow.usecase().metaInfo( CacheOptions.class );
-                            if( options == null )
-                            {
-                                options = CacheOptions.ALWAYS;
-                            }
-
-                            for( EntityState entityState : entityStates )
-                            {
-                                JSONEntityState state = (JSONEntityState) entityState;
-                                String newVersion = uow.identity().toString();
-                                Instant lastModified = uow.currentTime();
-                                if( state.status().equals( EntityStatus.NEW ) )
-                                {
-                                    try( Writer writer = changer.newEntity( state.entityReference(),
-                                                                            state.entityDescriptor() ) )
-                                    {
-                                        writeEntityState( state, writer, newVersion, lastModified );
-                                    }
-                                    if( options.cacheOnNew() )
-                                    {
-                                        cache.put( state.entityReference().identity().toString(),
-                                                   new CacheState( state.state().toString() ) );
-                                    }
-                                }
-                                else if( state.status().equals( EntityStatus.UPDATED ) )
-                                {
-                                    MapEntityStore.MapChange mapChange = new MapEntityStore.MapChange(
-                                        state.entityReference(), state.entityDescriptor(),
-                                        state.version(), newVersion, lastModified
-                                    );
-                                    try( Writer writer = changer.updateEntity( mapChange ) )
-                                    {
-                                        writeEntityState( state, writer, newVersion, lastModified );
-                                    }
-                                    if( options.cacheOnWrite() )
-                                    {
-                                        cache.put( state.entityReference().identity().toString(),
-                                                   new CacheState( state.state().toString() ) );
-                                    }
-                                }
-                                else if( state.status().equals( EntityStatus.REMOVED ) )
-                                {
-                                    changer.removeEntity( state.entityReference(), state.entityDescriptor() );
-                                    cache.remove( state.entityReference().identity().toString() );
-                                }
-                            }
-                        } );
+                    mapEntityStore.applyChanges( changes );
                 }
                 catch( Exception e )
                 {
@@ -308,6 +456,30 @@ public class JSONMapEntityStoreMixin
                 }
             }
 
+            @Override
+            public CompletionStage<Void> commitAsync()
+            {
+                CompletableFuture<Void> committed = new CompletableFuture<>();
+                mapEntityStore.applyChangesAsync( changes ).whenComplete(
+                    ( result, failure ) ->
+                    {
+                        if( failure == null )
+                        {
+                            committed.complete( null );
+                        }
+                        else
+                        {
+                            Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                                              ? failure.getCause()
+                                              : failure;
+                            committed.completeExceptionally( cause instanceof EntityStoreException
+                                                             ? cause
+                                                             : new EntityStoreException( cause ) );
+                        }
+                    } );
+                return committed;
+            }
+
             @Override
             public void cancel()
             {
@@ -320,31 +492,166 @@ public class JSONMapEntityStoreMixin
     {
         try
         {
-            Stream<Reader> stateStream = mapEntityStore.entityStates();
-            List<JSONEntityState> migrated = new ArrayList<>();
-            Function<Reader, EntityState> function = reader ->
+            return entityStatesOf( module, mapEntityStore.entityStates() );
+        }
+        catch( EntityStoreException ex )
+        {
+            throw ex;
+        }
+        catch( Exception ex )
+        {
+            throw new EntityStoreException( ex );
+        }
+    }
+
+    @Override
+    public List<String> partitions( int count )
+    {
+        try
+        {
+            return mapEntityStore.partitions( count );
+        }
+        catch( EntityStoreException ex )
+        {
+            throw ex;
+        }
+        catch( Exception ex )
+        {
+            throw new EntityStoreException( ex );
+        }
+    }
+
+    @Override
+    public Stream<EntityState> entityStates( ModuleDescriptor module, String partition, @Optional String after )
+    {
+        try
+        {
+            return entityStatesOf( module, mapEntityStore.entityStates( partition, after ) );
+        }
+        catch( EntityStoreException ex )
+        {
+            throw ex;
+        }
+        catch( Exception ex )
+        {
+            throw new EntityStoreException( ex );
+        }
+    }
+
+    private Stream<EntityState> entityStatesOf( ModuleDescriptor module, Stream<Reader> stateStream )
+    {
+        List<JSONEntityState> migrated = new ArrayList<>();
+        Function<Reader, EntityState> function = reader ->
+        {
+            JSONEntityState entity = readEntityState( module, reader );
+            if( entity.status() == EntityStatus.UPDATED )
             {
-                JSONEntityState entity = readEntityState( module, reader );
-                if( entity.status() == EntityStatus.UPDATED )
+                migrated.add( entity );
+                // Synch back 100 at a time
+                if( migrated.size() > 100 )
                 {
-                    migrated.add( entity );
-                    // Synch back 100 at a time
-                    if( migrated.size() > 100 )
-                    {
-                        synchMigratedEntities( migrated );
-                    }
+                    synchMigratedEntities( migrated );
                 }
-                return entity;
-            };
-            Runnable closer = () ->
+            }
+            return entity;
+        };
+        Runnable closer = () ->
+        {
+            // Synch any remaining migrated entities
+            if( !migrated.isEmpty() )
+            {
+                synchMigratedEntities( migrated );
+            }
+        };
+        return stateStream.map( function ).onClose( closer );
+    }
+
+    // BulkImport
+
+    @Override
+    public long bulkImport( ModuleDescriptor module, Stream<String> states, BulkImportSettings settings )
+        throws EntityStoreException
+    {
+        int batchSize = settings.getBatchSize();
+        List<String> batch = new ArrayList<>( batchSize );
+        List<JSONEntityState> batchStates = new ArrayList<>( batchSize );
+        long count = 0;
+        Iterator<String> iterator = states.iterator();
+        while( iterator.hasNext() )
+        {
+            String serializedState = iterator.next();
+            batch.add( serializedState );
+            batchStates.add( importedEntityState( module, serializedState ) );
+            if( batch.size() >= batchSize )
             {
-                // Synch any remaining migrated entities
-                if( !migrated.isEmpty() )
+                count += importBatch( batch, batchStates, settings.isReindex() );
+            }
+        }
+        if( !batch.isEmpty() )
+        {
+            count += importBatch( batch, batchStates, settings.isReindex() );
+        }
+        return count;
+    }
+
+    private int importBatch( List<String> batch, List<JSONEntityState> batchStates, boolean reindex )
+    {
+        try
+        {
+            mapEntityStore.applyChanges(
+                changer ->
                 {
-                    synchMigratedEntities( migrated );
-                }
-            };
-            return stateStream.map( function ).onClose( closer );
+                    for( int idx = 0; idx < batch.size(); idx++ )
+                    {
+                        JSONEntityState state = batchStates.get( idx );
+                        try( Writer writer = changer.newEntity( state.entityReference(), state.entityDescriptor() ) )
+                        {
+                            writer.append( batch.get( idx ) );
+                        }
+                        cache.remove( state.entityReference().identity().toString() );
+                    }
+                } );
+        }
+        catch( EntityStoreException ex )
+        {
+            throw ex;
+        }
+        catch( Exception ex )
+        {
+            throw new EntityStoreException( "Bulk import failed.", ex );
+        }
+        if( reindex )
+        {
+            for( StateChangeListener listener : listeners )
+            {
+                listener.notifyChanges( new ArrayList<>( batchStates ) );
+            }
+        }
+        int imported = batch.size();
+        batch.clear();
+        batchStates.clear();
+        return imported;
+    }
+
+    private JSONEntityState importedEntityState( ModuleDescriptor module, String serializedState )
+    {
+        try( JsonReader reader = jsonFactories.readerFactory().createReader( new StringReader( serializedState ) ) )
+        {
+            JsonObject state = reader.readObject();
+            String type = state.getString( JSONKeys.TYPE );
+            EntityDescriptor entityDescriptor = module.entityDescriptor( type );
+            if( entityDescriptor == null )
+            {
+                throw new NoSuchEntityTypeException( type, module );
+            }
+            return new JSONEntityState( entityDescriptor.module(), serialization, jsonFactories,
+                                        state.getString( JSONKeys.VERSION ),
+                                        Instant.ofEpochMilli( state.getJsonNumber( JSONKeys.MODIFIED )
+                                                                   .longValueExact() ),
+                                        EntityReference.create(
+                                            StringIdentity.identityOf( state.getString( JSONKeys.IDENTITY ) ) ),
+                                        EntityStatus.NEW, entityDescriptor,
+                                        state );
         }
         catch( EntityStoreException ex )
         {
@@ -492,8 +799,7 @@ public class JSONMapEntityStoreMixin
         CacheState cacheState = cache.get( reference.identity().toString() );
         if( cacheState != null )
         {
-            JsonObject state = jsonFactories.readerFactory().createReader( new StringReader( cacheState.string ) )
-                                            .readObject();
+            JsonObject state = parsedStateOf( cacheState );
             try
             {
                 String type = state.getString( JSONKeys.TYPE );
@@ -515,31 +821,74 @@ public class JSONMapEntityStoreMixin
         return null;
     }
 
+    private CacheState cacheStateOf( JsonObject state, String version )
+    {
+        return cacheParsedState
+               ? new CacheState( state, version )
+               : new CacheState( state.toString(), version );
+    }
+
+    private JsonObject parsedStateOf( CacheState cacheState )
+    {
+        if( cacheState.state != null )
+        {
+            return cacheState.state;
+        }
+        try( JsonReader reader = jsonFactories.readerFactory().createReader( new StringReader( cacheState.string ) ) )
+        {
+            return reader.readObject();
+        }
+    }
+
+    private Object migrationLockOf( EntityReference reference )
+    {
+        int hash = reference.hashCode();
+        hash ^= ( hash >>> 16 );
+        return migrationLocks[ hash & ( migrationLocks.length - 1 ) ];
+    }
+
     private boolean doCacheOnRead( EntityStoreUnitOfWork unitOfWork )
     {
         CacheOptions cacheOptions = unitOfWork.usecase().metaInfo( CacheOptions.class );
         return cacheOptions == null || cacheOptions.cacheOnRead();
     }
 
+    /**
+     * Cached entity state.
+     * <p>
+     * Holds either the JSON String or the immutable parsed state, depending on
+     * {@link JSONMapEntityStoreSettings#getCacheParsedState()}, along with the entity version.
+     * Only the JSON String is externalized, deserialized instances have neither parsed state nor version.
+     * </p>
+     */
     public static class CacheState
         implements Externalizable
     {
         public String string;
+        private transient JsonObject state;
+        private transient String version;
 
         public CacheState()
         {
         }
 
-        private CacheState( String string )
+        private CacheState( String string, String version )
         {
             this.string = string;
+            this.version = version;
+        }
+
+        private CacheState( JsonObject state, String version )
+        {
+            this.state = state;
+            this.version = version;
         }
 
         @Override
         public void writeExternal( ObjectOutput out )
             throws IOException
         {
-            out.writeUTF( string );
+            out.writeUTF( string != null ? string : state.toString() );
         }
 
         @Override
@@ -0,0 +1,78 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.polygene.spi.entitystore.helpers;
+
+/**
+ * Settings for {@link JSONMapEntityStoreMixin} based EntityStores.
+ * <p>
+ * Set as metaInfo on the EntityStore service declaration at assembly, using {@code ServiceDeclaration.setMetaInfo()}.
+ * </p>
+ */
+public class JSONMapEntityStoreSettings
+{
+    public static final JSONMapEntityStoreSettings DEFAULT = new JSONMapEntityStoreSettings();
+
+    public static JSONMapEntityStoreSettings orDefault( JSONMapEntityStoreSettings settings )
+    {
+        return settings != null ? settings : DEFAULT;
+    }
+
+    private boolean cacheParsedState;
+
+    public JSONMapEntityStoreSettings()
+    {
+        cacheParsedState = false;
+    }
+
+    /**
+     * @return true if cached entity state is kept parsed, false if it is kept as a JSON String
+     */
+    public boolean getCacheParsedState()
+    {
+        return cacheParsedState;
+    }
+
+    /**
+     * Choose how entity state is kept in the {@link org.apache.polygene.spi.cache.Cache}.
+     * <p>
+     * When false, the default, the cache holds the state as a JSON String that is parsed again on every cache hit.
+     * When true, the cache holds the immutable parsed state and its version, so that a cache hit costs a lookup.
+     * Entity state is copied on write, so sharing the parsed state across UnitOfWorks is safe.
+     * </p>
+     * <p>
+     * Caches that serialize their entries still store the JSON String, the state is then parsed once per
+     * deserialized entry.
+     * </p>
+     * <p>
+     * Parsed state takes more heap than its JSON String, caches sized in memory units hold fewer entries.
+     * Size the cache accordingly or the saved parsing is lost to cache misses.
+     * </p>
+     *
+     * @param cacheParsedState true to keep parsed state in the cache
+     */
+    public void setCacheParsedState( boolean cacheParsedState )
+    {
+        this.cacheParsedState = cacheParsedState;
+    }
+
+    public JSONMapEntityStoreSettings withCacheParsedState( boolean cacheParsedState )
+    {
+        this.cacheParsedState = cacheParsedState;
+        return this;
+    }
+}
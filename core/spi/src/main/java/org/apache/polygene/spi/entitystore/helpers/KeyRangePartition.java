@@ -0,0 +1,176 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.polygene.spi.entitystore.helpers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Partition of an ordered key space, for {@link MapEntityStore}s that iterate their keys in order.
+ * <p>
+ * A partition holds the keys greater than its {@link #after()} bound and lower or equal to its {@link #upTo()}
+ * bound, a null bound is unbounded. Bounds are compared using the ordering of the store.
+ * </p>
+ * <p>
+ * Partitions are encoded as Strings, see {@link #toString()} and {@link #parse(String)}, so that they can be
+ * exchanged through {@link MapEntityStore#partitions(int)} and checkpointed.
+ * </p>
+ */
+public final class KeyRangePartition
+{
+    private static final KeyRangePartition ALL = new KeyRangePartition( null, null );
+
+    /**
+     * Number of keys sampled per partition, bounds the imbalance between partitions.
+     */
+    private static final int SAMPLES_PER_PARTITION = 16;
+
+    private final String after;
+    private final String upTo;
+
+    public KeyRangePartition( String after, String upTo )
+    {
+        this.after = after;
+        this.upTo = upTo;
+    }
+
+    /**
+     * Split an ordered key space into partitions holding about the same number of keys.
+     * <p>
+     * Keys are sampled in a single pass using memory proportional to the number of partitions.
+     * </p>
+     *
+     * @param orderedKeys All keys, in the ordering of the store
+     * @param count       Desired number of partitions
+     * @return Encoded partitions, at most {@literal count} of them, in key order
+     */
+    public static List<String> split( Iterator<String> orderedKeys, int count )
+    {
+        if( count < 2 )
+        {
+            return Collections.singletonList( ALL.toString() );
+        }
+        // Keep every step-th key, halving the samples and doubling the step when there are too many
+        int maxSamples = SAMPLES_PER_PARTITION * count;
+        List<String> samples = new ArrayList<>( 2 * maxSamples );
+        long step = 1;
+        long seen = 0;
+        String lastKey = null;
+        while( orderedKeys.hasNext() )
+        {
+            String key = orderedKeys.next();
+            lastKey = key;
+            if( seen % step == 0 )
+            {
+                samples.add( key );
+                if( samples.size() >= 2 * maxSamples )
+                {
+                    for( int idx = 0; idx < maxSamples; idx++ )
+                    {
+                        samples.set( idx, samples.get( 2 * idx ) );
+                    }
+                    samples.subList( maxSamples, samples.size() ).clear();
+                    step *= 2;
+                }
+            }
+            seen++;
+        }
+        // The sample at index i is the key at position i * step
+        List<String> partitions = new ArrayList<>( count );
+        String after = null;
+        for( int idx = 1; idx < count && !samples.isEmpty(); idx++ )
+        {
+            int sample = (int) Math.min( samples.size() - 1, idx * seen / count / step );
+            String upTo = samples.get( sample );
+            // The last partition is unbounded, a bound on the last key would leave it empty
+            if( !upTo.equals( after ) && !upTo.equals( lastKey ) )
+            {
+                partitions.add( new KeyRangePartition( after, upTo ).toString() );
+                after = upTo;
+            }
+        }
+        partitions.add( new KeyRangePartition( after, null ).toString() );
+        return partitions;
+    }
+
+    /**
+     * @param partition Encoded partition
+     * @return The decoded partition
+     * @throws IllegalArgumentException if the partition is not a valid encoded partition
+     */
+    public static KeyRangePartition parse( String partition )
+    {
+        int separator = partition.indexOf( ':' );
+        if( separator < 0 )
+        {
+            throw new IllegalArgumentException( "Invalid key range partition: " + partition );
+        }
+        try
+        {
+            int afterLength = Integer.parseInt( partition.substring( 0, separator ) );
+            String after = afterLength < 0
+                           ? null
+                           : partition.substring( separator + 1, separator + 1 + afterLength );
+            String upTo = partition.substring( separator + 1 + Math.max( afterLength, 0 ) );
+            return new KeyRangePartition( after, upTo.isEmpty() ? null : upTo );
+        }
+        catch( NumberFormatException | IndexOutOfBoundsException ex )
+        {
+            throw new IllegalArgumentException( "Invalid key range partition: " + partition, ex );
+        }
+    }
+
+    /**
+     * @return Exclusive lower bound, null if unbounded
+     */
+    public String after()
+    {
+        return after;
+    }
+
+    /**
+     * @return Inclusive upper bound, null if unbounded
+     */
+    public String upTo()
+    {
+        return upTo;
+    }
+
+    /**
+     * @param key Key from which to resume, null to start at the beginning of this partition
+     * @return The remaining part of this partition
+     */
+    public KeyRangePartition resumeAfter( String key )
+    {
+        return key == null ? this : new KeyRangePartition( key, upTo );
+    }
+
+    /**
+     * @return This partition encoded as {@literal <length of after, -1 if null>:<after><upTo>}
+     */
+    @Override
+    public String toString()
+    {
+        return after == null
+               ? "-1:" + ( upTo == null ? "" : upTo )
+               : after.length() + ":" + after + ( upTo == null ? "" : upTo );
+    }
+}
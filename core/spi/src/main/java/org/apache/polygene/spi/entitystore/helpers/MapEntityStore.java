@@ -23,9 +23,18 @@ import java.io.IOException;
 import java.io.Reader;
 import java.io.Writer;
 import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.stream.Stream;
+import org.apache.polygene.api.common.Optional;
 import org.apache.polygene.api.entity.EntityDescriptor;
 import org.apache.polygene.api.entity.EntityReference;
+import org.apache.polygene.spi.entitystore.EntityNotFoundException;
+import org.apache.polygene.spi.entitystore.EntityStore;
 
 /**
  * MapEntityStore.
@@ -38,13 +47,103 @@ public interface MapEntityStore
      */
     Reader get( EntityReference entityReference ) throws Exception;
 
+    /**
+     * Get the state of several entities at once.
+     * <p>
+     * Stores able to fetch several entries in one round-trip should override this. The default implementation
+     * calls {@link #get(EntityReference)} for each reference.
+     * </p>
+     *
+     * @param entityReferences The references to the entities that we want to get.
+     * @return Entity state Readers by reference, missing entities are left out
+     */
+    default Map<EntityReference, Reader> entityStatesOf( Iterable<EntityReference> entityReferences )
+        throws Exception
+    {
+        Map<EntityReference, Reader> states = new LinkedHashMap<>();
+        for( EntityReference entityReference : entityReferences )
+        {
+            try
+            {
+                states.put( entityReference, get( entityReference ) );
+            }
+            catch( EntityNotFoundException ignored )
+            {
+                // Missing entities are left out
+            }
+        }
+        return states;
+    }
+
     /**
      * @return All entities state Readers, must be closed
      */
     Stream<Reader> entityStates() throws Exception;
 
+    /**
+     * Split the stored entities into partitions that can be scanned independently.
+     * <p>
+     * Stores able to scan part of their key space should override this and
+     * {@link #entityStates(String, String)}, see {@link KeyRangePartition} for ordered key spaces. The default
+     * implementation returns a single partition, {@link EntityStore#WHOLE_STORE_PARTITION}.
+     * </p>
+     *
+     * @param count Desired number of partitions, stores may return less or more
+     * @return Partitions
+     */
+    default List<String> partitions( int count ) throws Exception
+    {
+        return Collections.singletonList( EntityStore.WHOLE_STORE_PARTITION );
+    }
+
+    /**
+     * Entities state Readers of a partition.
+     * <p>
+     * Stores supporting partitions scan a partition in a stable order so that a scan can be resumed after the
+     * last entity seen. The default implementation ignores {@literal after} and returns {@link #entityStates()}.
+     * </p>
+     *
+     * @param partition One of the partitions returned by {@link #partitions(int)}
+     * @param after     Identity of the entity after which to resume the scan, null to scan the whole partition
+     * @return Entities state Readers of the partition, must be closed
+     */
+    default Stream<Reader> entityStates( String partition, @Optional String after ) throws Exception
+    {
+        return entityStates();
+    }
+
     void applyChanges( MapChanges changes ) throws Exception;
 
+    /**
+     * Apply changes asynchronously.
+     * <p>
+     * Stores backed by a remote server can override this to pipeline or batch all the writes of a
+     * {@link org.apache.polygene.api.unitofwork.UnitOfWork} and complete the returned stage once
+     * the server acknowledged them, allowing the caller to overlap the commit of several stores.
+     * </p>
+     * <p>
+     * The default implementation bridges to {@link #applyChanges(MapChanges)}, applying the changes
+     * synchronously in the calling thread.
+     * </p>
+     *
+     * @param changes Changes to apply
+     * @return A stage completed when the changes are applied, or completed exceptionally on failure
+     */
+    default CompletionStage<Void> applyChangesAsync( MapChanges changes )
+    {
+        CompletableFuture<Void> applied = new CompletableFuture<>();
+        try
+        {
+            applyChanges( changes );
+            applied.complete( null );
+        }
+        catch( Exception ex )
+        {
+            applied.completeExceptionally( ex );
+        }
+        return applied;
+    }
+
     /**
      * Changes to be applied on a MapEntityStore.
      */
@@ -157,6 +157,32 @@ public class MapEntityStoreMixin
         }
     }
 
+    @Override
+    public synchronized Map<EntityReference, String> versionsOf( EntityStoreUnitOfWork uow,
+                                                                 Iterable<EntityReference> references )
+    {
+        try
+        {
+            Map<EntityReference, String> versions = new LinkedHashMap<>();
+            for( Map.Entry<EntityReference, Reader> entry : mapEntityStore.entityStatesOf( references ).entrySet() )
+            {
+                try( JsonReader jsonReader = jsonFactories.readerFactory().createReader( entry.getValue() ) )
+                {
+                    versions.put( entry.getKey(), jsonReader.readObject().getString( JSONKeys.VERSION ) );
+                }
+            }
+            return versions;
+        }
+        catch( EntityStoreException ex )
+        {
+            throw ex;
+        }
+        catch( Exception ex )
+        {
+            throw new EntityStoreException( ex );
+        }
+    }
+
     @Override
     public StateCommitter applyChanges( EntityStoreUnitOfWork uow, Iterable<EntityState> state )
         throws EntityStoreException
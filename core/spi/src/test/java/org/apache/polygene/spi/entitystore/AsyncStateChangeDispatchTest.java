@@ -0,0 +1,230 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.polygene.spi.entitystore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.apache.polygene.api.entity.EntityBuilder;
+import org.apache.polygene.api.mixin.Mixins;
+import org.apache.polygene.api.property.Property;
+import org.apache.polygene.api.service.ServiceComposite;
+import org.apache.polygene.api.unitofwork.UnitOfWork;
+import org.apache.polygene.api.unitofwork.UnitOfWorkCallback;
+import org.apache.polygene.api.unitofwork.UnitOfWorkCompletionException;
+import org.apache.polygene.bootstrap.ModuleAssembly;
+import org.apache.polygene.spi.entity.EntityState;
+import org.apache.polygene.test.AbstractPolygeneTest;
+import org.apache.polygene.test.EntityTestAssembler;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class AsyncStateChangeDispatchTest extends AbstractPolygeneTest
+{
+    @Override
+    public void assemble( ModuleAssembly module )
+    {
+        new EntityTestAssembler().assemble( module );
+        module.entities( Thing.class );
+        module.services( AsyncStateChangeDispatcherService.class )
+              .setMetaInfo( new StateChangeDispatchSettings()
+                                .withQueueCapacity( 3 )
+                                .withBackPressure( StateChangeDispatchSettings.BackPressure.FAIL ) );
+        module.services( RecordingListenerService.class );
+    }
+
+    @Test
+    public void givenBlockedListenerWhenCommittingThenChangesAreCoalescedAndBoundedAfterCommit()
+        throws Exception
+    {
+        RecordingListenerService listener = serviceFinder.findService( RecordingListenerService.class ).get();
+        listener.block();
+
+        // First UnitOfWork is taken by the listener, that blocks
+        createThing( "first" );
+        listener.awaitNotifications( 1 );
+
+        // Next two are queued, the queue is then full
+        createThing( "second" );
+        createThing( "third" );
+        UnitOfWorkCompletionException failure = assertThrows( UnitOfWorkCompletionException.class,
+                                                               () -> createThing( "fourth" ) );
+        assertThat( failure.getCause(), instanceOf( EntityStoreException.class ) );
+
+        listener.unblock();
+        listener.awaitNotifications( 2 );
+
+        assertThat( listener.batchSizes(), contains( 1, 2 ) );
+
+        // The failed UnitOfWork released nothing and committed nothing, capacity is back
+        createThing( "fifth" );
+        listener.awaitNotifications( 3 );
+        assertThat( listener.batchSizes().size(), equalTo( 3 ) );
+    }
+
+    @Test
+    public void givenVetoedUnitOfWorksWhenCommittingThenTheirCapacityIsReleased()
+        throws Exception
+    {
+        RecordingListenerService listener = serviceFinder.findService( RecordingListenerService.class ).get();
+        listener.block();
+        createThing( "first" );
+        listener.awaitNotifications( 1 );
+
+        // More vetoed UnitOfWorks than the queue can hold
+        for( int idx = 0; idx < 5; idx++ )
+        {
+            try( UnitOfWork uow = unitOfWorkFactory.newUnitOfWork() )
+            {
+                EntityBuilder<Thing> builder = uow.newEntityBuilder( Thing.class );
+                builder.instance().name().set( "vetoed" );
+                builder.newInstance();
+                uow.addUnitOfWorkCallback( new UnitOfWorkCallback()
+                {
+                    @Override
+                    public void beforeCompletion()
+                        throws UnitOfWorkCompletionException
+                    {
+                        throw new UnitOfWorkCompletionException( "Vetoed" );
+                    }
+
+                    @Override
+                    public void afterCompletion( UnitOfWorkStatus status )
+                    {
+                    }
+                } );
+                assertThrows( UnitOfWorkCompletionException.class, uow::complete );
+            }
+        }
+
+        // The queue still holds as many UnitOfWorks as before the vetoes
+        createThing( "second" );
+        createThing( "third" );
+        listener.unblock();
+        listener.awaitNotifications( 2 );
+        assertThat( listener.batchSizes(), contains( 1, 2 ) );
+    }
+
+    private void createThing( String name )
+        throws UnitOfWorkCompletionException
+    {
+        try( UnitOfWork uow = unitOfWorkFactory.newUnitOfWork() )
+        {
+            EntityBuilder<Thing> builder = uow.newEntityBuilder( Thing.class );
+            builder.instance().name().set( name );
+            builder.newInstance();
+            uow.complete();
+        }
+    }
+
+    public interface Thing
+    {
+        Property<String> name();
+    }
+
+    public interface RecordingListener
+        extends StateChangeListener
+    {
+        void block();
+
+        void unblock();
+
+        void awaitNotifications( int count )
+            throws InterruptedException;
+
+        List<Integer> batchSizes();
+    }
+
+    @Mixins( RecordingListenerService.RecordingListenerMixin.class )
+    public interface RecordingListenerService
+        extends RecordingListener, ServiceComposite
+    {
+        class RecordingListenerMixin
+            implements RecordingListener
+        {
+            private final List<Integer> batchSizes = new ArrayList<>();
+            private volatile CountDownLatch gate = new CountDownLatch( 0 );
+
+            @Override
+            public void notifyChanges( Iterable<EntityState> changedStates )
+            {
+                int size = 0;
+                for( EntityState ignored : changedStates )
+                {
+                    size++;
+                }
+                synchronized( batchSizes )
+                {
+                    batchSizes.add( size );
+                    batchSizes.notifyAll();
+                }
+                try
+                {
+                    gate.await( 10, TimeUnit.SECONDS );
+                }
+                catch( InterruptedException ex )
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void block()
+            {
+                gate = new CountDownLatch( 1 );
+            }
+
+            @Override
+            public void unblock()
+            {
+                gate.countDown();
+            }
+
+            @Override
+            public void awaitNotifications( int count )
+                throws InterruptedException
+            {
+                long deadline = System.currentTimeMillis() + 10_000;
+                synchronized( batchSizes )
+                {
+                    while( batchSizes.size() < count && System.currentTimeMillis() < deadline )
+                    {
+                        batchSizes.wait( 100 );
+                    }
+                    assertThat( batchSizes.size(), equalTo( count ) );
+                }
+            }
+
+            @Override
+            public List<Integer> batchSizes()
+            {
+                synchronized( batchSizes )
+                {
+                    return new ArrayList<>( batchSizes );
+                }
+            }
+        }
+    }
+}
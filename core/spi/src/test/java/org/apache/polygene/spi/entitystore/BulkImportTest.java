@@ -0,0 +1,166 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.polygene.spi.entitystore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import org.apache.polygene.api.entity.EntityBuilder;
+import org.apache.polygene.api.identity.StringIdentity;
+import org.apache.polygene.api.mixin.Mixins;
+import org.apache.polygene.api.property.Property;
+import org.apache.polygene.api.service.ServiceComposite;
+import org.apache.polygene.api.unitofwork.UnitOfWork;
+import org.apache.polygene.bootstrap.ModuleAssembly;
+import org.apache.polygene.spi.entity.EntityState;
+import org.apache.polygene.test.AbstractPolygeneTest;
+import org.apache.polygene.test.EntityTestAssembler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+
+public class BulkImportTest extends AbstractPolygeneTest
+{
+    private static final int COUNT = 5;
+
+    private List<String> exported;
+
+    @Override
+    public void assemble( ModuleAssembly module )
+    {
+        new EntityTestAssembler().assemble( module );
+        module.entities( Thing.class );
+        module.services( RecordingListenerService.class );
+    }
+
+    @BeforeEach
+    public void exportAndRemoveThings()
+        throws Exception
+    {
+        try( UnitOfWork uow = unitOfWorkFactory.newUnitOfWork() )
+        {
+            for( int idx = 0; idx < COUNT; idx++ )
+            {
+                EntityBuilder<Thing> builder = uow.newEntityBuilder( Thing.class,
+                                                                     StringIdentity.identityOf( "thing-" + idx ) );
+                builder.instance().name().set( "Thing " + idx );
+                builder.newInstance();
+            }
+            uow.complete();
+        }
+        try( Stream<String> backup = serviceFinder.findService( BackupRestore.class ).get().backup() )
+        {
+            exported = backup.collect( toList() );
+        }
+        try( UnitOfWork uow = unitOfWorkFactory.newUnitOfWork() )
+        {
+            for( int idx = 0; idx < COUNT; idx++ )
+            {
+                uow.remove( uow.get( Thing.class, StringIdentity.identityOf( "thing-" + idx ) ) );
+            }
+            uow.complete();
+        }
+        serviceFinder.findService( RecordingListenerService.class ).get().clear();
+    }
+
+    @Test
+    public void givenExportedStatesWhenBulkImportingThenEntitiesAreLoadable()
+        throws Exception
+    {
+        BulkImport bulkImport = serviceFinder.findService( BulkImport.class ).get();
+
+        long imported = bulkImport.bulkImport( module, exported.stream(),
+                                               new BulkImportSettings().withBatchSize( 2 ) );
+
+        assertThat( imported, equalTo( (long) COUNT ) );
+        try( UnitOfWork uow = unitOfWorkFactory.newUnitOfWork() )
+        {
+            for( int idx = 0; idx < COUNT; idx++ )
+            {
+                Thing thing = uow.get( Thing.class, StringIdentity.identityOf( "thing-" + idx ) );
+                assertThat( thing.name().get(), equalTo( "Thing " + idx ) );
+            }
+        }
+        assertThat( serviceFinder.findService( RecordingListenerService.class ).get().batchSizes(), empty() );
+    }
+
+    @Test
+    public void givenReindexWhenBulkImportingThenListenersAreNotifiedPerBatch()
+    {
+        BulkImport bulkImport = serviceFinder.findService( BulkImport.class ).get();
+
+        bulkImport.bulkImport( module, exported.stream(),
+                               new BulkImportSettings().withBatchSize( 2 ).withReindex( true ) );
+
+        assertThat( serviceFinder.findService( RecordingListenerService.class ).get().batchSizes(),
+                    contains( 2, 2, 1 ) );
+    }
+
+    public interface Thing
+    {
+        Property<String> name();
+    }
+
+    public interface RecordingListener
+        extends StateChangeListener
+    {
+        void clear();
+
+        List<Integer> batchSizes();
+    }
+
+    @Mixins( RecordingListenerService.RecordingListenerMixin.class )
+    public interface RecordingListenerService
+        extends RecordingListener, ServiceComposite
+    {
+        class RecordingListenerMixin
+            implements RecordingListener
+        {
+            private final List<Integer> batchSizes = new ArrayList<>();
+
+            @Override
+            public synchronized void notifyChanges( Iterable<EntityState> changedStates )
+            {
+                int size = 0;
+                for( EntityState ignored : changedStates )
+                {
+                    size++;
+                }
+                batchSizes.add( size );
+            }
+
+            @Override
+            public synchronized void clear()
+            {
+                batchSizes.clear();
+            }
+
+            @Override
+            public synchronized List<Integer> batchSizes()
+            {
+                return new ArrayList<>( batchSizes );
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.polygene.spi.entitystore;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class StateCommitterTest
+{
+    @Test
+    public void givenSucceedingCommitWhenCommittingAsynchronouslyThenStageCompletesNormally()
+        throws Exception
+    {
+        RecordingCommitter committer = new RecordingCommitter( null );
+
+        CompletableFuture<Void> committed = committer.commitAsync().toCompletableFuture();
+
+        assertThat( committer.commits, is( 1 ) );
+        assertThat( committed.isDone(), is( true ) );
+        assertThat( committed.get(), nullValue() );
+    }
+
+    @Test
+    public void givenFailingCommitWhenCommittingAsynchronouslyThenStageCompletesExceptionally()
+    {
+        EntityStoreException failure = new EntityStoreException( "Store failure" );
+        RecordingCommitter committer = new RecordingCommitter( failure );
+
+        CompletableFuture<Void> committed = committer.commitAsync().toCompletableFuture();
+
+        assertThat( committer.commits, is( 1 ) );
+        assertThat( committed.isCompletedExceptionally(), is( true ) );
+        ExecutionException thrown = assertThrows( ExecutionException.class, committed::get );
+        assertThat( thrown.getCause(), sameInstance( failure ) );
+    }
+
+    private static class RecordingCommitter
+        implements StateCommitter
+    {
+        private final RuntimeException failure;
+        private int commits;
+
+        private RecordingCommitter( RuntimeException failure )
+        {
+            this.failure = failure;
+        }
+
+        @Override
+        public void commit()
+        {
+            commits++;
+            if( failure != null )
+            {
+                throw failure;
+            }
+        }
+
+        @Override
+        public void cancel()
+        {
+        }
+    }
+}
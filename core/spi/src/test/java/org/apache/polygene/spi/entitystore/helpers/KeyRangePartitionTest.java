@@ -0,0 +1,139 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.polygene.spi.entitystore.helpers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import org.apache.polygene.spi.entitystore.EntityStore;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class KeyRangePartitionTest
+{
+    @Test
+    public void givenOrderedKeysWhenSplittingThenPartitionsCoverAllKeysEvenly()
+    {
+        List<String> keys = new ArrayList<>();
+        for( int idx = 0; idx < 10007; idx++ )
+        {
+            keys.add( String.format( "key-%06d", idx ) );
+        }
+
+        List<String> partitions = KeyRangePartition.split( keys.iterator(), 8 );
+
+        assertThat( partitions.size(), equalTo( 8 ) );
+        int total = 0;
+        for( String partition : partitions )
+        {
+            KeyRangePartition range = KeyRangePartition.parse( partition );
+            int count = 0;
+            for( String key : keys )
+            {
+                if( ( range.after() == null || key.compareTo( range.after() ) > 0 )
+                    && ( range.upTo() == null || key.compareTo( range.upTo() ) <= 0 ) )
+                {
+                    count++;
+                }
+            }
+            assertThat( Math.abs( count - keys.size() / 8 ), lessThanOrEqualTo( keys.size() / 8 / 10 ) );
+            total += count;
+        }
+        assertThat( total, equalTo( keys.size() ) );
+    }
+
+    @Test
+    public void givenNoKeysWhenSplittingThenSinglePartition()
+    {
+        List<String> partitions = KeyRangePartition.split( Collections.emptyIterator(), 8 );
+
+        assertThat( partitions.size(), equalTo( 1 ) );
+        assertThat( KeyRangePartition.parse( partitions.get( 0 ) ).after(), nullValue() );
+        assertThat( KeyRangePartition.parse( partitions.get( 0 ) ).upTo(), nullValue() );
+    }
+
+    @Test
+    public void givenFewerKeysThanPartitionsWhenSplittingThenEachKeyIsInExactlyOnePartition()
+    {
+        List<String> keys = Arrays.asList( "a", "b", "c" );
+
+        List<String> partitions = KeyRangePartition.split( keys.iterator(), 8 );
+
+        assertThat( partitions.size(), lessThanOrEqualTo( keys.size() ) );
+        for( String key : keys )
+        {
+            long containing = partitions.stream()
+                                        .map( KeyRangePartition::parse )
+                                        .filter( range -> ( range.after() == null || key.compareTo( range.after() ) > 0 )
+                                                          && ( range.upTo() == null || key.compareTo( range.upTo() ) <= 0 ) )
+                                        .count();
+            assertThat( key, containing, equalTo( 1L ) );
+        }
+    }
+
+    @Test
+    public void givenSinglePartitionRequestedWhenSplittingThenKeysAreNotIterated()
+    {
+        Iterator<String> keys = Collections.<String>emptyList().iterator();
+
+        List<String> partitions = KeyRangePartition.split( new Iterator<String>()
+        {
+            @Override
+            public boolean hasNext()
+            {
+                throw new AssertionError( "Keys iterated" );
+            }
+
+            @Override
+            public String next()
+            {
+                return keys.next();
+            }
+        }, 1 );
+
+        assertThat( partitions.size(), equalTo( 1 ) );
+    }
+
+    @Test
+    public void givenInvalidPartitionWhenParsingThenIllegalArgumentException()
+    {
+        assertThrows( IllegalArgumentException.class, () -> KeyRangePartition.parse( "no-separator" ) );
+        assertThrows( IllegalArgumentException.class, () -> KeyRangePartition.parse( "x:abc" ) );
+        assertThrows( IllegalArgumentException.class, () -> KeyRangePartition.parse( "10:abc" ) );
+        assertThrows( IllegalArgumentException.class, () -> KeyRangePartition.parse( EntityStore.WHOLE_STORE_PARTITION ) );
+    }
+
+    @Test
+    public void givenBoundsWithSeparatorsWhenEncodingThenParsedBack()
+    {
+        KeyRangePartition partition = KeyRangePartition.parse( new KeyRangePartition( "a:1", "b:2" ).toString() );
+
+        assertThat( partition.after(), equalTo( "a:1" ) );
+        assertThat( partition.upTo(), equalTo( "b:2" ) );
+        assertThat( partition.resumeAfter( "a:5" ).after(), equalTo( "a:5" ) );
+        assertThat( partition.resumeAfter( "a:5" ).upTo(), equalTo( "b:2" ) );
+    }
+}
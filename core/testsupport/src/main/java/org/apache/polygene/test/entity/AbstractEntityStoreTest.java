@@ -28,9 +28,13 @@ import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.Period;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Stream;
 import org.apache.polygene.api.association.Association;
 import org.apache.polygene.api.association.ManyAssociation;
@@ -39,31 +43,43 @@ import org.apache.polygene.api.common.Optional;
 import org.apache.polygene.api.common.UseDefaults;
 import org.apache.polygene.api.entity.EntityBuilder;
 import org.apache.polygene.api.entity.EntityComposite;
+import org.apache.polygene.api.entity.EntityReference;
 import org.apache.polygene.api.identity.Identity;
+import org.apache.polygene.api.identity.StringIdentity;
 import org.apache.polygene.api.injection.scope.Service;
 import org.apache.polygene.api.injection.scope.Structure;
 import org.apache.polygene.api.property.Property;
+import org.apache.polygene.api.service.ServiceReference;
 import org.apache.polygene.api.structure.Module;
 import org.apache.polygene.api.unitofwork.ConcurrentEntityModificationException;
 import org.apache.polygene.api.unitofwork.NoSuchEntityException;
 import org.apache.polygene.api.unitofwork.UnitOfWork;
 import org.apache.polygene.api.unitofwork.UnitOfWorkCompletionException;
+import org.apache.polygene.api.usecase.Usecase;
 import org.apache.polygene.api.value.ValueBuilder;
 import org.apache.polygene.api.value.ValueComposite;
 import org.apache.polygene.bootstrap.ModuleAssembly;
 import org.apache.polygene.spi.entity.EntityState;
+import org.apache.polygene.spi.entitystore.BackupRestore;
+import org.apache.polygene.spi.entitystore.BulkImport;
+import org.apache.polygene.spi.entitystore.BulkImportSettings;
 import org.apache.polygene.spi.entitystore.EntityStore;
+import org.apache.polygene.spi.entitystore.EntityStoreUnitOfWork;
 import org.apache.polygene.test.AbstractPolygeneTest;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 
 import static java.time.ZoneOffset.UTC;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.jupiter.api.Assertions.fail;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 /**
  * Abstract satisfiedBy with tests for the EntityStore interface.
@@ -327,6 +343,89 @@ public abstract class AbstractEntityStoreTest
         }
     }
 
+    @Test
+    public void whenGetAllEntitiesThenFindEntitiesInRequestedOrder()
+        throws Exception
+    {
+        List<Identity> identities = new ArrayList<>();
+        try( UnitOfWork unitOfWork = unitOfWorkFactory.newUnitOfWork() )
+        {
+            for( int idx = 0; idx < 3; idx++ )
+            {
+                TestEntity instance = createEntity( unitOfWork );
+                instance.intValue().set( idx );
+                identities.add( instance.identity().get() );
+            }
+            unitOfWork.complete();
+        }
+        Collections.reverse( identities );
+
+        try( UnitOfWork unitOfWork = unitOfWorkFactory.newUnitOfWork() )
+        {
+            List<TestEntity> instances = unitOfWork.getAll( TestEntity.class, identities );
+            assertThat( instances.size(), is( 3 ) );
+            for( int idx = 0; idx < 3; idx++ )
+            {
+                assertThat( instances.get( idx ).identity().get(), equalTo( identities.get( idx ) ) );
+                assertThat( instances.get( idx ).intValue().get(), is( 2 - idx ) );
+            }
+            assertThat( instances.get( 0 ).manyAssociation().toList(), equalTo( singletonList( instances.get( 0 ) ) ) );
+        }
+
+        try( UnitOfWork unitOfWork = unitOfWorkFactory.newUnitOfWork() )
+        {
+            List<Identity> withMissing = new ArrayList<>( identities );
+            withMissing.add( StringIdentity.identityOf( "missing" ) );
+            unitOfWork.getAll( TestEntity.class, withMissing );
+            fail( "Should not be able to find all entities" );
+        }
+        catch( NoSuchEntityException e )
+        {
+            // Ok!
+        }
+    }
+
+    @Test
+    public void givenManyAssociationWhenIteratingThenFindAllAssociatedEntities()
+        throws Exception
+    {
+        Identity identity;
+        try( UnitOfWork unitOfWork = unitOfWorkFactory.newUnitOfWork() )
+        {
+            TestEntity instance = createEntity( unitOfWork );
+            for( int idx = 0; idx < 5; idx++ )
+            {
+                TestEntity associated = createEntity( unitOfWork );
+                associated.intValue().set( idx );
+                instance.manyAssociation().add( associated );
+                instance.namedAssociation().put( "associated-" + idx, associated );
+            }
+            identity = instance.identity().get();
+            unitOfWork.complete();
+        }
+
+        try( UnitOfWork unitOfWork = unitOfWorkFactory.newUnitOfWork() )
+        {
+            TestEntity instance = unitOfWork.get( TestEntity.class, identity );
+            int idx = -1;
+            for( TestEntity associated : instance.manyAssociation() )
+            {
+                if( idx >= 0 )
+                {
+                    assertThat( associated.intValue().get(), is( idx ) );
+                }
+                idx++;
+            }
+            assertThat( idx, is( 5 ) );
+
+            Map<String, TestEntity> named = instance.namedAssociation().toMap();
+            for( idx = 0; idx < 5; idx++ )
+            {
+                assertThat( named.get( "associated-" + idx ).intValue().get(), is( idx ) );
+            }
+        }
+    }
+
     @Test
     public void givenEntityIsNotModifiedWhenUnitOfWorkCompletesThenDontStoreState()
         throws UnitOfWorkCompletionException
@@ -551,6 +650,146 @@ public abstract class AbstractEntityStoreTest
         }
     }
 
+    @Test
+    public void versionsSPI()
+        throws UnitOfWorkCompletionException
+    {
+        EntityStore entityStore = serviceFinder.findService( EntityStore.class ).get();
+
+        List<Identity> identities = new ArrayList<>();
+        try( UnitOfWork unitOfWork = unitOfWorkFactory.newUnitOfWork() )
+        {
+            identities.add( createEntity( unitOfWork ).identity().get() );
+            identities.add( createEntity( unitOfWork ).identity().get() );
+            unitOfWork.complete();
+        }
+        List<EntityReference> references = new ArrayList<>();
+        Map<EntityReference, String> expected = new HashMap<>();
+        try( UnitOfWork unitOfWork = unitOfWorkFactory.newUnitOfWork() )
+        {
+            for( Identity identity : identities )
+            {
+                TestEntity entity = unitOfWork.get( TestEntity.class, identity );
+                EntityReference reference = EntityReference.entityReferenceFor( entity );
+                references.add( reference );
+                expected.put( reference, spi.entityStateOf( entity ).version() );
+            }
+        }
+        references.add( EntityReference.parseEntityReference( "missing" ) );
+
+        EntityStoreUnitOfWork storeUnitOfWork = entityStore.newUnitOfWork( module, Usecase.DEFAULT, Instant.now() );
+        try
+        {
+            assertThat( storeUnitOfWork.versionsOf( references ), equalTo( expected ) );
+        }
+        finally
+        {
+            storeUnitOfWork.discard();
+        }
+    }
+
+    @Test
+    public void givenPartitionsWhenScanningThenEveryEntityIsScannedOnceAndScansCanBeResumed()
+        throws UnitOfWorkCompletionException
+    {
+        EntityStore entityStore = serviceFinder.findService( EntityStore.class ).get();
+        try( UnitOfWork unitOfWork = unitOfWorkFactory.newUnitOfWork() )
+        {
+            for( int idx = 0; idx < 40; idx++ )
+            {
+                createEntity( unitOfWork );
+            }
+            unitOfWork.complete();
+        }
+        Set<EntityReference> expected;
+        try( Stream<EntityState> states = entityStore.entityStates( module ) )
+        {
+            expected = states.map( EntityState::entityReference ).collect( toSet() );
+        }
+
+        List<EntityReference> scanned = new ArrayList<>();
+        for( String partition : entityStore.partitions( 4 ) )
+        {
+            List<EntityReference> partitionScan = scanPartition( entityStore, partition, null );
+            scanned.addAll( partitionScan );
+            if( EntityStore.WHOLE_STORE_PARTITION.equals( partition ) )
+            {
+                // Stores without partitions do not resume scans
+                continue;
+            }
+            for( int idx = 0; idx < partitionScan.size(); idx++ )
+            {
+                String after = partitionScan.get( idx ).identity().toString();
+                assertThat( scanPartition( entityStore, partition, after ),
+                            equalTo( partitionScan.subList( idx + 1, partitionScan.size() ) ) );
+            }
+        }
+
+        assertThat( scanned.size(), equalTo( expected.size() ) );
+        assertThat( new HashSet<>( scanned ), equalTo( expected ) );
+    }
+
+    private List<EntityReference> scanPartition( EntityStore entityStore, String partition, String after )
+    {
+        try( Stream<EntityState> states = entityStore.entityStates( module, partition, after ) )
+        {
+            return states.map( EntityState::entityReference ).collect( toList() );
+        }
+    }
+
+    @Test
+    public void givenBackupWhenBulkImportingThenEntitiesAreLoadable()
+        throws UnitOfWorkCompletionException
+    {
+        java.util.Optional<BulkImport> bulkImport = serviceFinder.findServices( BulkImport.class )
+                                                                 .map( ServiceReference::get )
+                                                                 .findFirst();
+        assumeTrue( bulkImport.isPresent(), "EntityStore does not support bulk import" );
+        BackupRestore backupRestore = serviceFinder.findService( BackupRestore.class ).get();
+
+        List<Identity> identities = new ArrayList<>();
+        try( UnitOfWork unitOfWork = unitOfWorkFactory.newUnitOfWork() )
+        {
+            for( int idx = 0; idx < 5; idx++ )
+            {
+                TestEntity entity = createEntity( unitOfWork );
+                entity.intValue().set( idx );
+                identities.add( entity.identity().get() );
+            }
+            unitOfWork.complete();
+        }
+        List<String> exported;
+        try( Stream<String> backup = backupRestore.backup() )
+        {
+            exported = backup.collect( toList() );
+        }
+        try( UnitOfWork unitOfWork = unitOfWorkFactory.newUnitOfWork() )
+        {
+            for( Identity identity : identities )
+            {
+                unitOfWork.remove( unitOfWork.get( TestEntity.class, identity ) );
+            }
+            unitOfWork.complete();
+        }
+
+        long imported = bulkImport.get().bulkImport( module, exported.stream(),
+                                                     new BulkImportSettings().withBatchSize( 2 ) );
+
+        assertThat( imported, equalTo( (long) identities.size() ) );
+        try( UnitOfWork unitOfWork = unitOfWorkFactory.newUnitOfWork() )
+        {
+            for( int idx = 0; idx < identities.size(); idx++ )
+            {
+                TestEntity entity = unitOfWork.get( TestEntity.class, identities.get( idx ) );
+                assertThat( entity.intValue().get(), equalTo( idx ) );
+                assertThat( entity.name().get(), equalTo( "Test" ) );
+                assertThat( entity.association().get(), equalTo( entity ) );
+                assertThat( entity.manyAssociation().get( 0 ), equalTo( entity ) );
+                assertThat( entity.namedAssociation().get( "foo" ), equalTo( entity ) );
+            }
+        }
+    }
+
     public interface TestEntity
         extends EntityComposite
     {
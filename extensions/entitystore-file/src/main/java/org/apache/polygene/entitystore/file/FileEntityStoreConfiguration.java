@@ -20,6 +20,7 @@
 package org.apache.polygene.entitystore.file;
 
 import org.apache.polygene.api.common.Optional;
+import org.apache.polygene.api.common.UseDefaults;
 import org.apache.polygene.api.property.Property;
 import org.apache.polygene.library.constraints.annotation.Range;
 
@@ -86,5 +87,53 @@ public interface FileEntityStoreConfiguration
     // START SNIPPET: config
     @Optional @Range(min=1, max=10000)
     Property<Integer> slices();
+    // END SNIPPET: config
+
+    /**
+     * Defines how changes are made durable when a UnitOfWork completes.
+     * <p>
+     * Entity states are always written to a temporary file first and then moved in place, so that a crash never
+     * leaves a partially written state behind. Defaults to {@link Durability#OS_BUFFERED}.
+     * </p>
+     *
+     * @return the durability mode of commits.
+     */
+    // START SNIPPET: config
+    @UseDefaults
+    Property<Durability> durability();
+    // END SNIPPET: config
+
+    /**
+     * Time window in milliseconds during which concurrent commits are grouped when using
+     * {@link Durability#GROUP_COMMIT}.
+     * <p>
+     * If not specified, the value of 5 will be used.
+     * </p>
+     *
+     * @return the group commit window in milliseconds.
+     */
+    // START SNIPPET: config
+    @Optional
+    Property<Long> groupCommitWindow();
+
+    enum Durability
+    {
+        /**
+         * Changes are handed to the operating system when a UnitOfWork completes, and reach the disk later.
+         * The last commits may be lost if the machine crashes.
+         * This is the default value.
+         */
+        OS_BUFFERED,
+        /**
+         * Changes are forced to the disk before a UnitOfWork completes.
+         */
+        FSYNC,
+        /**
+         * Changes are forced to the disk before a UnitOfWork completes, together with the changes of the UnitOfWorks
+         * completing concurrently within the {@link #groupCommitWindow()}, sharing the cost of forcing the slice
+         * directories.
+         */
+        GROUP_COMMIT
+    }
 }
 // END SNIPPET: config
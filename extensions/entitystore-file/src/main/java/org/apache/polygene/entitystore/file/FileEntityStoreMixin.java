@@ -26,9 +26,20 @@ import java.io.Reader;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.stream.Stream;
 import org.apache.polygene.api.common.Optional;
 import org.apache.polygene.api.configuration.Configuration;
@@ -45,6 +56,7 @@ import org.apache.polygene.spi.entitystore.EntityStoreException;
 import org.apache.polygene.spi.entitystore.helpers.MapEntityStore;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.apache.polygene.entitystore.file.FileEntityStoreConfiguration.Durability;
 
 /**
  * FileEntityStore implementation of MapEntityStore.
@@ -52,6 +64,8 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 public class FileEntityStoreMixin
     implements FileEntityStoreActivation, MapEntityStore, BackupRestore
 {
+    private static final long DEFAULT_GROUP_COMMIT_WINDOW = 5L;
+
     @Optional
     @Service
     FileConfiguration fileConfiguration;
@@ -66,6 +80,8 @@ public class FileEntityStoreMixin
     private File dataDirectory;
     private File tempDirectory;
     private int slices;
+    private Durability durability;
+    private GroupCommit<FileChange> groupCommit;
 
     @Override
     public void initialize()
@@ -115,6 +131,35 @@ public class FileEntityStoreMixin
             }
             writeIntegerToFile( slicesFile, slices );
         }
+        durability = config.get().durability().get();
+        if( durability == null )
+        {
+            durability = Durability.OS_BUFFERED;
+        }
+        if( durability == Durability.GROUP_COMMIT )
+        {
+            Long window = config.get().groupCommitWindow().get();
+            GroupCommit.Committer<FileChange> committer = new GroupCommit.Committer<FileChange>()
+            {
+                @Override
+                public void apply( List<FileChange> changes )
+                    throws IOException
+                {
+                    move( changes );
+                }
+
+                @Override
+                public void force( List<FileChange> changes )
+                {
+                    forceDirectories( changes );
+                }
+            };
+            groupCommit = new GroupCommit<>( committer, window == null ? DEFAULT_GROUP_COMMIT_WINDOW : window );
+        }
+        else
+        {
+            groupCommit = null;
+        }
     }
 
     private void writeIntegerToFile( File file, int value )
@@ -160,6 +205,7 @@ public class FileEntityStoreMixin
     public void applyChanges( MapChanges changes )
         throws Exception
     {
+        List<FileChange> fileChanges = new ArrayList<>();
         try
         {
             changes.visitMap( new MapChanger()
@@ -181,7 +227,7 @@ public class FileEntityStoreMixin
                             {
                                 throw new EntityAlreadyExistsException( ref );
                             }
-                            store( dataFile, state );
+                            fileChanges.add( prepare( dataFile, state ) );
                         }
                     };
                 }
@@ -199,7 +245,7 @@ public class FileEntityStoreMixin
                             super.close();
                             String state = this.toString();
                             File dataFile = getDataFile( mapChange.reference() );
-                            store( dataFile, state );
+                            fileChanges.add( prepare( dataFile, state ) );
                         }
                     };
                 }
@@ -213,10 +259,10 @@ public class FileEntityStoreMixin
                     {
                         throw new EntityNotFoundException( ref );
                     }
-                    //noinspection ResultOfMethodCallIgnored
-                    dataFile.delete();
+                    fileChanges.add( new FileChange( dataFile, null ) );
                 }
             } );
+            commit( fileChanges );
         }
         catch( RuntimeException e )
         {
@@ -229,6 +275,10 @@ public class FileEntityStoreMixin
                 throw new IOException( e );
             }
         }
+        finally
+        {
+            discard( fileChanges );
+        }
     }
 
     @Override
@@ -237,6 +287,36 @@ public class FileEntityStoreMixin
         return backup().map( StringReader::new );
     }
 
+    @Override
+    public List<String> partitions( int count )
+    {
+        // Slices are the natural partitions of this store
+        List<String> partitions = new ArrayList<>( slices );
+        for( int slice = 0; slice < slices; slice++ )
+        {
+            partitions.add( String.valueOf( slice ) );
+        }
+        return partitions;
+    }
+
+    @Override
+    public Stream<Reader> entityStates( String partition, @Optional String after )
+    {
+        File sliceDirectory = new File( dataDirectory, String.valueOf( Integer.parseInt( partition ) ) );
+        File[] files = sliceDirectory.listFiles( File::isFile );
+        if( files == null )
+        {
+            return Stream.of();
+        }
+        // Scan in file name order so that the scan can be resumed
+        String resumeAfter = after == null ? null : replaceInvalidChars( after ) + ".json";
+        return Arrays.stream( files )
+                     .filter( file -> resumeAfter == null || file.getName().compareTo( resumeAfter ) > 0 )
+                     .sorted( Comparator.comparing( File::getName ) )
+                     .map( this::uncheckedFetch )
+                     .map( StringReader::new );
+    }
+
     @Override
     public Stream<String> backup()
     {
@@ -361,12 +441,163 @@ public class FileEntityStoreMixin
     private void store( File dataFile, String state )
         throws IOException
     {
-        // Write to temporary file first
+        List<FileChange> fileChanges = Collections.singletonList( prepare( dataFile, state ) );
+        try
+        {
+            commit( fileChanges );
+        }
+        finally
+        {
+            discard( fileChanges );
+        }
+    }
+
+    /**
+     * Write the state to a temporary file, moved in place on commit.
+     */
+    private FileChange prepare( File dataFile, String state )
+        throws IOException
+    {
         Path tempFile = Files.createTempFile( tempDirectory.toPath(), storeId, "write" );
-        tempFile.toFile().deleteOnExit();
-        Files.write( tempFile, state.getBytes( UTF_8 ) );
+        byte[] bytes = state.getBytes( UTF_8 );
+        if( durability == Durability.OS_BUFFERED )
+        {
+            Files.write( tempFile, bytes );
+        }
+        else
+        {
+            try( FileChannel channel = FileChannel.open( tempFile, StandardOpenOption.WRITE ) )
+            {
+                ByteBuffer buffer = ByteBuffer.wrap( bytes );
+                while( buffer.hasRemaining() )
+                {
+                    channel.write( buffer );
+                }
+                // Content must reach the disk before the file is moved in place
+                channel.force( false );
+            }
+        }
+        return new FileChange( dataFile, tempFile );
+    }
+
+    private void commit( List<FileChange> fileChanges )
+        throws IOException
+    {
+        if( groupCommit != null )
+        {
+            groupCommit.commit( fileChanges );
+        }
+        else
+        {
+            apply( fileChanges );
+        }
+    }
+
+    private void apply( List<FileChange> fileChanges )
+        throws IOException
+    {
+        move( fileChanges );
+        forceDirectories( fileChanges );
+    }
+
+    private void move( List<FileChange> fileChanges )
+        throws IOException
+    {
+        for( FileChange change : fileChanges )
+        {
+            if( change.tempFile == null )
+            {
+                Files.deleteIfExists( change.dataFile.toPath() );
+            }
+            else
+            {
+                move( change.tempFile, change.dataFile.toPath() );
+            }
+        }
+    }
+
+    /**
+     * Renames and deletions are durable once their directory is forced.
+     */
+    private void forceDirectories( List<FileChange> fileChanges )
+    {
+        if( durability != Durability.OS_BUFFERED )
+        {
+            Set<File> directories = new LinkedHashSet<>();
+            fileChanges.forEach( change -> directories.add( change.dataFile.getParentFile() ) );
+            directories.forEach( directory -> forceDirectory( directory.toPath() ) );
+        }
+    }
+
+    private void move( Path tempFile, Path dataFile )
+        throws IOException
+    {
+        try
+        {
+            Files.move( tempFile, dataFile, StandardCopyOption.ATOMIC_MOVE );
+        }
+        catch( AtomicMoveNotSupportedException ex )
+        {
+            // Temporary directory on another file system, the file is copied
+            Files.move( tempFile, dataFile, StandardCopyOption.REPLACE_EXISTING );
+            if( durability != Durability.OS_BUFFERED )
+            {
+                force( dataFile, false );
+            }
+        }
+    }
+
+    private static void force( Path path, boolean metaData )
+        throws IOException
+    {
+        try( FileChannel channel = FileChannel.open( path, StandardOpenOption.READ ) )
+        {
+            channel.force( metaData );
+        }
+    }
+
+    private static void forceDirectory( Path directory )
+    {
+        try
+        {
+            force( directory, true );
+        }
+        catch( IOException ex )
+        {
+            // Some platforms do not allow forcing directories
+        }
+    }
 
-        // Replace old file
-        Files.move( tempFile, dataFile.toPath(), StandardCopyOption.REPLACE_EXISTING );
+    private static void discard( List<FileChange> fileChanges )
+    {
+        for( FileChange change : fileChanges )
+        {
+            if( change.tempFile != null )
+            {
+                try
+                {
+                    Files.deleteIfExists( change.tempFile );
+                }
+                catch( IOException ignored )
+                {
+                    // Left in the temporary directory
+                }
+            }
+        }
+    }
+
+    /**
+     * Change of an entity file, removal if there is no temporary file to move in place.
+     */
+    private static final class FileChange
+    {
+        private final File dataFile;
+        private final Path tempFile;
+
+        private FileChange( File dataFile, Path tempFile )
+        {
+            this.dataFile = dataFile;
+            this.tempFile = tempFile;
+        }
     }
 }
\ No newline at end of file
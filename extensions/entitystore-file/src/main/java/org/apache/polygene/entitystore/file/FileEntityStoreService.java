@@ -24,6 +24,7 @@ import org.apache.polygene.api.configuration.Configuration;
 import org.apache.polygene.api.mixin.Mixins;
 import org.apache.polygene.library.locking.LockingAbstractComposite;
 import org.apache.polygene.spi.entitystore.BackupRestore;
+import org.apache.polygene.spi.entitystore.BulkImport;
 import org.apache.polygene.spi.entitystore.ConcurrentModificationCheckConcern;
 import org.apache.polygene.spi.entitystore.EntityStateVersions;
 import org.apache.polygene.spi.entitystore.EntityStore;
@@ -45,6 +46,7 @@ public interface FileEntityStoreService
                 EntityStateVersions,
                 StateStore,
                 BackupRestore,
+                BulkImport,
                 LockingAbstractComposite,
                 Configuration
 {
@@ -0,0 +1,169 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.polygene.entitystore.file;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Groups the changes committed concurrently within a time window so that they are made durable together.
+ * <p>
+ * The first committer to arrive leads the group: it waits for the window to elapse, then applies the changes of each
+ * committer that arrived meanwhile and forces them to the disk once for the whole group, while they wait for their
+ * own outcome. A committer whose changes cannot be applied fails alone.
+ * </p>
+ *
+ * @param <T> Change type
+ */
+final class GroupCommit<T>
+{
+    interface Committer<T>
+    {
+        /**
+         * Apply the changes of a single committer.
+         *
+         * @param changes Changes of the committer
+         * @throws IOException if the changes cannot be applied
+         */
+        void apply( List<T> changes ) throws IOException;
+
+        /**
+         * Make applied changes durable, called once per group.
+         *
+         * @param changes Changes applied by the committers of the group
+         * @throws IOException if the changes cannot be made durable
+         */
+        void force( List<T> changes ) throws IOException;
+    }
+
+    private final Committer<T> committer;
+    private final long windowNanos;
+    private final Object lock = new Object();
+    private List<Pending<T>> group = new ArrayList<>();
+    private boolean leading;
+
+    GroupCommit( Committer<T> committer, long windowMillis )
+    {
+        this.committer = committer;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos( windowMillis );
+    }
+
+    void commit( List<T> committed )
+        throws IOException
+    {
+        Pending<T> pending = new Pending<>( committed );
+        boolean leader;
+        synchronized( lock )
+        {
+            group.add( pending );
+            leader = !leading;
+            leading = true;
+        }
+        if( leader )
+        {
+            lead();
+        }
+        try
+        {
+            pending.outcome.get();
+        }
+        catch( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException( "Interrupted while waiting for group commit" );
+        }
+        catch( ExecutionException ex )
+        {
+            Throwable cause = ex.getCause();
+            if( cause instanceof IOException )
+            {
+                throw new IOException( cause.getMessage(), cause );
+            }
+            throw new IOException( cause );
+        }
+    }
+
+    private void lead()
+    {
+        long deadline = System.nanoTime() + windowNanos;
+        long remaining;
+        while( ( remaining = deadline - System.nanoTime() ) > 0 )
+        {
+            LockSupport.parkNanos( remaining );
+        }
+        List<Pending<T>> grouped;
+        synchronized( lock )
+        {
+            // Committers arriving from now on start the next group
+            grouped = group;
+            group = new ArrayList<>();
+            leading = false;
+        }
+        List<Pending<T>> applied = new ArrayList<>( grouped.size() );
+        try
+        {
+            List<T> appliedChanges = new ArrayList<>();
+            for( Pending<T> pending : grouped )
+            {
+                try
+                {
+                    committer.apply( pending.changes );
+                    applied.add( pending );
+                    appliedChanges.addAll( pending.changes );
+                }
+                catch( IOException | RuntimeException ex )
+                {
+                    pending.outcome.completeExceptionally( ex );
+                }
+            }
+            if( !applied.isEmpty() )
+            {
+                committer.force( appliedChanges );
+            }
+            applied.forEach( pending -> pending.outcome.complete( null ) );
+        }
+        catch( IOException | RuntimeException ex )
+        {
+            applied.forEach( pending -> pending.outcome.completeExceptionally( ex ) );
+        }
+        finally
+        {
+            // Never leave a committer waiting, e.g. when an Error is thrown, completed outcomes are left unchanged
+            IOException aborted = new IOException( "Group commit aborted" );
+            grouped.forEach( pending -> pending.outcome.completeExceptionally( aborted ) );
+        }
+    }
+
+    private static final class Pending<T>
+    {
+        private final List<T> changes;
+        private final CompletableFuture<Void> outcome = new CompletableFuture<>();
+
+        private Pending( List<T> changes )
+        {
+            this.changes = changes;
+        }
+    }
+}
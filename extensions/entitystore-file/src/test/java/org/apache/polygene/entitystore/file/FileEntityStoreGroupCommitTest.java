@@ -0,0 +1,105 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.polygene.entitystore.file;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.apache.polygene.api.common.Visibility;
+import org.apache.polygene.api.identity.Identity;
+import org.apache.polygene.api.unitofwork.UnitOfWork;
+import org.apache.polygene.bootstrap.ModuleAssembly;
+import org.apache.polygene.entitystore.file.assembly.FileEntityStoreAssembler;
+import org.apache.polygene.library.fileconfig.FileConfigurationAssembler;
+import org.apache.polygene.library.fileconfig.FileConfigurationOverride;
+import org.apache.polygene.test.EntityTestAssembler;
+import org.apache.polygene.test.TemporaryFolder;
+import org.apache.polygene.test.entity.AbstractEntityStoreTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+@ExtendWith( TemporaryFolder.class )
+public class FileEntityStoreGroupCommitTest
+    extends AbstractEntityStoreTest
+{
+    private TemporaryFolder tmpDir;
+
+    @Override
+    public void assemble( ModuleAssembly module )
+        throws Exception
+    {
+        new FileConfigurationAssembler()
+            .withOverride( new FileConfigurationOverride().withConventionalRoot( tmpDir.getRoot() ) )
+            .assemble( module );
+        ModuleAssembly config = module.layer().module( "config" );
+        new EntityTestAssembler().defaultServicesVisibleIn( Visibility.layer ).assemble( config );
+        new FileEntityStoreAssembler().withConfig( config, Visibility.layer ).assemble( module );
+        FileEntityStoreConfiguration defaults = config.forMixin( FileEntityStoreConfiguration.class )
+                                                      .declareDefaults();
+        defaults.durability().set( FileEntityStoreConfiguration.Durability.GROUP_COMMIT );
+        defaults.groupCommitWindow().set( 10L );
+        super.assemble( module );
+    }
+
+    @Test
+    public void givenConcurrentUnitOfWorksWhenCompletingThenAllEntitiesAreStored()
+        throws Exception
+    {
+        int threadCount = 8;
+        CountDownLatch start = new CountDownLatch( 1 );
+        ExecutorService executor = Executors.newFixedThreadPool( threadCount );
+        try
+        {
+            List<Future<Identity>> created = new ArrayList<>();
+            for( int idx = 0; idx < threadCount; idx++ )
+            {
+                created.add( executor.submit( () ->
+                                              {
+                                                  start.await();
+                                                  try( UnitOfWork unitOfWork = unitOfWorkFactory.newUnitOfWork() )
+                                                  {
+                                                      Identity identity = createEntity( unitOfWork ).identity().get();
+                                                      unitOfWork.complete();
+                                                      return identity;
+                                                  }
+                                              } ) );
+            }
+            start.countDown();
+            try( UnitOfWork unitOfWork = unitOfWorkFactory.newUnitOfWork() )
+            {
+                for( Future<Identity> identity : created )
+                {
+                    TestEntity entity = unitOfWork.get( TestEntity.class, identity.get( 30, TimeUnit.SECONDS ) );
+                    assertThat( entity.name().get(), equalTo( "Test" ) );
+                }
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+}
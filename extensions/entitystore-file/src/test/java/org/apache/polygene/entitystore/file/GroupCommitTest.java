@@ -0,0 +1,138 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package org.apache.polygene.entitystore.file;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+public class GroupCommitTest
+{
+    private static final int COMMITTERS = 8;
+
+    @Test
+    public void givenConcurrentCommittersWhenOneFailsThenOnlyItFailsAndOthersAreForcedTogether()
+        throws InterruptedException
+    {
+        RecordingCommitter committer = new RecordingCommitter();
+        GroupCommit<String> groupCommit = new GroupCommit<>( committer, 200 );
+
+        Map<String, Throwable> failures = commitConcurrently( groupCommit, "fail" );
+
+        assertThat( failures.keySet(), equalTo( Collections.singleton( "change-0" ) ) );
+        assertThat( failures.get( "change-0" ), instanceOf( IOException.class ) );
+        List<String> forced = new ArrayList<>();
+        committer.forced.forEach( forced::addAll );
+        assertThat( new HashSet<>( forced ), equalTo( new HashSet<>( committer.applied ) ) );
+        assertThat( forced.size(), equalTo( COMMITTERS - 1 ) );
+        assertThat( committer.forced.size(), lessThan( COMMITTERS - 1 ) );
+    }
+
+    @Test
+    public void givenErrorWhenApplyingThenNoCommitterIsLeftWaiting()
+        throws InterruptedException
+    {
+        RecordingCommitter committer = new RecordingCommitter();
+        GroupCommit<String> groupCommit = new GroupCommit<>( committer, 200 );
+
+        // Every committer returns, the one whose changes threw an Error does not succeed
+        Map<String, Throwable> failures = commitConcurrently( groupCommit, "error" );
+
+        assertThat( failures.containsKey( "change-0" ), is( true ) );
+    }
+
+    /**
+     * @return The failures, by change of the committer, once all the committers returned
+     */
+    private Map<String, Throwable> commitConcurrently( GroupCommit<String> groupCommit, String failure )
+        throws InterruptedException
+    {
+        Map<String, Throwable> failures = new ConcurrentHashMap<>();
+        CountDownLatch start = new CountDownLatch( 1 );
+        List<Thread> threads = new ArrayList<>();
+        for( int idx = 0; idx < COMMITTERS; idx++ )
+        {
+            String change = "change-" + idx;
+            List<String> changes = idx == 0 ? Collections.singletonList( failure ) : Collections.singletonList( change );
+            Thread thread = new Thread( () ->
+                                        {
+                                            try
+                                            {
+                                                start.await();
+                                                groupCommit.commit( changes );
+                                            }
+                                            catch( Throwable ex )
+                                            {
+                                                failures.put( change, ex );
+                                            }
+                                        } );
+            thread.start();
+            threads.add( thread );
+        }
+        start.countDown();
+        for( Thread thread : threads )
+        {
+            thread.join( TimeUnit.SECONDS.toMillis( 10 ) );
+            assertThat( thread.isAlive(), is( false ) );
+        }
+        return failures;
+    }
+
+    private static class RecordingCommitter
+        implements GroupCommit.Committer<String>
+    {
+        private final List<String> applied = Collections.synchronizedList( new ArrayList<>() );
+        private final List<List<String>> forced = Collections.synchronizedList( new ArrayList<>() );
+
+        @Override
+        public void apply( List<String> changes )
+            throws IOException
+        {
+            if( changes.contains( "fail" ) )
+            {
+                throw new IOException( "Unable to apply changes" );
+            }
+            if( changes.contains( "error" ) )
+            {
+                throw new AssertionError( "Error while applying changes" );
+            }
+            applied.addAll( changes );
+        }
+
+        @Override
+        public void force( List<String> changes )
+        {
+            forced.add( new ArrayList<>( changes ) );
+        }
+    }
+}
@@ -27,6 +27,11 @@ import java.io.StringWriter;
 import java.io.UncheckedIOException;
 import java.io.Writer;
 import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Properties;
 import java.util.Spliterator;
 import java.util.Spliterators;
@@ -61,14 +66,24 @@ import org.apache.polygene.library.locking.WriteLock;
 import org.apache.polygene.spi.entitystore.BackupRestore;
 import org.apache.polygene.spi.entitystore.EntityNotFoundException;
 import org.apache.polygene.spi.entitystore.EntityStoreException;
+import org.apache.polygene.spi.entitystore.helpers.KeyRangePartition;
 import org.apache.polygene.spi.entitystore.helpers.MapEntityStore;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 /**
  * JDBM implementation of MapEntityStore.
  */
 public class JdbmEntityStoreMixin
     implements JdbmEntityStoreActivation, MapEntityStore, BackupRestore
 {
+    /**
+     * Number of entities read at once under the read lock when scanning a partition.
+     */
+    private static final int SCAN_CHUNK_SIZE = 100;
+
+    private static final ByteArrayComparator KEY_COMPARATOR = new ByteArrayComparator();
+
     @Optional
     @Service
     FileConfiguration fileConfiguration;
@@ -222,6 +237,131 @@ public class JdbmEntityStoreMixin
         return backup().map( StringReader::new );
     }
 
+    @Override
+    public List<String> partitions( int count )
+    {
+        lock.readLock().lock();
+        try
+        {
+            TupleBrowser browser = index.browse();
+            Tuple tuple = new Tuple();
+            Iterator<String> keys = new Iterator<String>()
+            {
+                private Boolean hasNext;
+
+                @Override
+                public boolean hasNext()
+                {
+                    if( hasNext == null )
+                    {
+                        try
+                        {
+                            hasNext = browser.getNext( tuple );
+                        }
+                        catch( IOException ex )
+                        {
+                            throw new UncheckedIOException( ex );
+                        }
+                    }
+                    return hasNext;
+                }
+
+                @Override
+                public String next()
+                {
+                    if( !hasNext() )
+                    {
+                        throw new NoSuchElementException();
+                    }
+                    hasNext = null;
+                    return new String( (byte[]) tuple.getKey(), UTF_8 );
+                }
+            };
+            return KeyRangePartition.split( keys, count );
+        }
+        catch( IOException | UncheckedIOException ex )
+        {
+            throw new EntityStoreException( ex );
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Stream<Reader> entityStates( String partition, @Optional String after )
+    {
+        KeyRangePartition range = KeyRangePartition.parse( partition ).resumeAfter( after );
+        byte[] upTo = range.upTo() == null ? null : range.upTo().getBytes( UTF_8 );
+        return StreamSupport.stream(
+            new Spliterators.AbstractSpliterator<Reader>( Long.MAX_VALUE, Spliterator.ORDERED )
+            {
+                private final Deque<String> chunk = new ArrayDeque<>( SCAN_CHUNK_SIZE );
+                private byte[] last = range.after() == null ? null : range.after().getBytes( UTF_8 );
+                private boolean exhausted;
+
+                @Override
+                public boolean tryAdvance( Consumer<? super Reader> action )
+                {
+                    if( chunk.isEmpty() && !exhausted )
+                    {
+                        readChunk();
+                    }
+                    String state = chunk.poll();
+                    if( state == null )
+                    {
+                        return false;
+                    }
+                    action.accept( new StringReader( state ) );
+                    return true;
+                }
+
+                // Browse again from the last key for each chunk so that the lock is not held between chunks
+                private void readChunk()
+                {
+                    lock.readLock().lock();
+                    try
+                    {
+                        TupleBrowser browser = last == null ? index.browse() : index.browse( last );
+                        Tuple tuple = new Tuple();
+                        while( chunk.size() < SCAN_CHUNK_SIZE )
+                        {
+                            if( !browser.getNext( tuple ) )
+                            {
+                                exhausted = true;
+                                return;
+                            }
+                            byte[] key = (byte[]) tuple.getKey();
+                            if( last != null && KEY_COMPARATOR.compare( key, last ) <= 0 )
+                            {
+                                continue;
+                            }
+                            if( upTo != null && KEY_COMPARATOR.compare( key, upTo ) > 0 )
+                            {
+                                exhausted = true;
+                                return;
+                            }
+                            byte[] serializedState = (byte[]) recordManager.fetch( (Long) tuple.getValue(),
+                                                                                   serializer );
+                            chunk.add( new String( serializedState, UTF_8 ) );
+                            last = key;
+                        }
+                    }
+                    catch( IOException ex )
+                    {
+                        throw new EntityStoreException( ex );
+                    }
+                    finally
+                    {
+                        lock.readLock().unlock();
+                    }
+                }
+            },
+            false
+        );
+    }
+
     @Override
     public Stream<String> backup()
     {
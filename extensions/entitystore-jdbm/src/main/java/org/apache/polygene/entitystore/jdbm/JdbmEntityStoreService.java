@@ -26,6 +26,7 @@ import org.apache.polygene.library.locking.LockingAbstractComposite;
 import org.apache.polygene.library.locking.ReadLockConcern;
 import org.apache.polygene.library.locking.WriteLockConcern;
 import org.apache.polygene.spi.entitystore.BackupRestore;
+import org.apache.polygene.spi.entitystore.BulkImport;
 import org.apache.polygene.spi.entitystore.ConcurrentModificationCheckConcern;
 import org.apache.polygene.spi.entitystore.EntityStateVersions;
 import org.apache.polygene.spi.entitystore.EntityStore;
@@ -47,6 +48,7 @@ public interface JdbmEntityStoreService
             EntityStateVersions,
             StateStore,
             BackupRestore,
+            BulkImport,
             LockingAbstractComposite,
             Configuration<JdbmEntityStoreConfiguration>
 {
@@ -26,11 +26,19 @@ import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
 import java.util.Spliterator;
 import java.util.Spliterators;
+import java.util.TreeMap;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
+import org.apache.polygene.api.common.Optional;
 import org.apache.polygene.api.configuration.Configuration;
 import org.apache.polygene.api.entity.EntityDescriptor;
 import org.apache.polygene.api.entity.EntityReference;
@@ -40,8 +48,11 @@ import org.apache.polygene.api.injection.scope.Uses;
 import org.apache.polygene.api.service.ServiceActivation;
 import org.apache.polygene.api.service.ServiceDescriptor;
 import org.apache.polygene.library.fileconfig.FileConfiguration;
+import org.apache.polygene.spi.entitystore.BackupRestore;
 import org.apache.polygene.spi.entitystore.EntityNotFoundException;
 import org.apache.polygene.spi.entitystore.EntityStoreException;
+import org.apache.polygene.spi.entitystore.helpers.JSONKeys;
+import org.apache.polygene.spi.entitystore.helpers.KeyRangePartition;
 import org.apache.polygene.spi.entitystore.helpers.MapEntityStore;
 import org.iq80.leveldb.CompressionType;
 import org.iq80.leveldb.DB;
@@ -54,8 +65,10 @@ import org.iq80.leveldb.WriteBatch;
  * LevelDB implementation of MapEntityStore.
  */
 public class LevelDBEntityStoreMixin
-    implements ServiceActivation, MapEntityStore
+    implements ServiceActivation, MapEntityStore, BackupRestore
 {
+    private static final int RESTORE_BATCH_SIZE = 1000;
+
 
     @Service
     private FileConfiguration fileConfig;
@@ -201,11 +214,154 @@ public class LevelDBEntityStoreMixin
         return new StringReader( jsonState );
     }
 
+    @Override
+    public Map<EntityReference, Reader> entityStatesOf( Iterable<EntityReference> entityReferences )
+        throws EntityStoreException
+    {
+        // Seek a single iterator through the keys in ascending order, all states are read from its snapshot
+        SortedMap<byte[], EntityReference> references = new TreeMap<>( LevelDBEntityStoreMixin::compareKeys );
+        entityReferences.forEach(
+            reference -> references.put( reference.identity().toString().getBytes( charset ), reference ) );
+        Map<EntityReference, Reader> states = new LinkedHashMap<>();
+        if( references.isEmpty() )
+        {
+            return states;
+        }
+        try( DBIterator iterator = db.iterator() )
+        {
+            for( Map.Entry<byte[], EntityReference> reference : references.entrySet() )
+            {
+                iterator.seek( reference.getKey() );
+                if( iterator.hasNext() )
+                {
+                    Map.Entry<byte[], byte[]> entry = iterator.peekNext();
+                    if( Arrays.equals( entry.getKey(), reference.getKey() ) )
+                    {
+                        states.put( reference.getValue(), new StringReader( new String( entry.getValue(), charset ) ) );
+                    }
+                }
+            }
+        }
+        catch( IOException ex )
+        {
+            throw new EntityStoreException( "Unable to close DB iterator" );
+        }
+        return states;
+    }
+
     @Override
     public Stream<Reader> entityStates()
+    {
+        return backup().map( StringReader::new );
+    }
+
+    @Override
+    public Stream<String> backup()
     {
         DBIterator iterator = db.iterator();
         iterator.seekToFirst();
+        return StreamSupport.stream(
+            new Spliterators.AbstractSpliterator<String>( Long.MAX_VALUE, Spliterator.ORDERED )
+            {
+                @Override
+                public boolean tryAdvance( final Consumer<? super String> action )
+                {
+                    if( !iterator.hasNext() )
+                    {
+                        return false;
+                    }
+                    action.accept( new String( iterator.next().getValue(), charset ) );
+                    return true;
+                }
+            },
+            false
+        ).onClose(
+            () ->
+            {
+                try
+                {
+                    iterator.close();
+                }
+                catch( IOException ex )
+                {
+                    throw new EntityStoreException( "Unable to close DB iterator" );
+                }
+            }
+        );
+    }
+
+    @Override
+    public void restore( Stream<String> states )
+    {
+        Iterator<String> iterator = states.iterator();
+        while( iterator.hasNext() )
+        {
+            try( WriteBatch writeBatch = db.createWriteBatch() )
+            {
+                for( int count = 0; count < RESTORE_BATCH_SIZE && iterator.hasNext(); count++ )
+                {
+                    String state = iterator.next();
+                    String identity = state.substring( ( "{\"" + JSONKeys.IDENTITY + "\":\"" ).length() );
+                    identity = identity.substring( 0, identity.indexOf( '"' ) );
+                    writeBatch.put( identity.getBytes( charset ), state.getBytes( charset ) );
+                }
+                db.write( writeBatch );
+            }
+            catch( IOException ex )
+            {
+                throw new EntityStoreException( "Unable to restore entity states", ex );
+            }
+        }
+    }
+
+    @Override
+    public List<String> partitions( int count )
+    {
+        try( DBIterator iterator = db.iterator() )
+        {
+            iterator.seekToFirst();
+            Iterator<String> keys = new Iterator<String>()
+            {
+                @Override
+                public boolean hasNext()
+                {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public String next()
+                {
+                    return new String( iterator.next().getKey(), charset );
+                }
+            };
+            return KeyRangePartition.split( keys, count );
+        }
+        catch( IOException ex )
+        {
+            throw new EntityStoreException( "Unable to close DB iterator" );
+        }
+    }
+
+    @Override
+    public Stream<Reader> entityStates( String partition, @Optional String after )
+    {
+        KeyRangePartition range = KeyRangePartition.parse( partition ).resumeAfter( after );
+        byte[] lowerBound = range.after() == null ? null : range.after().getBytes( charset );
+        byte[] upperBound = range.upTo() == null ? null : range.upTo().getBytes( charset );
+        DBIterator iterator = db.iterator();
+        if( lowerBound == null )
+        {
+            iterator.seekToFirst();
+        }
+        else
+        {
+            iterator.seek( lowerBound );
+            // Seek positions on the lower bound itself when present, it is excluded
+            if( iterator.hasNext() && Arrays.equals( iterator.peekNext().getKey(), lowerBound ) )
+            {
+                iterator.next();
+            }
+        }
         return StreamSupport.stream(
             new Spliterators.AbstractSpliterator<Reader>( Long.MAX_VALUE, Spliterator.ORDERED )
             {
@@ -216,7 +372,12 @@ public class LevelDBEntityStoreMixin
                     {
                         return false;
                     }
-                    action.accept( new StringReader( new String( iterator.next().getValue(), charset ) ) );
+                    Map.Entry<byte[], byte[]> entry = iterator.next();
+                    if( upperBound != null && compareKeys( entry.getKey(), upperBound ) > 0 )
+                    {
+                        return false;
+                    }
+                    action.accept( new StringReader( new String( entry.getValue(), charset ) ) );
                     return true;
                 }
             },
@@ -292,4 +453,21 @@ public class LevelDBEntityStoreMixin
             db.write( writeBatch );
         }
     }
+
+    /**
+     * Unsigned lexicographic order, as used by the default LevelDB comparator.
+     */
+    private static int compareKeys( byte[] left, byte[] right )
+    {
+        int length = Math.min( left.length, right.length );
+        for( int idx = 0; idx < length; idx++ )
+        {
+            int diff = ( left[ idx ] & 0xff ) - ( right[ idx ] & 0xff );
+            if( diff != 0 )
+            {
+                return diff;
+            }
+        }
+        return left.length - right.length;
+    }
 }
@@ -24,6 +24,8 @@ import org.apache.polygene.api.configuration.Configuration;
 import org.apache.polygene.api.mixin.Mixins;
 import org.apache.polygene.api.service.ServiceActivation;
 import org.apache.polygene.library.locking.LockingAbstractComposite;
+import org.apache.polygene.spi.entitystore.BackupRestore;
+import org.apache.polygene.spi.entitystore.BulkImport;
 import org.apache.polygene.spi.entitystore.ConcurrentModificationCheckConcern;
 import org.apache.polygene.spi.entitystore.EntityStateVersions;
 import org.apache.polygene.spi.entitystore.EntityStore;
@@ -48,6 +50,8 @@ import org.apache.polygene.spi.entitystore.helpers.JSONMapEntityStoreMixin;
 public interface LevelDBEntityStoreService
     extends EntityStore,
             EntityStateVersions,
+            BackupRestore,
+            BulkImport,
             ServiceActivation,
             JSONMapEntityStoreActivation,
             LockingAbstractComposite,
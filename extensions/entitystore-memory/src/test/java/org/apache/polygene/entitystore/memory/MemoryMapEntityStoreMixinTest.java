@@ -0,0 +1,125 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.polygene.entitystore.memory;
+
+import java.io.Reader;
+import java.io.Writer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.apache.polygene.api.entity.EntityReference;
+import org.apache.polygene.spi.entitystore.EntityAlreadyExistsException;
+import org.apache.polygene.spi.entitystore.helpers.MapEntityStore;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MemoryMapEntityStoreMixinTest
+{
+    @Test
+    public void givenFailingChangeWhenApplyingChangesThenNoChangeIsApplied()
+        throws Exception
+    {
+        MemoryMapEntityStoreMixin store = new MemoryMapEntityStoreMixin();
+        EntityReference existing = EntityReference.parseEntityReference( "existing" );
+        EntityReference updated = EntityReference.parseEntityReference( "updated" );
+        store.applyChanges( changer ->
+                            {
+                                write( changer.newEntity( existing, null ), "{\"existing\":1}" );
+                                write( changer.newEntity( updated, null ), "{\"updated\":1}" );
+                            } );
+
+        EntityReference created = EntityReference.parseEntityReference( "created" );
+        assertThrows( EntityAlreadyExistsException.class, () -> store.applyChanges(
+            changer ->
+            {
+                write( changer.updateEntity( new MapEntityStore.MapChange( updated, null, "1", "2", null ) ),
+                       "{\"updated\":2}" );
+                write( changer.newEntity( created, null ), "{\"created\":1}" );
+                write( changer.newEntity( existing, null ), "{\"existing\":2}" );
+            } ) );
+
+        assertThat( store.contains( created, null ), is( false ) );
+        assertThat( read( store, updated ), is( "{\"updated\":1}" ) );
+        assertThat( read( store, existing ), is( "{\"existing\":1}" ) );
+        assertThat( store.backup().count(), is( 2L ) );
+    }
+
+    @Test
+    public void givenConcurrentWritesWhenScanningThenScanSeesWholeUnitsOfWork()
+        throws Exception
+    {
+        MemoryMapEntityStoreMixin store = new MemoryMapEntityStoreMixin();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try
+        {
+            Future<?> writes = executor.submit( () ->
+            {
+                for( int i = 0; i < 5000; i++ )
+                {
+                    EntityReference first = EntityReference.parseEntityReference( "first" + i );
+                    EntityReference second = EntityReference.parseEntityReference( "second" + i );
+                    store.applyChanges( changer ->
+                                        {
+                                            write( changer.newEntity( first, null ), "{}" );
+                                            write( changer.newEntity( second, null ), "{}" );
+                                        } );
+                }
+                return null;
+            } );
+            while( !writes.isDone() )
+            {
+                assertThat( store.backup().count() % 2, is( 0L ) );
+            }
+            writes.get();
+            assertThat( store.backup().count(), is( 10000L ) );
+        }
+        finally
+        {
+            executor.shutdownNow();
+            executor.awaitTermination( 10, TimeUnit.SECONDS );
+        }
+    }
+
+    private static void write( Writer writer, String state )
+        throws Exception
+    {
+        try( Writer out = writer )
+        {
+            out.write( state );
+        }
+    }
+
+    private static String read( MemoryMapEntityStoreMixin store, EntityReference reference )
+        throws Exception
+    {
+        StringBuilder state = new StringBuilder();
+        try( Reader reader = store.get( reference ) )
+        {
+            int ch;
+            while( ( ch = reader.read() ) != -1 )
+            {
+                state.append( (char) ch );
+            }
+        }
+        return state.toString();
+    }
+}
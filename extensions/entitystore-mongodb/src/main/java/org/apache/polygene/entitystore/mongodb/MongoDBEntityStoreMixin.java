@@ -38,7 +38,9 @@ import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 import org.apache.polygene.api.configuration.Configuration;
@@ -53,6 +55,7 @@ import org.bson.Document;
 import org.bson.conversions.Bson;
 
 import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.in;
 import static java.util.stream.Collectors.toList;
 
 /**
@@ -237,6 +240,32 @@ public class MongoDBEntityStoreMixin
         return new StringReader( jsonState );
     }
 
+    @Override
+    public Map<EntityReference, Reader> entityStatesOf( Iterable<EntityReference> entityReferences )
+        throws EntityStoreException
+    {
+        Map<String, EntityReference> references = new LinkedHashMap<>();
+        entityReferences.forEach( reference -> references.put( reference.identity().toString(), reference ) );
+        Map<EntityReference, Reader> states = new LinkedHashMap<>();
+        if( references.isEmpty() )
+        {
+            return states;
+        }
+        try( MongoCursor<Document> cursor = db.getCollection( collectionName )
+                                              .find( in( IDENTITY_COLUMN, references.keySet() ) )
+                                              .iterator() )
+        {
+            while( cursor.hasNext() )
+            {
+                Document entity = cursor.next();
+                Document bsonState = (Document) entity.get( STATE_COLUMN );
+                String jsonState = JSON.serialize( bsonState );
+                states.put( references.get( entity.getString( IDENTITY_COLUMN ) ), new StringReader( jsonState ) );
+            }
+        }
+        return states;
+    }
+
     @Override
     public void applyChanges( MapChanges changes )
         throws Exception
@@ -67,5 +67,23 @@ public interface RedisEntityStoreConfiguration
     @Optional
     Property<Integer> database();
 
+    /**
+     * Prefix of the keys of the entity states.
+     *
+     * Allows several stores to share a Redis database, full scans only visit the keys starting with this prefix.
+     * Defaulted to no prefix.
+     */
+    @Optional
+    Property<String> keyPrefix();
+
+    /**
+     * Count of keys fetched at a time by full scans.
+     *
+     * Used as the COUNT hint of SCAN, keys of each SCAN batch are fetched using a single MGET.
+     * Defaulted to 100.
+     */
+    @Optional
+    Property<Integer> scanBatchSize();
+
 }
 // END SNIPPET: config
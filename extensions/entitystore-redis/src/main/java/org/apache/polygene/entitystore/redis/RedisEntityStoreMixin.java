@@ -24,20 +24,41 @@ import java.io.Reader;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import org.apache.polygene.api.configuration.Configuration;
 import org.apache.polygene.api.entity.EntityDescriptor;
 import org.apache.polygene.api.entity.EntityReference;
 import org.apache.polygene.api.injection.scope.This;
+import org.apache.polygene.api.injection.scope.Uses;
 import org.apache.polygene.api.service.ServiceActivation;
+import org.apache.polygene.api.service.ServiceDescriptor;
+import org.apache.polygene.spi.entitystore.ConcurrentEntityStateModificationException;
 import org.apache.polygene.spi.entitystore.EntityAlreadyExistsException;
 import org.apache.polygene.spi.entitystore.EntityNotFoundException;
 import org.apache.polygene.spi.entitystore.EntityStoreException;
+import org.apache.polygene.spi.entitystore.helpers.JSONKeys;
 import org.apache.polygene.spi.entitystore.helpers.MapEntityStore;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
 import redis.clients.jedis.Protocol;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+import redis.clients.jedis.exceptions.JedisDataException;
 
 /**
  * Redis implementation of MapEntityStore.
@@ -47,9 +68,48 @@ public class RedisEntityStoreMixin
 {
     private static final String DEFAULT_HOST = "127.0.0.1";
     private static final String NIL = "nil";
+    private static final int DEFAULT_SCAN_BATCH_SIZE = 100;
+    private static final String NEW = "N";
+    private static final String UPDATE = "U";
+    private static final String REMOVE = "R";
+    /**
+     * KEYS are the changed entities, ARGV holds an operation and an expected version per key followed by the states
+     * of the new and updated entities in the same order.
+     */
+    private static final String APPLY_CHANGES_SCRIPT =
+        "local count = #KEYS\n"
+        + "for i = 1, count do\n"
+        + "  local operation = ARGV[2 * i - 1]\n"
+        + "  local expected = ARGV[2 * i]\n"
+        + "  local current = redis.call('GET', KEYS[i])\n"
+        + "  if operation == '" + NEW + "' then\n"
+        + "    if current then return { 'EXISTS', i } end\n"
+        + "  else\n"
+        + "    if not current or current == '" + NIL + "' then return { 'MISSING', i } end\n"
+        + "    if expected ~= '' and cjson.decode( current )['" + JSONKeys.VERSION + "'] ~= expected then\n"
+        + "      return { 'VERSION', i }\n"
+        + "    end\n"
+        + "  end\n"
+        + "end\n"
+        + "local state = 2 * count\n"
+        + "for i = 1, count do\n"
+        + "  if ARGV[2 * i - 1] == '" + REMOVE + "' then\n"
+        + "    redis.call('DEL', KEYS[i])\n"
+        + "  else\n"
+        + "    state = state + 1\n"
+        + "    redis.call('SET', KEYS[i], ARGV[state])\n"
+        + "  end\n"
+        + "end\n"
+        + "return { 'OK', 0 }\n";
     @This
     private Configuration<RedisEntityStoreConfiguration> configuration;
+    @Uses
+    private ServiceDescriptor descriptor;
     private JedisPool pool;
+    private ThreadPoolExecutor commitExecutor;
+    private String keyPrefix;
+    private ScanParams scanParams;
+    private String applyChangesSha;
 
     @Override
     public void activateService()
@@ -63,16 +123,49 @@ public class RedisEntityStoreMixin
         int timeout = config.timeout().get() == null ? Protocol.DEFAULT_TIMEOUT : config.timeout().get();
         String password = config.password().get();
         int database = config.database().get() == null ? Protocol.DEFAULT_DATABASE : config.database().get();
+        keyPrefix = config.keyPrefix().get() == null ? "" : config.keyPrefix().get();
+        int scanBatchSize = config.scanBatchSize().get() == null
+                            ? DEFAULT_SCAN_BATCH_SIZE
+                            : config.scanBatchSize().get();
+        scanParams = new ScanParams().match( escapeGlob( keyPrefix ) + "*" ).count( scanBatchSize );
 
-        pool = new JedisPool( new JedisPoolConfig(), host, port, timeout, password, database );
+        JedisPoolConfig poolConfig = new JedisPoolConfig();
+        pool = new JedisPool( poolConfig, host, port, timeout, password, database );
+        // At most one pending commit per pooled connection, idle threads go away
+        commitExecutor = new ThreadPoolExecutor( poolConfig.getMaxTotal(), poolConfig.getMaxTotal(),
+                                                 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                                                 runnable ->
+                                                 {
+                                                     Thread thread = new Thread( runnable,
+                                                                                 descriptor.identity() + "-commit" );
+                                                     thread.setDaemon( true );
+                                                     return thread;
+                                                 } );
+        commitExecutor.allowCoreThreadTimeOut( true );
+        try( Jedis jedis = pool.getResource() )
+        {
+            applyChangesSha = jedis.scriptLoad( APPLY_CHANGES_SCRIPT );
+        }
     }
 
     @Override
     public void passivateService()
         throws Exception
     {
-        pool.destroy();
-        pool = null;
+        try
+        {
+            // Let pending commits complete
+            commitExecutor.shutdown();
+            commitExecutor.awaitTermination( configuration.get().timeout().get() == null
+                                             ? Protocol.DEFAULT_TIMEOUT
+                                             : configuration.get().timeout().get(), TimeUnit.MILLISECONDS );
+        }
+        finally
+        {
+            commitExecutor = null;
+            pool.destroy();
+            pool = null;
+        }
     }
 
     @Override
@@ -87,7 +180,7 @@ public class RedisEntityStoreMixin
     {
         try( Jedis jedis = pool.getResource() )
         {
-            String jsonState = jedis.get( entityReference.identity().toString() );
+            String jsonState = jedis.get( key( entityReference ) );
             if( notFound( jsonState ) )
             {
                 throw new EntityNotFoundException( entityReference );
@@ -96,78 +189,258 @@ public class RedisEntityStoreMixin
         }
     }
 
+    @Override
+    public Map<EntityReference, Reader> entityStatesOf( Iterable<EntityReference> entityReferences )
+        throws EntityStoreException
+    {
+        List<EntityReference> references = new ArrayList<>();
+        entityReferences.forEach( references::add );
+        Map<EntityReference, Reader> states = new LinkedHashMap<>();
+        if( references.isEmpty() )
+        {
+            return states;
+        }
+        String[] keys = references.stream().map( this::key ).toArray( String[]::new );
+        try( Jedis jedis = pool.getResource() )
+        {
+            List<String> jsonStates = jedis.mget( keys );
+            for( int idx = 0; idx < keys.length; idx++ )
+            {
+                String jsonState = jsonStates.get( idx );
+                if( !notFound( jsonState ) )
+                {
+                    states.put( references.get( idx ), new StringReader( jsonState ) );
+                }
+            }
+        }
+        return states;
+    }
+
+    /**
+     * Apply the changes of a UnitOfWork atomically, in a single round-trip.
+     * <p>
+     * All the changes are sent to a Lua script that first checks that new entities do not exist, that updated and
+     * removed entities exist and that the version of updated entities did not change since they were loaded, then
+     * writes them all. Redis runs scripts atomically, no other client can interleave commands.
+     * </p>
+     */
     @Override
     public void applyChanges( MapChanges changes )
         throws Exception
     {
-        try( Jedis jedis = pool.getResource() )
+        ApplyChanges applyChanges = prepare( changes );
+        if( applyChanges != null )
+        {
+            applyChanges.run();
+        }
+    }
+
+    /**
+     * Apply the changes of a UnitOfWork as {@link #applyChanges(MapChanges)} does, without waiting for Redis.
+     * <p>
+     * The changes are read in the calling thread, the script is run on a pooled thread so that the round-trip
+     * overlaps with the commits of the other stores of the UnitOfWork.
+     * </p>
+     */
+    @Override
+    public CompletionStage<Void> applyChangesAsync( MapChanges changes )
+    {
+        ApplyChanges applyChanges;
+        try
+        {
+            applyChanges = prepare( changes );
+        }
+        catch( Exception ex )
+        {
+            CompletableFuture<Void> failed = new CompletableFuture<>();
+            failed.completeExceptionally( ex );
+            return failed;
+        }
+        if( applyChanges == null )
+        {
+            return CompletableFuture.completedFuture( null );
+        }
+        return CompletableFuture.runAsync( applyChanges, commitExecutor );
+    }
+
+    private ApplyChanges prepare( MapChanges changes )
+        throws Exception
+    {
+        List<EntityReference> references = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        List<String> operations = new ArrayList<>();
+        List<String> states = new ArrayList<>();
+        changes.visitMap( new MapChanger()
         {
-            changes.visitMap( new MapChanger()
+            @Override
+            public Writer newEntity( EntityReference ref, EntityDescriptor entityDescriptor )
             {
-                @Override
-                public Writer newEntity( EntityReference ref, EntityDescriptor entityDescriptor )
-                    throws IOException
+                return change( ref, NEW, "" );
+            }
+
+            @Override
+            public Writer updateEntity( MapChange mapChange )
+            {
+                String previousVersion = mapChange.previousVersion() == null ? "" : mapChange.previousVersion();
+                return change( mapChange.reference(), UPDATE, previousVersion );
+            }
+
+            @Override
+            public void removeEntity( EntityReference ref, EntityDescriptor entityDescriptor )
+            {
+                references.add( ref );
+                keys.add( key( ref ) );
+                operations.add( REMOVE );
+                operations.add( "" );
+            }
+
+            private Writer change( EntityReference ref, String operation, String previousVersion )
+            {
+                return new StringWriter( 1000 )
                 {
-                    return new StringWriter( 1000 )
+                    @Override
+                    public void close()
+                        throws IOException
                     {
-                        @Override
-                        public void close()
-                            throws IOException
-                        {
-                            super.close();
-                            String statusCode = jedis.set( ref.identity().toString(), toString(), "NX" );
-                            if( !"OK".equals( statusCode ) )
-                            {
-                                throw new EntityAlreadyExistsException( ref );
-                            }
-                        }
-                    };
-                }
+                        super.close();
+                        references.add( ref );
+                        keys.add( key( ref ) );
+                        operations.add( operation );
+                        operations.add( previousVersion );
+                        states.add( toString() );
+                    }
+                };
+            }
+        } );
+        if( keys.isEmpty() )
+        {
+            return null;
+        }
+        List<String> args = new ArrayList<>( operations.size() + states.size() );
+        args.addAll( operations );
+        args.addAll( states );
+        return new ApplyChanges( references, keys, args );
+    }
+
+    private Object evalApplyChanges( Jedis jedis, List<String> keys, List<String> args )
+    {
+        try
+        {
+            return jedis.evalsha( applyChangesSha, keys, args );
+        }
+        catch( JedisDataException ex )
+        {
+            if( ex.getMessage() == null || !ex.getMessage().startsWith( "NOSCRIPT" ) )
+            {
+                throw ex;
+            }
+            // Script cache flushed or server restarted, EVAL caches the script again
+            return jedis.eval( APPLY_CHANGES_SCRIPT, keys, args );
+        }
+    }
+
+    /**
+     * Incremental scan of the keys using SCAN cursors, the states of each batch of keys are fetched using MGET.
+     * <p>
+     * SCAN does not block the server but may return a key more than once, and may or may not return keys written
+     * while scanning.
+     * </p>
+     */
+    @Override
+    public Stream<Reader> entityStates()
+    {
+        Jedis jedis = pool.getResource();
+        return StreamSupport.stream(
+            new Spliterators.AbstractSpliterator<List<String>>( Long.MAX_VALUE, Spliterator.ORDERED )
+            {
+                private String cursor = ScanParams.SCAN_POINTER_START;
+                private boolean done;
 
                 @Override
-                public Writer updateEntity( MapChange mapChange )
-                    throws IOException
+                public boolean tryAdvance( Consumer<? super List<String>> action )
                 {
-                    return new StringWriter( 1000 )
+                    while( !done )
                     {
-                        @Override
-                        public void close()
-                            throws IOException
+                        ScanResult<String> batch = jedis.scan( cursor, scanParams );
+                        cursor = batch.getStringCursor();
+                        done = ScanParams.SCAN_POINTER_START.equals( cursor );
+                        List<String> keys = batch.getResult();
+                        if( !keys.isEmpty() )
                         {
-                            super.close();
-                            String statusCode = jedis.set( mapChange.reference().identity().toString(),
-                                                           toString(),
-                                                           "XX" );
-                            if( !"OK".equals( statusCode ) )
-                            {
-                                throw new EntityNotFoundException( mapChange.reference() );
-                            }
+                            action.accept( jedis.mget( keys.toArray( new String[ keys.size() ] ) ) );
+                            return true;
                         }
-                    };
+                    }
+                    return false;
                 }
+            },
+            false
+        ).flatMap( List::stream )
+         .filter( jsonState -> !notFound( jsonState ) )
+         .map( jsonState -> (Reader) new StringReader( jsonState ) )
+         .onClose( jedis::close );
+    }
 
-                @Override
-                public void removeEntity( EntityReference ref, EntityDescriptor entityDescriptor )
-                    throws EntityNotFoundException
+    /**
+     * Run of the apply changes script for the changes of a UnitOfWork.
+     */
+    private class ApplyChanges
+        implements Runnable
+    {
+        private final List<EntityReference> references;
+        private final List<String> keys;
+        private final List<String> args;
+
+        private ApplyChanges( List<EntityReference> references, List<String> keys, List<String> args )
+        {
+            this.references = references;
+            this.keys = keys;
+            this.args = args;
+        }
+
+        @Override
+        public void run()
+        {
+            List<?> result;
+            try( Jedis jedis = pool.getResource() )
+            {
+                result = (List<?>) evalApplyChanges( jedis, keys, args );
+            }
+            String outcome = String.valueOf( result.get( 0 ) );
+            if( !"OK".equals( outcome ) )
+            {
+                EntityReference reference = references.get( ( (Long) result.get( 1 ) ).intValue() - 1 );
+                switch( outcome )
                 {
-                    String jsonState = jedis.get( ref.identity().toString() );
-                    if( notFound( jsonState ) )
-                    {
-                        throw new EntityNotFoundException( ref );
-                    }
-                    jedis.del( ref.identity().toString() );
+                    case "EXISTS":
+                        throw new EntityAlreadyExistsException( reference );
+                    case "MISSING":
+                        throw new EntityNotFoundException( reference );
+                    default:
+                        throw new ConcurrentEntityStateModificationException(
+                            Collections.singletonList( reference ) );
                 }
-            } );
+            }
         }
     }
 
-    @Override
-    public Stream<Reader> entityStates()
+    private String key( EntityReference reference )
     {
-        Jedis jedis = pool.getResource();
-        return jedis.keys( "*" ).stream()
-                    .map( key -> (Reader) new StringReader( jedis.get( key ) ) )
-                    .onClose( jedis::close );
+        return keyPrefix + reference.identity().toString();
+    }
+
+    private static String escapeGlob( String prefix )
+    {
+        StringBuilder escaped = new StringBuilder( prefix.length() );
+        for( char ch : prefix.toCharArray() )
+        {
+            if( ch == '*' || ch == '?' || ch == '[' || ch == ']' || ch == '\\' )
+            {
+                escaped.append( '\\' );
+            }
+            escaped.append( ch );
+        }
+        return escaped.toString();
     }
 
     private static boolean notFound( String jsonState )
@@ -0,0 +1,117 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.polygene.entitystore.redis;
+
+import com.github.junit5docker.Docker;
+import com.github.junit5docker.Port;
+import java.util.stream.Stream;
+import org.apache.polygene.api.common.Visibility;
+import org.apache.polygene.api.unitofwork.UnitOfWork;
+import org.apache.polygene.bootstrap.ModuleAssembly;
+import org.apache.polygene.entitystore.redis.assembly.RedisEntityStoreAssembler;
+import org.apache.polygene.spi.entity.EntityState;
+import org.apache.polygene.spi.entitystore.EntityStore;
+import org.apache.polygene.test.EntityTestAssembler;
+import org.apache.polygene.test.entity.AbstractEntityStoreTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+@Docker( image = "redis:4.0.0-alpine",
+         ports = @Port( exposed = 8801, inner = 6379),
+         newForEachCase = false
+)
+public class RedisEntityStoreKeyPrefixTest
+    extends AbstractEntityStoreTest
+{
+    private static final String KEY_PREFIX = "polygene:[test]:";
+
+    @Override
+    public void assemble( ModuleAssembly module )
+        throws Exception
+    {
+        ModuleAssembly config = module.layer().module( "config" );
+        new EntityTestAssembler().defaultServicesVisibleIn( Visibility.layer ).assemble( config );
+        new RedisEntityStoreAssembler().withConfig( config, Visibility.layer ).assemble( module );
+        RedisEntityStoreConfiguration redisConfig = config.forMixin( RedisEntityStoreConfiguration.class )
+                                                          .declareDefaults();
+        redisConfig.host().set( "localhost" );
+        redisConfig.port().set( 8801 );
+        redisConfig.keyPrefix().set( KEY_PREFIX );
+        redisConfig.scanBatchSize().set( 7 );
+        super.assemble( module );
+    }
+
+    private JedisPool jedisPool;
+
+    @Override
+    @BeforeEach
+    public void setUp()
+        throws Exception
+    {
+        super.setUp();
+        RedisEntityStoreService es = serviceFinder.findService( RedisEntityStoreService.class ).get();
+        jedisPool = es.jedisPool();
+    }
+
+    @Override
+    @AfterEach
+    public void tearDown()
+    {
+        try( Jedis jedis = jedisPool.getResource() )
+        {
+            jedis.flushDB();
+        }
+        super.tearDown();
+    }
+
+    @Test
+    public void givenKeysOutsideOfPrefixWhenScanningThenOnlyEntitiesOfTheStoreAreReturned()
+        throws Exception
+    {
+        try( Jedis jedis = jedisPool.getResource() )
+        {
+            jedis.set( "polygene:other:entity", "{}" );
+            jedis.set( "polygene:t:entity", "{}" );
+        }
+        try( UnitOfWork unitOfWork = unitOfWorkFactory.newUnitOfWork() )
+        {
+            for( int idx = 0; idx < 50; idx++ )
+            {
+                createEntity( unitOfWork );
+            }
+            unitOfWork.complete();
+        }
+
+        EntityStore entityStore = serviceFinder.findService( EntityStore.class ).get();
+        try( Stream<EntityState> states = entityStore.entityStates( module ) )
+        {
+            assertThat( states.map( EntityState::entityReference ).distinct().count(), is( 50L ) );
+        }
+        try( Jedis jedis = jedisPool.getResource() )
+        {
+            assertThat( jedis.dbSize(), is( 52L ) );
+        }
+    }
+}
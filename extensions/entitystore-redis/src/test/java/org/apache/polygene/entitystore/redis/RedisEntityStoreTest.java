@@ -23,16 +23,24 @@ import com.github.junit5docker.Docker;
 import com.github.junit5docker.Port;
 import com.github.junit5docker.WaitFor;
 import org.apache.polygene.api.common.Visibility;
+import org.apache.polygene.api.identity.Identity;
+import org.apache.polygene.api.unitofwork.UnitOfWork;
 import org.apache.polygene.bootstrap.AssemblyException;
 import org.apache.polygene.bootstrap.ModuleAssembly;
 import org.apache.polygene.entitystore.redis.assembly.RedisEntityStoreAssembler;
+import org.apache.polygene.spi.entitystore.ConcurrentEntityStateModificationException;
 import org.apache.polygene.test.EntityTestAssembler;
 import org.apache.polygene.test.entity.AbstractEntityStoreTest;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
 @Docker( image = "redis:4.0.0-alpine",
          ports = @Port( exposed = 8801, inner = 6379),
          newForEachCase = false
@@ -82,4 +90,59 @@ public class RedisEntityStoreTest
         }
         super.tearDown();
     }
+
+    @Test
+    public void givenEntityChangedByAnotherClientWhenCompletingThenNoChangeIsWritten()
+        throws Exception
+    {
+        Identity identity;
+        try( UnitOfWork unitOfWork = unitOfWorkFactory.newUnitOfWork() )
+        {
+            identity = createEntity( unitOfWork ).identity().get();
+            unitOfWork.complete();
+        }
+
+        UnitOfWork unitOfWork = unitOfWorkFactory.newUnitOfWork();
+        try
+        {
+            TestEntity entity = unitOfWork.get( TestEntity.class, identity );
+            String version = spi.entityStateOf( entity ).version();
+            entity.name().set( "Changed" );
+            Identity created = createEntity( unitOfWork ).identity().get();
+
+            // Another client changes the entity after it was loaded
+            String otherState;
+            try( Jedis jedis = jedisPool.getResource() )
+            {
+                otherState = jedis.get( identity.toString() )
+                                  .replace( "\"version\":\"" + version + "\"", "\"version\":\"other\"" );
+                jedis.set( identity.toString(), otherState );
+            }
+
+            Exception failure = assertThrows( Exception.class, unitOfWork::complete );
+
+            assertThat( hasCause( failure, ConcurrentEntityStateModificationException.class ), is( true ) );
+            try( Jedis jedis = jedisPool.getResource() )
+            {
+                assertThat( jedis.get( identity.toString() ), is( otherState ) );
+                assertThat( jedis.exists( created.toString() ), is( false ) );
+            }
+        }
+        finally
+        {
+            unitOfWork.discard();
+        }
+    }
+
+    private static boolean hasCause( Throwable failure, Class<? extends Throwable> type )
+    {
+        for( Throwable cause = failure; cause != null; cause = cause.getCause() )
+        {
+            if( type.isInstance( cause ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
 }
@@ -0,0 +1,362 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.polygene.entitystore.segmentlog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Memory-mapped segment file of a {@link SegmentLog}.
+ * <p>
+ * A segment starts with a header, followed by records laid out as:
+ * </p>
+ * <pre><code>
+ * int crc | byte type | int keyLength | int valueLength | key | value
+ * </code></pre>
+ * <p>
+ * The CRC32 covers everything following it in the record. The unused end of a segment is zeroed, a zero type marks
+ * the end of the records.
+ * </p>
+ */
+final class Segment
+{
+    static final byte PUT = 1;
+    static final byte REMOVE = 2;
+    static final byte COMMIT = 3;
+
+    static final int HEADER_SIZE = 8;
+    private static final int MAGIC = 0x50534c47;
+    private static final int VERSION = 1;
+    private static final int RECORD_HEADER_SIZE = 13;
+
+    private final Path file;
+    private final long sequence;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final AtomicLong garbage = new AtomicLong();
+    private int position;
+    private volatile int committed;
+
+    private Segment( Path file, long sequence, FileChannel channel, int capacity )
+        throws IOException
+    {
+        this.file = file;
+        this.sequence = sequence;
+        this.channel = channel;
+        this.capacity = capacity;
+        this.buffer = channel.map( FileChannel.MapMode.READ_WRITE, 0, capacity );
+        this.position = HEADER_SIZE;
+        this.committed = HEADER_SIZE;
+    }
+
+    static Segment create( Path file, long sequence, int capacity )
+        throws IOException
+    {
+        FileChannel channel = FileChannel.open( file,
+                                                StandardOpenOption.CREATE_NEW,
+                                                StandardOpenOption.READ,
+                                                StandardOpenOption.WRITE );
+        Segment segment = new Segment( file, sequence, channel, capacity );
+        segment.writeHeader();
+        return segment;
+    }
+
+    static Segment open( Path file, long sequence )
+        throws IOException
+    {
+        FileChannel channel = FileChannel.open( file, StandardOpenOption.READ, StandardOpenOption.WRITE );
+        long size = channel.size();
+        if( size < HEADER_SIZE || size > Integer.MAX_VALUE )
+        {
+            channel.close();
+            throw new IOException( "Invalid segment size " + size + " for " + file );
+        }
+        Segment segment = new Segment( file, sequence, channel, (int) size );
+        int magic = segment.buffer.getInt( 0 );
+        int version = segment.buffer.getInt( 4 );
+        if( magic == 0 && version == 0 )
+        {
+            // Segment created right before a crash
+            segment.writeHeader();
+        }
+        else if( magic != MAGIC || version != VERSION )
+        {
+            channel.close();
+            throw new IOException( "Not a segment, or unsupported segment version: " + file );
+        }
+        return segment;
+    }
+
+    private void writeHeader()
+    {
+        buffer.putInt( 0, MAGIC );
+        buffer.putInt( 4, VERSION );
+    }
+
+    static byte[] record( byte type, String key, String value )
+    {
+        byte[] keyBytes = key.getBytes( UTF_8 );
+        byte[] valueBytes = value == null ? new byte[ 0 ] : value.getBytes( UTF_8 );
+        ByteBuffer record = ByteBuffer.allocate( RECORD_HEADER_SIZE + keyBytes.length + valueBytes.length );
+        record.position( 4 );
+        record.put( type ).putInt( keyBytes.length ).putInt( valueBytes.length ).put( keyBytes ).put( valueBytes );
+        CRC32 crc = new CRC32();
+        crc.update( record.array(), 4, record.capacity() - 4 );
+        record.putInt( 0, (int) crc.getValue() );
+        return record.array();
+    }
+
+    static int keyLength( byte[] record )
+    {
+        return ByteBuffer.wrap( record ).getInt( 5 );
+    }
+
+    Path file()
+    {
+        return file;
+    }
+
+    long sequence()
+    {
+        return sequence;
+    }
+
+    int remaining()
+    {
+        return capacity - position;
+    }
+
+    /**
+     * @return Position following the last committed record
+     */
+    int committed()
+    {
+        return committed;
+    }
+
+    /**
+     * @param length Size of records that became obsolete
+     */
+    void addGarbage( int length )
+    {
+        garbage.addAndGet( length );
+    }
+
+    double garbageRatio()
+    {
+        int used = committed - HEADER_SIZE;
+        return used == 0 ? 0D : (double) garbage.get() / used;
+    }
+
+    /**
+     * Append a record, only the log writer may append.
+     *
+     * @param record Encoded record
+     * @return Offset of the record
+     */
+    int append( byte[] record )
+    {
+        int offset = position;
+        ByteBuffer target = buffer.duplicate();
+        target.position( offset );
+        target.put( record );
+        position += record.length;
+        return offset;
+    }
+
+    /**
+     * Make the appended records visible to readers.
+     */
+    void commit()
+    {
+        committed = position;
+    }
+
+    /**
+     * Set the position following the last intact commit record found on recovery.
+     *
+     * @param end Position following the last commit record
+     */
+    void recovered( int end )
+    {
+        committed = end;
+        rollback();
+    }
+
+    /**
+     * Discard the records appended since the last commit, or found past it on recovery.
+     */
+    void rollback()
+    {
+        if( hasData( committed ) )
+        {
+            for( int offset = committed; offset < capacity; offset++ )
+            {
+                buffer.put( offset, (byte) 0 );
+            }
+        }
+        position = committed;
+    }
+
+    /**
+     * @param from Offset to look from
+     * @return true if any byte from the given offset is not zero
+     */
+    boolean hasData( int from )
+    {
+        // Pages of a torn write may have reached the disk in any order, look for any leftover
+        int offset = from;
+        while( offset + 8 <= capacity && buffer.getLong( offset ) == 0L )
+        {
+            offset += 8;
+        }
+        while( offset < capacity && buffer.get( offset ) == 0 )
+        {
+            offset++;
+        }
+        return offset < capacity;
+    }
+
+    /**
+     * Length of the record at the given offset.
+     *
+     * @param offset Offset of the record
+     * @param limit  Position the record must end before
+     * @return Length of the record, or -1 if there is no intact record at this offset
+     */
+    int recordLength( int offset, int limit )
+    {
+        if( offset + RECORD_HEADER_SIZE > limit || buffer.get( offset + 4 ) == 0 )
+        {
+            return -1;
+        }
+        int keyLength = buffer.getInt( offset + 5 );
+        int valueLength = buffer.getInt( offset + 9 );
+        if( keyLength < 0 || valueLength < 0
+            || (long) offset + RECORD_HEADER_SIZE + keyLength + valueLength > limit )
+        {
+            return -1;
+        }
+        int length = RECORD_HEADER_SIZE + keyLength + valueLength;
+        ByteBuffer covered = buffer.duplicate();
+        covered.position( offset + 4 ).limit( offset + length );
+        CRC32 crc = new CRC32();
+        crc.update( covered );
+        return buffer.getInt( offset ) == (int) crc.getValue() ? length : -1;
+    }
+
+    int capacity()
+    {
+        return capacity;
+    }
+
+    byte type( int offset )
+    {
+        return buffer.get( offset + 4 );
+    }
+
+    String key( int offset )
+    {
+        return string( offset + RECORD_HEADER_SIZE, buffer.getInt( offset + 5 ) );
+    }
+
+    String value( int offset )
+    {
+        int keyLength = buffer.getInt( offset + 5 );
+        return string( offset + RECORD_HEADER_SIZE + keyLength, buffer.getInt( offset + 9 ) );
+    }
+
+    private String string( int offset, int length )
+    {
+        byte[] bytes = new byte[ length ];
+        ByteBuffer source = buffer.duplicate();
+        source.position( offset );
+        source.get( bytes );
+        return new String( bytes, UTF_8 );
+    }
+
+    /**
+     * Make the appended records durable.
+     */
+    void force()
+    {
+        buffer.force();
+    }
+
+    /**
+     * Copy the records up to a committed position.
+     *
+     * @param target File to create
+     * @param length Committed position to copy up to
+     * @throws IOException on error
+     */
+    void copyTo( Path target, int length )
+        throws IOException
+    {
+        try( FileChannel source = FileChannel.open( file, StandardOpenOption.READ );
+             FileChannel copy = FileChannel.open( target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE ) )
+        {
+            long copied = 0;
+            while( copied < length )
+            {
+                copied += source.transferTo( copied, length - copied, copy );
+            }
+            copy.force( true );
+        }
+    }
+
+    void close()
+        throws IOException
+    {
+        channel.close();
+    }
+
+    /**
+     * Close and delete the segment file.
+     * <p>
+     * The mapping stays valid for ongoing reads until garbage collected. Some platforms do not allow deleting a
+     * mapped file.
+     * </p>
+     *
+     * @return true if the file was deleted
+     */
+    boolean delete()
+    {
+        try
+        {
+            channel.close();
+            Files.deleteIfExists( file );
+            return true;
+        }
+        catch( IOException ex )
+        {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,513 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.polygene.entitystore.segmentlog;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Append-only key/value log spread over memory-mapped {@link Segment}s.
+ * <p>
+ * Changes are appended in batches terminated by a commit record, a batch never spans two segments. On open, the
+ * segments are replayed in order and only batches whose commit record is intact are applied. The location of the
+ * live record of each key is kept in memory.
+ * </p>
+ * <p>
+ * Sealed segments whose ratio of obsolete records reaches a threshold are compacted by appending their live records
+ * to the active segment and deleting them.
+ * </p>
+ */
+class SegmentLog
+    implements Closeable
+{
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final boolean forceOnCommit;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ReentrantLock compactionLock = new ReentrantLock();
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<String, Location> index = new ConcurrentHashMap<>();
+    private volatile Segment active;
+
+    /**
+     * Open a log, replaying its segments.
+     *
+     * @param directory     Directory of the segment files, created if missing
+     * @param segmentSize   Size of new segments in bytes
+     * @param forceOnCommit Whether commits should wait for the changes to reach the disk
+     * @throws IOException on error
+     */
+    SegmentLog( Path directory, int segmentSize, boolean forceOnCommit )
+        throws IOException
+    {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.forceOnCommit = forceOnCommit;
+        Files.createDirectories( directory );
+        List<Path> files;
+        try( Stream<Path> list = Files.list( directory ) )
+        {
+            files = list.filter( SegmentLog::isSegmentFile ).collect( Collectors.toList() );
+        }
+        try
+        {
+            for( Path file : files )
+            {
+                long sequence = sequenceOf( file );
+                segments.put( sequence, Segment.open( file, sequence ) );
+            }
+            for( Segment segment : segments.values() )
+            {
+                replay( segment, segment.sequence() == segments.lastKey() );
+            }
+            active = segments.isEmpty() ? newSegment( 0L, segmentSize ) : segments.lastEntry().getValue();
+        }
+        catch( IOException | RuntimeException ex )
+        {
+            closeSegments();
+            throw ex;
+        }
+    }
+
+    private static boolean isSegmentFile( Path file )
+    {
+        String name = file.getFileName().toString();
+        return name.startsWith( SEGMENT_PREFIX ) && name.endsWith( SEGMENT_SUFFIX );
+    }
+
+    private static long sequenceOf( Path file )
+    {
+        String name = file.getFileName().toString();
+        return Long.parseLong( name.substring( SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length() ) );
+    }
+
+    private Path segmentFile( long sequence )
+    {
+        // Zero padded so that file names sort in log order
+        return directory.resolve( String.format( "%s%019d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX ) );
+    }
+
+    private Segment newSegment( long sequence, int capacity )
+        throws IOException
+    {
+        Segment segment = Segment.create( segmentFile( sequence ), sequence, capacity );
+        segments.put( sequence, segment );
+        return segment;
+    }
+
+    private void replay( Segment segment, boolean last )
+        throws IOException
+    {
+        List<Integer> pending = new ArrayList<>();
+        int offset = Segment.HEADER_SIZE;
+        int committed = offset;
+        int length;
+        while( ( length = segment.recordLength( offset, segment.capacity() ) ) > 0 )
+        {
+            if( segment.type( offset ) == Segment.COMMIT )
+            {
+                for( int recordOffset : pending )
+                {
+                    apply( segment, recordOffset, segment.recordLength( recordOffset, segment.capacity() ) );
+                }
+                segment.addGarbage( length );
+                pending.clear();
+                committed = offset + length;
+            }
+            else
+            {
+                pending.add( offset );
+            }
+            offset += length;
+        }
+        if( !last && segment.hasData( committed ) )
+        {
+            // Sealed segments are forced before the next one is created, only the last one may be torn
+            throw new IOException( "Corrupted segment " + segment.file() + " at offset " + committed );
+        }
+        segment.recovered( committed );
+    }
+
+    private void apply( Segment segment, int offset, int length )
+    {
+        String key = segment.key( offset );
+        Location previous;
+        if( segment.type( offset ) == Segment.PUT )
+        {
+            previous = index.put( key, new Location( segment, offset, length ) );
+        }
+        else
+        {
+            previous = index.remove( key );
+            segment.addGarbage( length );
+        }
+        if( previous != null )
+        {
+            previous.segment.addGarbage( previous.length );
+        }
+    }
+
+    /**
+     * @param key Key
+     * @return The value, or null if absent
+     */
+    String get( String key )
+    {
+        Location location = index.get( key );
+        return location == null ? null : location.segment.value( location.offset );
+    }
+
+    /**
+     * @return Count of live keys
+     */
+    int size()
+    {
+        return index.size();
+    }
+
+    /**
+     * Atomically apply a batch of changes.
+     *
+     * @param changes Values by key, null values remove the key
+     * @throws IOException on error
+     */
+    void write( Map<String, String> changes )
+        throws IOException
+    {
+        if( changes.isEmpty() )
+        {
+            return;
+        }
+        List<byte[]> records = new ArrayList<>( changes.size() );
+        long size = 0;
+        for( Map.Entry<String, String> change : changes.entrySet() )
+        {
+            byte type = change.getValue() == null ? Segment.REMOVE : Segment.PUT;
+            byte[] record = Segment.record( type, change.getKey(), change.getValue() );
+            records.add( record );
+            size += record.length;
+        }
+        byte[] commit = Segment.record( Segment.COMMIT, "", null );
+        size += commit.length;
+        if( size > Integer.MAX_VALUE - Segment.HEADER_SIZE )
+        {
+            throw new IOException( "Batch of " + size + " bytes is too large" );
+        }
+        writeLock.lock();
+        try
+        {
+            Segment segment = segmentFor( (int) size );
+            int[] offsets = new int[ records.size() ];
+            try
+            {
+                for( int idx = 0; idx < offsets.length; idx++ )
+                {
+                    offsets[ idx ] = segment.append( records.get( idx ) );
+                }
+                segment.append( commit );
+                if( forceOnCommit )
+                {
+                    segment.force();
+                }
+            }
+            catch( RuntimeException ex )
+            {
+                segment.rollback();
+                throw ex;
+            }
+            segment.commit();
+            int idx = 0;
+            for( byte[] record : records )
+            {
+                apply( segment, offsets[ idx++ ], record.length );
+            }
+            segment.addGarbage( commit.length );
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+    private Segment segmentFor( int size )
+        throws IOException
+    {
+        Segment segment = active;
+        if( segment.remaining() < size )
+        {
+            // Seal the active segment, a batch larger than the configured size gets a segment of its own
+            segment.force();
+            segment = newSegment( segment.sequence() + 1, Math.max( segmentSize, Segment.HEADER_SIZE + size ) );
+            active = segment;
+        }
+        return segment;
+    }
+
+    /**
+     * Live values in log order.
+     * <p>
+     * Changes committed while the stream is consumed may or may not be seen.
+     * </p>
+     *
+     * @return Live values
+     */
+    Stream<String> values()
+    {
+        return StreamSupport.stream(
+            new Spliterators.AbstractSpliterator<String>( Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL )
+            {
+                private Map.Entry<Long, Segment> current = segments.firstEntry();
+                private int offset = Segment.HEADER_SIZE;
+
+                @Override
+                public boolean tryAdvance( Consumer<? super String> action )
+                {
+                    while( current != null )
+                    {
+                        Segment segment = current.getValue();
+                        int length = segment.recordLength( offset, segment.committed() );
+                        if( length < 0 )
+                        {
+                            // Compacted records are appended to later segments
+                            current = segments.higherEntry( current.getKey() );
+                            offset = Segment.HEADER_SIZE;
+                            continue;
+                        }
+                        int recordOffset = offset;
+                        offset += length;
+                        if( segment.type( recordOffset ) == Segment.PUT )
+                        {
+                            Location location = index.get( segment.key( recordOffset ) );
+                            if( location != null && location.isAt( segment, recordOffset ) )
+                            {
+                                action.accept( segment.value( recordOffset ) );
+                                return true;
+                            }
+                        }
+                    }
+                    return false;
+                }
+            },
+            false
+        );
+    }
+
+    /**
+     * Compact the sealed segments whose ratio of obsolete records reached the threshold, oldest first.
+     *
+     * @param threshold Ratio of obsolete records
+     * @return Count of compacted segments
+     * @throws IOException on error
+     */
+    int compact( double threshold )
+        throws IOException
+    {
+        compactionLock.lock();
+        try
+        {
+            int compacted = 0;
+            for( Segment segment : new ArrayList<>( segments.values() ) )
+            {
+                if( segment != active && segment.garbageRatio() >= threshold )
+                {
+                    compact( segment );
+                    compacted++;
+                }
+            }
+            return compacted;
+        }
+        finally
+        {
+            compactionLock.unlock();
+        }
+    }
+
+    private void compact( Segment segment )
+        throws IOException
+    {
+        writeLock.lock();
+        try
+        {
+            // Removals must be kept while an older segment may hold a record of the removed key
+            boolean oldest = segments.firstKey() == segment.sequence();
+            Map<String, String> batch = new LinkedHashMap<>();
+            long batchSize = 0;
+            int offset = Segment.HEADER_SIZE;
+            int length;
+            while( ( length = segment.recordLength( offset, segment.committed() ) ) > 0 )
+            {
+                byte type = segment.type( offset );
+                if( type != Segment.COMMIT )
+                {
+                    String key = segment.key( offset );
+                    Location location = index.get( key );
+                    if( type == Segment.PUT && location != null && location.isAt( segment, offset ) )
+                    {
+                        batch.put( key, segment.value( offset ) );
+                        batchSize += length;
+                    }
+                    else if( type == Segment.REMOVE && !oldest && location == null )
+                    {
+                        batch.put( key, null );
+                        batchSize += length;
+                    }
+                }
+                if( batchSize >= segmentSize / 2 )
+                {
+                    write( batch );
+                    batch = new LinkedHashMap<>();
+                    batchSize = 0;
+                }
+                offset += length;
+            }
+            write( batch );
+            // Copies must be durable before the originals are deleted
+            active.force();
+            if( segment.delete() )
+            {
+                segments.remove( segment.sequence() );
+            }
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Copy the segments to a directory.
+     * <p>
+     * The copy is a consistent point in time state of the log, it can be opened as is. Writes are only blocked while
+     * taking the point in time snapshot, compaction is blocked while copying.
+     * </p>
+     *
+     * @param target Directory to copy the segments to, created if missing
+     * @throws IOException on error
+     */
+    void copyTo( Path target )
+        throws IOException
+    {
+        compactionLock.lock();
+        try
+        {
+            Files.createDirectories( target );
+            // Segments and their committed ends are read at once, commits and rollovers that follow are not copied
+            Map<Segment, Integer> snapshot = new LinkedHashMap<>();
+            writeLock.lock();
+            try
+            {
+                for( Segment segment : segments.values() )
+                {
+                    snapshot.put( segment, segment.committed() );
+                }
+            }
+            finally
+            {
+                writeLock.unlock();
+            }
+            for( Map.Entry<Segment, Integer> entry : snapshot.entrySet() )
+            {
+                Segment segment = entry.getKey();
+                segment.copyTo( target.resolve( segment.file().getFileName() ), entry.getValue() );
+            }
+        }
+        finally
+        {
+            compactionLock.unlock();
+        }
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        compactionLock.lock();
+        writeLock.lock();
+        try
+        {
+            active.force();
+            closeSegments();
+        }
+        finally
+        {
+            writeLock.unlock();
+            compactionLock.unlock();
+        }
+    }
+
+    private void closeSegments()
+        throws IOException
+    {
+        IOException failure = null;
+        for( Segment segment : segments.values() )
+        {
+            try
+            {
+                segment.close();
+            }
+            catch( IOException ex )
+            {
+                failure = ex;
+            }
+        }
+        segments.clear();
+        index.clear();
+        if( failure != null )
+        {
+            throw failure;
+        }
+    }
+
+    private static final class Location
+    {
+        private final Segment segment;
+        private final int offset;
+        private final int length;
+
+        private Location( Segment segment, int offset, int length )
+        {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        private boolean isAt( Segment segment, int offset )
+        {
+            return this.segment == segment && this.offset == offset;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.polygene.entitystore.segmentlog;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Backup of a segment log by copying its segment files.
+ */
+public interface SegmentLogBackup
+{
+    /**
+     * Copy the segment files to a directory.
+     * <p>
+     * The copy holds a consistent state of the store and can be used as the directory of a store as is. Writes are
+     * not blocked while copying, compaction is.
+     * </p>
+     *
+     * @param target Directory to copy the segment files to, created if missing
+     * @throws IOException on error
+     */
+    void copySegments( Path target ) throws IOException;
+}
@@ -0,0 +1,101 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.polygene.entitystore.segmentlog;
+
+import org.apache.polygene.api.common.Optional;
+import org.apache.polygene.api.property.Property;
+
+/**
+ * Configuration for the SegmentLogEntityStoreService.
+ */
+// START SNIPPET: config
+public interface SegmentLogEntityStoreConfiguration
+{
+    // END SNIPPET: config
+    /**
+     * The directory where the segment files are kept.
+     * <p>
+     * If not specified, the store identity is used as a directory name in the data directory of the
+     * FileConfiguration service if present, else in {@code System.getProperty( "user.dir" ) + "/polygene/segmentlog"}.
+     * </p>
+     * <p>
+     * The content inside this directory should not be modified directly, and doing so may corrupt the data.
+     * </p>
+     *
+     * @return path to the segments directory
+     */
+    // START SNIPPET: config
+    @Optional
+    Property<String> directory();
+    // END SNIPPET: config
+
+    /**
+     * Size of segment files in bytes, each segment is memory-mapped as a whole.
+     * <p>
+     * If not specified, segments of 64MB are used. Changes of a single UnitOfWork larger than this get a segment of
+     * their own.
+     * </p>
+     *
+     * @return the size of segments
+     */
+    // START SNIPPET: config
+    @Optional
+    Property<Integer> segmentSize();
+    // END SNIPPET: config
+
+    /**
+     * Whether each commit waits for the changes to reach the disk.
+     * <p>
+     * If not specified, commits are forced to disk. When disabled, the last commits may be lost if the machine
+     * crashes, but the log stays consistent.
+     * </p>
+     *
+     * @return whether commits are forced to disk
+     */
+    // START SNIPPET: config
+    @Optional
+    Property<Boolean> forceOnCommit();
+    // END SNIPPET: config
+
+    /**
+     * Ratio of obsolete records above which a segment is compacted.
+     * <p>
+     * If not specified, the value of 0.5 will be used.
+     * </p>
+     *
+     * @return the compaction threshold, between 0 and 1
+     */
+    // START SNIPPET: config
+    @Optional
+    Property<Double> compactionThreshold();
+    // END SNIPPET: config
+
+    /**
+     * Interval in seconds between compaction runs.
+     * <p>
+     * If not specified, the value of 60 will be used. Zero disables compaction.
+     * </p>
+     *
+     * @return the compaction interval
+     */
+    // START SNIPPET: config
+    @Optional
+    Property<Long> compactionInterval();
+}
+// END SNIPPET: config
@@ -0,0 +1,257 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.polygene.entitystore.segmentlog;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.apache.polygene.api.common.Optional;
+import org.apache.polygene.api.configuration.Configuration;
+import org.apache.polygene.api.entity.EntityDescriptor;
+import org.apache.polygene.api.entity.EntityReference;
+import org.apache.polygene.api.injection.scope.Service;
+import org.apache.polygene.api.injection.scope.This;
+import org.apache.polygene.api.injection.scope.Uses;
+import org.apache.polygene.api.service.ServiceActivation;
+import org.apache.polygene.api.service.ServiceDescriptor;
+import org.apache.polygene.library.fileconfig.FileConfiguration;
+import org.apache.polygene.spi.entitystore.BackupRestore;
+import org.apache.polygene.spi.entitystore.EntityNotFoundException;
+import org.apache.polygene.spi.entitystore.EntityStoreException;
+import org.apache.polygene.spi.entitystore.helpers.MapEntityStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Segment log implementation of MapEntityStore.
+ * <p>
+ * Each UnitOfWork is appended to the log as a single batch, entity states are read from the memory-mapped segments
+ * through an in-memory index.
+ * </p>
+ */
+public class SegmentLogEntityStoreMixin
+    implements ServiceActivation, MapEntityStore, BackupRestore, SegmentLogBackup
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger( SegmentLogEntityStoreMixin.class );
+    private static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final double DEFAULT_COMPACTION_THRESHOLD = 0.5D;
+    private static final long DEFAULT_COMPACTION_INTERVAL = 60L;
+    private static final int RESTORE_BATCH_SIZE = 1000;
+
+    @Optional
+    @Service
+    private FileConfiguration fileConfiguration;
+
+    @This
+    private Configuration<SegmentLogEntityStoreConfiguration> configuration;
+
+    @Uses
+    private ServiceDescriptor descriptor;
+
+    private SegmentLog log;
+    private ScheduledExecutorService compaction;
+
+    @Override
+    public void activateService()
+        throws Exception
+    {
+        configuration.refresh();
+        SegmentLogEntityStoreConfiguration config = configuration.get();
+        String storeId = descriptor.identity().toString();
+        String pathName = config.directory().get();
+        File directory;
+        if( pathName != null )
+        {
+            directory = new File( pathName );
+        }
+        else if( fileConfiguration != null )
+        {
+            directory = new File( fileConfiguration.dataDirectory(), storeId );
+        }
+        else
+        {
+            directory = new File( System.getProperty( "user.dir" ) + "/polygene/segmentlog/" + storeId );
+        }
+        Integer segmentSize = config.segmentSize().get();
+        Boolean forceOnCommit = config.forceOnCommit().get();
+        log = new SegmentLog( directory.getAbsoluteFile().toPath(),
+                              segmentSize == null ? DEFAULT_SEGMENT_SIZE : segmentSize,
+                              forceOnCommit == null || forceOnCommit );
+
+        Double threshold = config.compactionThreshold().get();
+        Long interval = config.compactionInterval().get();
+        long compactionInterval = interval == null ? DEFAULT_COMPACTION_INTERVAL : interval;
+        if( compactionInterval > 0 )
+        {
+            double compactionThreshold = threshold == null ? DEFAULT_COMPACTION_THRESHOLD : threshold;
+            compaction = Executors.newSingleThreadScheduledExecutor(
+                runnable ->
+                {
+                    Thread thread = new Thread( runnable, storeId + "-compaction" );
+                    thread.setDaemon( true );
+                    return thread;
+                } );
+            compaction.scheduleWithFixedDelay( () -> compact( compactionThreshold ),
+                                               compactionInterval, compactionInterval, TimeUnit.SECONDS );
+        }
+    }
+
+    private void compact( double threshold )
+    {
+        try
+        {
+            int compacted = log.compact( threshold );
+            if( compacted > 0 )
+            {
+                LOGGER.debug( "Compacted {} segments of {}", compacted, descriptor.identity() );
+            }
+        }
+        catch( Exception ex )
+        {
+            // Retried on the next run, the log is left consistent
+            LOGGER.warn( "Unable to compact segments of " + descriptor.identity(), ex );
+        }
+    }
+
+    @Override
+    public void passivateService()
+        throws Exception
+    {
+        try
+        {
+            if( compaction != null )
+            {
+                compaction.shutdownNow();
+                compaction.awaitTermination( 1, TimeUnit.MINUTES );
+            }
+            log.close();
+        }
+        finally
+        {
+            compaction = null;
+            log = null;
+        }
+    }
+
+    @Override
+    public Reader get( EntityReference entityReference )
+        throws EntityStoreException
+    {
+        String state = log.get( entityReference.identity().toString() );
+        if( state == null )
+        {
+            throw new EntityNotFoundException( entityReference );
+        }
+        return new StringReader( state );
+    }
+
+    @Override
+    public Stream<Reader> entityStates()
+    {
+        // Sequential scan of the segments
+        return log.values().map( StringReader::new );
+    }
+
+    @Override
+    public void applyChanges( MapChanges changes )
+        throws Exception
+    {
+        Map<String, String> batch = new LinkedHashMap<>();
+        changes.visitMap( new MapChanger()
+        {
+            @Override
+            public Writer newEntity( EntityReference ref, EntityDescriptor entityDescriptor )
+            {
+                return new StringWriter( 1000 )
+                {
+                    @Override
+                    public void close()
+                        throws IOException
+                    {
+                        super.close();
+                        batch.put( ref.identity().toString(), toString() );
+                    }
+                };
+            }
+
+            @Override
+            public Writer updateEntity( MapChange mapChange )
+            {
+                return newEntity( mapChange.reference(), mapChange.descriptor() );
+            }
+
+            @Override
+            public void removeEntity( EntityReference ref, EntityDescriptor entityDescriptor )
+            {
+                batch.put( ref.identity().toString(), null );
+            }
+        } );
+        log.write( batch );
+    }
+
+    @Override
+    public Stream<String> backup()
+    {
+        return log.values();
+    }
+
+    @Override
+    public void restore( Stream<String> states )
+    {
+        Map<String, String> batch = new LinkedHashMap<>();
+        Iterator<String> iterator = states.iterator();
+        try
+        {
+            while( iterator.hasNext() )
+            {
+                String state = iterator.next();
+                String id = state.substring( "{\"reference\":\"".length() );
+                id = id.substring( 0, id.indexOf( '"' ) );
+                batch.put( id, state );
+                if( batch.size() >= RESTORE_BATCH_SIZE || !iterator.hasNext() )
+                {
+                    log.write( batch );
+                    batch.clear();
+                }
+            }
+        }
+        catch( IOException ex )
+        {
+            throw new EntityStoreException( ex );
+        }
+    }
+
+    @Override
+    public void copySegments( Path target )
+        throws IOException
+    {
+        log.copyTo( target );
+    }
+}
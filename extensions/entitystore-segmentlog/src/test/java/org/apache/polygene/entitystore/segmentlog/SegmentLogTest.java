@@ -0,0 +1,270 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.polygene.entitystore.segmentlog;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.polygene.test.TemporaryFolder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+
+@ExtendWith( TemporaryFolder.class )
+public class SegmentLogTest
+{
+    private static final int SEGMENT_SIZE = 4096;
+
+    private TemporaryFolder tmpDir;
+
+    @Test
+    public void givenChangesWhenReopeningThenStateIsReplayed()
+        throws IOException
+    {
+        Path directory = tmpDir.getRoot().toPath();
+        Map<String, String> expected;
+        try( SegmentLog log = new SegmentLog( directory, SEGMENT_SIZE, true ) )
+        {
+            expected = writeChanges( log );
+            assertThat( segmentFiles( directory ).size(), greaterThan( 1 ) );
+        }
+
+        try( SegmentLog log = new SegmentLog( directory, SEGMENT_SIZE, true ) )
+        {
+            assertState( log, expected );
+        }
+    }
+
+    @Test
+    public void givenTornBatchWhenReopeningThenBatchIsDiscarded()
+        throws IOException
+    {
+        Path directory = tmpDir.getRoot().toPath();
+        Map<String, String> expected;
+        try( SegmentLog log = new SegmentLog( directory, SEGMENT_SIZE, true ) )
+        {
+            expected = writeChanges( log );
+            log.write( Collections.singletonMap( "torn", "lost" ) );
+        }
+        // Damage the last byte written, part of the commit record of the last batch
+        List<Path> segments = segmentFiles( directory );
+        Path last = segments.get( segments.size() - 1 );
+        byte[] bytes = Files.readAllBytes( last );
+        int end = bytes.length - 1;
+        while( bytes[ end ] == 0 )
+        {
+            end--;
+        }
+        try( RandomAccessFile file = new RandomAccessFile( last.toFile(), "rw" ) )
+        {
+            file.seek( end );
+            file.write( bytes[ end ] ^ 0xff );
+        }
+
+        try( SegmentLog log = new SegmentLog( directory, SEGMENT_SIZE, true ) )
+        {
+            assertThat( log.get( "torn" ), nullValue() );
+            assertState( log, expected );
+            log.write( Collections.singletonMap( "after", "recovery" ) );
+        }
+        try( SegmentLog log = new SegmentLog( directory, SEGMENT_SIZE, true ) )
+        {
+            assertThat( log.get( "after" ), equalTo( "recovery" ) );
+            assertThat( log.get( "torn" ), nullValue() );
+        }
+    }
+
+    @Test
+    public void givenObsoleteRecordsWhenCompactingThenSegmentsAreDeletedAndStateIsKept()
+        throws IOException
+    {
+        Path directory = tmpDir.getRoot().toPath();
+        Map<String, String> expected;
+        try( SegmentLog log = new SegmentLog( directory, SEGMENT_SIZE, false ) )
+        {
+            expected = writeChanges( log );
+            int segmentsBefore = segmentFiles( directory ).size();
+
+            assertThat( log.compact( 0.5D ), greaterThan( 0 ) );
+
+            assertThat( segmentFiles( directory ).size(), lessThan( segmentsBefore ) );
+            assertState( log, expected );
+        }
+        try( SegmentLog log = new SegmentLog( directory, SEGMENT_SIZE, false ) )
+        {
+            assertState( log, expected );
+        }
+    }
+
+    @Test
+    public void givenLogWhenCopyingSegmentsThenCopyOpensWithSameState()
+        throws IOException
+    {
+        Path directory = tmpDir.getRoot().toPath().resolve( "log" );
+        Path copy = tmpDir.getRoot().toPath().resolve( "copy" );
+        Map<String, String> expected;
+        try( SegmentLog log = new SegmentLog( directory, SEGMENT_SIZE, false ) )
+        {
+            expected = writeChanges( log );
+            log.copyTo( copy );
+            log.write( Collections.singletonMap( "not", "copied" ) );
+        }
+
+        try( SegmentLog log = new SegmentLog( copy, SEGMENT_SIZE, false ) )
+        {
+            assertState( log, expected );
+            log.write( Collections.singletonMap( "copy", "writable" ) );
+            assertThat( log.get( "copy" ), equalTo( "writable" ) );
+        }
+    }
+
+    @Test
+    public void givenConcurrentWritesWhenCopyingSegmentsThenCopyIsAConsistentPrefix()
+        throws Exception
+    {
+        Path directory = tmpDir.getRoot().toPath().resolve( "log" );
+        try( SegmentLog log = new SegmentLog( directory, SEGMENT_SIZE, false ) )
+        {
+            // Each batch sets the counter along with an entry of its own, a copy missing a batch it should hold
+            // has a counter ahead of its entries
+            AtomicBoolean stop = new AtomicBoolean();
+            AtomicReference<Exception> failure = new AtomicReference<>();
+            Thread writer = new Thread( () ->
+                                        {
+                                            try
+                                            {
+                                                for( int idx = 0; !stop.get(); idx++ )
+                                                {
+                                                    Map<String, String> batch = new LinkedHashMap<>();
+                                                    batch.put( "counter", String.valueOf( idx ) );
+                                                    batch.put( "entry-" + idx, "value-" + idx );
+                                                    log.write( batch );
+                                                }
+                                            }
+                                            catch( Exception ex )
+                                            {
+                                                failure.set( ex );
+                                            }
+                                        } );
+            writer.start();
+            int copiesWithRollover = 0;
+            try
+            {
+                for( int copyIdx = 0; copyIdx < 200 && copiesWithRollover < 5; copyIdx++ )
+                {
+                    Path copy = tmpDir.getRoot().toPath().resolve( "copy-" + copyIdx );
+                    int segmentsBefore = segmentFiles( directory ).size();
+                    log.copyTo( copy );
+                    if( segmentFiles( directory ).size() > segmentsBefore )
+                    {
+                        copiesWithRollover++;
+                    }
+                    try( SegmentLog copied = new SegmentLog( copy, SEGMENT_SIZE, false ) )
+                    {
+                        String counter = copied.get( "counter" );
+                        int last = counter == null ? -1 : Integer.parseInt( counter );
+                        assertThat( copied.size(), equalTo( counter == null ? 0 : last + 2 ) );
+                        for( int idx = 0; idx <= last; idx++ )
+                        {
+                            assertThat( copied.get( "entry-" + idx ), equalTo( "value-" + idx ) );
+                        }
+                    }
+                }
+            }
+            finally
+            {
+                stop.set( true );
+                writer.join();
+            }
+            assertThat( failure.get(), nullValue() );
+            assertThat( copiesWithRollover, greaterThan( 0 ) );
+        }
+    }
+
+    @Test
+    public void givenBatchLargerThanSegmentSizeWhenWritingThenItGetsItsOwnSegment()
+        throws IOException
+    {
+        Path directory = tmpDir.getRoot().toPath();
+        String large = String.join( "", Collections.nCopies( SEGMENT_SIZE * 2, "x" ) );
+        try( SegmentLog log = new SegmentLog( directory, SEGMENT_SIZE, false ) )
+        {
+            log.write( Collections.singletonMap( "large", large ) );
+            log.write( Collections.singletonMap( "small", "value" ) );
+        }
+        try( SegmentLog log = new SegmentLog( directory, SEGMENT_SIZE, false ) )
+        {
+            assertThat( log.get( "large" ), equalTo( large ) );
+            assertThat( log.get( "small" ), equalTo( "value" ) );
+        }
+    }
+
+    private static Map<String, String> writeChanges( SegmentLog log )
+        throws IOException
+    {
+        Map<String, String> expected = new HashMap<>();
+        for( int idx = 0; idx < 500; idx++ )
+        {
+            Map<String, String> batch = new LinkedHashMap<>();
+            String key = "key-" + idx % 50;
+            batch.put( key, "value-" + idx );
+            expected.put( key, "value-" + idx );
+            if( idx % 7 == 0 )
+            {
+                String removed = "key-" + ( idx + 1 ) % 50;
+                batch.put( removed, null );
+                expected.remove( removed );
+            }
+            log.write( batch );
+        }
+        return expected;
+    }
+
+    private static void assertState( SegmentLog log, Map<String, String> expected )
+    {
+        assertThat( log.size(), equalTo( expected.size() ) );
+        expected.forEach( ( key, value ) -> assertThat( log.get( key ), equalTo( value ) ) );
+        assertThat( log.values().collect( Collectors.toSet() ), equalTo( new HashSet<>( expected.values() ) ) );
+    }
+
+    private static List<Path> segmentFiles( Path directory )
+        throws IOException
+    {
+        try( Stream<Path> files = Files.list( directory ) )
+        {
+            return files.sorted().collect( Collectors.toList() );
+        }
+    }
+}
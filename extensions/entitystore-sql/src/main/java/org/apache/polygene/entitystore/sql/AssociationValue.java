@@ -28,6 +28,7 @@ import org.apache.polygene.api.common.QualifiedName;
 @SuppressWarnings( "WeakerAccess" )
 public class AssociationValue
 {
+    String entityIdentity;
     QualifiedName name;
     String position;
     String reference;
@@ -20,9 +20,12 @@ package org.apache.polygene.entitystore.sql;
 import java.lang.reflect.Method;
 import java.sql.Timestamp;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
@@ -49,12 +52,15 @@ import org.apache.polygene.spi.entitystore.EntityNotFoundException;
 import org.apache.polygene.spi.entitystore.EntityStoreUnitOfWork;
 import org.apache.polygene.spi.entitystore.helpers.DefaultEntityState;
 import org.jooq.Condition;
+import org.jooq.Cursor;
 import org.jooq.Field;
 import org.jooq.Record;
-import org.jooq.RecordType;
+import org.jooq.Record5;
 import org.jooq.Result;
+import org.jooq.ResultQuery;
 import org.jooq.SQLDialect;
 import org.jooq.SelectJoinStep;
+import org.jooq.SelectOrderByStep;
 import org.jooq.SelectQuery;
 import org.jooq.Table;
 import org.jooq.impl.DSL;
@@ -63,6 +69,7 @@ import static org.apache.polygene.entitystore.sql.MixinTable.INDEX_COLUMN_NAME;
 import static org.apache.polygene.entitystore.sql.MixinTable.NAME_COLUMN_NAME;
 import static org.apache.polygene.entitystore.sql.MixinTable.REFERENCE_COLUMN_NAME;
 import static org.apache.polygene.entitystore.sql.SqlType.makeField;
+import static org.apache.polygene.entitystore.sql.SqlType.makeParam;
 
 /**
  * This class handles all the dealing with the main table, called the Entities Table.
@@ -79,6 +86,11 @@ public class EntitiesTable
     private static final String VERSION_COLUMN_NAME = "_version";
     private static final String APPLICATIONVERSION_COLUMN_NAME = "_app_version";
 
+    /**
+     * Maximum number of identities in a single {@code IN} clause.
+     */
+    static final int IN_CHUNK_SIZE = 500;
+
     private static final Predicate<? super Class<?>> NOT_COMPOSITE = type -> !( type.equals( Composite.class ) || type.equals( EntityComposite.class ) );
     private static final Predicate<? super Class<?>> NOT_HASIDENTITY = type -> !( type.equals( HasIdentity.class ) );
     private final SQLDialect dialect;
@@ -146,12 +158,67 @@ public class EntitiesTable
         return result;
     }
 
-    public Stream<BaseEntity> fetchAll( EntityDescriptor type, ModuleDescriptor module )
+    public Map<EntityReference, BaseEntity> fetchEntities( Collection<EntityReference> references,
+                                                           ModuleDescriptor module )
     {
-        Result<Record> baseEntityResult = dsl
-            .selectFrom( entitiesTable )
-            .fetch();
-        return baseEntityResult.stream().map( record -> toBaseEntity( record, module ) );
+        Map<String, EntityReference> byIdentity = new HashMap<>();
+        references.forEach( reference -> byIdentity.put( reference.identity().toString(), reference ) );
+        List<String> identities = new ArrayList<>( byIdentity.keySet() );
+        Map<EntityReference, BaseEntity> baseEntities = new HashMap<>();
+        for( int from = 0; from < identities.size(); from += IN_CHUNK_SIZE )
+        {
+            List<String> chunk = identities.subList( from, Math.min( from + IN_CHUNK_SIZE, identities.size() ) );
+            dsl.selectFrom( entitiesTable )
+               .where( types.identityColumn().in( chunk ) )
+               .fetch()
+               .forEach( row ->
+                         {
+                             BaseEntity baseEntity = toBaseEntity( row, module );
+                             baseEntities.put( byIdentity.get( baseEntity.identity.toString() ), baseEntity );
+                         } );
+        }
+        return baseEntities;
+    }
+
+    /**
+     * Streams all the entities of a type, joined with their Mixin tables and ordered by identity.
+     * <p>
+     * The rows are read through a lazy cursor, the returned stream must be closed.
+     * </p>
+     *
+     * @param entityDescriptor The descriptor of the entity type
+     * @return The rows holding both the {@link BaseEntity} columns and the Mixin columns
+     */
+    public Stream<Record> fetchAll( EntityDescriptor entityDescriptor )
+    {
+        List<Field<?>> columns = new ArrayList<>();
+        columns.add( qualified( entitiesTable, types.identityColumn() ) );
+        columns.add( qualified( entitiesTable, types.createdColumn() ) );
+        columns.add( qualified( entitiesTable, types.modifiedColumn() ) );
+        columns.add( qualified( entitiesTable, typeNameColumn ) );
+        columns.add( qualified( entitiesTable, applicationVersionColumn ) );
+        columns.add( qualified( entitiesTable, versionColumn ) );
+        columns.add( qualified( entitiesTable, valueIdentityColumn ) );
+        // Mixin tables not created yet are created in a transaction, as when committing
+        List<MixinTable> mixinTables = dsl.transactionResult(
+            configuration -> entityDescriptor.mixinTypes()
+                                             .filter( NOT_COMPOSITE )
+                                             .filter( NOT_HASIDENTITY )
+                                             .map( type -> findMixinTable( type, entityDescriptor ) )
+                                             .collect( Collectors.toList() ) );
+        mixinTables.forEach( mixinTable -> columns.addAll( mixinTable.stateColumns() ) );
+
+        SelectJoinStep<Record> from = dsl.select( columns ).from( entitiesTable );
+        for( MixinTable mixinTable : mixinTables )
+        {
+            Table<Record> joinedTable = mixinTable.table();
+            Condition joinCondition = valueIdentityColumn.eq( identityColumnOf( joinedTable ) );
+            from = from.leftJoin( joinedTable ).on( joinCondition );
+        }
+        Cursor<Record> cursor = from.where( typeNameColumn.eq( entityDescriptor.primaryType().getName() ) )
+                                    .orderBy( identityColumnOf( entitiesTable ) )
+                                    .fetchLazy();
+        return cursor.stream().onClose( cursor::close );
     }
 
     private EntityDescriptor findEntityDescriptor( String typeName, ModuleDescriptor module )
@@ -167,34 +234,108 @@ public class EntitiesTable
         }
     }
 
-    void insertEntity( DefaultEntityState state, BaseEntity baseEntity )
+    /**
+     * Insert new entities, one JDBC batch for the Entities Table and one per Mixin table.
+     */
+    void insertEntities( List<DefaultEntityState> states, EntityStoreUnitOfWork uow )
     {
-        EntityCompositeType compositeType = state.entityDescriptor().valueType();
-        Set<Class<?>> mixinTypes = mixinTypeCache.computeIfAbsent( compositeType, createMixinTypesSet( compositeType ) );
-        mixinTypes.forEach( type ->
-                            {
-                                MixinTable table = findMixinTable( type, state.entityDescriptor() );
-                                table.insertMixinState( state, baseEntity.currentValueIdentity.toString() );
-                            } );
+        Timestamp currentTime = new Timestamp( uow.currentTime().toEpochMilli() );
+        List<Object[]> rows = new ArrayList<>( states.size() );
+        Map<MixinTable, Map<String, DefaultEntityState>> mixinStates = new LinkedHashMap<>();
+        for( DefaultEntityState state : states )
+        {
+            String valueIdentity = UUID.randomUUID().toString();
+            rows.add( new Object[]{
+                state.entityReference().identity().toString(), currentTime, currentTime, valueIdentity,
+                state.entityDescriptor().primaryType().getName(), "1", applicationVersion
+            } );
+            addMixinStates( mixinStates, state, valueIdentity );
+        }
+        dsl.executeBatch( dsl.insertInto( entitiesTable,
+                                          types.identityColumn(),
+                                          types.createdColumn(),
+                                          types.modifiedColumn(),
+                                          valueIdentityColumn,
+                                          typeNameColumn,
+                                          versionColumn,
+                                          applicationVersionColumn )
+                             .values( makeParam( types.identityColumn() ),
+                                      makeParam( types.createdColumn() ),
+                                      makeParam( types.modifiedColumn() ),
+                                      makeParam( valueIdentityColumn ),
+                                      makeParam( typeNameColumn ),
+                                      makeParam( versionColumn ),
+                                      makeParam( applicationVersionColumn ) ),
+                          rows );
+        mixinStates.forEach( MixinTable::insertMixinStates );
     }
 
-    void modifyEntity( DefaultEntityState state, BaseEntity baseEntity, EntityStoreUnitOfWork uow )
+    /**
+     * Update entities, one JDBC batch for the Entities Table and one per Mixin table.
+     *
+     * @param states       The updated states
+     * @param baseEntities The current {@link BaseEntity} of the updated states, see {@link #fetchEntities}
+     * @param uow          The UnitOfWork
+     */
+    void modifyEntities( List<DefaultEntityState> states, Map<EntityReference, BaseEntity> baseEntities,
+                         EntityStoreUnitOfWork uow )
     {
-        updateBaseEntity( baseEntity, uow );
+        Timestamp modifiedAt = new Timestamp( uow.currentTime().toEpochMilli() );
+        List<Object[]> rows = new ArrayList<>( states.size() );
+        Map<MixinTable, Map<String, DefaultEntityState>> mixinStates = new LinkedHashMap<>();
+        for( DefaultEntityState state : states )
+        {
+            BaseEntity entity = baseEntityOf( state.entityReference(), baseEntities );
+            entity.version = increment( entity.version );
+            if( replacementStrategy )
+            {
+                entity.currentValueIdentity = StringIdentity.identityOf( UUID.randomUUID().toString() );
+            }
+            rows.add( new Object[]{
+                modifiedAt, entity.currentValueIdentity.toString(), entity.version, applicationVersion,
+                entity.identity.toString()
+            } );
+            addMixinStates( mixinStates, state, entity.currentValueIdentity.toString() );
+        }
+        dsl.executeBatch( dsl.update( entitiesTable )
+                             .set( types.modifiedColumn(), makeParam( types.modifiedColumn() ) )
+                             .set( valueIdentityColumn, makeParam( valueIdentityColumn ) )
+                             .set( versionColumn, makeParam( versionColumn ) )
+                             .set( applicationVersionColumn, makeParam( applicationVersionColumn ) )
+                             .where( types.identityColumn().eq( makeParam( types.identityColumn() ) ) ),
+                          rows );
         if( replacementStrategy )
         {
-            insertEntity( state, baseEntity );      // replacement strategy (more safe)
+            mixinStates.forEach( MixinTable::insertMixinStates );      // replacement strategy (more safe)
         }
         else
         {
-            EntityCompositeType compositeType = state.entityDescriptor().valueType();
-            Set<Class<?>> mixinTypes = mixinTypeCache.computeIfAbsent( compositeType, createMixinTypesSet( compositeType ) );
-            mixinTypes.forEach( type ->
-                                {
-                                    MixinTable table = findMixinTable( type, state.entityDescriptor() );
-                                    table.modifyMixinState( state, baseEntity.currentValueIdentity.toString() );
-                                } );
+            mixinStates.forEach( MixinTable::modifyMixinStates );
+        }
+    }
+
+    private BaseEntity baseEntityOf( EntityReference reference, Map<EntityReference, BaseEntity> baseEntities )
+    {
+        BaseEntity baseEntity = baseEntities.get( reference );
+        if( baseEntity == null )
+        {
+            throw new EntityNotFoundException( reference );
         }
+        return baseEntity;
+    }
+
+    private void addMixinStates( Map<MixinTable, Map<String, DefaultEntityState>> mixinStates,
+                                 DefaultEntityState state,
+                                 String valueIdentity )
+    {
+        EntityCompositeType compositeType = state.entityDescriptor().valueType();
+        Set<Class<?>> mixinTypes = mixinTypeCache.computeIfAbsent( compositeType, createMixinTypesSet( compositeType ) );
+        mixinTypes.forEach( type ->
+                            {
+                                MixinTable table = findMixinTable( type, state.entityDescriptor() );
+                                mixinStates.computeIfAbsent( table, t -> new LinkedHashMap<>() )
+                                           .put( valueIdentity, state );
+                            } );
     }
 
     private MixinTable findMixinTable( Class<?> type, EntityDescriptor entityDescriptor )
@@ -237,47 +378,6 @@ public class EntitiesTable
         };
     }
 
-    BaseEntity createNewBaseEntity( EntityReference reference, EntityDescriptor descriptor, EntityStoreUnitOfWork uow )
-    {
-        String valueIdentity = UUID.randomUUID().toString();
-        String typeName = descriptor.primaryType().getName();
-        Instant currentTime = uow.currentTime();
-        dsl.insertInto( entitiesTable )
-           .set( types.identityColumn(), reference.identity().toString() )
-           .set( types.createdColumn(), new Timestamp( currentTime.toEpochMilli() ) )
-           .set( types.modifiedColumn(), new Timestamp( currentTime.toEpochMilli() ) )
-           .set( valueIdentityColumn, valueIdentity )
-           .set( typeNameColumn, typeName )
-           .set( versionColumn, "1" )
-           .set( applicationVersionColumn, applicationVersion )
-           .execute();
-        BaseEntity baseEntity = new BaseEntity();
-        baseEntity.type = descriptor;
-        baseEntity.version = "1";
-        baseEntity.applicationVersion = applicationVersion;
-        baseEntity.identity = reference.identity();
-        baseEntity.currentValueIdentity = StringIdentity.identityOf( valueIdentity );
-        baseEntity.modifedAt = currentTime;
-        baseEntity.createdAt = currentTime;
-        return baseEntity;
-    }
-
-    private void updateBaseEntity( BaseEntity entity, EntityStoreUnitOfWork uow )
-    {
-        entity.version = increment( entity.version );
-        if( replacementStrategy )
-        {
-            entity.currentValueIdentity = StringIdentity.identityOf( UUID.randomUUID().toString() );
-        }
-        dsl.update( entitiesTable )
-           .set( types.modifiedColumn(), new Timestamp( uow.currentTime().toEpochMilli() ) )
-           .set( valueIdentityColumn, entity.currentValueIdentity.toString() )
-           .set( versionColumn, entity.version )
-           .set( applicationVersionColumn, applicationVersion )
-           .where( types.identityColumn().eq( entity.identity.toString() ) )
-           .execute();
-    }
-
     private String increment( String version )
     {
         long ver = Long.parseLong( version );
@@ -337,37 +437,84 @@ public class EntitiesTable
 
     public void fetchAssociations( BaseEntity entity, EntityDescriptor entityDescriptor, Consumer<AssociationValue> consume )
     {
-        List<Table<Record>> joins = getAssocationsTables( entityDescriptor );
-        SelectJoinStep<Record> from = dsl.select().from( entitiesTable );
-        for( Table<Record> joinedTable : joins )
+        String reference = entity.identity.toString();
+        ResultQuery<Record5<String, String, String, String, String>> query =
+            createAssociationsQuery( entityDescriptor, identityColumnOf( entitiesTable ).eq( reference ) );
+        if( query != null )
         {
-            Condition joinCondition = valueIdentityColumn.eq( identityColumnOf( joinedTable ) );
-            from = from.join( joinedTable ).on( joinCondition );
+            query.fetch().forEach( record -> consume.accept( toAssociationValue( record, entityDescriptor ) ) );
         }
-        String reference = entity.identity.toString();
-        SelectQuery<Record> query = from.where( identityColumnOf( entitiesTable ).eq( reference ) ).getQuery();
-        Result<Record> result = query.fetch();
-        RecordType<Record> recordType = result.recordType();
-        result.forEach( record -> {
-            AssociationValue value = new AssociationValue();
-            if( recordType.indexOf( MixinTable.REFERENCE_COLUMN_NAME ) >= 0 )
+    }
+
+    /**
+     * Fetches the ManyAssociation and NamedAssociation values of several entities of a type, with one query per chunk
+     * of identities.
+     *
+     * @param entityDescriptor The descriptor of the entity type
+     * @param identities       The identities of the entities
+     * @return The association values, by entity identity
+     */
+    public Map<String, List<AssociationValue>> fetchAssociations( EntityDescriptor entityDescriptor,
+                                                                  List<String> identities )
+    {
+        Map<String, List<AssociationValue>> associations = new HashMap<>();
+        for( int from = 0; from < identities.size(); from += IN_CHUNK_SIZE )
+        {
+            List<String> chunk = identities.subList( from, Math.min( from + IN_CHUNK_SIZE, identities.size() ) );
+            ResultQuery<Record5<String, String, String, String, String>> query =
+                createAssociationsQuery( entityDescriptor, identityColumnOf( entitiesTable ).in( chunk ) );
+            if( query == null )
             {
-                // some many-to-many association found.
-                if( recordType.indexOf( NAME_COLUMN_NAME ) >= 0 )
-                {
-                    // NamedAssociations found.
-                    value.name = QualifiedName.fromClass( entityDescriptor.primaryType(), (String) record.get( NAME_COLUMN_NAME ) );
-                    EntityCompositeType valueType = entityDescriptor.valueType();
-                }
-                if( recordType.indexOf( INDEX_COLUMN_NAME ) >= 0 )
-                {
-                    // ManyAssociations found.
-                    value.position = (String) record.get( INDEX_COLUMN_NAME );
-                }
-                value.reference = (String) record.get( REFERENCE_COLUMN_NAME );
-                consume.accept( value );
+                break;
             }
-        } );
+            query.fetch().forEach( record ->
+                                   {
+                                       AssociationValue value = toAssociationValue( record, entityDescriptor );
+                                       associations.computeIfAbsent( value.entityIdentity, k -> new ArrayList<>() )
+                                                   .add( value );
+                                   } );
+        }
+        return associations;
+    }
+
+    /**
+     * Builds a single query over all the association tables of an entity type, with a {@code UNION ALL} of one
+     * {@code JOIN} with the Entities Table per association table.
+     *
+     * @return The query, or null if the entity type has no association table.
+     */
+    private ResultQuery<Record5<String, String, String, String, String>> createAssociationsQuery( EntityDescriptor entityDescriptor,
+                                                                                                  Condition condition )
+    {
+        Field<String> entityColumn = identityColumnOf( entitiesTable );
+        SelectOrderByStep<Record5<String, String, String, String, String>> union = null;
+        for( MixinTable mixinTable : getAssociationMixinTables( entityDescriptor ) )
+        {
+            Table<Record> assocsTable = mixinTable.associationsTable();
+            SelectOrderByStep<Record5<String, String, String, String, String>> select =
+                dsl.select( entityColumn,
+                            DSL.inline( mixinTable.mixinType().getName() ),
+                            DSL.field( DSL.name( assocsTable.getName(), NAME_COLUMN_NAME ), String.class ),
+                            DSL.field( DSL.name( assocsTable.getName(), INDEX_COLUMN_NAME ), String.class ),
+                            DSL.field( DSL.name( assocsTable.getName(), REFERENCE_COLUMN_NAME ), String.class ) )
+                   .from( entitiesTable )
+                   .join( assocsTable ).on( valueIdentityColumn.eq( identityColumnOf( assocsTable ) ) )
+                   .where( condition );
+            union = union == null ? select : union.unionAll( select );
+        }
+        return union;
+    }
+
+    private AssociationValue toAssociationValue( Record5<String, String, String, String, String> record,
+                                                 EntityDescriptor entityDescriptor )
+    {
+        AssociationValue value = new AssociationValue();
+        value.entityIdentity = record.value1();
+        // Associations are qualified by the Mixin type declaring them, not by the primary type of the entity
+        value.name = QualifiedName.fromName( record.value2(), record.value3() );
+        value.position = record.value4();
+        value.reference = record.value5();
+        return value;
     }
 
     private Field<String> identityColumnOf( Table<Record> joinedTable )
@@ -377,6 +524,11 @@ public class EntitiesTable
         return DSL.field( DSL.name( name, identity ), String.class );
     }
 
+    private static <T> Field<T> qualified( Table<Record> table, Field<T> field )
+    {
+        return DSL.field( DSL.name( table.getName(), field.getName() ), field.getDataType() );
+    }
+
     public List<Table<Record>> getMixinTables( EntityDescriptor entityDescriptor )
     {
         return entityDescriptor
@@ -388,38 +540,64 @@ public class EntitiesTable
     }
 
     public List<Table<Record>> getAssocationsTables( EntityDescriptor entityDescriptor )
+    {
+        return getAssociationMixinTables( entityDescriptor )
+            .stream()
+            .map( MixinTable::associationsTable )
+            .collect( Collectors.toList() );
+    }
+
+    private List<MixinTable> getAssociationMixinTables( EntityDescriptor entityDescriptor )
     {
         return entityDescriptor
             .mixinTypes()
             .filter( NOT_COMPOSITE )
             .filter( NOT_HASIDENTITY )
             .map( type -> findMixinTable( type, entityDescriptor ) )
-            .map( MixinTable::associationsTable )
-            .filter( Objects::nonNull )
+            .filter( mixinTable -> mixinTable.associationsTable() != null )
             .collect( Collectors.toList() );
     }
 
-    public void removeEntity( EntityReference entityReference, EntityDescriptor descriptor )
+    /**
+     * Remove entities, with one {@code DELETE} per table and chunk of identities.
+     *
+     * @param states       The states of the removed entities
+     * @param baseEntities The current {@link BaseEntity} of the removed entities, see {@link #fetchEntities}
+     */
+    public void removeEntities( List<DefaultEntityState> states, Map<EntityReference, BaseEntity> baseEntities )
     {
-        ModuleDescriptor module = descriptor.module();
-        BaseEntity baseEntity = fetchEntity( entityReference, module );
+        List<String> identities = new ArrayList<>( states.size() );
+        Map<Table<Record>, List<String>> valueIdentities = new LinkedHashMap<>();
+        for( DefaultEntityState state : states )
+        {
+            EntityReference reference = state.entityReference();
+            BaseEntity baseEntity = baseEntityOf( reference, baseEntities );
+            identities.add( reference.identity().toString() );
+            String valueId = baseEntity.currentValueIdentity.toString();
+            // The entity type may not be visible from the module of the unit of work, use the one of the state
+            EntityDescriptor descriptor = state.entityDescriptor();
+            Stream.concat( getMixinTables( descriptor ).stream(), getAssocationsTables( descriptor ).stream() )
+                  .forEach( table -> valueIdentities.computeIfAbsent( table, t -> new ArrayList<>() ).add( valueId ) );
+        }
         if( replacementStrategy )
         {
             // TODO;  Mark deleted, I guess... not implemented
         }
         else
         {
-            dsl.delete( entitiesTable )
-               .where(
-                   identityColumnOf( entitiesTable ).eq( entityReference.identity().toString() )
-                     )
-               .execute()
-            ;
-            String valueId = baseEntity.currentValueIdentity.toString();
-            List<Table<Record>> mixinTables = getMixinTables( descriptor );
-            List<Table<Record>> assocTables = getAssocationsTables( descriptor );
-            mixinTables.forEach( table -> dsl.delete( table ).where( identityColumnOf( table ).eq( valueId ) ).execute() );
-            assocTables.forEach( table -> dsl.delete( table ).where( identityColumnOf( table ).eq( valueId ) ).execute() );
+            deleteIn( entitiesTable, identities );
+            valueIdentities.forEach( this::deleteIn );
+        }
+    }
+
+    private void deleteIn( Table<Record> table, List<String> identities )
+    {
+        for( int from = 0; from < identities.size(); from += IN_CHUNK_SIZE )
+        {
+            List<String> chunk = identities.subList( from, Math.min( from + IN_CHUNK_SIZE, identities.size() ) );
+            dsl.delete( table )
+               .where( identityColumnOf( table ).in( chunk ) )
+               .execute();
         }
     }
 
@@ -19,14 +19,17 @@ package org.apache.polygene.entitystore.sql;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
+import java.util.List;
 import javax.sql.DataSource;
 import org.apache.polygene.api.injection.scope.Service;
 import org.apache.polygene.api.injection.scope.Uses;
 import org.apache.polygene.api.mixin.Mixins;
+import org.jooq.BatchBindStep;
 import org.jooq.Configuration;
 import org.jooq.ConnectionProvider;
 import org.jooq.DSLContext;
 import org.jooq.Name;
+import org.jooq.Query;
 import org.jooq.Record;
 import org.jooq.SQLDialect;
 import org.jooq.Table;
@@ -48,6 +51,15 @@ public interface JooqDslContext extends DSLContext
 
     Table<Record> tableOf( String tableName );
 
+    /**
+     * Execute a query once per set of bind values, as a single JDBC batch.
+     *
+     * @param query      The query, with one bind parameter per value
+     * @param bindValues The bind values of each execution
+     * @return The update counts
+     */
+    int[] executeBatch( Query query, List<Object[]> bindValues );
+
     class Mixin
         implements InvocationHandler
     {
@@ -77,6 +89,12 @@ public interface JooqDslContext extends DSLContext
             {
                 return tableNameOf( (String) args[ 0 ] );
             }
+            if( method.getName().equals( "executeBatch" ) )
+            {
+                @SuppressWarnings( "unchecked" )
+                List<Object[]> bindValues = (List<Object[]>) args[ 1 ];
+                return executeBatch( (Query) args[ 0 ], bindValues );
+            }
 
             return method.invoke( dsl, args );       // delegate all
         }
@@ -85,5 +103,19 @@ public interface JooqDslContext extends DSLContext
         {
             return DSL.name( name );
         }
+
+        private int[] executeBatch( Query query, List<Object[]> bindValues )
+        {
+            if( bindValues.isEmpty() )
+            {
+                return new int[ 0 ];
+            }
+            BatchBindStep batch = dsl.batch( query );
+            for( Object[] values : bindValues )
+            {
+                batch = batch.bind( values );
+            }
+            return batch.execute();
+        }
     }
 }
@@ -20,11 +20,14 @@ package org.apache.polygene.entitystore.sql;
 import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Method;
 import java.sql.Timestamp;
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
 import org.apache.polygene.api.association.AssociationDescriptor;
 import org.apache.polygene.api.common.QualifiedName;
 import org.apache.polygene.api.entity.EntityDescriptor;
@@ -32,18 +35,18 @@ import org.apache.polygene.api.entity.EntityReference;
 import org.apache.polygene.api.property.PropertyDescriptor;
 import org.apache.polygene.api.serialization.Serialization;
 import org.apache.polygene.api.type.ValueType;
-import org.apache.polygene.spi.entity.ManyAssociationState;
 import org.apache.polygene.spi.entity.NamedAssociationState;
 import org.apache.polygene.spi.entitystore.helpers.DefaultEntityState;
 import org.jooq.Field;
-import org.jooq.InsertSetMoreStep;
-import org.jooq.InsertSetStep;
+import org.jooq.Param;
 import org.jooq.Record;
 import org.jooq.SQLDialect;
 import org.jooq.Table;
 import org.jooq.UpdateSetMoreStep;
 import org.jooq.impl.DSL;
 
+import static org.apache.polygene.entitystore.sql.EntitiesTable.IN_CHUNK_SIZE;
+
 /**
  * MixinTable is a class that handles the creation of the queries into the Mixin tables, both for insertions/updates
  * as well as retrieval.
@@ -121,79 +124,106 @@ class MixinTable
                   .forEach( assocDescriptor -> namedAssociations.add( assocDescriptor.qualifiedName() ) );
     }
 
-    void insertMixinState( DefaultEntityState state, String valueIdentity )
+    /**
+     * Insert the state of this Mixin for several entities, as a single JDBC batch.
+     *
+     * @param states The entity states, by value identity
+     */
+    void insertMixinStates( Map<String, DefaultEntityState> states )
     {
-        InsertSetMoreStep<Record> primaryTable =
-            dsl.insertInto( mixinTable )
-               .set( types.identityColumn(), valueIdentity )
-               .set( types.createdColumn(), new Timestamp( System.currentTimeMillis() ) );
-
-        properties
-            .entrySet()
-            .stream()
-            .filter( entry -> !entry.getKey().name().equals( "identity" ) )
-            .forEach( entry -> primaryTable.set( entry.getValue(), getStateValue( entry.getValue(), state, entry.getKey() ) ) );
-        associations.forEach( ( assocName, assocField ) -> primaryTable.set( assocField, referenceToString( state, assocName ) )
-                            );
-        int result = primaryTable.execute();
+        List<QualifiedName> propertyNames = propertyNames();
+        List<Field<?>> columns = new ArrayList<>();
+        columns.add( types.identityColumn() );
+        columns.add( types.createdColumn() );
+        propertyNames.forEach( name -> columns.add( properties.get( name ) ) );
+        associations.values().forEach( columns::add );
+
+        Timestamp created = new Timestamp( System.currentTimeMillis() );
+        List<Object[]> rows = new ArrayList<>( states.size() );
+        states.forEach( ( valueIdentity, state ) ->
+                        {
+                            List<Object> row = new ArrayList<>( columns.size() );
+                            row.add( valueIdentity );
+                            row.add( created );
+                            propertyNames.forEach( name -> row.add( getStateValue( properties.get( name ), state, name ) ) );
+                            associations.keySet().forEach( assocName -> row.add( referenceToString( state, assocName ) ) );
+                            rows.add( row.toArray() );
+                        } );
+        dsl.executeBatch( dsl.insertInto( mixinTable, columns ).values( params( columns ) ), rows );
 
         if( mixinAssocsTable != null )
         {
-            insertManyAndNamedAssociations( state, valueIdentity );
+            insertManyAndNamedAssociations( states );
         }
     }
 
-    private void insertManyAndNamedAssociations( DefaultEntityState state, String valueIdentity )
+    private void insertManyAndNamedAssociations( Map<String, DefaultEntityState> states )
     {
-        manyAssociations.forEach( assocName ->
-                                  {
-                                      InsertSetStep<Record> assocsTable = dsl.insertInto( mixinAssocsTable );
-                                      ManyAssociationState entityReferences = state.manyAssociationValueOf( assocName );
-                                      int endCount = entityReferences.count();
-                                      int counter = 0;
-                                      for( EntityReference ref : entityReferences )
-                                      {
-                                          InsertSetMoreStep<Record> set = assocsTable.set( types.identityColumn(), valueIdentity )
-                                                                                     .set( types.createdColumn(), new Timestamp( System.currentTimeMillis() ) )
-                                                                                     .set( nameColumn, assocName.name() )
-                                                                                     .set( indexColumn, "" + counter++ )
-                                                                                     .set( referenceColumn, ref == null ? null : ref.identity().toString() );
-                                          if( ++counter < endCount )
+        Timestamp created = new Timestamp( System.currentTimeMillis() );
+        List<Object[]> rows = new ArrayList<>();
+        states.forEach(
+            ( valueIdentity, state ) ->
+            {
+                manyAssociations.forEach( assocName ->
                                           {
-                                              set.newRecord();
-                                          }
-                                      }
-                                      if( counter > 0 )
-                                      {
-                                          InsertSetMoreStep<Record> assocs = assocsTable.set( Collections.emptyMap() );
-                                          assocs.execute();
-                                      }
-                                  } );
-
-        namedAssociations.forEach( assocName ->
-                                   {
-                                       InsertSetStep<Record> assocsTable = dsl.insertInto( mixinAssocsTable );
-                                       NamedAssociationState entityReferences = state.namedAssociationValueOf( assocName );
-                                       int count = entityReferences.count();
-                                       if( count > 0 )
-                                       {
-                                           for( String name : entityReferences )
+                                              int index = 0;
+                                              for( EntityReference ref : state.manyAssociationValueOf( assocName ) )
+                                              {
+                                                  rows.add( new Object[]{
+                                                      valueIdentity, created, assocName.name(), Integer.toString( index++ ),
+                                                      ref == null ? null : ref.identity().toString()
+                                                  } );
+                                              }
+                                          } );
+                namedAssociations.forEach( assocName ->
                                            {
-                                               EntityReference ref = entityReferences.get( name );
-                                               InsertSetMoreStep<Record> set = assocsTable.set( types.identityColumn(), valueIdentity )
-                                                                                          .set( types.createdColumn(), new Timestamp( System.currentTimeMillis() ) )
-                                                                                          .set( nameColumn, assocName.name() )
-                                                                                          .set( indexColumn, name )
-                                                                                          .set( referenceColumn, ref.identity().toString() );
-                                               if( --count > 0 )
+                                               NamedAssociationState entityReferences = state.namedAssociationValueOf( assocName );
+                                               for( String name : entityReferences )
                                                {
-                                                   set.newRecord();
+                                                   EntityReference ref = entityReferences.get( name );
+                                                   rows.add( new Object[]{
+                                                       valueIdentity, created, assocName.name(), name, ref.identity().toString()
+                                                   } );
                                                }
-                                           }
-                                           InsertSetMoreStep<Record> assocs = assocsTable.set( Collections.emptyMap() );
-                                           assocs.execute();
-                                       }
-                                   } );
+                                           } );
+            } );
+        List<Field<?>> columns = Arrays.asList( types.identityColumn(), types.createdColumn(),
+                                                nameColumn, indexColumn, referenceColumn );
+        dsl.executeBatch( dsl.insertInto( mixinAssocsTable, columns ).values( params( columns ) ), rows );
+    }
+
+    Table<Record> table()
+    {
+        return mixinTable;
+    }
+
+    /**
+     * @return The Property and Association columns of this Mixin, qualified by the Mixin table.
+     */
+    List<Field<?>> stateColumns()
+    {
+        List<Field<?>> columns = new ArrayList<>();
+        propertyNames().forEach( name -> columns.add( qualified( properties.get( name ) ) ) );
+        associations.values().forEach( field -> columns.add( qualified( field ) ) );
+        return columns;
+    }
+
+    private <T> Field<T> qualified( Field<T> field )
+    {
+        return DSL.field( DSL.name( mixinTable.getName(), field.getName() ), field.getDataType() );
+    }
+
+    private List<QualifiedName> propertyNames()
+    {
+        return properties.keySet()
+                         .stream()
+                         .filter( name -> !name.name().equals( "identity" ) )
+                         .collect( Collectors.toList() );
+    }
+
+    private static List<Param<?>> params( List<Field<?>> columns )
+    {
+        return columns.stream().map( SqlType::makeParam ).collect( Collectors.toList() );
     }
 
     Table<Record> associationsTable()
@@ -201,6 +231,11 @@ class MixinTable
         return mixinAssocsTable;
     }
 
+    Class<?> mixinType()
+    {
+        return mixinType;
+    }
+
     private boolean isThisMixin( PropertyDescriptor descriptor )
     {
         Class<?> declaringClass = declaredIn( descriptor );
@@ -233,30 +268,49 @@ class MixinTable
         throw new UnsupportedOperationException( "Property declared as " + accessor.getClass() + " is not supported in this Entity Store yet." );
     }
 
-    void modifyMixinState( DefaultEntityState state, String valueId )
+    /**
+     * Update the state of this Mixin for several entities, as a single JDBC batch.
+     *
+     * @param states The entity states, by value identity
+     */
+    void modifyMixinStates( Map<String, DefaultEntityState> states )
     {
-        UpdateSetMoreStep<Record> primaryTable =
-            dsl.update( mixinTable )
-               .set( Collections.emptyMap() );  // empty map is a hack to get the right type returned from JOOQ.
-
-        properties
-            .entrySet()
-            .stream()
-            .filter( entry -> !entry.getKey().name().equals( "identity" ) )
-            .forEach( entry -> primaryTable.set( entry.getValue(), getStateValue( entry.getValue(), state, entry.getKey() ) ) );
+        List<QualifiedName> propertyNames = propertyNames();
+        if( !propertyNames.isEmpty() || !associations.isEmpty() )
+        {
+            Map<Field<?>, Field<?>> columns = new LinkedHashMap<>();
+            propertyNames.forEach( name -> columns.put( properties.get( name ),
+                                                        SqlType.makeParam( properties.get( name ) ) ) );
 
-        // Set the Association<?> fields
-        associations.forEach( ( assocName, assocField ) -> primaryTable.set( assocField, referenceToString( state, assocName ) ) );
+            // Set the Association<?> fields
+            associations.values().forEach( assocField -> columns.put( assocField, SqlType.makeParam( assocField ) ) );
+            UpdateSetMoreStep<Record> primaryTable = dsl.update( mixinTable ).set( columns );
 
-        int result = primaryTable.execute();
+            List<Object[]> rows = new ArrayList<>( states.size() );
+            states.forEach( ( valueIdentity, state ) ->
+                            {
+                                List<Object> row = new ArrayList<>();
+                                propertyNames.forEach( name -> row.add( getStateValue( properties.get( name ), state, name ) ) );
+                                associations.keySet().forEach( assocName -> row.add( referenceToString( state, assocName ) ) );
+                                row.add( valueIdentity );
+                                rows.add( row.toArray() );
+                            } );
+            dsl.executeBatch( primaryTable.where( types.identityColumn().eq( SqlType.makeParam( types.identityColumn() ) ) ),
+                              rows );
+        }
 
         if( mixinAssocsTable != null )
         {
             // Need to remove existing records.
-            dsl.delete( mixinAssocsTable )
-               .where( types.identityColumn().eq( valueId ) )
-               .execute();
-            insertManyAndNamedAssociations( state, valueId );
+            List<String> valueIdentities = new ArrayList<>( states.keySet() );
+            for( int from = 0; from < valueIdentities.size(); from += IN_CHUNK_SIZE )
+            {
+                List<String> chunk = valueIdentities.subList( from, Math.min( from + IN_CHUNK_SIZE, valueIdentities.size() ) );
+                dsl.delete( mixinAssocsTable )
+                   .where( types.identityColumn().in( chunk ) )
+                   .execute();
+            }
+            insertManyAndNamedAssociations( states );
         }
     }
 
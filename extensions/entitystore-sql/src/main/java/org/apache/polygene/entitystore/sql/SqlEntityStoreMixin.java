@@ -19,10 +19,17 @@ package org.apache.polygene.entitystore.sql;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import org.apache.polygene.api.association.AssociationDescriptor;
 import org.apache.polygene.api.association.AssociationStateDescriptor;
 import org.apache.polygene.api.common.QualifiedName;
@@ -54,6 +61,15 @@ import static org.apache.polygene.api.entity.EntityReference.parseEntityReferenc
 public class SqlEntityStoreMixin
     implements EntityStore, EntityStoreSPI
 {
+    /**
+     * Number of entities whose associations are fetched at once by scans.
+     */
+    private static final int SCAN_CHUNK_SIZE = 500;
+
+    private static final Comparator<AssociationValue> ASSOCIATION_INDEX_ORDER =
+        Comparator.comparing( ( AssociationValue value ) -> value.name.toString() )
+                  .thenComparingInt( value -> indexOf( value.position ) );
+
     @This
     private SqlTable sqlTable;
 
@@ -79,10 +95,13 @@ public class SqlEntityStoreMixin
         {
             throw new EntityNotFoundException( reference );
         }
-        return toEntityState( result, baseEntity, reference, module );
+        List<AssociationValue> associationValues = new ArrayList<>();
+        sqlTable.fetchAssociations( baseEntity, baseEntity.type, associationValues::add );
+        return toEntityState( result.get( 0 ), baseEntity, reference, module, associationValues );
     }
 
-    protected EntityState toEntityState( Result<Record> result, BaseEntity baseEntity, EntityReference reference, ModuleDescriptor module )
+    protected EntityState toEntityState( Record row, BaseEntity baseEntity, EntityReference reference, ModuleDescriptor module,
+                                         List<AssociationValue> associationValues )
     {
         AssociationStateDescriptor stateDescriptor = baseEntity.type.state();
         Map<QualifiedName, Object> properties = new HashMap<>();
@@ -92,7 +111,7 @@ public class SqlEntityStoreMixin
                        .forEach( prop ->
                                  {
                                      QualifiedName qualifiedName = prop.qualifiedName();
-                                     Object value = result.getValue( 0, qualifiedName.name() );
+                                     Object value = row.get( qualifiedName.name() );
                                      value = amendValue( value, prop.valueType(), module );
                                      properties.put( qualifiedName, value );
                                  } );
@@ -101,7 +120,7 @@ public class SqlEntityStoreMixin
                        .forEach( assoc ->
                                  {
                                      QualifiedName qualifiedName = assoc.qualifiedName();
-                                     String value = (String) result.getValue( 0, qualifiedName.name() );
+                                     String value = (String) row.get( qualifiedName.name() );
                                      if( value != null )
                                      {
                                          assocations.put( qualifiedName, parseEntityReference( value ) );
@@ -109,7 +128,9 @@ public class SqlEntityStoreMixin
                                  } );
         Map<QualifiedName, List<EntityReference>> manyAssocs = new HashMap<>();
         Map<QualifiedName, Map<String, EntityReference>> namedAssocs = new HashMap<>();
-        sqlTable.fetchAssociations( baseEntity, baseEntity.type, associationValue ->
+        // Rows are not ordered within an entity, ManyAssociations are put back in order of their index
+        associationValues.sort( ASSOCIATION_INDEX_ORDER );
+        associationValues.forEach( associationValue ->
         {
             if( stateDescriptor.hasManyAssociation( associationValue.name ) )
             {
@@ -167,6 +188,19 @@ public class SqlEntityStoreMixin
         return serialization.deserialize( module, type, value.toString() );
     }
 
+    private static int indexOf( String position )
+    {
+        try
+        {
+            return Integer.parseInt( position );
+        }
+        catch( NumberFormatException e )
+        {
+            // NamedAssociation, the position is the name
+            return 0;
+        }
+    }
+
     private void addNamedAssociation( AssociationStateDescriptor stateDescriptor, Map<QualifiedName, Map<String, EntityReference>> namedAssocs, AssociationValue associationValue )
     {
         AssociationDescriptor descriptor = stateDescriptor.getNamedAssociationByName( associationValue.name.name() );
@@ -212,15 +246,52 @@ public class SqlEntityStoreMixin
     public Stream<EntityState> entityStates( ModuleDescriptor module )
     {
         Stream<? extends EntityDescriptor> entityTypes = module.entityComposites();
-        return entityTypes
-            .flatMap( type -> sqlTable.fetchAll( type, module ) )
-            .map( baseEntity ->
-                  {
-                      EntityReference reference = EntityReference.entityReferenceFor( baseEntity.identity );
-                      SelectQuery<Record> selectQuery = sqlTable.createGetEntityQuery( baseEntity.type, reference );
-                      Result<Record> result = selectQuery.fetch();
-                      return toEntityState( result, baseEntity, reference, module );
-                  } );
+        return entityTypes.flatMap( type -> entityStatesOf( type, module ) );
+    }
+
+    /**
+     * Streams the entities of a type from a single joined query, fetching their associations by chunks of entities.
+     */
+    private Stream<EntityState> entityStatesOf( EntityDescriptor type, ModuleDescriptor module )
+    {
+        Stream<Record> rows = sqlTable.fetchAll( type );
+        Iterator<Record> iterator = rows.iterator();
+        Spliterator<List<EntityState>> chunks = new Spliterators.AbstractSpliterator<List<EntityState>>( Long.MAX_VALUE, Spliterator.ORDERED )
+        {
+            @Override
+            public boolean tryAdvance( Consumer<? super List<EntityState>> action )
+            {
+                List<Record> chunk = new ArrayList<>( SCAN_CHUNK_SIZE );
+                List<BaseEntity> baseEntities = new ArrayList<>( SCAN_CHUNK_SIZE );
+                List<String> identities = new ArrayList<>( SCAN_CHUNK_SIZE );
+                while( chunk.size() < SCAN_CHUNK_SIZE && iterator.hasNext() )
+                {
+                    Record row = iterator.next();
+                    BaseEntity baseEntity = sqlTable.toBaseEntity( row, module );
+                    chunk.add( row );
+                    baseEntities.add( baseEntity );
+                    identities.add( baseEntity.identity.toString() );
+                }
+                if( chunk.isEmpty() )
+                {
+                    return false;
+                }
+                Map<String, List<AssociationValue>> associations = sqlTable.fetchAssociations( type, identities );
+                List<EntityState> states = new ArrayList<>( chunk.size() );
+                for( int idx = 0; idx < chunk.size(); idx++ )
+                {
+                    BaseEntity baseEntity = baseEntities.get( idx );
+                    EntityReference reference = EntityReference.entityReferenceFor( baseEntity.identity );
+                    List<AssociationValue> associationValues = associations.getOrDefault( identities.get( idx ), new ArrayList<>() );
+                    states.add( toEntityState( chunk.get( idx ), baseEntity, reference, module, associationValues ) );
+                }
+                action.accept( states );
+                return true;
+            }
+        };
+        return StreamSupport.stream( chunks, false )
+                            .flatMap( List::stream )
+                            .onClose( rows::close );
     }
 
     private class JooqStateCommitter
@@ -239,48 +310,48 @@ public class SqlEntityStoreMixin
             this.module = unitOfWork.module();
         }
 
-        private void newState( DefaultEntityState state, EntityStoreUnitOfWork unitOfWork )
-        {
-            EntityReference ref = state.entityReference();
-            EntityDescriptor descriptor = state.entityDescriptor();
-            BaseEntity baseEntity = sqlTable.createNewBaseEntity( ref, descriptor, this.unitOfWork );
-            sqlTable.insertEntity( state, baseEntity, unitOfWork );
-        }
-
-        private void updateState( DefaultEntityState state, EntityStoreUnitOfWork unitOfWork )
-        {
-            EntityDescriptor descriptor = state.entityDescriptor();
-            BaseEntity baseEntity = sqlTable.fetchBaseEntity( state.entityReference(), descriptor.module() );
-            sqlTable.updateEntity( state, baseEntity, unitOfWork );
-        }
-
-        private void removeState( DefaultEntityState state )
-        {
-            EntityReference reference = state.entityReference();
-            EntityDescriptor descriptor = state.entityDescriptor();
-            sqlTable.removeEntity( reference, descriptor );
-        }
-
         @Override
         public void commit()
         {
+            List<DefaultEntityState> newStates = new ArrayList<>();
+            List<DefaultEntityState> updatedStates = new ArrayList<>();
+            List<DefaultEntityState> removed = new ArrayList<>();
+            for( EntityState es : this.states )
+            {
+                DefaultEntityState state = (DefaultEntityState) es;
+                if( state.status() == EntityStatus.NEW )
+                {
+                    newStates.add( state );
+                }
+                if( state.status() == EntityStatus.UPDATED )
+                {
+                    updatedStates.add( state );
+                }
+                if( state.status() == EntityStatus.REMOVED )
+                {
+                    removed.add( state );
+                }
+            }
             dslContext.transaction( configuration ->
                                     {
-                                        for( EntityState es : this.states )
+                                        // Base entities of updated and removed states are looked up all at once
+                                        List<EntityReference> existing = new ArrayList<>();
+                                        removed.forEach( state -> existing.add( state.entityReference() ) );
+                                        updatedStates.forEach( state -> existing.add( state.entityReference() ) );
+                                        Map<EntityReference, BaseEntity> baseEntities = existing.isEmpty()
+                                                                                        ? Collections.emptyMap()
+                                                                                        : sqlTable.fetchBaseEntities( existing, module );
+                                        if( !newStates.isEmpty() )
+                                        {
+                                            sqlTable.insertEntities( newStates, unitOfWork );
+                                        }
+                                        if( !updatedStates.isEmpty() )
+                                        {
+                                            sqlTable.updateEntities( updatedStates, baseEntities, unitOfWork );
+                                        }
+                                        if( !removed.isEmpty() )
                                         {
-                                            DefaultEntityState state = (DefaultEntityState) es;
-                                            if( state.status() == EntityStatus.NEW )
-                                            {
-                                                newState( state, unitOfWork );
-                                            }
-                                            if( state.status() == EntityStatus.UPDATED )
-                                            {
-                                                updateState( state, unitOfWork );
-                                            }
-                                            if( state.status() == EntityStatus.REMOVED )
-                                            {
-                                                removeState( state );
-                                            }
+                                            sqlTable.removeEntities( removed, baseEntities );
                                         }
                                     } );
         }
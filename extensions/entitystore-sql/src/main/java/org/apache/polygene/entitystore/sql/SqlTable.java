@@ -17,6 +17,9 @@
  */
 package org.apache.polygene.entitystore.sql;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 import org.apache.polygene.api.composite.TransientBuilderFactory;
@@ -93,21 +96,29 @@ public interface SqlTable extends ServiceActivation
 {
     BaseEntity fetchBaseEntity( EntityReference reference, ModuleDescriptor module );
 
+    Map<EntityReference, BaseEntity> fetchBaseEntities( Collection<EntityReference> references, ModuleDescriptor module );
+
+    BaseEntity toBaseEntity( Record row, ModuleDescriptor module );
+
     SelectQuery<Record> createGetEntityQuery( EntityDescriptor descriptor, EntityReference reference );
 
     void fetchAssociations( BaseEntity entity, EntityDescriptor descriptor, Consumer<AssociationValue> consume );
 
-    BaseEntity createNewBaseEntity( EntityReference ref, EntityDescriptor descriptor, EntityStoreUnitOfWork unitOfWork );
-
-    void insertEntity( DefaultEntityState state, BaseEntity baseEntity, EntityStoreUnitOfWork unitOfWork );
+    void insertEntities( List<DefaultEntityState> states, EntityStoreUnitOfWork unitOfWork );
 
-    void updateEntity( DefaultEntityState state, BaseEntity baseEntity, EntityStoreUnitOfWork unitOfWork );
+    void updateEntities( List<DefaultEntityState> states, Map<EntityReference, BaseEntity> baseEntities, EntityStoreUnitOfWork unitOfWork );
 
     JooqDslContext jooqDslContext();
 
-    void removeEntity( EntityReference entityReference, EntityDescriptor descriptor );
+    void removeEntities( List<DefaultEntityState> states, Map<EntityReference, BaseEntity> baseEntities );
 
-    Stream<BaseEntity> fetchAll( EntityDescriptor type, ModuleDescriptor module );
+    /**
+     * @return The rows of all entities of the given type joined with their Mixin tables, ordered by identity.
+     * The stream must be closed.
+     */
+    Stream<Record> fetchAll( EntityDescriptor type );
+
+    Map<String, List<AssociationValue>> fetchAssociations( EntityDescriptor type, List<String> identities );
 
     class Mixin
         implements SqlTable, TableFields, ServiceActivation
@@ -139,39 +150,51 @@ public interface SqlTable extends ServiceActivation
         }
 
         @Override
-        public Stream<BaseEntity> fetchAll( EntityDescriptor type, ModuleDescriptor module )
+        public Map<EntityReference, BaseEntity> fetchBaseEntities( Collection<EntityReference> references, ModuleDescriptor module )
         {
-            return entitiesTable.fetchAll( type, module );
+            return entitiesTable.fetchEntities( references, module );
         }
 
         @Override
-        public SelectQuery<Record> createGetEntityQuery( EntityDescriptor descriptor, EntityReference reference )
+        public BaseEntity toBaseEntity( Record row, ModuleDescriptor module )
         {
-            return entitiesTable.createGetEntityQuery( descriptor, reference );
+            return entitiesTable.toBaseEntity( row, module );
         }
 
         @Override
-        public void fetchAssociations( BaseEntity entity, EntityDescriptor descriptor, Consumer<AssociationValue> consume )
+        public Stream<Record> fetchAll( EntityDescriptor type )
         {
-            entitiesTable.fetchAssociations( entity, descriptor, consume );
+            return entitiesTable.fetchAll( type );
+        }
+
+        @Override
+        public Map<String, List<AssociationValue>> fetchAssociations( EntityDescriptor type, List<String> identities )
+        {
+            return entitiesTable.fetchAssociations( type, identities );
+        }
+
+        @Override
+        public SelectQuery<Record> createGetEntityQuery( EntityDescriptor descriptor, EntityReference reference )
+        {
+            return entitiesTable.createGetEntityQuery( descriptor, reference );
         }
 
         @Override
-        public BaseEntity createNewBaseEntity( EntityReference ref, EntityDescriptor descriptor, EntityStoreUnitOfWork unitOfWork )
+        public void fetchAssociations( BaseEntity entity, EntityDescriptor descriptor, Consumer<AssociationValue> consume )
         {
-            return entitiesTable.createNewBaseEntity( ref, descriptor, unitOfWork );
+            entitiesTable.fetchAssociations( entity, descriptor, consume );
         }
 
         @Override
-        public void insertEntity( DefaultEntityState state, BaseEntity baseEntity, EntityStoreUnitOfWork unitOfWork )
+        public void insertEntities( List<DefaultEntityState> states, EntityStoreUnitOfWork unitOfWork )
         {
-            entitiesTable.insertEntity( state, baseEntity );
+            entitiesTable.insertEntities( states, unitOfWork );
         }
 
         @Override
-        public void updateEntity( DefaultEntityState state, BaseEntity baseEntity, EntityStoreUnitOfWork unitOfWork )
+        public void updateEntities( List<DefaultEntityState> states, Map<EntityReference, BaseEntity> baseEntities, EntityStoreUnitOfWork unitOfWork )
         {
-            entitiesTable.modifyEntity( state, baseEntity, unitOfWork );
+            entitiesTable.modifyEntities( states, baseEntities, unitOfWork );
         }
 
         @Override
@@ -181,9 +204,9 @@ public interface SqlTable extends ServiceActivation
         }
 
         @Override
-        public void removeEntity( EntityReference reference, EntityDescriptor descriptor )
+        public void removeEntities( List<DefaultEntityState> states, Map<EntityReference, BaseEntity> baseEntities )
         {
-            entitiesTable.removeEntity( reference, descriptor );
+            entitiesTable.removeEntities( states, baseEntities );
         }
 
         @Override
@@ -29,6 +29,7 @@ import java.time.Period;
 import java.time.ZonedDateTime;
 import org.jooq.DataType;
 import org.jooq.Field;
+import org.jooq.Param;
 import org.jooq.SQLDialect;
 import org.jooq.impl.DSL;
 import org.jooq.impl.DefaultDataType;
@@ -50,6 +51,11 @@ class SqlType
         return makeField( columnName, type, dialect, true );
     }
 
+    static <T> Param<T> makeParam( Field<T> field )
+    {
+        return DSL.param( field.getName(), field.getDataType() );
+    }
+
     @SuppressWarnings( "unchecked" )
     static <T> DataType<T> getSqlDataTypeFor( SQLDialect dialect, Class<T> propertyType, boolean reference )
     {
@@ -0,0 +1,310 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package org.apache.polygene.entitystore.sql;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.apache.polygene.api.association.Association;
+import org.apache.polygene.api.association.ManyAssociation;
+import org.apache.polygene.api.association.NamedAssociation;
+import org.apache.polygene.api.common.Optional;
+import org.apache.polygene.api.common.QualifiedName;
+import org.apache.polygene.api.common.Visibility;
+import org.apache.polygene.api.entity.EntityBuilder;
+import org.apache.polygene.api.entity.EntityReference;
+import org.apache.polygene.api.identity.HasIdentity;
+import org.apache.polygene.api.identity.Identity;
+import org.apache.polygene.api.identity.StringIdentity;
+import org.apache.polygene.api.injection.scope.Structure;
+import org.apache.polygene.api.property.Property;
+import org.apache.polygene.api.structure.Module;
+import org.apache.polygene.api.unitofwork.UnitOfWork;
+import org.apache.polygene.api.unitofwork.UnitOfWorkCompletionException;
+import org.apache.polygene.bootstrap.ModuleAssembly;
+import org.apache.polygene.entitystore.sql.assembly.H2SQLEntityStoreAssembler;
+import org.apache.polygene.library.sql.assembly.DataSourceAssembler;
+import org.apache.polygene.library.sql.dbcp.DBCPDataSourceServiceAssembler;
+import org.apache.polygene.spi.entity.EntityState;
+import org.apache.polygene.spi.entitystore.EntityStore;
+import org.apache.polygene.test.AbstractPolygeneTest;
+import org.apache.polygene.test.EntityTestAssembler;
+import org.jooq.SQLDialect;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Scans, updates and associations of the SQL EntityStore with several entity types in the same module.
+ */
+public class H2SQLEntityStateScanTest
+    extends AbstractPolygeneTest
+{
+    @Structure
+    private Module moduleInstance;
+
+    @Override
+    public void assemble( ModuleAssembly module )
+        throws Exception
+    {
+        module.entities( Owner.class, Pet.class );
+        ModuleAssembly config = module.layer().module( "config" );
+        new EntityTestAssembler().defaultServicesVisibleIn( Visibility.layer ).assemble( config );
+
+        new DBCPDataSourceServiceAssembler()
+            .identifiedBy( "h2-datasource-service" )
+            .visibleIn( Visibility.module )
+            .withConfig( config, Visibility.layer )
+            .assemble( module );
+        new DataSourceAssembler()
+            .withDataSourceServiceIdentity( "h2-datasource-service" )
+            .identifiedBy( "h2-datasource" )
+            .visibleIn( Visibility.module )
+            .withCircuitBreaker()
+            .assemble( module );
+        new H2SQLEntityStoreAssembler()
+            .visibleIn( Visibility.application )
+            .withConfig( config, Visibility.layer )
+            .assemble( module );
+    }
+
+    @AfterEach
+    public void cleanUpData()
+    {
+        TearDown.dropTables( moduleInstance, SQLDialect.H2, super::tearDown );
+    }
+
+    @Test
+    public void givenSeveralEntityTypesWhenScanningThenEachEntityIsReturnedOnce()
+        throws UnitOfWorkCompletionException
+    {
+        Set<Identity> expected = createOwnersAndPets( 3, 2 );
+
+        assertThat( scannedIdentities(), equalTo( expected ) );
+    }
+
+    @Test
+    public void givenMoreEntitiesThanAScanChunkWhenScanningThenEachEntityIsReturnedOnce()
+        throws UnitOfWorkCompletionException
+    {
+        Set<Identity> expected = createOwnersAndPets( 620, 530 );
+
+        List<Identity> scanned = scanned();
+        assertThat( scanned.size(), is( expected.size() ) );
+        assertThat( new HashSet<>( scanned ), equalTo( expected ) );
+    }
+
+    @Test
+    public void givenSeveralEntitiesWhenUpdatingOneThenOthersAreUnchanged()
+        throws UnitOfWorkCompletionException
+    {
+        try( UnitOfWork uow = unitOfWorkFactory.newUnitOfWork() )
+        {
+            newPet( uow, "pet-1", "Rex" );
+            newPet( uow, "pet-2", "Fido" );
+            uow.complete();
+        }
+        try( UnitOfWork uow = unitOfWorkFactory.newUnitOfWork() )
+        {
+            uow.get( Pet.class, StringIdentity.identityOf( "pet-1" ) ).name().set( "Max" );
+            uow.complete();
+        }
+        try( UnitOfWork uow = unitOfWorkFactory.newUnitOfWork() )
+        {
+            assertThat( uow.get( Pet.class, StringIdentity.identityOf( "pet-1" ) ).name().get(), equalTo( "Max" ) );
+            assertThat( uow.get( Pet.class, StringIdentity.identityOf( "pet-2" ) ).name().get(), equalTo( "Fido" ) );
+        }
+    }
+
+    @Test
+    public void givenManyAssociationWhenLoadingThenReferencesAreInInsertionOrder()
+        throws UnitOfWorkCompletionException
+    {
+        try( UnitOfWork uow = unitOfWorkFactory.newUnitOfWork() )
+        {
+            Pet first = newPet( uow, "pet-1", "Rex" );
+            Pet second = newPet( uow, "pet-2", "Fido" );
+            Pet third = newPet( uow, "pet-3", "Max" );
+            Owner owner = newOwner( uow, "owner-1" );
+            owner.pets().add( third );
+            owner.pets().add( first );
+            owner.pets().add( second );
+            uow.complete();
+        }
+        try( UnitOfWork uow = unitOfWorkFactory.newUnitOfWork() )
+        {
+            Owner owner = uow.get( Owner.class, StringIdentity.identityOf( "owner-1" ) );
+            assertThat( owner.pets().count(), is( 3 ) );
+            assertThat( petNames( owner.pets().toList() ), equalTo( asList( "Max", "Rex", "Fido" ) ) );
+            assertThat( owner.pets().get( 2 ).name().get(), equalTo( "Fido" ) );
+        }
+        try( Stream<EntityState> states = entityStore().entityStates( module ) )
+        {
+            EntityState owner = states.filter( state -> state.entityReference().identity().toString().equals( "owner-1" ) )
+                                      .findFirst().get();
+            List<EntityReference> pets = owner.manyAssociationValueOf( QualifiedName.fromClass( Owner.class, "pets" ) )
+                                                .stream().collect( toList() );
+            assertThat( pets, equalTo( asList( EntityReference.parseEntityReference( "pet-3" ),
+                                               EntityReference.parseEntityReference( "pet-1" ),
+                                               EntityReference.parseEntityReference( "pet-2" ) ) ) );
+        }
+    }
+
+    @Test
+    public void givenAssociationsInSomeMixinTypesOnlyWhenLoadingAndScanningThenAllAssociationsAreFound()
+        throws UnitOfWorkCompletionException
+    {
+        try( UnitOfWork uow = unitOfWorkFactory.newUnitOfWork() )
+        {
+            Pet rex = newPet( uow, "pet-1", "Rex" );
+            Pet fido = newPet( uow, "pet-2", "Fido" );
+            Pet max = newPet( uow, "pet-3", "Max" );
+            newOwner( uow, "lonely-owner" );
+            Owner owner = newOwner( uow, "owner" );
+            owner.pets().add( rex );
+            owner.pets().add( fido );
+            owner.favorites().put( "best", rex );
+            Owner sitter = newOwner( uow, "owner-and-sitter" );
+            sitter.pets().add( rex );
+            sitter.pets().add( fido );
+            sitter.sitting().add( max );
+            uow.complete();
+        }
+        try( UnitOfWork uow = unitOfWorkFactory.newUnitOfWork() )
+        {
+            Owner lonely = uow.get( Owner.class, StringIdentity.identityOf( "lonely-owner" ) );
+            assertThat( lonely.pets().count(), is( 0 ) );
+            assertThat( lonely.favorites().count(), is( 0 ) );
+            assertThat( lonely.sitting().count(), is( 0 ) );
+            assertThat( lonely.walker().get(), nullValue() );
+
+            Owner owner = uow.get( Owner.class, StringIdentity.identityOf( "owner" ) );
+            assertThat( petNames( owner.pets().toList() ), equalTo( asList( "Rex", "Fido" ) ) );
+            assertThat( owner.favorites().count(), is( 1 ) );
+            assertThat( owner.favorites().get( "best" ).name().get(), equalTo( "Rex" ) );
+            assertThat( owner.sitting().count(), is( 0 ) );
+
+            Owner sitter = uow.get( Owner.class, StringIdentity.identityOf( "owner-and-sitter" ) );
+            assertThat( petNames( sitter.pets().toList() ), equalTo( asList( "Rex", "Fido" ) ) );
+            assertThat( petNames( sitter.sitting().toList() ), equalTo( asList( "Max" ) ) );
+        }
+        assertThat( scannedIdentities(), equalTo( new HashSet<>( asList( StringIdentity.identityOf( "lonely-owner" ),
+                                                                        StringIdentity.identityOf( "owner" ),
+                                                                        StringIdentity.identityOf( "owner-and-sitter" ),
+                                                                        StringIdentity.identityOf( "pet-1" ),
+                                                                        StringIdentity.identityOf( "pet-2" ),
+                                                                        StringIdentity.identityOf( "pet-3" ) ) ) ) );
+    }
+
+    private Set<Identity> createOwnersAndPets( int owners, int pets )
+        throws UnitOfWorkCompletionException
+    {
+        Set<Identity> identities = new HashSet<>();
+        try( UnitOfWork uow = unitOfWorkFactory.newUnitOfWork() )
+        {
+            List<Pet> created = new ArrayList<>();
+            for( int idx = 0; idx < pets; idx++ )
+            {
+                Pet pet = newPet( uow, "pet-" + idx, "Pet " + idx );
+                created.add( pet );
+                identities.add( pet.identity().get() );
+            }
+            for( int idx = 0; idx < owners; idx++ )
+            {
+                Owner owner = newOwner( uow, "owner-" + idx );
+                if( idx % 2 == 0 )
+                {
+                    owner.pets().add( created.get( idx % pets ) );
+                }
+                identities.add( owner.identity().get() );
+            }
+            uow.complete();
+        }
+        return identities;
+    }
+
+    private Set<Identity> scannedIdentities()
+    {
+        List<Identity> scanned = scanned();
+        Set<Identity> identities = new HashSet<>( scanned );
+        assertThat( "Duplicates in " + scanned, identities.size(), is( scanned.size() ) );
+        return identities;
+    }
+
+    private List<Identity> scanned()
+    {
+        try( Stream<EntityState> states = entityStore().entityStates( module ) )
+        {
+            return states.map( state -> state.entityReference().identity() ).collect( toList() );
+        }
+    }
+
+    private EntityStore entityStore()
+    {
+        return serviceFinder.findService( EntityStore.class ).get();
+    }
+
+    private static List<String> petNames( List<Pet> pets )
+    {
+        return pets.stream().map( pet -> pet.name().get() ).collect( toList() );
+    }
+
+    private static Pet newPet( UnitOfWork uow, String identity, String name )
+    {
+        EntityBuilder<Pet> builder = uow.newEntityBuilder( Pet.class, StringIdentity.identityOf( identity ) );
+        builder.instance().name().set( name );
+        return builder.newInstance();
+    }
+
+    private static Owner newOwner( UnitOfWork uow, String identity )
+    {
+        return uow.newEntityBuilder( Owner.class, StringIdentity.identityOf( identity ) ).newInstance();
+    }
+
+    public interface Owner
+        extends HasIdentity, PetSitter
+    {
+        ManyAssociation<Pet> pets();
+
+        NamedAssociation<Pet> favorites();
+
+        @Optional
+        Association<Pet> walker();
+    }
+
+    public interface PetSitter
+    {
+        ManyAssociation<Pet> sitting();
+    }
+
+    public interface Pet
+        extends HasIdentity
+    {
+        Property<String> name();
+    }
+}
@@ -66,6 +66,15 @@ class TearDown
                     dropTable( dialect, stmt, "Country" );
                     dropTable( dialect, stmt, "Country_ASSOCS" );
                     dropIndex( dialect, stmt, "Country_ASSOCS" );
+                    dropTable( dialect, stmt, "Owner" );
+                    dropTable( dialect, stmt, "Owner_ASSOCS" );
+                    dropIndex( dialect, stmt, "Owner_ASSOCS" );
+                    dropTable( dialect, stmt, "PetSitter" );
+                    dropTable( dialect, stmt, "PetSitter_ASSOCS" );
+                    dropIndex( dialect, stmt, "PetSitter_ASSOCS" );
+                    dropTable( dialect, stmt, "Pet" );
+                    dropTable( dialect, stmt, "Pet_ASSOCS" );
+                    dropIndex( dialect, stmt, "Pet_ASSOCS" );
                 }
             }
         }
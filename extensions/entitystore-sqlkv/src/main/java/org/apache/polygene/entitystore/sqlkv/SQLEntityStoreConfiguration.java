@@ -35,5 +35,26 @@ public interface SQLEntityStoreConfiguration
      */
     @UseDefaults( "true" )
     Property<Boolean> createIfMissing();
+
+    /**
+     * Number of entities fetched per query by full scans.
+     * <p>
+     * Scans page through the table in identity order, one query per page, so that they run in constant memory
+     * whatever the JDBC driver does with result sets.
+     * </p>
+     */
+    @UseDefaults( "1000" )
+    Property<Integer> scanPageSize();
+
+    /**
+     * Number of partitions of the table scanned in parallel, each on its own connection, by full scans.
+     * <p>
+     * Every parallel scan first reads all the identities of the table, in pages, to split it into partitions of
+     * about the same size. This costs an extra pass over the primary key, worth it only when reading the states
+     * dominates.
+     * </p>
+     */
+    @UseDefaults( "1" )
+    Property<Integer> scanParallelism();
 }
 // END SNIPPET: config
@@ -23,9 +23,26 @@ import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import javax.json.JsonObject;
 import javax.sql.DataSource;
+import org.apache.polygene.api.common.Optional;
 import org.apache.polygene.api.configuration.Configuration;
 import org.apache.polygene.api.entity.EntityDescriptor;
 import org.apache.polygene.api.entity.EntityReference;
@@ -35,14 +52,23 @@ import org.apache.polygene.api.injection.scope.Uses;
 import org.apache.polygene.api.service.ServiceActivation;
 import org.apache.polygene.api.service.ServiceDescriptor;
 import org.apache.polygene.serialization.javaxjson.JavaxJsonFactories;
+import org.apache.polygene.spi.entitystore.BackupRestore;
+import org.apache.polygene.spi.entitystore.ConcurrentEntityStateModificationException;
 import org.apache.polygene.spi.entitystore.EntityNotFoundException;
+import org.apache.polygene.spi.entitystore.EntityStoreException;
 import org.apache.polygene.spi.entitystore.helpers.JSONKeys;
+import org.apache.polygene.spi.entitystore.helpers.KeyRangePartition;
 import org.apache.polygene.spi.entitystore.helpers.MapEntityStore;
+import org.jooq.BatchBindStep;
+import org.jooq.Condition;
 import org.jooq.ConnectionProvider;
 import org.jooq.DSLContext;
 import org.jooq.Field;
 import org.jooq.Query;
 import org.jooq.Record;
+import org.jooq.Record2;
+import org.jooq.Record3;
+import org.jooq.Result;
 import org.jooq.SQLDialect;
 import org.jooq.Table;
 import org.jooq.TransactionProvider;
@@ -53,12 +79,22 @@ import org.jooq.impl.DefaultConfiguration;
 import org.jooq.impl.ThreadLocalTransactionProvider;
 
 public class SQLEntityStoreMixin
-    implements ServiceActivation, MapEntityStore
+    implements ServiceActivation, MapEntityStore, BackupRestore
 {
     private static final String IDENTITY_COLUMN_NAME = "ENTITY_IDENTITY";
     private static final String VERSION_COLUMN_NAME = "ENTITY_VERSION";
     private static final String STATE_COLUMN_NAME = "ENTITY_STATE";
 
+    /**
+     * Maximum number of identities in a single {@code IN} clause.
+     */
+    private static final int IN_CHUNK_SIZE = 500;
+
+    /**
+     * How long parallel scans wait for room in the queue before checking whether the scan was closed.
+     */
+    private static final long SCAN_OFFER_TIMEOUT_MILLIS = 100;
+
     @Service
     private DataSource dataSource;
 
@@ -76,6 +112,8 @@ public class SQLEntityStoreMixin
     private Field<String> versionColumn;
     private Field<String> stateColumn;
     private DSLContext dsl;
+    private int scanPageSize;
+    private int scanParallelism;
 
     @Override
     public void activateService()
@@ -100,6 +138,8 @@ public class SQLEntityStoreMixin
         identityColumn = DSL.field( DSL.name( IDENTITY_COLUMN_NAME ), String.class );
         versionColumn = DSL.field( DSL.name( VERSION_COLUMN_NAME ), String.class );
         stateColumn = DSL.field( DSL.name( STATE_COLUMN_NAME ), String.class );
+        scanPageSize = Math.max( 1, config.scanPageSize().get() );
+        scanParallelism = Math.max( 1, config.scanParallelism().get() );
 
         if( config.createIfMissing().get() )
         {
@@ -134,21 +174,317 @@ public class SQLEntityStoreMixin
         return new StringReader( state );
     }
 
+    @Override
+    public Map<EntityReference, Reader> entityStatesOf( Iterable<EntityReference> entityReferences )
+    {
+        Map<String, EntityReference> references = new LinkedHashMap<>();
+        entityReferences.forEach( reference -> references.put( reference.identity().toString(), reference ) );
+        List<String> identities = new ArrayList<>( references.keySet() );
+        Map<EntityReference, Reader> states = new LinkedHashMap<>();
+        for( int from = 0; from < identities.size(); from += IN_CHUNK_SIZE )
+        {
+            List<String> chunk = identities.subList( from, Math.min( from + IN_CHUNK_SIZE, identities.size() ) );
+            dsl.select( identityColumn, stateColumn )
+               .from( table )
+               .where( identityColumn.in( chunk ) )
+               .fetch()
+               .forEach( record -> states.put( references.get( record.get( identityColumn ) ),
+                                               new StringReader( record.get( stateColumn ) ) ) );
+        }
+        return states;
+    }
+
     @Override
     public Stream<Reader> entityStates()
     {
-        return dsl.select( stateColumn )
-                  .from( table )
-                  .fetch( stateColumn )
-                  .stream()
-                  .map( StringReader::new );
+        return entityStatesStream().map( StringReader::new );
+    }
+
+    @Override
+    public List<String> partitions( int count )
+    {
+        // Split the primary key range, scanning the identities only
+        try( Stream<Record2<String, String>> identities = scan( versionColumn, null, null ) )
+        {
+            return KeyRangePartition.split( identities.map( Record2::value1 ).iterator(), count );
+        }
+    }
+
+    @Override
+    public Stream<Reader> entityStates( String partition, @Optional String after )
+    {
+        KeyRangePartition range = KeyRangePartition.parse( partition ).resumeAfter( after );
+        return scan( stateColumn, range.after(), range.upTo() ).map( record -> new StringReader( record.value2() ) );
+    }
+
+    @Override
+    public Stream<String> backup()
+    {
+        return entityStatesStream();
+    }
+
+    @Override
+    public void restore( Stream<String> states )
+    {
+        List<Record3<String, String, String>> page = new ArrayList<>( scanPageSize );
+        states.forEach(
+            state ->
+            {
+                JsonObject json = jsonFactories.readerFactory().createReader( new StringReader( state ) ).readObject();
+                page.add( dsl.newRecord( identityColumn, versionColumn, stateColumn )
+                             .values( json.getString( JSONKeys.IDENTITY ), json.getString( JSONKeys.VERSION ), state ) );
+                if( page.size() >= scanPageSize )
+                {
+                    restorePage( page );
+                    page.clear();
+                }
+            } );
+        if( !page.isEmpty() )
+        {
+            restorePage( page );
+        }
+    }
+
+    private void restorePage( List<Record3<String, String, String>> page )
+    {
+        Query upsert = upsertQuery();
+        boolean rebind = dsl.dialect().family() != SQLDialect.H2;
+        List<String> identities = new ArrayList<>( page.size() );
+        List<Object[]> rows = new ArrayList<>( page.size() );
+        for( Record3<String, String, String> record : page )
+        {
+            identities.add( record.value1() );
+            rows.add( upsert != null && rebind
+                      ? new Object[]{
+                          record.value1(), record.value2(), record.value3(), record.value2(), record.value3()
+                      }
+                      : record.intoArray() );
+        }
+        if( upsert != null )
+        {
+            dsl.transaction( t -> bindAll( dsl.batch( upsert ), rows ).execute() );
+            return;
+        }
+        dsl.transaction(
+            t ->
+            {
+                for( int from = 0; from < identities.size(); from += IN_CHUNK_SIZE )
+                {
+                    List<String> chunk = identities.subList( from, Math.min( from + IN_CHUNK_SIZE,
+                                                                             identities.size() ) );
+                    dsl.deleteFrom( table ).where( identityColumn.in( chunk ) ).execute();
+                }
+                bindAll( dsl.batch( insertQuery() ), rows ).execute();
+            } );
+    }
+
+    private Stream<String> entityStatesStream()
+    {
+        if( scanParallelism > 1 )
+        {
+            List<String> partitions = partitions( scanParallelism );
+            if( partitions.size() > 1 )
+            {
+                return parallelScan( partitions );
+            }
+        }
+        return scan( stateColumn, null, null ).map( Record2::value2 );
+    }
+
+    /**
+     * Keyset pagination over a range of identities, in identity order.
+     * <p>
+     * Each page is fetched by its own query starting after the last identity of the previous page. Memory use is
+     * bounded by the page size whatever the JDBC driver does with result sets, and no connection is held between
+     * pages.
+     * </p>
+     *
+     * @param column Column fetched along with the identity
+     * @param after  Identity after which to start, exclusive, null to start with the first one
+     * @param upTo   Identity at which to stop, inclusive, null to stop with the last one
+     * @return Identity and column value records
+     */
+    private Stream<Record2<String, String>> scan( Field<String> column, @Optional String after, @Optional String upTo )
+    {
+        return StreamSupport.stream(
+            new Spliterators.AbstractSpliterator<Result<Record2<String, String>>>( Long.MAX_VALUE,
+                                                                                   Spliterator.ORDERED
+                                                                                   | Spliterator.NONNULL )
+            {
+                private String last = after;
+                private boolean done;
+
+                @Override
+                public boolean tryAdvance( Consumer<? super Result<Record2<String, String>>> action )
+                {
+                    if( done )
+                    {
+                        return false;
+                    }
+                    Condition condition = DSL.trueCondition();
+                    if( last != null )
+                    {
+                        condition = condition.and( identityColumn.greaterThan( last ) );
+                    }
+                    if( upTo != null )
+                    {
+                        condition = condition.and( identityColumn.lessOrEqual( upTo ) );
+                    }
+                    Result<Record2<String, String>> page = dsl.select( identityColumn, column )
+                                                              .from( table )
+                                                              .where( condition )
+                                                              .orderBy( identityColumn )
+                                                              .limit( scanPageSize )
+                                                              .fetch();
+                    done = page.size() < scanPageSize;
+                    if( page.isEmpty() )
+                    {
+                        return false;
+                    }
+                    last = page.get( page.size() - 1 ).value1();
+                    action.accept( page );
+                    return true;
+                }
+            },
+            false
+        ).flatMap( Result::stream );
+    }
+
+    /**
+     * Scan partitions in parallel, each on its own thread and connection.
+     * <p>
+     * Pages of states are handed over through a bounded queue so that memory use stays bounded when the consumer is
+     * slower than the scans. Closing the stream stops the scans. Scan threads are daemon threads and never block
+     * on the queue for long, so that a stream that is not consumed to the end does not prevent shutdown.
+     * </p>
+     */
+    private Stream<String> parallelScan( List<String> partitions )
+    {
+        BlockingQueue<List<String>> pages = new ArrayBlockingQueue<>( partitions.size() * 2 );
+        List<String> endOfPartition = new ArrayList<>( 0 );
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicBoolean closed = new AtomicBoolean();
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(
+            partitions.size(),
+            runnable ->
+            {
+                Thread thread = new Thread( runnable, descriptor.identity() + "-scan-" + threadCount.incrementAndGet() );
+                thread.setDaemon( true );
+                return thread;
+            } );
+        for( String partition : partitions )
+        {
+            executor.execute(
+                () ->
+                {
+                    KeyRangePartition range = KeyRangePartition.parse( partition );
+                    List<String> page = new ArrayList<>( scanPageSize );
+                    try( Stream<Record2<String, String>> states = scan( stateColumn, range.after(), range.upTo() ) )
+                    {
+                        Iterator<Record2<String, String>> iterator = states.iterator();
+                        while( iterator.hasNext() && !Thread.currentThread().isInterrupted() )
+                        {
+                            page.add( iterator.next().value2() );
+                            if( page.size() >= scanPageSize || !iterator.hasNext() )
+                            {
+                                if( !offer( pages, page, closed ) )
+                                {
+                                    return;
+                                }
+                                page = new ArrayList<>( scanPageSize );
+                            }
+                        }
+                    }
+                    catch( InterruptedException ex )
+                    {
+                        // Stream closed
+                        return;
+                    }
+                    catch( Throwable ex )
+                    {
+                        failure.compareAndSet( null, ex );
+                    }
+                    try
+                    {
+                        offer( pages, endOfPartition, closed );
+                    }
+                    catch( InterruptedException ex )
+                    {
+                        // Stream closed
+                    }
+                } );
+        }
+        executor.shutdown();
+        return StreamSupport.stream(
+            new Spliterators.AbstractSpliterator<List<String>>( Long.MAX_VALUE, Spliterator.NONNULL )
+            {
+                private int ended;
+
+                @Override
+                public boolean tryAdvance( Consumer<? super List<String>> action )
+                {
+                    try
+                    {
+                        while( ended < partitions.size() )
+                        {
+                            List<String> page = pages.take();
+                            if( page != endOfPartition )
+                            {
+                                action.accept( page );
+                                return true;
+                            }
+                            ended++;
+                            if( failure.get() != null )
+                            {
+                                throw new EntityStoreException( "Unable to scan entities", failure.get() );
+                            }
+                        }
+                        return false;
+                    }
+                    catch( InterruptedException ex )
+                    {
+                        Thread.currentThread().interrupt();
+                        throw new EntityStoreException( "Interrupted while scanning entities", ex );
+                    }
+                }
+            },
+            false
+        ).flatMap( List::stream ).onClose(
+            () ->
+            {
+                closed.set( true );
+                executor.shutdownNow();
+            } );
+    }
+
+    /**
+     * Hand a page over to the consumer of a parallel scan, waiting for room in the queue until the scan is closed.
+     *
+     * @return false if the scan was closed before the page could be handed over
+     */
+    private static boolean offer( BlockingQueue<List<String>> pages, List<String> page, AtomicBoolean closed )
+        throws InterruptedException
+    {
+        while( !closed.get() )
+        {
+            if( pages.offer( page, SCAN_OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS ) )
+            {
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
     public void applyChanges( MapChanges changes )
         throws Exception
     {
-        List<Query> operations = new ArrayList<>();
+        // Accumulate bind values per operation type, each type is then sent as a single JDBC batch
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        List<EntityReference> updated = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
         changes.visitMap( new MapChanger()
         {
             @Override
@@ -165,11 +501,7 @@ public class SQLEntityStoreMixin
                         String version = jsonFactories.readerFactory().createReader( new StringReader( state ) )
                                                       .readObject()
                                                       .getString( JSONKeys.VERSION );
-                        operations.add(
-                            dsl.insertInto( table )
-                               .columns( identityColumn, versionColumn, stateColumn )
-                               .values( ref.identity().toString(), version, state )
-                                      );
+                        inserts.add( new Object[]{ ref.identity().toString(), version, state } );
                     }
                 };
             }
@@ -184,14 +516,11 @@ public class SQLEntityStoreMixin
                         throws IOException
                     {
                         super.close();
-                        String state = toString();
-                        operations.add(
-                            dsl.update( table )
-                               .set( versionColumn, mapChange.newVersion() )
-                               .set( stateColumn, state )
-                               .where( identityColumn.equal( mapChange.reference().identity().toString() ) )
-                               .and( versionColumn.equal( mapChange.previousVersion() ) )
-                                      );
+                        updates.add( new Object[]{
+                            mapChange.newVersion(), toString(),
+                            mapChange.reference().identity().toString(), mapChange.previousVersion()
+                        } );
+                        updated.add( mapChange.reference() );
                     }
                 };
             }
@@ -199,12 +528,107 @@ public class SQLEntityStoreMixin
             @Override
             public void removeEntity( EntityReference ref, EntityDescriptor entityDescriptor )
             {
-                operations.add(
-                    dsl.deleteFrom( table )
-                       .where( identityColumn.equal( ref.identity().toString() ) )
-                              );
+                removed.add( ref.identity().toString() );
             }
         } );
-        dsl.transaction( t -> dsl.batch( operations ).execute() );
+        dsl.transaction(
+            t ->
+            {
+                for( int from = 0; from < removed.size(); from += IN_CHUNK_SIZE )
+                {
+                    List<String> chunk = removed.subList( from, Math.min( from + IN_CHUNK_SIZE, removed.size() ) );
+                    dsl.deleteFrom( table ).where( identityColumn.in( chunk ) ).execute();
+                }
+                if( !updates.isEmpty() )
+                {
+                    int[] counts = bindAll( dsl.batch( updateQuery() ), updates ).execute();
+                    List<EntityReference> modified = new ArrayList<>();
+                    for( int idx = 0; idx < counts.length; idx++ )
+                    {
+                        // Some drivers report SUCCESS_NO_INFO for batched statements, only a zero count is a miss
+                        if( counts[ idx ] == 0 )
+                        {
+                            modified.add( updated.get( idx ) );
+                        }
+                    }
+                    if( !modified.isEmpty() )
+                    {
+                        throw new ConcurrentEntityStateModificationException( modified );
+                    }
+                }
+                if( !inserts.isEmpty() )
+                {
+                    bindAll( dsl.batch( insertQuery() ), inserts ).execute();
+                }
+            } );
+    }
+
+    private static BatchBindStep bindAll( BatchBindStep batch, List<Object[]> bindValues )
+    {
+        for( Object[] values : bindValues )
+        {
+            batch = batch.bind( values );
+        }
+        return batch;
+    }
+
+    private Query insertQuery()
+    {
+        return dsl.insertInto( table )
+                  .columns( identityColumn, versionColumn, stateColumn )
+                  .values( DSL.param( "identity", String.class ),
+                           DSL.param( "version", String.class ),
+                           DSL.param( "state", String.class ) );
+    }
+
+    private Query updateQuery()
+    {
+        return dsl.update( table )
+                  .set( versionColumn, DSL.param( "version", String.class ) )
+                  .set( stateColumn, DSL.param( "state", String.class ) )
+                  .where( identityColumn.equal( DSL.param( "identity", String.class ) ) )
+                  .and( versionColumn.equal( DSL.param( "previousVersion", String.class ) ) );
+    }
+
+    /**
+     * Dialect specific upsert, or null if the dialect has none.
+     * <p>
+     * Binds identity, version and state, then version and state again for the dialects that repeat them in their
+     * update clause.
+     * </p>
+     */
+    private Query upsertQuery()
+    {
+        switch( dsl.dialect().family() )
+        {
+            case POSTGRES:
+                return dsl.insertInto( table )
+                          .columns( identityColumn, versionColumn, stateColumn )
+                          .values( DSL.param( "identity", String.class ),
+                                   DSL.param( "version", String.class ),
+                                   DSL.param( "state", String.class ) )
+                          .onConflict( identityColumn )
+                          .doUpdate()
+                          .set( versionColumn, DSL.param( "updateVersion", String.class ) )
+                          .set( stateColumn, DSL.param( "updateState", String.class ) );
+            case MYSQL:
+            case MARIADB:
+                return dsl.insertInto( table )
+                          .columns( identityColumn, versionColumn, stateColumn )
+                          .values( DSL.param( "identity", String.class ),
+                                   DSL.param( "version", String.class ),
+                                   DSL.param( "state", String.class ) )
+                          .onDuplicateKeyUpdate()
+                          .set( versionColumn, DSL.param( "updateVersion", String.class ) )
+                          .set( stateColumn, DSL.param( "updateState", String.class ) );
+            case H2:
+                return dsl.mergeInto( table, identityColumn, versionColumn, stateColumn )
+                          .key( identityColumn )
+                          .values( DSL.param( "identity", String.class ),
+                                   DSL.param( "version", String.class ),
+                                   DSL.param( "state", String.class ) );
+            default:
+                return null;
+        }
     }
 }
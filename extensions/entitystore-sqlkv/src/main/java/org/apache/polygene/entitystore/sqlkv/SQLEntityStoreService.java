@@ -21,6 +21,8 @@ import org.apache.polygene.api.concern.Concerns;
 import org.apache.polygene.api.configuration.Configuration;
 import org.apache.polygene.api.mixin.Mixins;
 import org.apache.polygene.api.service.ServiceActivation;
+import org.apache.polygene.spi.entitystore.BackupRestore;
+import org.apache.polygene.spi.entitystore.BulkImport;
 import org.apache.polygene.spi.entitystore.ConcurrentModificationCheckConcern;
 import org.apache.polygene.spi.entitystore.EntityStateVersions;
 import org.apache.polygene.spi.entitystore.EntityStore;
@@ -38,6 +40,8 @@ public interface SQLEntityStoreService
     JSONMapEntityStoreActivation,
     EntityStore,
     EntityStateVersions,
+    BackupRestore,
+    BulkImport,
     Configuration
 {
 }
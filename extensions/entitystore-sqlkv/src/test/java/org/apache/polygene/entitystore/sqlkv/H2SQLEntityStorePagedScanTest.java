@@ -0,0 +1,86 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package org.apache.polygene.entitystore.sqlkv;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.apache.polygene.api.entity.EntityReference;
+import org.apache.polygene.api.unitofwork.UnitOfWork;
+import org.apache.polygene.api.unitofwork.UnitOfWorkCompletionException;
+import org.apache.polygene.bootstrap.ModuleAssembly;
+import org.apache.polygene.spi.entity.EntityState;
+import org.apache.polygene.spi.entitystore.EntityStore;
+import org.junit.jupiter.api.Test;
+
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Runs the EntityStore tests with pages of a few entities, so that scans span several pages.
+ */
+public class H2SQLEntityStorePagedScanTest extends H2SQLEntityStoreTest
+{
+    static final int PAGE_SIZE = 3;
+
+    @Override
+    public void assemble( ModuleAssembly module )
+        throws Exception
+    {
+        super.assemble( module );
+        SQLEntityStoreConfiguration defaults = module.layer().module( "config" )
+                                                     .forMixin( SQLEntityStoreConfiguration.class )
+                                                     .declareDefaults();
+        defaults.scanPageSize().set( PAGE_SIZE );
+        defaults.scanParallelism().set( scanParallelism() );
+    }
+
+    protected int scanParallelism()
+    {
+        return 1;
+    }
+
+    @Test
+    public void givenEntityCountsAroundPageSizeWhenScanningThenEachEntityIsReturnedOnce()
+        throws UnitOfWorkCompletionException
+    {
+        EntityStore entityStore = serviceFinder.findService( EntityStore.class ).get();
+        Set<EntityReference> created = new HashSet<>();
+        for( int count : new int[]{ 0, 1, PAGE_SIZE - 1, PAGE_SIZE, PAGE_SIZE + 1, 2 * PAGE_SIZE, 4 * PAGE_SIZE + 1 } )
+        {
+            try( UnitOfWork unitOfWork = unitOfWorkFactory.newUnitOfWork() )
+            {
+                while( created.size() < count )
+                {
+                    created.add( EntityReference.entityReferenceFor( createEntity( unitOfWork ) ) );
+                }
+                unitOfWork.complete();
+            }
+            try( Stream<EntityState> states = entityStore.entityStates( module ) )
+            {
+                List<EntityReference> scanned = states.map( EntityState::entityReference ).collect( toList() );
+                assertThat( "Scan of " + count + " entities", scanned.size(), equalTo( count ) );
+                assertThat( "Scan of " + count + " entities", new HashSet<>( scanned ), equalTo( created ) );
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package org.apache.polygene.entitystore.sqlkv;
+
+import java.util.stream.Stream;
+import org.apache.polygene.api.unitofwork.UnitOfWork;
+import org.apache.polygene.spi.entity.EntityState;
+import org.apache.polygene.spi.entitystore.EntityStore;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Runs the EntityStore tests with pages of a few entities, scanning two partitions in parallel.
+ */
+public class H2SQLEntityStoreParallelScanTest extends H2SQLEntityStorePagedScanTest
+{
+    @Override
+    protected int scanParallelism()
+    {
+        return 2;
+    }
+
+    @Test
+    public void givenParallelScanWhenClosedBeforeTheEndThenScanThreadsStop()
+        throws Exception
+    {
+        EntityStore entityStore = serviceFinder.findService( EntityStore.class ).get();
+        try( UnitOfWork unitOfWork = unitOfWorkFactory.newUnitOfWork() )
+        {
+            for( int idx = 0; idx < 20 * PAGE_SIZE; idx++ )
+            {
+                createEntity( unitOfWork );
+            }
+            unitOfWork.complete();
+        }
+
+        try( Stream<EntityState> states = entityStore.entityStates( module ) )
+        {
+            assertThat( states.findFirst().isPresent(), is( true ) );
+        }
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while( scanThreadsAlive() && System.currentTimeMillis() < deadline )
+        {
+            Thread.sleep( 10 );
+        }
+        assertThat( scanThreadsAlive(), is( false ) );
+    }
+
+    private static boolean scanThreadsAlive()
+    {
+        return Thread.getAllStackTraces().keySet().stream()
+                     .anyMatch( thread -> thread.getName().contains( "-scan-" ) && thread.isAlive() );
+    }
+}
@@ -35,4 +35,39 @@ public interface ReindexerConfiguration
      */
     @Optional
     Property<Integer> loadValue();
+
+    /**
+     * How many partitions of the EntityStore are indexed in parallel.
+     * Values above 1 require StateChangeListeners that can be notified concurrently.
+     *
+     * If not specified, the value of 1 will be used.
+     *
+     * @return the property containing the concurrency.
+     */
+    @Optional
+    Property<Integer> concurrency();
+
+    /**
+     * How many partitions the EntityStore is asked to split its entities into.
+     * Stores that do not support partitioned scans use a single partition, some stores have a fixed number of
+     * partitions.
+     *
+     * If not specified, four times the concurrency will be used.
+     *
+     * @return the property containing the number of partitions.
+     */
+    @Optional
+    Property<Integer> partitions();
+
+    /**
+     * Path of the file where progress is checkpointed.
+     * When set, an interrupted or failed reindexing is resumed from the last checkpoint by the next one, and the
+     * file is deleted once reindexing completes.
+     *
+     * If not specified, progress is not checkpointed.
+     *
+     * @return the property containing the checkpoint file path.
+     */
+    @Optional
+    Property<String> checkpointFile();
 }
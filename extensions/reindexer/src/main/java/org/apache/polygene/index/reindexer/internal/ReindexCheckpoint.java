@@ -0,0 +1,215 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.polygene.index.reindexer.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Progress of a reindexing, by EntityStore partition.
+ * <p>
+ * When backed by a file, progress is saved at most every {@link #SAVE_INTERVAL_MILLIS} milliseconds and whenever a
+ * partition completes. The file is written to a temporary file first and then moved in place.
+ * </p>
+ */
+class ReindexCheckpoint
+{
+    private static final long SAVE_INTERVAL_MILLIS = 1000;
+
+    private final File file;
+    private final List<String> partitions;
+    private final Map<String, String> resumeAfter;
+    private final Set<String> completed;
+    private long lastSave;
+
+    private ReindexCheckpoint( File file, List<String> partitions, Map<String, String> resumeAfter,
+                               Set<String> completed )
+    {
+        this.file = file;
+        this.partitions = partitions;
+        this.resumeAfter = resumeAfter;
+        this.completed = completed;
+    }
+
+    /**
+     * @param file       Checkpoint file, null to not checkpoint
+     * @param partitions Partitions of the EntityStore
+     * @return A new checkpoint with no progress
+     */
+    static ReindexCheckpoint start( File file, List<String> partitions )
+    {
+        return new ReindexCheckpoint( file, new ArrayList<>( partitions ), new HashMap<>(), new HashSet<>() );
+    }
+
+    /**
+     * @param file Existing checkpoint file
+     * @return The saved checkpoint
+     * @throws IOException if the file cannot be read
+     */
+    static ReindexCheckpoint load( File file )
+        throws IOException
+    {
+        Properties properties = new Properties();
+        try( InputStream input = Files.newInputStream( file.toPath() ) )
+        {
+            properties.load( input );
+        }
+        int count = Integer.parseInt( properties.getProperty( "partitions" ) );
+        List<String> partitions = new ArrayList<>( count );
+        Map<String, String> resumeAfter = new HashMap<>();
+        Set<String> completed = new HashSet<>();
+        for( int idx = 0; idx < count; idx++ )
+        {
+            String partition = properties.getProperty( "partition." + idx );
+            partitions.add( partition );
+            String after = properties.getProperty( "partition." + idx + ".after" );
+            if( after != null )
+            {
+                resumeAfter.put( partition, after );
+            }
+            if( Boolean.parseBoolean( properties.getProperty( "partition." + idx + ".completed" ) ) )
+            {
+                completed.add( partition );
+            }
+        }
+        return new ReindexCheckpoint( file, partitions, resumeAfter, completed );
+    }
+
+    synchronized int partitionCount()
+    {
+        return partitions.size();
+    }
+
+    synchronized int completedCount()
+    {
+        return completed.size();
+    }
+
+    /**
+     * @return Partitions not completed yet
+     */
+    synchronized List<String> pending()
+    {
+        List<String> pending = new ArrayList<>( partitions );
+        pending.removeAll( completed );
+        return pending;
+    }
+
+    /**
+     * @param partition Partition
+     * @return Identity of the last entity indexed in the partition, null if none
+     */
+    synchronized String resumeAfter( String partition )
+    {
+        return resumeAfter.get( partition );
+    }
+
+    synchronized void progress( String partition, String lastIndexed )
+        throws IOException
+    {
+        resumeAfter.put( partition, lastIndexed );
+        if( System.currentTimeMillis() - lastSave >= SAVE_INTERVAL_MILLIS )
+        {
+            save();
+        }
+    }
+
+    synchronized void complete( String partition )
+        throws IOException
+    {
+        completed.add( partition );
+        resumeAfter.remove( partition );
+        save();
+    }
+
+    /**
+     * Forget the checkpoint once reindexing is complete.
+     *
+     * @throws IOException if the checkpoint file cannot be deleted
+     */
+    synchronized void delete()
+        throws IOException
+    {
+        if( file != null )
+        {
+            Files.deleteIfExists( file.toPath() );
+        }
+    }
+
+    synchronized void save()
+        throws IOException
+    {
+        lastSave = System.currentTimeMillis();
+        if( file == null )
+        {
+            return;
+        }
+        Properties properties = new Properties();
+        properties.setProperty( "partitions", String.valueOf( partitions.size() ) );
+        for( int idx = 0; idx < partitions.size(); idx++ )
+        {
+            String partition = partitions.get( idx );
+            properties.setProperty( "partition." + idx, partition );
+            String after = resumeAfter.get( partition );
+            if( after != null )
+            {
+                properties.setProperty( "partition." + idx + ".after", after );
+            }
+            if( completed.contains( partition ) )
+            {
+                properties.setProperty( "partition." + idx + ".completed", "true" );
+            }
+        }
+        Path target = file.getAbsoluteFile().toPath();
+        Files.createDirectories( target.getParent() );
+        Path temp = Files.createTempFile( target.getParent(), target.getFileName().toString(), ".tmp" );
+        try
+        {
+            try( OutputStream output = Files.newOutputStream( temp ) )
+            {
+                properties.store( output, "Reindexer checkpoint" );
+            }
+            try
+            {
+                Files.move( temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+            }
+            catch( AtomicMoveNotSupportedException ex )
+            {
+                Files.move( temp, target, StandardCopyOption.REPLACE_EXISTING );
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists( temp );
+        }
+    }
+}
@@ -20,23 +20,53 @@
 
 package org.apache.polygene.index.reindexer.internal;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Stream;
+import org.apache.polygene.api.common.Optional;
 import org.apache.polygene.api.configuration.Configuration;
 import org.apache.polygene.api.identity.HasIdentity;
 import org.apache.polygene.api.injection.scope.Service;
 import org.apache.polygene.api.injection.scope.Structure;
 import org.apache.polygene.api.injection.scope.This;
+import org.apache.polygene.api.injection.scope.Uses;
+import org.apache.polygene.api.metrics.MetricNames;
+import org.apache.polygene.api.metrics.MetricsCounter;
+import org.apache.polygene.api.metrics.MetricsCounterFactory;
+import org.apache.polygene.api.metrics.MetricsGaugeFactory;
+import org.apache.polygene.api.metrics.MetricsMeter;
+import org.apache.polygene.api.metrics.MetricsMeterFactory;
+import org.apache.polygene.api.metrics.MetricsProvider;
+import org.apache.polygene.api.service.ServiceDescriptor;
 import org.apache.polygene.api.service.ServiceReference;
-import org.apache.polygene.api.structure.ModuleDescriptor;
+import org.apache.polygene.api.structure.Module;
 import org.apache.polygene.index.reindexer.Reindexer;
 import org.apache.polygene.index.reindexer.ReindexerConfiguration;
 import org.apache.polygene.spi.entity.EntityState;
 import org.apache.polygene.spi.entitystore.EntityStore;
 import org.apache.polygene.spi.entitystore.StateChangeListener;
+import org.apache.polygene.spi.metrics.MetricsProviderAdapter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Reindex the partitions of the EntityStore, possibly in parallel.
+ * <p>
+ * Progress is checkpointed after each batch sent to the listeners when a checkpoint file is configured, so that an
+ * interrupted reindexing resumes where it stopped. Indexed entities, throughput and the percentage of completed
+ * partitions are reported as metrics.
+ * </p>
+ */
 public class ReindexerMixin
     implements Reindexer
 {
@@ -49,65 +79,226 @@ public class ReindexerMixin
     @Service
     private Iterable<ServiceReference<StateChangeListener>> listeners;
 
+    @Optional
+    @Service
+    private MetricsProvider metricsProvider;
+
     @Structure
-    private ModuleDescriptor module;
+    private Module module;
+
+    @Uses
+    private ServiceDescriptor descriptor;
 
     private Logger logger = LoggerFactory.getLogger( Reindexer.class );
 
+    private MetricsCounter indexedCounter;
+    private MetricsMeter throughput;
+    private volatile ReindexCheckpoint current;
+
     @Override
-    public void reindex()
+    public synchronized void reindex()
     {
         configuration.refresh();
         ReindexerConfiguration conf = configuration.get();
-        Integer loadValue = conf.loadValue().get();
-        if( loadValue == null )
+        int loadValue = valueOrDefault( conf.loadValue().get(), 50 );
+        int concurrency = valueOrDefault( conf.concurrency().get(), 1 );
+        int partitions = valueOrDefault( conf.partitions().get(), 4 * concurrency );
+        String checkpointPath = conf.checkpointFile().get();
+        File checkpointFile = checkpointPath == null ? null : new File( checkpointPath );
+        registerMetrics();
+
+        ReindexCheckpoint checkpoint;
+        try
+        {
+            if( checkpointFile != null && checkpointFile.exists() )
+            {
+                checkpoint = ReindexCheckpoint.load( checkpointFile );
+                logger.info( "Resuming reindexing from " + checkpointFile + ", "
+                             + checkpoint.completedCount() + "/" + checkpoint.partitionCount()
+                             + " partitions already completed" );
+            }
+            else
+            {
+                checkpoint = ReindexCheckpoint.start( checkpointFile, store.partitions( partitions ) );
+                checkpoint.save();
+            }
+        }
+        catch( IOException ex )
         {
-            loadValue = 50;
+            throw new UncheckedIOException( "Unable to read reindexing checkpoint", ex );
+        }
+        current = checkpoint;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(
+            concurrency,
+            runnable -> new Thread( runnable, descriptor.identity() + "-" + threadCount.incrementAndGet() ) );
+        boolean completed = false;
+        try
+        {
+            long start = System.nanoTime();
+            AtomicLong count = new AtomicLong();
+            List<Future<?>> tasks = new ArrayList<>();
+            for( String partition : checkpoint.pending() )
+            {
+                tasks.add( executor.submit( () -> reindexPartition( checkpoint, partition, loadValue, count ) ) );
+            }
+            for( Future<?> task : tasks )
+            {
+                awaitPartition( task );
+            }
+            completed = true;
+            checkpoint.delete();
+            long elapsedMillis = Math.max( 1, ( System.nanoTime() - start ) / 1_000_000 );
+            logger.info( "Reindexed " + count.get() + " entities in " + elapsedMillis + "ms, "
+                         + ( count.get() * 1000 / elapsedMillis ) + " entities/s" );
+        }
+        catch( IOException ex )
+        {
+            throw new UncheckedIOException( "Unable to delete reindexing checkpoint", ex );
+        }
+        finally
+        {
+            executor.shutdownNow();
+            if( !completed )
+            {
+                saveInterrupted( executor, checkpoint );
+            }
+            current = null;
         }
-        ReindexerHelper helper = new ReindexerHelper( loadValue );
-        helper.reindex( store );
     }
 
-    private class ReindexerHelper
+    private void saveInterrupted( ExecutorService executor, ReindexCheckpoint checkpoint )
     {
-        private int count;
-        private int loadValue;
-        private ArrayList<EntityState> states;
-
-        private ReindexerHelper( int loadValue )
+        // The interrupt status is cleared while saving, interruptible file channels would fail otherwise
+        boolean interrupted = Thread.interrupted();
+        try
+        {
+            // Let the batches being sent to the listeners complete before saving the final progress
+            if( !executor.awaitTermination( 1, TimeUnit.MINUTES ) )
+            {
+                logger.warn( "Reindexing tasks did not stop, checkpoint may not be accurate" );
+            }
+            checkpoint.save();
+        }
+        catch( InterruptedException ex )
+        {
+            interrupted = true;
+            logger.warn( "Interrupted while stopping reindexing tasks, checkpoint not saved" );
+        }
+        catch( IOException ex )
+        {
+            logger.warn( "Unable to save reindexing checkpoint", ex );
+        }
+        finally
         {
-            this.loadValue = loadValue;
-            states = new ArrayList<>();
+            if( interrupted )
+            {
+                Thread.currentThread().interrupt();
+            }
         }
+    }
 
-        private void reindex( EntityStore store )
+    private void awaitPartition( Future<?> task )
+    {
+        try
+        {
+            task.get();
+        }
+        catch( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException( "Reindexing interrupted", ex );
+        }
+        catch( ExecutionException ex )
         {
-            try( Stream<EntityState> entityStates = store.entityStates( module ) )
+            Throwable cause = ex.getCause();
+            if( cause instanceof RuntimeException )
+            {
+                throw (RuntimeException) cause;
+            }
+            if( cause instanceof Error )
             {
-                entityStates
-                    .forEach( entityState ->
-                              {
-                                  count++;
-                                  entityState.setPropertyValue( HasIdentity.IDENTITY_STATE_NAME,
-                                                                entityState.entityReference().identity() );
-                                  states.add( entityState );
-                                  if( states.size() >= loadValue )
-                                  {
-                                      reindexState();
-                                  }
-                              } );
+                throw (Error) cause;
             }
-            reindexState();
+            throw new IllegalStateException( "Reindexing failed", cause );
         }
+    }
 
-        private void reindexState()
+    private Void reindexPartition( ReindexCheckpoint checkpoint, String partition, int loadValue, AtomicLong count )
+        throws IOException
+    {
+        List<EntityState> states = new ArrayList<>( loadValue );
+        try( Stream<EntityState> entityStates = store.entityStates( module.descriptor(), partition,
+                                                                    checkpoint.resumeAfter( partition ) ) )
         {
-            for( ServiceReference<StateChangeListener> listener : listeners )
+            for( EntityState entityState : (Iterable<EntityState>) entityStates::iterator )
             {
-                listener.get().notifyChanges( states );
+                if( Thread.currentThread().isInterrupted() )
+                {
+                    return null;
+                }
+                entityState.setPropertyValue( HasIdentity.IDENTITY_STATE_NAME,
+                                              entityState.entityReference().identity() );
+                states.add( entityState );
+                if( states.size() >= loadValue )
+                {
+                    reindexStates( checkpoint, partition, states, count );
+                }
             }
-            states.clear();
-            logger.debug( "Reindexed " + count + " entities" );
         }
+        reindexStates( checkpoint, partition, states, count );
+        checkpoint.complete( partition );
+        logger.debug( "Reindexed partition " + partition + ", " + checkpoint.completedCount() + "/"
+                      + checkpoint.partitionCount() + " partitions completed" );
+        return null;
+    }
+
+    private void reindexStates( ReindexCheckpoint checkpoint, String partition, List<EntityState> states,
+                                AtomicLong count )
+        throws IOException
+    {
+        if( states.isEmpty() )
+        {
+            return;
+        }
+        for( ServiceReference<StateChangeListener> listener : listeners )
+        {
+            listener.get().notifyChanges( states );
+        }
+        String lastIndexed = states.get( states.size() - 1 ).entityReference().identity().toString();
+        checkpoint.progress( partition, lastIndexed );
+        indexedCounter.increment( states.size() );
+        throughput.mark( states.size() );
+        logger.debug( "Reindexed " + count.addAndGet( states.size() ) + " entities" );
+        states.clear();
+    }
+
+    private void registerMetrics()
+    {
+        if( indexedCounter != null )
+        {
+            return;
+        }
+        MetricsProvider metrics = metricsProvider != null ? metricsProvider : new MetricsProviderAdapter();
+        String name = descriptor.identity().toString();
+        indexedCounter = metrics.createFactory( MetricsCounterFactory.class ).createCounter(
+            MetricNames.nameFor( module, Reindexer.class, name, "indexed" ) );
+        throughput = metrics.createFactory( MetricsMeterFactory.class ).createMeter(
+            MetricNames.nameFor( module, Reindexer.class, name, "throughput" ) );
+        metrics.createFactory( MetricsGaugeFactory.class ).registerGauge(
+            MetricNames.nameFor( module, Reindexer.class, name, "progress" ),
+            () ->
+            {
+                ReindexCheckpoint checkpoint = current;
+                return checkpoint == null || checkpoint.partitionCount() == 0
+                       ? 100d
+                       : 100d * checkpoint.completedCount() / checkpoint.partitionCount();
+            } );
+    }
+
+    private static int valueOrDefault( Integer value, int defaultValue )
+    {
+        return value == null || value < 1 ? defaultValue : value;
     }
 }
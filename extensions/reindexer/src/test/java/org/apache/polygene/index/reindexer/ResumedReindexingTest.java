@@ -0,0 +1,207 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package org.apache.polygene.index.reindexer;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.polygene.api.common.Visibility;
+import org.apache.polygene.api.entity.EntityBuilder;
+import org.apache.polygene.api.entity.EntityComposite;
+import org.apache.polygene.api.identity.Identity;
+import org.apache.polygene.api.property.Property;
+import org.apache.polygene.api.unitofwork.UnitOfWork;
+import org.apache.polygene.api.unitofwork.UnitOfWorkCompletionException;
+import org.apache.polygene.bootstrap.ModuleAssembly;
+import org.apache.polygene.entitystore.file.assembly.FileEntityStoreAssembler;
+import org.apache.polygene.library.fileconfig.FileConfigurationAssembler;
+import org.apache.polygene.library.fileconfig.FileConfigurationOverride;
+import org.apache.polygene.spi.entity.EntityState;
+import org.apache.polygene.spi.entitystore.StateChangeListener;
+import org.apache.polygene.test.AbstractPolygeneTest;
+import org.apache.polygene.test.EntityTestAssembler;
+import org.apache.polygene.test.TemporaryFolder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.not;
+
+@ExtendWith( TemporaryFolder.class )
+public class ResumedReindexingTest
+    extends AbstractPolygeneTest
+{
+    private static final int ENTITIES = 400;
+
+    private TemporaryFolder tmpDir;
+
+    private final RecordingIndexer indexer = new RecordingIndexer();
+
+    @Override
+    public void assemble( ModuleAssembly module )
+    {
+        new FileConfigurationAssembler()
+            .withOverride( new FileConfigurationOverride().withConventionalRoot( tmpDir.getRoot() ) )
+            .assemble( module );
+        ModuleAssembly config = module.layer().module( "config" );
+        new EntityTestAssembler().defaultServicesVisibleIn( Visibility.layer ).assemble( config );
+        new FileEntityStoreAssembler().withConfig( config, Visibility.layer ).assemble( module );
+
+        module.services( ReindexerService.class );
+        module.importedServices( StateChangeListener.class ).setMetaInfo( indexer );
+        config.entities( ReindexerConfiguration.class ).visibleIn( Visibility.layer );
+        ReindexerConfiguration defaults = config.forMixin( ReindexerConfiguration.class ).declareDefaults();
+        defaults.concurrency().set( 2 );
+        defaults.loadValue().set( 5 );
+        defaults.checkpointFile().set( checkpointFile().getAbsolutePath() );
+
+        module.entities( Item.class );
+    }
+
+    public interface Item extends EntityComposite
+    {
+        Property<Integer> number();
+    }
+
+    @Test
+    public void givenConcurrentReindexingInterruptedWhenReindexingAgainThenResumesFromCheckpoint()
+        throws Exception
+    {
+        Set<Identity> identities = createItems();
+        Reindexer reindexer = serviceFinder.findService( Reindexer.class ).get();
+
+        // Interrupt the reindexing once a few batches went through
+        indexer.record( 10 );
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread reindexing = new Thread( () ->
+                                        {
+                                            try
+                                            {
+                                                reindexer.reindex();
+                                            }
+                                            catch( Throwable ex )
+                                            {
+                                                failure.set( ex );
+                                            }
+                                        }, "interrupted-reindexing" );
+        reindexing.start();
+        assertThat( indexer.batches.await( 30, TimeUnit.SECONDS ), is( true ) );
+        reindexing.interrupt();
+        reindexing.join( TimeUnit.MINUTES.toMillis( 1 ) );
+
+        assertThat( reindexing.isAlive(), is( false ) );
+        assertThat( failure.get(), instanceOf( IllegalStateException.class ) );
+        assertThat( checkpointFile().exists(), is( true ) );
+        List<Identity> firstRun = indexer.indexed();
+        assertThat( firstRun, not( empty() ) );
+        assertThat( firstRun.size(), lessThan( ENTITIES ) );
+
+        indexer.record( Integer.MAX_VALUE );
+        reindexer.reindex();
+
+        List<Identity> secondRun = indexer.indexed();
+        Set<Identity> reindexedTwice = new HashSet<>( firstRun );
+        reindexedTwice.retainAll( secondRun );
+        assertThat( reindexedTwice, equalTo( new HashSet<>() ) );
+        assertThat( firstRun.size() + secondRun.size(), equalTo( ENTITIES ) );
+        Set<Identity> indexed = new HashSet<>( firstRun );
+        indexed.addAll( secondRun );
+        assertThat( indexed, equalTo( identities ) );
+        assertThat( checkpointFile().exists(), is( false ) );
+    }
+
+    private Set<Identity> createItems()
+        throws UnitOfWorkCompletionException
+    {
+        Set<Identity> identities = new HashSet<>();
+        try( UnitOfWork uow = unitOfWorkFactory.newUnitOfWork() )
+        {
+            for( int idx = 0; idx < ENTITIES; idx++ )
+            {
+                EntityBuilder<Item> builder = uow.newEntityBuilder( Item.class );
+                builder.instance().number().set( idx );
+                identities.add( builder.newInstance().identity().get() );
+            }
+            uow.complete();
+        }
+        return identities;
+    }
+
+    private File checkpointFile()
+    {
+        return new File( tmpDir.getRoot(), "reindex.checkpoint" );
+    }
+
+    /**
+     * Records the entities it is notified of, slowly so that reindexing can be interrupted half way.
+     */
+    static class RecordingIndexer
+        implements StateChangeListener
+    {
+        private final List<Identity> indexed = new ArrayList<>();
+        private boolean recording;
+        private CountDownLatch batches;
+
+        synchronized void record( int batchCount )
+        {
+            indexed.clear();
+            batches = new CountDownLatch( batchCount );
+            recording = true;
+        }
+
+        synchronized List<Identity> indexed()
+        {
+            recording = false;
+            return new ArrayList<>( indexed );
+        }
+
+        @Override
+        public void notifyChanges( Iterable<EntityState> changedStates )
+        {
+            synchronized( this )
+            {
+                if( !recording )
+                {
+                    return;
+                }
+                changedStates.forEach( state -> indexed.add( state.entityReference().identity() ) );
+                batches.countDown();
+            }
+            try
+            {
+                Thread.sleep( 5 );
+            }
+            catch( InterruptedException ex )
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.polygene.index.reindexer.internal;
+
+import java.io.File;
+import java.util.Arrays;
+import org.apache.polygene.test.TemporaryFolder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+@ExtendWith( TemporaryFolder.class )
+public class ReindexCheckpointTest
+{
+    private TemporaryFolder tmpDir;
+
+    @Test
+    public void givenSavedProgressWhenLoadingThenResumesPendingPartitions()
+        throws Exception
+    {
+        File file = new File( tmpDir.getRoot(), "reindex.checkpoint" );
+        ReindexCheckpoint checkpoint = ReindexCheckpoint.start( file, Arrays.asList( "0", "1", "2" ) );
+        checkpoint.complete( "0" );
+        checkpoint.progress( "1", "entity=42" );
+        checkpoint.save();
+
+        ReindexCheckpoint loaded = ReindexCheckpoint.load( file );
+
+        assertThat( loaded.partitionCount(), equalTo( 3 ) );
+        assertThat( loaded.completedCount(), equalTo( 1 ) );
+        assertThat( loaded.pending(), contains( "1", "2" ) );
+        assertThat( loaded.resumeAfter( "1" ), equalTo( "entity=42" ) );
+        assertThat( loaded.resumeAfter( "2" ), nullValue() );
+
+        loaded.delete();
+        assertThat( file.exists(), is( false ) );
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.polygene.test.benchmarks;
+
+import org.apache.polygene.api.composite.TransientBuilderFactory;
+import org.apache.polygene.api.query.QueryBuilderFactory;
+import org.apache.polygene.api.service.ServiceFinder;
+import org.apache.polygene.api.structure.Module;
+import org.apache.polygene.api.unitofwork.UnitOfWorkFactory;
+import org.apache.polygene.api.value.ValueBuilderFactory;
+import org.apache.polygene.bootstrap.ModuleAssembly;
+import org.apache.polygene.bootstrap.SingletonAssembler;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Base class for benchmarks of a single module Polygene application.
+ * <p>
+ * The application is assembled and activated once per trial, and passivated at the end of it.
+ * </p>
+ */
+@State( Scope.Benchmark )
+public abstract class AbstractPolygeneBenchmark
+{
+    private SingletonAssembler assembler;
+
+    protected Module module;
+    protected TransientBuilderFactory transientBuilderFactory;
+    protected ValueBuilderFactory valueBuilderFactory;
+    protected UnitOfWorkFactory unitOfWorkFactory;
+    protected QueryBuilderFactory queryBuilderFactory;
+    protected ServiceFinder serviceFinder;
+
+    protected abstract void assemble( ModuleAssembly module );
+
+    @Setup( Level.Trial )
+    public void activateApplication()
+        throws Exception
+    {
+        assembler = new SingletonAssembler( this::assemble );
+        module = assembler.module();
+        transientBuilderFactory = module.transientBuilderFactory();
+        valueBuilderFactory = module.valueBuilderFactory();
+        unitOfWorkFactory = module.unitOfWorkFactory();
+        queryBuilderFactory = module;
+        serviceFinder = module.serviceFinder();
+        setUp();
+    }
+
+    /**
+     * Prepare the benchmark state once the application is active.
+     *
+     * @throws Exception if the benchmark state cannot be prepared
+     */
+    protected void setUp()
+        throws Exception
+    {
+    }
+
+    /**
+     * Release the benchmark state before the application is passivated.
+     *
+     * @throws Exception if the benchmark state cannot be released
+     */
+    protected void tearDown()
+        throws Exception
+    {
+    }
+
+    /**
+     * Remove what the benchmark left behind once the application is passivated, e.g. store files.
+     *
+     * @throws Exception if what the benchmark left behind cannot be removed
+     */
+    protected void cleanUp()
+        throws Exception
+    {
+    }
+
+    @TearDown( Level.Trial )
+    public void passivateApplication()
+        throws Exception
+    {
+        tearDown();
+        if( assembler != null )
+        {
+            assembler.application().passivate();
+        }
+        cleanUp();
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.polygene.test.benchmarks.entitystore;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.apache.polygene.api.common.Visibility;
+import org.apache.polygene.api.entity.EntityBuilder;
+import org.apache.polygene.api.identity.StringIdentity;
+import org.apache.polygene.api.property.Property;
+import org.apache.polygene.api.unitofwork.UnitOfWork;
+import org.apache.polygene.api.unitofwork.UnitOfWorkCompletionException;
+import org.apache.polygene.bootstrap.ModuleAssembly;
+import org.apache.polygene.entitystore.file.assembly.FileEntityStoreAssembler;
+import org.apache.polygene.entitystore.leveldb.LevelDBEntityStoreConfiguration;
+import org.apache.polygene.entitystore.leveldb.assembly.LevelDBEntityStoreAssembler;
+import org.apache.polygene.library.fileconfig.FileConfigurationAssembler;
+import org.apache.polygene.library.fileconfig.FileConfigurationOverride;
+import org.apache.polygene.test.EntityTestAssembler;
+import org.apache.polygene.test.benchmarks.AbstractPolygeneBenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of entity reads from one and from several threads, against the memory, file and LevelDB EntityStores.
+ * <p>
+ * Each read loads a random entity in a new UnitOfWork, so that it goes through the EntityStore. Reads of
+ * JSONMapEntityStoreMixin based stores do not share a lock, the throughput should grow with the thread count.
+ * </p>
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class EntityStoreReadBenchmark
+    extends AbstractPolygeneBenchmark
+{
+    private static final int ENTITIES = 20000;
+
+    @Param( { "memory", "file", "leveldb" } )
+    public String store;
+
+    private File directory;
+
+    @Override
+    protected void assemble( ModuleAssembly module )
+    {
+        module.entities( Product.class );
+        if( "memory".equals( store ) )
+        {
+            new EntityTestAssembler().assemble( module );
+            return;
+        }
+        try
+        {
+            directory = Files.createTempDirectory( "polygene-" + store ).toFile();
+        }
+        catch( IOException ex )
+        {
+            throw new UncheckedIOException( ex );
+        }
+        new FileConfigurationAssembler()
+            .withOverride( new FileConfigurationOverride().withConventionalRoot( directory ) )
+            .assemble( module );
+        ModuleAssembly config = module.layer().module( "Config" );
+        new EntityTestAssembler().defaultServicesVisibleIn( Visibility.layer ).assemble( config );
+        if( "file".equals( store ) )
+        {
+            new FileEntityStoreAssembler().withConfig( config, Visibility.layer ).assemble( module );
+        }
+        else
+        {
+            new LevelDBEntityStoreAssembler().withConfig( config, Visibility.layer ).assemble( module );
+            config.forMixin( LevelDBEntityStoreConfiguration.class ).declareDefaults().flavour().set( "java" );
+        }
+    }
+
+    @Override
+    protected void setUp()
+        throws UnitOfWorkCompletionException
+    {
+        for( int bulk = 0; bulk < ENTITIES; bulk += 1000 )
+        {
+            try( UnitOfWork uow = unitOfWorkFactory.newUnitOfWork() )
+            {
+                for( int idx = bulk; idx < bulk + 1000; idx++ )
+                {
+                    EntityBuilder<Product> builder = uow.newEntityBuilder( Product.class,
+                                                                           StringIdentity.identityOf( "product" + idx ) );
+                    builder.instance().name().set( "Product " + idx );
+                    builder.newInstance();
+                }
+                uow.complete();
+            }
+        }
+    }
+
+    @Override
+    protected void cleanUp()
+        throws IOException
+    {
+        if( directory != null )
+        {
+            try( Stream<Path> paths = Files.walk( directory.toPath() ) )
+            {
+                for( Path path : (Iterable<Path>) paths.sorted( Comparator.reverseOrder() )::iterator )
+                {
+                    Files.delete( path );
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    @Threads( 1 )
+    public String read()
+    {
+        return readRandomProduct();
+    }
+
+    @Benchmark
+    @Threads( 4 )
+    public String readFrom4Threads()
+    {
+        return readRandomProduct();
+    }
+
+    @Benchmark
+    @Threads( 16 )
+    public String readFrom16Threads()
+    {
+        return readRandomProduct();
+    }
+
+    private String readRandomProduct()
+    {
+        String identity = "product" + ThreadLocalRandom.current().nextInt( ENTITIES );
+        try( UnitOfWork uow = unitOfWorkFactory.newUnitOfWork() )
+        {
+            return uow.get( Product.class, StringIdentity.identityOf( identity ) ).name().get();
+        }
+    }
+
+    public interface Product
+    {
+        Property<String> name();
+    }
+}
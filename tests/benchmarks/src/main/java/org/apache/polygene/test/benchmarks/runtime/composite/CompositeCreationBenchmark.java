@@ -0,0 +1,107 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.polygene.test.benchmarks.runtime.composite;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.polygene.api.common.Optional;
+import org.apache.polygene.api.common.UseDefaults;
+import org.apache.polygene.api.composite.TransientBuilder;
+import org.apache.polygene.api.property.Property;
+import org.apache.polygene.api.unitofwork.UnitOfWork;
+import org.apache.polygene.api.value.ValueBuilder;
+import org.apache.polygene.bootstrap.ModuleAssembly;
+import org.apache.polygene.test.EntityTestAssembler;
+import org.apache.polygene.test.benchmarks.AbstractPolygeneBenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of creating transients, values and entities.
+ * <p>
+ * Each entity is created in its own UnitOfWork, that is then discarded, see
+ * {@link org.apache.polygene.test.benchmarks.runtime.unitofwork.UnitOfWorkBenchmark} for the UnitOfWork cost alone.
+ * </p>
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class CompositeCreationBenchmark
+    extends AbstractPolygeneBenchmark
+{
+    @Override
+    protected void assemble( ModuleAssembly module )
+    {
+        module.transients( Person.class );
+        module.values( Person.class );
+        module.entities( Person.class );
+        new EntityTestAssembler().assemble( module );
+    }
+
+    @Benchmark
+    public Person newTransient()
+    {
+        return transientBuilderFactory.newTransient( Person.class );
+    }
+
+    @Benchmark
+    public Person newTransientWithBuilder()
+    {
+        TransientBuilder<Person> builder = transientBuilderFactory.newTransientBuilder( Person.class );
+        builder.prototype().name().set( "Jane" );
+        builder.prototype().age().set( 42 );
+        return builder.newInstance();
+    }
+
+    @Benchmark
+    public Person newValue()
+    {
+        ValueBuilder<Person> builder = valueBuilderFactory.newValueBuilder( Person.class );
+        builder.prototype().name().set( "Jane" );
+        builder.prototype().age().set( 42 );
+        return builder.newInstance();
+    }
+
+    @Benchmark
+    public Person newEntity()
+    {
+        try( UnitOfWork uow = unitOfWorkFactory.newUnitOfWork() )
+        {
+            Person person = uow.newEntity( Person.class );
+            person.name().set( "Jane" );
+            person.age().set( 42 );
+            return person;
+        }
+    }
+
+    public interface Person
+    {
+        @UseDefaults
+        Property<String> name();
+
+        @Optional
+        Property<Integer> age();
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.polygene.test.benchmarks.runtime.composite;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import org.apache.polygene.api.composite.TransientComposite;
+import org.apache.polygene.api.concern.ConcernOf;
+import org.apache.polygene.api.concern.Concerns;
+import org.apache.polygene.api.concern.GenericConcern;
+import org.apache.polygene.api.mixin.Mixins;
+import org.apache.polygene.bootstrap.ModuleAssembly;
+import org.apache.polygene.test.benchmarks.AbstractPolygeneBenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of composite method invocations, compared to calling the mixin directly and through reflection.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class CompositeInvocationBenchmark
+    extends AbstractPolygeneBenchmark
+{
+    private Counter mixin;
+    private Counter reflected;
+    private Method add;
+    private Counter composite;
+    private Counter typedConcerned;
+    private Counter genericConcerned;
+    private int amount;
+
+    @Override
+    protected void assemble( ModuleAssembly module )
+    {
+        module.transients( CounterComposite.class,
+                           CounterWithTypedConcernComposite.class,
+                           CounterWithGenericConcernComposite.class );
+    }
+
+    @Override
+    protected void setUp()
+        throws NoSuchMethodException
+    {
+        mixin = new CounterMixin();
+        reflected = new CounterMixin();
+        add = Counter.class.getMethod( "add", int.class );
+        composite = transientBuilderFactory.newTransient( CounterComposite.class );
+        typedConcerned = transientBuilderFactory.newTransient( CounterWithTypedConcernComposite.class );
+        genericConcerned = transientBuilderFactory.newTransient( CounterWithGenericConcernComposite.class );
+    }
+
+    @Benchmark
+    public long mixin()
+    {
+        return mixin.add( ++amount );
+    }
+
+    @Benchmark
+    public Object reflectedMixin()
+        throws ReflectiveOperationException
+    {
+        return add.invoke( reflected, ++amount );
+    }
+
+    @Benchmark
+    public long composite()
+    {
+        return composite.add( ++amount );
+    }
+
+    @Benchmark
+    public long compositeWithTypedConcern()
+    {
+        return typedConcerned.add( ++amount );
+    }
+
+    @Benchmark
+    public long compositeWithGenericConcern()
+    {
+        return genericConcerned.add( ++amount );
+    }
+
+    @Mixins( CounterMixin.class )
+    public interface CounterComposite
+        extends Counter, TransientComposite
+    {
+    }
+
+    @Mixins( CounterMixin.class )
+    @Concerns( CounterTypedConcern.class )
+    public interface CounterWithTypedConcernComposite
+        extends Counter, TransientComposite
+    {
+    }
+
+    @Mixins( CounterMixin.class )
+    @Concerns( CounterGenericConcern.class )
+    public interface CounterWithGenericConcernComposite
+        extends Counter, TransientComposite
+    {
+    }
+
+    public interface Counter
+    {
+        long add( int amount );
+    }
+
+    public static class CounterMixin
+        implements Counter
+    {
+        private long count;
+
+        @Override
+        public long add( int amount )
+        {
+            count += amount;
+            return count;
+        }
+    }
+
+    public static class CounterTypedConcern
+        extends ConcernOf<Counter>
+        implements Counter
+    {
+        @Override
+        public long add( int amount )
+        {
+            return next.add( amount );
+        }
+    }
+
+    public static class CounterGenericConcern
+        extends GenericConcern
+    {
+        @Override
+        public Object invoke( Object proxy, Method method, Object[] args )
+            throws Throwable
+        {
+            return next.invoke( proxy, method, args );
+        }
+    }
+}
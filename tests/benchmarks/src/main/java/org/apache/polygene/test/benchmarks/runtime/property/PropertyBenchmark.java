@@ -0,0 +1,119 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.polygene.test.benchmarks.runtime.property;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.polygene.api.common.UseDefaults;
+import org.apache.polygene.api.property.Property;
+import org.apache.polygene.api.unitofwork.UnitOfWork;
+import org.apache.polygene.api.value.ValueBuilder;
+import org.apache.polygene.bootstrap.ModuleAssembly;
+import org.apache.polygene.test.EntityTestAssembler;
+import org.apache.polygene.test.benchmarks.AbstractPolygeneBenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of getting and setting properties of transients, values and entities.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class PropertyBenchmark
+    extends AbstractPolygeneBenchmark
+{
+    private Counter transientCounter;
+    private Counter valueCounter;
+    private Counter entityCounter;
+    private UnitOfWork uow;
+    private int count;
+
+    @Override
+    protected void assemble( ModuleAssembly module )
+    {
+        module.transients( Counter.class );
+        module.values( Counter.class );
+        module.entities( Counter.class );
+        new EntityTestAssembler().assemble( module );
+    }
+
+    @Override
+    protected void setUp()
+    {
+        transientCounter = transientBuilderFactory.newTransient( Counter.class );
+        ValueBuilder<Counter> builder = valueBuilderFactory.newValueBuilder( Counter.class );
+        builder.prototype().count().set( 42 );
+        valueCounter = builder.newInstance();
+        // Kept open for the whole trial, see tearDown()
+        uow = unitOfWorkFactory.newUnitOfWork();
+        entityCounter = uow.newEntity( Counter.class );
+    }
+
+    @Override
+    protected void tearDown()
+    {
+        if( uow != null )
+        {
+            uow.discard();
+        }
+    }
+
+    @Benchmark
+    public Integer transientGet()
+    {
+        return transientCounter.count().get();
+    }
+
+    @Benchmark
+    public void transientSet()
+    {
+        transientCounter.count().set( ++count );
+    }
+
+    @Benchmark
+    public Integer valueGet()
+    {
+        return valueCounter.count().get();
+    }
+
+    @Benchmark
+    public Integer entityGet()
+    {
+        return entityCounter.count().get();
+    }
+
+    @Benchmark
+    public void entitySet()
+    {
+        entityCounter.count().set( ++count );
+    }
+
+    public interface Counter
+    {
+        @UseDefaults
+        Property<Integer> count();
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.polygene.test.benchmarks.runtime.query;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import org.apache.polygene.api.common.UseDefaults;
+import org.apache.polygene.api.composite.Composite;
+import org.apache.polygene.api.property.Property;
+import org.apache.polygene.api.query.Query;
+import org.apache.polygene.api.value.ValueBuilder;
+import org.apache.polygene.api.value.ValueComposite;
+import org.apache.polygene.bootstrap.ModuleAssembly;
+import org.apache.polygene.test.benchmarks.AbstractPolygeneBenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static java.util.stream.Collectors.toList;
+import static org.apache.polygene.api.query.QueryExpressions.and;
+import static org.apache.polygene.api.query.QueryExpressions.eq;
+import static org.apache.polygene.api.query.QueryExpressions.gt;
+import static org.apache.polygene.api.query.QueryExpressions.lt;
+import static org.apache.polygene.api.query.QueryExpressions.matches;
+import static org.apache.polygene.api.query.QueryExpressions.not;
+import static org.apache.polygene.api.query.QueryExpressions.or;
+import static org.apache.polygene.api.query.QueryExpressions.orderBy;
+import static org.apache.polygene.api.query.QueryExpressions.templateFor;
+
+/**
+ * Cost of in-memory queries evaluated against large iterables.
+ * <p>
+ * Paged queries are compared to materializing, sorting and cutting the whole iterable, and the compiled filter
+ * of a query to the same expression evaluated by the query grammar predicates.
+ * </p>
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class IterableQuerySourceBenchmark
+    extends AbstractPolygeneBenchmark
+{
+    @Param( "1000000" )
+    public int size;
+
+    private List<Measure> measures;
+    private Comparator<Measure> comparator;
+    private Query<Measure> orderedTop;
+    private Query<Measure> orderedPage;
+    private Query<Measure> unorderedPage;
+    private Query<Measure> countMax;
+    private Predicate<Composite> filter;
+    private Query<Measure> filtered;
+
+    @Override
+    protected void assemble( ModuleAssembly module )
+    {
+        module.values( Measure.class );
+    }
+
+    @Override
+    protected void setUp()
+    {
+        measures = new ArrayList<>( size );
+        for( int idx = 0; idx < size; idx++ )
+        {
+            ValueBuilder<Measure> builder = valueBuilderFactory.newValueBuilder( Measure.class );
+            // Spread values so that the source is not already ordered
+            int value = (int) ( ( idx * 2654435761L ) % size );
+            builder.prototype().value().set( value );
+            builder.prototype().label().set( String.valueOf( value ) );
+            measures.add( builder.newInstance() );
+        }
+        comparator = Comparator.comparing( measure -> measure.value().get() );
+
+        Measure template = templateFor( Measure.class );
+        orderedTop = queryBuilderFactory.newQueryBuilder( Measure.class )
+                                        .newQuery( measures )
+                                        .orderBy( orderBy( template.value() ) )
+                                        .maxResults( 10 );
+        orderedPage = queryBuilderFactory.newQueryBuilder( Measure.class )
+                                         .newQuery( measures )
+                                         .orderBy( orderBy( template.value() ) )
+                                         .firstResult( 1000 )
+                                         .maxResults( 100 );
+        unorderedPage = queryBuilderFactory.newQueryBuilder( Measure.class )
+                                           .newQuery( measures )
+                                           .firstResult( 1000 )
+                                           .maxResults( 100 );
+        countMax = queryBuilderFactory.newQueryBuilder( Measure.class )
+                                      .where( gt( template.value(), size / 2 ) )
+                                      .newQuery( measures )
+                                      .maxResults( 100 );
+        filter = and( gt( template.value(), size / 4 ),
+                      not( eq( template.value(), size / 2 ) ),
+                      or( lt( template.value(), size / 2 ),
+                          matches( template.label(), "[0-9]*7" ) ) );
+        filtered = queryBuilderFactory.newQueryBuilder( Measure.class )
+                                      .where( filter )
+                                      .newQuery( measures );
+    }
+
+    @Benchmark
+    public List<Measure> orderedTop10()
+    {
+        return orderedTop.stream().collect( toList() );
+    }
+
+    @Benchmark
+    public List<Measure> orderedTop10Materialized()
+    {
+        return materialized( comparator, 0, 10 );
+    }
+
+    @Benchmark
+    public List<Measure> orderedPage()
+    {
+        return orderedPage.stream().collect( toList() );
+    }
+
+    @Benchmark
+    public List<Measure> orderedPageMaterialized()
+    {
+        return materialized( comparator, 1000, 100 );
+    }
+
+    @Benchmark
+    public List<Measure> unorderedPage()
+    {
+        return unorderedPage.stream().collect( toList() );
+    }
+
+    @Benchmark
+    public List<Measure> unorderedPageMaterialized()
+    {
+        return materialized( null, 1000, 100 );
+    }
+
+    @Benchmark
+    public long countWithMaxResults()
+    {
+        return countMax.count();
+    }
+
+    @Benchmark
+    public long countWithMaxResultsMaterialized()
+    {
+        return measures.stream()
+                       .filter( measure -> measure.value().get() > size / 2 )
+                       .collect( toList() )
+                       .subList( 0, 100 )
+                       .size();
+    }
+
+    @Benchmark
+    public long filterCompiled()
+    {
+        return filtered.count();
+    }
+
+    @Benchmark
+    public long filterInterpreted()
+    {
+        return measures.stream().filter( filter ).count();
+    }
+
+    private List<Measure> materialized( Comparator<Measure> comparator, int firstResult, int maxResults )
+    {
+        List<Measure> list = new ArrayList<>( measures );
+        if( comparator != null )
+        {
+            list.sort( comparator );
+        }
+        return list.subList( firstResult, Math.min( firstResult + maxResults, list.size() ) );
+    }
+
+    public interface Measure
+        extends ValueComposite
+    {
+        @UseDefaults
+        Property<Integer> value();
+
+        @UseDefaults
+        Property<String> label();
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.polygene.test.benchmarks.runtime.query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.polygene.api.entity.EntityBuilder;
+import org.apache.polygene.api.identity.StringIdentity;
+import org.apache.polygene.api.property.Property;
+import org.apache.polygene.api.query.Query;
+import org.apache.polygene.api.query.QueryBuilder;
+import org.apache.polygene.api.unitofwork.UnitOfWork;
+import org.apache.polygene.api.unitofwork.UnitOfWorkCompletionException;
+import org.apache.polygene.api.value.ValueBuilder;
+import org.apache.polygene.bootstrap.ModuleAssembly;
+import org.apache.polygene.test.EntityTestAssembler;
+import org.apache.polygene.test.benchmarks.AbstractPolygeneBenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static org.apache.polygene.api.query.QueryExpressions.and;
+import static org.apache.polygene.api.query.QueryExpressions.eq;
+import static org.apache.polygene.api.query.QueryExpressions.gt;
+import static org.apache.polygene.api.query.QueryExpressions.templateFor;
+
+/**
+ * Cost of building queries and evaluating them against an in-memory Iterable of values, or of entities loaded
+ * in a UnitOfWork.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class QueryBenchmark
+    extends AbstractPolygeneBenchmark
+{
+    private static final int ITEMS = 1000;
+
+    private List<Item> items;
+    private QueryBuilder<Item> builtQuery;
+    private UnitOfWork uow;
+    private List<ItemEntity> entities;
+    private QueryBuilder<ItemEntity> builtEntityQuery;
+
+    @Override
+    protected void assemble( ModuleAssembly module )
+    {
+        module.values( Item.class );
+        module.entities( ItemEntity.class );
+        new EntityTestAssembler().assemble( module );
+    }
+
+    @Override
+    protected void setUp()
+        throws UnitOfWorkCompletionException
+    {
+        items = new ArrayList<>( ITEMS );
+        for( int idx = 0; idx < ITEMS; idx++ )
+        {
+            ValueBuilder<Item> builder = valueBuilderFactory.newValueBuilder( Item.class );
+            builder.prototype().category().set( "category-" + ( idx % 10 ) );
+            builder.prototype().rank().set( idx );
+            items.add( builder.newInstance() );
+        }
+        builtQuery = buildQuery( Item.class );
+
+        try( UnitOfWork creation = unitOfWorkFactory.newUnitOfWork() )
+        {
+            for( int idx = 0; idx < ITEMS; idx++ )
+            {
+                EntityBuilder<ItemEntity> builder = creation.newEntityBuilder( ItemEntity.class,
+                                                                               StringIdentity.identityOf( "item" + idx ) );
+                builder.instance().category().set( "category-" + ( idx % 10 ) );
+                builder.instance().rank().set( idx );
+                builder.newInstance();
+            }
+            creation.complete();
+        }
+        // Entities stay loaded for the whole trial, as they would while a UnitOfWork sorts and filters them
+        uow = unitOfWorkFactory.newUnitOfWork();
+        entities = new ArrayList<>( ITEMS );
+        for( int idx = 0; idx < ITEMS; idx++ )
+        {
+            entities.add( uow.get( ItemEntity.class, StringIdentity.identityOf( "item" + idx ) ) );
+        }
+        builtEntityQuery = buildQuery( ItemEntity.class );
+    }
+
+    @Override
+    protected void tearDown()
+    {
+        uow.discard();
+    }
+
+    @Benchmark
+    public QueryBuilder<Item> build()
+    {
+        return buildQuery( Item.class );
+    }
+
+    @Benchmark
+    public long evaluateCount()
+    {
+        return builtQuery.newQuery( items ).count();
+    }
+
+    @Benchmark
+    public Item evaluateFind()
+    {
+        Query<Item> query = builtQuery.newQuery( items );
+        return query.find();
+    }
+
+    @Benchmark
+    public long evaluateEntitiesCount()
+    {
+        return builtEntityQuery.newQuery( entities ).count();
+    }
+
+    @Benchmark
+    public ItemEntity evaluateEntitiesFind()
+    {
+        Query<ItemEntity> query = builtEntityQuery.newQuery( entities );
+        return query.find();
+    }
+
+    private <T extends Item> QueryBuilder<T> buildQuery( Class<T> type )
+    {
+        T template = templateFor( type );
+        return queryBuilderFactory.newQueryBuilder( type )
+                                  .where( and( eq( template.category(), "category-7" ),
+                                               gt( template.rank(), ITEMS / 2 ) ) );
+    }
+
+    public interface Item
+    {
+        Property<String> category();
+
+        Property<Integer> rank();
+    }
+
+    public interface ItemEntity
+        extends Item
+    {
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.polygene.test.benchmarks.runtime.unitofwork;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.polygene.api.common.UseDefaults;
+import org.apache.polygene.api.identity.Identity;
+import org.apache.polygene.api.identity.StringIdentity;
+import org.apache.polygene.api.property.Property;
+import org.apache.polygene.api.unitofwork.UnitOfWork;
+import org.apache.polygene.api.unitofwork.UnitOfWorkCompletionException;
+import org.apache.polygene.bootstrap.ModuleAssembly;
+import org.apache.polygene.test.EntityTestAssembler;
+import org.apache.polygene.test.benchmarks.AbstractPolygeneBenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of UnitOfWork creation and completion, against the in-memory EntityStore.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class UnitOfWorkBenchmark
+    extends AbstractPolygeneBenchmark
+{
+    private static final Identity COUNTER = StringIdentity.identityOf( "counter" );
+
+    private int count;
+
+    @Override
+    protected void assemble( ModuleAssembly module )
+    {
+        module.entities( Counter.class );
+        new EntityTestAssembler().assemble( module );
+    }
+
+    @Override
+    protected void setUp()
+        throws UnitOfWorkCompletionException
+    {
+        try( UnitOfWork uow = unitOfWorkFactory.newUnitOfWork() )
+        {
+            uow.newEntity( Counter.class, COUNTER );
+            uow.complete();
+        }
+    }
+
+    @Benchmark
+    public void createDiscard()
+    {
+        unitOfWorkFactory.newUnitOfWork().discard();
+    }
+
+    @Benchmark
+    public void createComplete()
+        throws UnitOfWorkCompletionException
+    {
+        unitOfWorkFactory.newUnitOfWork().complete();
+    }
+
+    @Benchmark
+    public Integer loadDiscard()
+    {
+        try( UnitOfWork uow = unitOfWorkFactory.newUnitOfWork() )
+        {
+            return uow.get( Counter.class, COUNTER ).count().get();
+        }
+    }
+
+    @Benchmark
+    public void loadUpdateComplete()
+        throws UnitOfWorkCompletionException
+    {
+        try( UnitOfWork uow = unitOfWorkFactory.newUnitOfWork() )
+        {
+            uow.get( Counter.class, COUNTER ).count().set( ++count );
+            uow.complete();
+        }
+    }
+
+    public interface Counter
+    {
+        @UseDefaults
+        Property<Integer> count();
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.polygene.test.benchmarks.runtime.value;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.polygene.api.common.UseDefaults;
+import org.apache.polygene.api.property.Property;
+import org.apache.polygene.api.value.ValueBuilder;
+import org.apache.polygene.bootstrap.ModuleAssembly;
+import org.apache.polygene.test.benchmarks.AbstractPolygeneBenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of hashCode() and equals() on nested value graphs.
+ * <p>
+ * Values cache their hash code when built, so hashing a graph is constant time and equals() between values of
+ * different state stops at the cached hash codes instead of walking both graphs.
+ * </p>
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class NestedValueBenchmark
+    extends AbstractPolygeneBenchmark
+{
+    private static final int DEPTH = 4;
+    private static final int FANOUT = 4;
+
+    private Node tree;
+    private Node equalTree;
+    private Node otherTree;
+    private Map<Node, Integer> map;
+
+    @Override
+    protected void assemble( ModuleAssembly module )
+    {
+        module.values( Node.class );
+    }
+
+    @Override
+    protected void setUp()
+    {
+        tree = buildTree( "root", DEPTH, null );
+        equalTree = buildTree( "root", DEPTH, null );
+        otherTree = buildTree( "root", DEPTH, "other" );
+        map = new HashMap<>();
+        map.put( tree, 1 );
+        map.put( otherTree, 2 );
+    }
+
+    @Benchmark
+    public int hashCodeOfTree()
+    {
+        return tree.hashCode();
+    }
+
+    @Benchmark
+    public boolean equalsEqualTree()
+    {
+        return tree.equals( equalTree );
+    }
+
+    @Benchmark
+    public boolean equalsOtherTree()
+    {
+        return tree.equals( otherTree );
+    }
+
+    @Benchmark
+    public Integer hashMapGet()
+    {
+        return map.get( equalTree );
+    }
+
+    private Node buildTree( String name, int depth, String leafName )
+    {
+        ValueBuilder<Node> builder = valueBuilderFactory.newValueBuilder( Node.class );
+        builder.prototype().name().set( depth == 0 && leafName != null ? leafName : name );
+        builder.prototype().weight().set( depth );
+        if( depth > 0 )
+        {
+            List<Node> children = new ArrayList<>( FANOUT );
+            for( int i = 0; i < FANOUT; i++ )
+            {
+                // Only the last leaf differs
+                String differentLeaf = i == FANOUT - 1 ? leafName : null;
+                children.add( buildTree( name + "/" + i, depth - 1, differentLeaf ) );
+            }
+            builder.prototype().children().set( children );
+        }
+        return builder.newInstance();
+    }
+
+    public interface Node
+    {
+        Property<String> name();
+
+        Property<Integer> weight();
+
+        @UseDefaults
+        Property<List<Node>> children();
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.polygene.test.benchmarks.serialization;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.polygene.api.common.UseDefaults;
+import org.apache.polygene.api.property.Property;
+import org.apache.polygene.api.serialization.Serialization;
+import org.apache.polygene.api.value.ValueBuilder;
+import org.apache.polygene.bootstrap.ModuleAssembly;
+import org.apache.polygene.test.benchmarks.AbstractPolygeneBenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of serializing and deserializing a nested value using the default Serialization service.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class JsonSerializationBenchmark
+    extends AbstractPolygeneBenchmark
+{
+    private Serialization serialization;
+    private Order order;
+    private String json;
+
+    @Override
+    protected void assemble( ModuleAssembly module )
+    {
+        module.values( Order.class, OrderLine.class );
+        module.defaultServices();
+    }
+
+    @Override
+    protected void setUp()
+    {
+        serialization = serviceFinder.findService( Serialization.class ).get();
+        List<OrderLine> lines = new ArrayList<>();
+        for( int idx = 0; idx < 10; idx++ )
+        {
+            ValueBuilder<OrderLine> builder = valueBuilderFactory.newValueBuilder( OrderLine.class );
+            builder.prototype().product().set( "product-" + idx );
+            builder.prototype().quantity().set( idx + 1 );
+            lines.add( builder.newInstance() );
+        }
+        ValueBuilder<Order> builder = valueBuilderFactory.newValueBuilder( Order.class );
+        builder.prototype().customer().set( "customer" );
+        builder.prototype().lines().set( lines );
+        order = builder.newInstance();
+        json = serialization.serialize( order );
+    }
+
+    @Benchmark
+    public String serialize()
+    {
+        return serialization.serialize( order );
+    }
+
+    @Benchmark
+    public Order deserialize()
+    {
+        return serialization.deserialize( module.descriptor(), Order.class, json );
+    }
+
+    public interface Order
+    {
+        Property<String> customer();
+
+        @UseDefaults
+        Property<List<OrderLine>> lines();
+    }
+
+    public interface OrderLine
+    {
+        Property<String> product();
+
+        Property<Integer> quantity();
+    }
+}
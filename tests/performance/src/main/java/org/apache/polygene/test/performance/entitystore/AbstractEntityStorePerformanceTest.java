@@ -23,23 +23,32 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.List;
 import java.util.Random;
 import java.util.concurrent.Callable;
+import java.util.stream.Stream;
+import org.apache.polygene.api.entity.EntityBuilder;
 import org.apache.polygene.api.identity.StringIdentity;
 import org.apache.polygene.api.service.ServiceFinder;
 import org.apache.polygene.api.structure.Application;
 import org.apache.polygene.api.structure.Module;
+import org.apache.polygene.api.structure.ModuleDescriptor;
 import org.apache.polygene.api.unitofwork.UnitOfWork;
 import org.apache.polygene.api.unitofwork.UnitOfWorkFactory;
 import org.apache.polygene.bootstrap.ApplicationAssemblerAdapter;
 import org.apache.polygene.bootstrap.Assembler;
 import org.apache.polygene.bootstrap.Energy4Java;
+import org.apache.polygene.spi.entitystore.BackupRestore;
+import org.apache.polygene.spi.entitystore.BulkImport;
+import org.apache.polygene.spi.entitystore.BulkImportSettings;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static java.util.stream.Collectors.toList;
 import static org.apache.polygene.api.usecase.UsecaseBuilder.newUsecase;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 /**
  * Performance Test Suite for Entity Stores.
@@ -52,6 +61,7 @@ public abstract class AbstractEntityStorePerformanceTest
     private Application application;
     protected UnitOfWorkFactory uowf;
     protected ServiceFinder serviceFinder;
+    private ModuleDescriptor moduleDescriptor;
 
     private final int ITERATIONS = 20000;
 
@@ -230,6 +240,62 @@ public abstract class AbstractEntityStorePerformanceTest
         }
     }
 
+    @Test
+    public void whenBulkImportEntityWithComplexTypeThenRecordIterationsPerSecondComparedToEntityBuilder()
+        throws Exception
+    {
+        try
+        {
+            Assembler assembler = module -> module.entities( ComplexProduct.class );
+            createPolygeneRuntime( assembler );
+            assumeTrue( serviceFinder.findServices( BulkImport.class ).findAny().isPresent(),
+                        storeName + " does not support bulk import" );
+            profile( () -> {
+                Report report = new Report( storeName );
+                report.start( "createEntityInBulkWithEntityBuilder" );
+                int bulk = 0;
+                UnitOfWork uow = uowf.newUnitOfWork( newUsecase( "createEntityInBulkWithEntityBuilder " + bulk ) );
+                for( int i = 0; i < ITERATIONS; i++ )
+                {
+                    EntityBuilder<ComplexProduct> builder
+                        = uow.newEntityBuilder( ComplexProduct.class, StringIdentity.identityOf( "product" + i ) );
+                    builder.instance().name().set( "Product " + i );
+                    builder.newInstance();
+                    if( i % 1000 == 0 )
+                    {
+                        uow.complete();
+                        bulk++;
+                        uow = uowf.newUnitOfWork( newUsecase( "createEntityInBulkWithEntityBuilder " + bulk ) );
+                    }
+                }
+                uow.complete();
+                report.stop( ITERATIONS );
+
+                List<String> exported;
+                try( Stream<String> states = serviceFinder.findService( BackupRestore.class ).get().backup() )
+                {
+                    exported = states.collect( toList() );
+                }
+                cleanUp();
+                createPolygeneRuntime( assembler );
+
+                BulkImport bulkImport = serviceFinder.findService( BulkImport.class ).get();
+                report.start( "bulkImportEntity" );
+                bulkImport.bulkImport( moduleDescriptor, exported.stream(), new BulkImportSettings() );
+                report.stop( exported.size() );
+                logger.info( "{} entities per second with EntityBuilder, {} with BulkImport",
+                             report.duration( "createEntityInBulkWithEntityBuilder" ),
+                             report.duration( "bulkImportEntity" ) );
+                writeReport( report );
+                return null;
+            } );
+        }
+        finally
+        {
+            cleanUp();
+        }
+    }
+
     @Test
     public void whenReadEntityWithComplexTypeThenRecordIterationsPerSecond()
         throws Exception
@@ -286,8 +352,6 @@ public abstract class AbstractEntityStorePerformanceTest
         }
     }
 
-    // If you want to profile this test, then tell profiler to only check
-    // below this method call
     private void profile( Callable<Void> runnable )
         throws Exception
     {
@@ -332,6 +396,7 @@ public abstract class AbstractEntityStorePerformanceTest
         Module moduleInstance = application.findModule( "Layer 1", "Module 1" );
         uowf = moduleInstance.unitOfWorkFactory();
         serviceFinder = moduleInstance;
+        moduleDescriptor = moduleInstance.descriptor();
     }
 
     protected void cleanUp()
@@ -0,0 +1,64 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.polygene.test.performance.entitystore.leveldb;
+
+import java.io.File;
+import org.apache.derby.iapi.services.io.FileUtil;
+import org.apache.polygene.api.common.Visibility;
+import org.apache.polygene.bootstrap.Assembler;
+import org.apache.polygene.bootstrap.ModuleAssembly;
+import org.apache.polygene.entitystore.leveldb.LevelDBEntityStoreConfiguration;
+import org.apache.polygene.entitystore.leveldb.assembly.LevelDBEntityStoreAssembler;
+import org.apache.polygene.library.fileconfig.FileConfigurationAssembler;
+import org.apache.polygene.library.fileconfig.FileConfigurationOverride;
+import org.apache.polygene.test.EntityTestAssembler;
+import org.apache.polygene.test.performance.entitystore.AbstractEntityStorePerformanceTest;
+
+/**
+ * Performance test for LevelDBEntityStoreService, using the pure Java flavour
+ */
+public class LevelDBEntityStorePerformanceTest
+    extends AbstractEntityStorePerformanceTest
+{
+    public LevelDBEntityStorePerformanceTest()
+    {
+        super( "LevelDBEntityStore", createAssembler() );
+    }
+
+    private static Assembler createAssembler()
+    {
+        return module ->
+        {
+            new FileConfigurationAssembler()
+                .withOverride( new FileConfigurationOverride().withConventionalRoot( new File( "build/tmp/leveldb" ) ) )
+                .assemble( module );
+            ModuleAssembly configModule = module.layer().module( "Config" );
+            new EntityTestAssembler().defaultServicesVisibleIn( Visibility.layer ).assemble( configModule );
+            new LevelDBEntityStoreAssembler().withConfig( configModule, Visibility.layer ).assemble( module );
+            configModule.forMixin( LevelDBEntityStoreConfiguration.class ).declareDefaults().flavour().set( "java" );
+        };
+    }
+
+    @Override
+    public void cleanUp()
+        throws Exception
+    {
+        super.cleanUp();
+        FileUtil.removeDirectory( new File( "build/tmp/leveldb" ) );
+    }
+}
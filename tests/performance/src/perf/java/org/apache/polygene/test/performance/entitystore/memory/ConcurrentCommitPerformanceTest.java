@@ -0,0 +1,157 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.polygene.test.performance.entitystore.memory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.polygene.api.identity.Identity;
+import org.apache.polygene.api.unitofwork.ConcurrentEntityModificationException;
+import org.apache.polygene.api.unitofwork.UnitOfWork;
+import org.apache.polygene.bootstrap.ModuleAssembly;
+import org.apache.polygene.entitystore.memory.assembly.MemoryEntityStoreAssembler;
+import org.apache.polygene.test.AbstractPolygeneTest;
+import org.apache.polygene.test.performance.entitystore.SimpleProduct;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Commit throughput of writer threads updating disjoint or overlapping entities.
+ * <p>
+ * Commits of UnitOfWorks touching disjoint entities should scale with the number of threads, while
+ * writers sharing entities are serialized and some of them fail with concurrent modifications.
+ * </p>
+ */
+public class ConcurrentCommitPerformanceTest
+    extends AbstractPolygeneTest
+{
+    private static final int[] THREAD_COUNTS = { 1, 2, 4, 8 };
+    private static final int COMMITS_PER_THREAD = 20_000;
+    private static final int ENTITIES_PER_THREAD = 16;
+    private static final int SHARED_ENTITIES = 4;
+
+    @Override
+    public void assemble( ModuleAssembly module )
+        throws Exception
+    {
+        new MemoryEntityStoreAssembler().assemble( module );
+        module.entities( SimpleProduct.class );
+    }
+
+    @Test
+    public void whenWritersUpdateDisjointEntitiesThenRecordCommitsPerSecond()
+        throws Exception
+    {
+        for( int threads : THREAD_COUNTS )
+        {
+            List<List<Identity>> entities = new ArrayList<>();
+            for( int idx = 0; idx < threads; idx++ )
+            {
+                entities.add( createProducts( ENTITIES_PER_THREAD ) );
+            }
+            run( "Disjoint", threads, entities );
+        }
+    }
+
+    @Test
+    public void whenWritersUpdateOverlappingEntitiesThenRecordCommitsPerSecond()
+        throws Exception
+    {
+        for( int threads : THREAD_COUNTS )
+        {
+            List<Identity> shared = createProducts( SHARED_ENTITIES );
+            List<List<Identity>> entities = new ArrayList<>();
+            for( int idx = 0; idx < threads; idx++ )
+            {
+                entities.add( shared );
+            }
+            run( "Overlapping", threads, entities );
+        }
+    }
+
+    private List<Identity> createProducts( int count )
+        throws Exception
+    {
+        List<Identity> identities = new ArrayList<>( count );
+        try( UnitOfWork uow = unitOfWorkFactory.newUnitOfWork() )
+        {
+            for( int idx = 0; idx < count; idx++ )
+            {
+                identities.add( uow.newEntity( SimpleProduct.class ).identity().get() );
+            }
+            uow.complete();
+        }
+        return identities;
+    }
+
+    private void run( String name, int threads, List<List<Identity>> entities )
+        throws Exception
+    {
+        AtomicLong commits = new AtomicLong();
+        AtomicLong conflicts = new AtomicLong();
+        CountDownLatch start = new CountDownLatch( 1 );
+        ExecutorService executor = Executors.newFixedThreadPool( threads );
+        try
+        {
+            List<Future<?>> writers = new ArrayList<>();
+            for( int thread = 0; thread < threads; thread++ )
+            {
+                List<Identity> identities = entities.get( thread );
+                writers.add( executor.submit( () ->
+                {
+                    start.await();
+                    for( int idx = 0; idx < COMMITS_PER_THREAD; idx++ )
+                    {
+                        try( UnitOfWork uow = unitOfWorkFactory.newUnitOfWork() )
+                        {
+                            Identity identity = identities.get( idx % identities.size() );
+                            uow.get( SimpleProduct.class, identity ).name().set( "Name " + idx );
+                            uow.complete();
+                            commits.incrementAndGet();
+                        }
+                        catch( ConcurrentEntityModificationException e )
+                        {
+                            conflicts.incrementAndGet();
+                        }
+                    }
+                    return null;
+                } ) );
+            }
+            long begin = System.nanoTime();
+            start.countDown();
+            for( Future<?> writer : writers )
+            {
+                writer.get();
+            }
+            long elapsed = System.nanoTime() - begin;
+            double perSecond = commits.get() * (double) TimeUnit.SECONDS.toNanos( 1 ) / elapsed;
+            System.out.println( String.format( Locale.ROOT, "%-11s %2d threads: %,10.0f commits/s, %,7d conflicts",
+                                               name, threads, perSecond, conflicts.get() ) );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+}
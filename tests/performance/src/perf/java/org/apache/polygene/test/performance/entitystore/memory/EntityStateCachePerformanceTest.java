@@ -0,0 +1,132 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.polygene.test.performance.entitystore.memory;
+
+import java.lang.management.ManagementFactory;
+import java.text.NumberFormat;
+import org.apache.polygene.api.common.Visibility;
+import org.apache.polygene.api.identity.StringIdentity;
+import org.apache.polygene.api.unitofwork.UnitOfWork;
+import org.apache.polygene.api.unitofwork.UnitOfWorkFactory;
+import org.apache.polygene.bootstrap.ModuleAssembly;
+import org.apache.polygene.bootstrap.SingletonAssembler;
+import org.apache.polygene.cache.ehcache.EhCacheConfiguration;
+import org.apache.polygene.cache.ehcache.assembly.EhCacheAssembler;
+import org.apache.polygene.entitystore.memory.MemoryEntityStoreService;
+import org.apache.polygene.entitystore.memory.assembly.MemoryEntityStoreAssembler;
+import org.apache.polygene.spi.entitystore.helpers.JSONMapEntityStoreSettings;
+import org.apache.polygene.test.EntityTestAssembler;
+import org.apache.polygene.test.performance.entitystore.ComplexProduct;
+import org.junit.jupiter.api.Test;
+
+import static org.apache.polygene.api.usecase.UsecaseBuilder.newUsecase;
+
+/**
+ * Compare cache hits of the JSON String and parsed state cache modes of JSONMapEntityStoreMixin.
+ * <p>
+ * Records the latency and the allocated bytes per entity load, all loads are cache hits.
+ * </p>
+ */
+public class EntityStateCachePerformanceTest
+{
+    private static final int ENTITIES = 1000;
+    private static final int ITERATIONS = 1000000;
+
+    @Test
+    public void whenReadCachedEntitiesWithJsonCacheThenRecordLatencyAndAllocation()
+        throws Exception
+    {
+        readCachedEntities( "JSON String cache", false );
+    }
+
+    @Test
+    public void whenReadCachedEntitiesWithParsedCacheThenRecordLatencyAndAllocation()
+        throws Exception
+    {
+        readCachedEntities( "Parsed state cache", true );
+    }
+
+    private void readCachedEntities( String name, boolean cacheParsedState )
+        throws Exception
+    {
+        SingletonAssembler assembler = new SingletonAssembler(
+            module ->
+            {
+                module.entities( ComplexProduct.class );
+                ModuleAssembly config = module.layer().module( "Config" );
+                new EntityTestAssembler().defaultServicesVisibleIn( Visibility.layer ).assemble( config );
+                new EhCacheAssembler().withConfig( config, Visibility.layer ).assemble( module );
+                // The default 1MB heap cannot hold all parsed states, measured loads must all be cache hits
+                config.forMixin( EhCacheConfiguration.class ).declareDefaults().heapSize().set( 64L );
+                new MemoryEntityStoreAssembler().assemble( module );
+                module.services( service -> service.hasType( MemoryEntityStoreService.class ) )
+                      .setMetaInfo( new JSONMapEntityStoreSettings().withCacheParsedState( cacheParsedState ) );
+                module.defaultServices();
+            } );
+        try
+        {
+            UnitOfWorkFactory uowf = assembler.module().unitOfWorkFactory();
+            try( UnitOfWork uow = uowf.newUnitOfWork( newUsecase( "Prepare" ) ) )
+            {
+                for( int i = 0; i < ENTITIES; i++ )
+                {
+                    ComplexProduct product = uow.newEntity( ComplexProduct.class, StringIdentity.identityOf( "product" + i ) );
+                    product.name().set( "Product " + i );
+                    product.description().set( "Description of product " + i );
+                }
+                uow.complete();
+            }
+
+            // Warmup
+            readEntities( uowf, ITERATIONS );
+
+            com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            long threadId = Thread.currentThread().getId();
+            long allocatedBefore = threads.getThreadAllocatedBytes( threadId );
+            long start = System.nanoTime();
+            readEntities( uowf, ITERATIONS );
+            long end = System.nanoTime();
+            long allocated = threads.getThreadAllocatedBytes( threadId ) - allocatedBefore;
+
+            NumberFormat format = NumberFormat.getIntegerInstance();
+            System.out.println( name + ": " + format.format( ( end - start ) / ITERATIONS ) + " ns/load, "
+                                + format.format( allocated / ITERATIONS ) + " bytes allocated/load" );
+        }
+        finally
+        {
+            assembler.application().passivate();
+        }
+    }
+
+    private void readEntities( UnitOfWorkFactory uowf, int iterations )
+    {
+        UnitOfWork uow = uowf.newUnitOfWork( newUsecase( "Read" ) );
+        for( int i = 0; i < iterations; i++ )
+        {
+            ComplexProduct product = uow.get( ComplexProduct.class, StringIdentity.identityOf( "product" + ( i % ENTITIES ) ) );
+            product.name().get();
+            if( i % 100 == 0 )
+            {
+                uow.discard();
+                uow = uowf.newUnitOfWork( newUsecase( "Read" ) );
+            }
+        }
+        uow.discard();
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.polygene.test.performance.entitystore.memory;
+
+import java.math.BigDecimal;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.polygene.api.common.Optional;
+import org.apache.polygene.api.common.UseDefaults;
+import org.apache.polygene.api.common.Visibility;
+import org.apache.polygene.api.entity.EntityComposite;
+import org.apache.polygene.api.identity.StringIdentity;
+import org.apache.polygene.api.property.Property;
+import org.apache.polygene.api.unitofwork.UnitOfWork;
+import org.apache.polygene.api.unitofwork.UnitOfWorkFactory;
+import org.apache.polygene.api.value.ValueBuilder;
+import org.apache.polygene.api.value.ValueBuilderFactory;
+import org.apache.polygene.api.value.ValueInterning;
+import org.apache.polygene.bootstrap.ModuleAssembly;
+import org.apache.polygene.bootstrap.SingletonAssembler;
+import org.apache.polygene.entitystore.memory.assembly.MemoryEntityStoreAssembler;
+import org.apache.polygene.test.EntityTestAssembler;
+import org.junit.jupiter.api.Test;
+
+import static org.apache.polygene.api.usecase.UsecaseBuilder.newUsecase;
+
+/**
+ * Retained heap of loaded entities holding equal values, with and without value interning.
+ * <p>
+ * Products are modelled after {@link org.apache.polygene.test.performance.entitystore.ComplexProduct}, with their
+ * unit price as a ValueComposite modelled after {@link org.apache.polygene.test.performance.entitystore.Money}, as
+ * only ValueComposites can be interned. All products share a handful of prices.
+ * </p>
+ */
+public class ValueInterningHeapPerformanceTest
+{
+    private static final int ENTITIES = 20000;
+    private static final int DISTINCT_PRICES = 10;
+
+    @Test
+    public void whenLoadingEntitiesWithoutInterningThenRecordRetainedHeap()
+        throws Exception
+    {
+        loadEntities( "Not interned", null );
+    }
+
+    @Test
+    public void whenLoadingEntitiesWithWeakInterningThenRecordRetainedHeap()
+        throws Exception
+    {
+        loadEntities( "Weak interning", ValueInterning.weak() );
+    }
+
+    @Test
+    public void whenLoadingEntitiesWithBoundedInterningThenRecordRetainedHeap()
+        throws Exception
+    {
+        loadEntities( "Bounded interning", ValueInterning.bounded( 1000 ) );
+    }
+
+    private void loadEntities( String name, ValueInterning interning )
+        throws Exception
+    {
+        SingletonAssembler assembler = new SingletonAssembler(
+            module ->
+            {
+                module.entities( PricedProduct.class );
+                if( interning != null )
+                {
+                    module.values( Price.class ).withInterning( interning );
+                }
+                else
+                {
+                    module.values( Price.class );
+                }
+                ModuleAssembly config = module.layer().module( "Config" );
+                new EntityTestAssembler().defaultServicesVisibleIn( Visibility.layer ).assemble( config );
+                new MemoryEntityStoreAssembler().assemble( module );
+                module.defaultServices();
+            } );
+        try
+        {
+            UnitOfWorkFactory uowf = assembler.module().unitOfWorkFactory();
+            ValueBuilderFactory vbf = assembler.module();
+            try( UnitOfWork uow = uowf.newUnitOfWork( newUsecase( "Prepare" ) ) )
+            {
+                for( int i = 0; i < ENTITIES; i++ )
+                {
+                    PricedProduct product = uow.newEntity( PricedProduct.class, StringIdentity.identityOf( "product" + i ) );
+                    product.name().set( "Product " + i );
+                    product.unitPrice().set( price( vbf, i % DISTINCT_PRICES ) );
+                }
+                uow.complete();
+            }
+
+            long before = usedHeap();
+            List<Price> prices = new ArrayList<>( ENTITIES );
+            try( UnitOfWork uow = uowf.newUnitOfWork( newUsecase( "Load" ) ) )
+            {
+                for( int i = 0; i < ENTITIES; i++ )
+                {
+                    PricedProduct product = uow.get( PricedProduct.class, StringIdentity.identityOf( "product" + i ) );
+                    prices.add( product.unitPrice().get() );
+                }
+                long retained = usedHeap() - before;
+
+                NumberFormat format = NumberFormat.getIntegerInstance();
+                System.out.println( name + ": " + format.format( retained / ENTITIES ) + " bytes retained/entity, "
+                                    + format.format( prices.stream().distinct().count() ) + " distinct prices" );
+            }
+        }
+        finally
+        {
+            assembler.application().passivate();
+        }
+    }
+
+    private static Price price( ValueBuilderFactory vbf, int index )
+    {
+        ValueBuilder<Price> builder = vbf.newValueBuilder( Price.class );
+        builder.prototype().amount().set( new BigDecimal( "9.95" ).add( BigDecimal.valueOf( index ) ) );
+        builder.prototype().currency().set( "EUR" );
+        return builder.newInstance();
+    }
+
+    private static long usedHeap()
+        throws InterruptedException
+    {
+        Runtime runtime = Runtime.getRuntime();
+        for( int i = 0; i < 3; i++ )
+        {
+            System.gc();
+            Thread.sleep( 100 );
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    public interface PricedProduct
+        extends EntityComposite
+    {
+        @UseDefaults
+        Property<String> name();
+
+        @Optional
+        Property<Price> unitPrice();
+    }
+
+    public interface Price
+    {
+        Property<BigDecimal> amount();
+
+        Property<String> currency();
+
+        @UseDefaults
+        Property<Boolean> prefixed();
+    }
+}
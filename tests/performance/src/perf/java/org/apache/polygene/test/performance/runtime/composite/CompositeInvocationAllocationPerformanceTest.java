@@ -0,0 +1,179 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.polygene.test.performance.runtime.composite;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+import org.apache.polygene.api.composite.TransientComposite;
+import org.apache.polygene.api.concern.ConcernOf;
+import org.apache.polygene.api.concern.Concerns;
+import org.apache.polygene.api.injection.scope.This;
+import org.apache.polygene.api.mixin.Mixins;
+import org.apache.polygene.bootstrap.ModuleAssembly;
+import org.apache.polygene.test.AbstractPolygeneTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Heap allocated by composite method calls, measured with the per-thread allocation counter of the JVM.
+ * <p>
+ * Calls without arguments or return value should not allocate once warmed up, whether the method has
+ * concerns or not. Anything left is the cost of the invocation path itself, not of argument boxing.
+ * </p>
+ */
+public class CompositeInvocationAllocationPerformanceTest
+    extends AbstractPolygeneTest
+{
+    private static final int CALLS = 1_000_000;
+    private static final int WARMUPS = 5;
+
+    private com.sun.management.ThreadMXBean threadBean;
+
+    @Override
+    public void assemble( ModuleAssembly module )
+    {
+        module.transients( TouchComposite.class );
+        module.transients( TouchWithTypedConcernComposite.class );
+        module.transients( TouchWithNestedCallComposite.class );
+    }
+
+    @BeforeEach
+    public void assumeAllocationCounter()
+    {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue( bean instanceof com.sun.management.ThreadMXBean, "Thread allocation counter not available" );
+        threadBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue( threadBean.isThreadAllocatedMemorySupported(), "Thread allocation counter not supported" );
+        threadBean.setThreadAllocatedMemoryEnabled( true );
+    }
+
+    @Test
+    public void whenInvokingWithoutConcernsThenNoAllocation()
+    {
+        assertNoAllocation( "Composite, no concerns", transientBuilderFactory.newTransient( TouchComposite.class ) );
+    }
+
+    @Test
+    public void whenInvokingWithTypedConcernThenNoAllocation()
+    {
+        assertNoAllocation( "Composite, typed concern",
+                            transientBuilderFactory.newTransient( TouchWithTypedConcernComposite.class ) );
+    }
+
+    @Test
+    public void whenInvokingReentrantlyWithTypedConcernThenNoAllocation()
+    {
+        assertNoAllocation( "Composite, reentrant concern",
+                            transientBuilderFactory.newTransient( TouchWithNestedCallComposite.class ) );
+    }
+
+    private void assertNoAllocation( String name, Touch touch )
+    {
+        for( int i = 0; i < WARMUPS; i++ )
+        {
+            allocatedBytes( touch );
+        }
+        double bytesPerCall = (double) allocatedBytes( touch ) / CALLS;
+        System.out.println( String.format( Locale.ROOT, "%-30s %8.3f bytes/call", name, bytesPerCall ) );
+        assertThat( bytesPerCall, lessThan( 1.0 ) );
+    }
+
+    private long allocatedBytes( Touch touch )
+    {
+        long threadId = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes( threadId );
+        for( int i = 0; i < CALLS; i++ )
+        {
+            touch.touch();
+        }
+        return threadBean.getThreadAllocatedBytes( threadId ) - before;
+    }
+
+    @Mixins( TouchMixin.class )
+    public interface TouchComposite
+        extends Touch, TransientComposite
+    {
+    }
+
+    @Mixins( TouchMixin.class )
+    @Concerns( TouchTypedConcern.class )
+    public interface TouchWithTypedConcernComposite
+        extends Touch, TransientComposite
+    {
+    }
+
+    @Mixins( NestedTouchMixin.class )
+    @Concerns( TouchTypedConcern.class )
+    public interface TouchWithNestedCallComposite
+        extends Touch, TransientComposite
+    {
+    }
+
+    public interface Touch
+    {
+        void touch();
+    }
+
+    public static class TouchMixin
+        implements Touch
+    {
+        private long count;
+
+        @Override
+        public void touch()
+        {
+            count++;
+        }
+    }
+
+    public static class NestedTouchMixin
+        implements Touch
+    {
+        @This
+        private Touch self;
+
+        private long count;
+
+        @Override
+        public void touch()
+        {
+            count++;
+            if( ( count & 1 ) == 1 )
+            {
+                self.touch();
+            }
+        }
+    }
+
+    public static class TouchTypedConcern
+        extends ConcernOf<Touch>
+        implements Touch
+    {
+        @Override
+        public void touch()
+        {
+            next.touch();
+        }
+    }
+}